@@ -0,0 +1,138 @@
+package com.example.benchmark;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * Compares a JMH JSON result with the stored baseline and prints time (or
+ * throughput) and allocation per operation side by side. Benchmarks slower
+ * or allocating more than the threshold (a fraction, e.g. 0.10) are marked
+ * as regressions. Exits with status 1 on a regression when {@code failOnRegression} is true.
+ * <p>
+ * Usage: {@code BaselineComparison <baseline.json> <result.json> [threshold] [failOnRegression]}
+ * <p>
+ * To refresh the baseline after an intended change, copy
+ * {@code target/jmh-result.json} over {@code src/jmh/baseline/jmh-baseline.json}.
+ */
+public final class BaselineComparison {
+
+    // Allocation changes smaller than this are noise from the profiler itself
+    private static final double MIN_ALLOCATION_DELTA = 16;
+
+    private BaselineComparison() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BaselineComparison <baseline.json> <result.json> [threshold] [failOnRegression]");
+            System.exit(2);
+        }
+        Path baselineFile = Path.of(args[0]);
+        Path resultFile = Path.of(args[1]);
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 0.10;
+        boolean failOnRegression = args.length > 3 && Boolean.parseBoolean(args[3]);
+
+        if (!Files.exists(resultFile)) {
+            System.out.println("No benchmark result at " + resultFile);
+            return;
+        }
+        Map<String, Score> current = read(resultFile);
+        if (!Files.exists(baselineFile)) {
+            System.out.println("No baseline at " + baselineFile + "; copy " + resultFile + " there to create one");
+            return;
+        }
+        Map<String, Score> baseline = read(baselineFile);
+
+        int regressions = 0;
+        System.out.printf("%-75s %14s %14s %8s %12s %12s%n",
+                "Benchmark", "Baseline", "Current", "Change", "Base B/op", "B/op");
+        for (Map.Entry<String, Score> entry : current.entrySet()) {
+            Score now = entry.getValue();
+            Score before = baseline.get(entry.getKey());
+            if (before == null) {
+                System.out.printf("%-75s %14s %14s %8s %12s %12s  new%n", entry.getKey(), "-",
+                        format(now.score, now.unit), "", "-", format(now.allocated));
+                continue;
+            }
+            double change = (now.score - before.score) / before.score;
+            // Throughput scores (ops/s) fall when a benchmark gets slower, times per operation rise
+            boolean slower = now.unit.startsWith("ops/") ? -change > threshold : change > threshold;
+            boolean allocatesMore = now.allocated - before.allocated > MIN_ALLOCATION_DELTA
+                    && now.allocated > before.allocated * (1 + threshold);
+            if (slower || allocatesMore) {
+                regressions++;
+            }
+            System.out.printf("%-75s %14s %14s %+7.1f%% %12s %12s%s%n", entry.getKey(),
+                    format(before.score, before.unit), format(now.score, now.unit), change * 100,
+                    format(before.allocated), format(now.allocated),
+                    slower || allocatesMore ? "  REGRESSION" : "");
+        }
+        for (String removed : baseline.keySet()) {
+            if (!current.containsKey(removed)) {
+                System.out.printf("%-75s %14s%n", removed, "not run");
+            }
+        }
+
+        if (regressions > 0) {
+            System.out.printf("%d benchmark(s) regressed by more than %.0f%%%n", regressions, threshold * 100);
+            if (failOnRegression) {
+                System.exit(1);
+            }
+        }
+    }
+
+    private static Map<String, Score> read(Path file) throws IOException {
+        Map<String, Score> scores = new TreeMap<>();
+        try (Reader reader = Files.newBufferedReader(file)) {
+            for (JsonElement element : JsonParser.parseReader(reader).getAsJsonArray()) {
+                JsonObject run = element.getAsJsonObject();
+                JsonObject primary = run.getAsJsonObject("primaryMetric");
+                double allocated = Double.NaN;
+                JsonObject secondary = run.getAsJsonObject("secondaryMetrics");
+                if (secondary != null) {
+                    // The metric lost its leading "·" in JMH 1.36
+                    for (String name : new String[] { "gc.alloc.rate.norm", "·gc.alloc.rate.norm" }) {
+                        if (secondary.has(name)) {
+                            allocated = secondary.getAsJsonObject(name).get("score").getAsDouble();
+                        }
+                    }
+                }
+                scores.put(key(run), new Score(primary.get("score").getAsDouble(),
+                        primary.get("scoreUnit").getAsString(), allocated));
+            }
+        }
+        return scores;
+    }
+
+    private static String key(JsonObject run) {
+        String name = run.get("benchmark").getAsString();
+        name = name.substring(name.lastIndexOf('.', name.lastIndexOf('.') - 1) + 1);
+        JsonObject params = run.getAsJsonObject("params");
+        if (params == null) {
+            return name;
+        }
+        Map<String, String> sorted = new LinkedHashMap<>();
+        params.keySet().stream().sorted().forEach(param -> sorted.put(param, params.get(param).getAsString()));
+        return name + sorted;
+    }
+
+    private static String format(double score, String unit) {
+        return String.format("%.1f %s", score, unit.replace("/op", ""));
+    }
+
+    private static String format(double bytes) {
+        return Double.isNaN(bytes) ? "-" : String.format("%.0f", bytes);
+    }
+
+    private record Score(double score, String unit, double allocated) {
+    }
+}
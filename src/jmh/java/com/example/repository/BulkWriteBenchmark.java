@@ -0,0 +1,169 @@
+package com.example.repository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.model.naming.CamelCaseToUnderscoresNamingStrategy;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.entity.Auction;
+import com.example.entity.AuctionPriceChange;
+import com.example.entity.CrawlCheckpoint;
+import com.example.entity.DocumentBlob;
+import com.example.entity.DocumentFinding;
+import com.example.entity.DocumentText;
+import com.example.entity.Report;
+import com.example.entity.Role;
+import com.example.entity.SearchHistory;
+import com.example.entity.User;
+import com.example.entity.Valuation;
+import com.example.entity.Vehicle;
+import com.example.entity.WatchedListing;
+
+/**
+ * Rows per second persisting auctions and valuations through Hibernate,
+ * {@value #ROWS} per transaction, with the JDBC batching settings of
+ * {@code application.properties}. {@code ids=identity} maps both entities
+ * with the IDENTITY ids they had before (see {@code orm/identity-ids.xml}),
+ * which makes Hibernate send one INSERT per row; {@code ids=pooled} uses the
+ * entities' pooled table generators, which let the inserts batch.
+ * <p>
+ * Needs MySQL. The schema is dropped and created in a database of its own,
+ * {@code avv_benchmark} on the server and with the credentials of
+ * {@code application.properties}, or at {@code -Dbenchmark.jdbc.url}, e.g.
+ * {@code -Djmh.args="BulkWriteBenchmark -jvmArgsAppend -Dbenchmark.jdbc.url=jdbc:mysql://db:3306/bench"}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BulkWriteBenchmark {
+
+    private static final int ROWS = 500;
+
+    private static final Class<?>[] ENTITIES = { Auction.class, AuctionPriceChange.class, CrawlCheckpoint.class,
+            DocumentBlob.class, DocumentFinding.class, DocumentText.class, Report.class, Role.class,
+            SearchHistory.class, User.class, Valuation.class, Vehicle.class, WatchedListing.class };
+
+    @Param({ "identity", "pooled" })
+    public String ids;
+
+    private SessionFactory sessionFactory;
+    private Vehicle vehicle;
+    private long next;
+
+    @Setup
+    public void setUp() throws IOException {
+        Properties application = new Properties();
+        try (InputStream in = BulkWriteBenchmark.class.getResourceAsStream("/application.properties")) {
+            application.load(in);
+        }
+        String url = System.getProperty("benchmark.jdbc.url", application.getProperty("spring.datasource.url")
+                .replaceFirst("/avv\\?", "/avv_benchmark?createDatabaseIfNotExist=true&"));
+
+        Configuration configuration = new Configuration()
+                .setProperty(AvailableSettings.JAKARTA_JDBC_URL, url)
+                .setProperty(AvailableSettings.JAKARTA_JDBC_USER, System.getProperty("benchmark.jdbc.user",
+                        application.getProperty("spring.datasource.username")))
+                .setProperty(AvailableSettings.JAKARTA_JDBC_PASSWORD, System.getProperty("benchmark.jdbc.password",
+                        application.getProperty("spring.datasource.password")))
+                // Spring Boot's naming, for columns the entities don't name
+                .setProperty(AvailableSettings.PHYSICAL_NAMING_STRATEGY,
+                        CamelCaseToUnderscoresNamingStrategy.class.getName())
+                .setProperty(AvailableSettings.HBM2DDL_AUTO, "create-drop");
+        application.stringPropertyNames().stream()
+                .filter(name -> name.startsWith("spring.jpa.properties.hibernate.jdbc.")
+                        || name.startsWith("spring.jpa.properties.hibernate.order_"))
+                .forEach(name -> configuration.setProperty(name.substring("spring.jpa.properties.".length()),
+                        application.getProperty(name)));
+        for (Class<?> entity : ENTITIES) {
+            configuration.addAnnotatedClass(entity);
+        }
+        if ("identity".equals(ids)) {
+            configuration.addResource("orm/identity-ids.xml");
+        }
+        sessionFactory = configuration.buildSessionFactory();
+
+        vehicle = sessionFactory.fromTransaction(session -> {
+            Role role = new Role();
+            role.setRoleName("USER");
+            session.persist(role);
+            User user = new User();
+            user.setRole(role);
+            user.setFullName("Benchmark");
+            user.setEmail("benchmark@example.com");
+            user.setPasswordHash("-");
+            session.persist(user);
+            Vehicle owned = new Vehicle();
+            owned.setUser(user);
+            owned.setMake("Toyota");
+            owned.setModel("Corolla");
+            owned.setYear(2019);
+            session.persist(owned);
+            return owned;
+        });
+    }
+
+    @TearDown
+    public void tearDown() {
+        sessionFactory.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void auctions() {
+        sessionFactory.inTransaction(session -> {
+            for (int i = 0; i < ROWS; i++) {
+                long n = next++;
+                Auction auction = new Auction();
+                auction.setSource("Copart");
+                auction.setMake("Toyota");
+                auction.setModel("Corolla");
+                auction.setYear(2010 + (int) (n % 14));
+                auction.setMileage((int) (n % 200) * 1_000);
+                auction.setAuctionPrice(BigDecimal.valueOf(80_000 + n % 1_000 * 100));
+                auction.setAuctionDate(LocalDate.now());
+                auction.setVehicleUrl("https://www.copart.example/lot/" + n);
+                session.persist(auction);
+            }
+        });
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void valuations() {
+        sessionFactory.inTransaction(session -> {
+            Vehicle owned = session.getReference(Vehicle.class, vehicle.getVehicleId());
+            for (int i = 0; i < ROWS; i++) {
+                long n = next++;
+                Valuation valuation = new Valuation();
+                valuation.setVehicle(owned);
+                valuation.setEstimatedValue(BigDecimal.valueOf(120_000 + n % 1_000 * 50));
+                valuation.setConfidenceScore(BigDecimal.valueOf(75));
+                valuation.setRulesVersion("benchmark");
+                session.persist(valuation);
+            }
+        });
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.service;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link DocumentParsingService} text extractors, and the
+ * {@link ReportAnalyzer} scan behind them, over saved inspection reports: a
+ * clean one and one full of damage notes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DocumentParsingBenchmark {
+
+    @Param({ "report-clean.txt", "report-accident.txt" })
+    public String report;
+
+    private DocumentParsingService service;
+    private ReportAnalyzer analyzer;
+    private String text;
+
+    @Setup
+    public void setUp() {
+        analyzer = new ReportAnalyzer();
+        service = new DocumentParsingService(analyzer);
+        text = Fixtures.load(report);
+    }
+
+    @Benchmark
+    public String extractVin() {
+        return service.extractVin(text);
+    }
+
+    @Benchmark
+    public Integer extractMileage() {
+        return service.extractMileage(text);
+    }
+
+    @Benchmark
+    public boolean hasAccidentIndicators() {
+        return service.hasAccidentIndicators(text);
+    }
+
+    /** All findings at once, as the document pipeline reads them. */
+    @Benchmark
+    public ReportAnalyzer.ReportFindings analyze() {
+        return analyzer.analyze(text);
+    }
+}
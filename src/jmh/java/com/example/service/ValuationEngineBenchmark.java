@@ -0,0 +1,101 @@
+package com.example.service;
+
+import java.math.BigDecimal;
+import java.time.Year;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import com.example.entity.Auction;
+import com.example.service.ValuationEngineService.ValuationResult;
+import com.example.service.ValuationEngineService.VehicleData;
+
+/**
+ * {@link ValuationEngineService#calculateValuation} priced from the catalog
+ * and from comparable sales, over a rotating set of vehicles.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValuationEngineBenchmark {
+
+    private static final String[][] VEHICLES = {
+            { "Toyota", "Corolla" }, { "Honda", "Civic" }, { "VW", "Polo" }, { "Toyota", "Hilux" } };
+
+    private ValuationEngineService catalogEngine;
+    private ValuationEngineService comparablesEngine;
+    private VehicleData[] vehicles;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        DefaultResourceLoader resourceLoader = new DefaultResourceLoader();
+        PriceCatalogService catalog = new PriceCatalogService(resourceLoader, "classpath:pricing/base-prices.csv");
+        AdjustmentRulesService rules = new AdjustmentRulesService(resourceLoader,
+                "classpath:pricing/adjustment-rules.txt");
+
+        catalogEngine = new ValuationEngineService(catalog, rules, new ComparablesIndex(null, 3), 5);
+
+        ComparablesIndex comparables = new ComparablesIndex(null, 3);
+        int currentYear = Year.now().getValue();
+        for (String[] vehicle : VEHICLES) {
+            for (int i = 0; i < 200; i++) {
+                Auction auction = new Auction();
+                auction.setMake(vehicle[0]);
+                auction.setModel(vehicle[1]);
+                auction.setYear(currentYear - 1 - i % 12);
+                auction.setMileage(20_000 + i * 900);
+                auction.setAuctionPrice(BigDecimal.valueOf(60_000 + i * 1_250L));
+                comparables.record(auction);
+            }
+        }
+        comparablesEngine = new ValuationEngineService(catalog, rules, comparables, 5);
+
+        vehicles = new VehicleData[64];
+        for (int i = 0; i < vehicles.length; i++) {
+            String[] vehicle = VEHICLES[i % VEHICLES.length];
+            VehicleData data = new VehicleData();
+            data.setMake(vehicle[0]);
+            data.setModel(vehicle[1]);
+            data.setYear(currentYear - i % 14);
+            data.setMileage(i % 7 == 0 ? null : 15_000 * (i % 17));
+            data.setNumberOfOwners(i % 6);
+            data.setVin(i % 3 == 0 ? null : "AHTBB3JE20G1234" + (10 + i));
+            data.setFuelType("Petrol");
+            data.setTransmission(i % 2 == 0 ? "Manual" : "Automatic");
+            data.setHasAccidents((i & 1) != 0);
+            data.setRoadworthyPass((i & 2) != 0);
+            data.setTireWorn((i & 4) != 0);
+            data.setSuspensionIssues((i & 8) != 0);
+            vehicles[i] = data;
+        }
+    }
+
+    @Benchmark
+    public ValuationResult catalogValuation() {
+        return catalogEngine.calculateValuation(nextVehicle());
+    }
+
+    @Benchmark
+    public ValuationResult comparablesValuation() {
+        return comparablesEngine.calculateValuation(nextVehicle());
+    }
+
+    private VehicleData nextVehicle() {
+        next = (next + 1) & (vehicles.length - 1);
+        return vehicles[next];
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link WebScrapingService} field extraction over saved listing pages, on
+ * an already parsed document and including the HTML parse.
+ * {@code selectFirstPerSelector} is the extraction as it was before the
+ * single-pass extractor, one {@code selectFirst} per selector, kept as the
+ * reference to compare against. {@code extractWithLearnedPositions} goes
+ * through {@link ListingExtractorRegistry} once it has seen the host. The classifieds page matches nothing but
+ * {@code p}, so every selector walks the whole document.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WebScrapingBenchmark {
+
+    private static final String BASE_URI = "https://listings.example.net/";
+    private static final Pattern YEAR = Pattern.compile("\\d{4}");
+    private static final String[][] SELECTORS = {
+            { ".make", "[data-make]", ".vehicle-make", ".vehicle_make", "span.make", "div.make", "[id*='make']" },
+            { ".model", "[data-model]", ".vehicle-model", ".vehicle_model", "span.model", "div.model",
+                    "[id*='model']" },
+            { ".year", "[data-year]", ".vehicle-year", ".vehicle_year", "span.year", "div.year", "[id*='year']" },
+            { ".mileage", "[data-mileage]", ".vehicle-mileage", ".km", "span.mileage", "div.mileage",
+                    "[id*='mileage']" },
+            { ".price", "[data-price]", ".vehicle-price", ".auction-price", "span.price", "div.price",
+                    "[id*='price']" },
+            { ".description", "[data-description]", ".vehicle-description", "span.description",
+                    "div.description", ".details", "p" } };
+    private static final String[] FIELDS = { "make", "model", "year", "mileage", "price", "description" };
+
+    @Param({ "listing-dealer.html", "listing-auction.html", "listing-classifieds.html" })
+    public String page;
+
+    private WebScrapingService service;
+    private ListingExtractorRegistry registry;
+    private String html;
+    private Document document;
+
+    @Setup
+    public void setUp() {
+        // Extraction only; the fetcher is never used
+        service = new WebScrapingService(null, null, null, 0);
+        html = Fixtures.load(page);
+        document = Jsoup.parse(html, BASE_URI);
+        registry = new ListingExtractorRegistry(100);
+        registry.extract(BASE_URI + page, "Unknown", Jsoup.parse(html, BASE_URI));
+    }
+
+    @Benchmark
+    public Map<String, String> extractListingFields() {
+        return service.extractListingFields(document);
+    }
+
+    @Benchmark
+    public Map<String, String> extractWithLearnedPositions() {
+        return registry.extract(BASE_URI + page, "Unknown", document);
+    }
+
+    @Benchmark
+    public Map<String, String> parseAndExtractListingFields() {
+        return service.extractListingFields(Jsoup.parse(html, BASE_URI));
+    }
+
+    @Benchmark
+    public Map<String, String> selectFirstPerSelector() {
+        Map<String, String> fields = new HashMap<>();
+        for (int f = 0; f < FIELDS.length; f++) {
+            String value = null;
+            for (String selector : SELECTORS[f]) {
+                Element element = document.selectFirst(selector);
+                if (element == null || element.text().isEmpty()) {
+                    continue;
+                }
+                String text = element.text().trim();
+                if (f == 2) {
+                    Matcher matcher = YEAR.matcher(text);
+                    if (!matcher.find()) {
+                        continue;
+                    }
+                    text = matcher.group();
+                } else if (f == 3) {
+                    text = text.replaceAll("[^0-9]", "");
+                }
+                value = text;
+                break;
+            }
+            fields.put(FIELDS[f], value);
+        }
+        return fields;
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.controller;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.entity.WatchedListing;
+import com.example.service.AuctionWatcherService;
+
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequestMapping("/api/watch")
+@RequiredArgsConstructor
+public class AuctionWatchController {
+
+    private static final int MAX_LISTED = 500;
+
+    private final AuctionWatcherService auctionWatcherService;
+
+    /**
+     * Watch a listing until it closes; {@code closesAt} (local time) makes
+     * checks more frequent as the close nears.
+     */
+    @PostMapping
+    public ResponseEntity<?> watch(@RequestBody WatchRequest request) {
+        if (request.url() == null || request.url().isBlank()) {
+            return ResponseEntity.badRequest().body("No URL given");
+        }
+        return ResponseEntity.ok(auctionWatcherService.watch(request.url(), request.closesAt()));
+    }
+
+    @DeleteMapping
+    public ResponseEntity<Void> unwatch(@RequestParam String url) {
+        return auctionWatcherService.unwatch(url)
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
+    }
+
+    /** Watched listings, next due first. */
+    @GetMapping
+    public List<WatchedListing> list(@RequestParam(defaultValue = "100") int limit) {
+        return auctionWatcherService.listActive(Math.max(1, Math.min(limit, MAX_LISTED)));
+    }
+
+    public record WatchRequest(String url, LocalDateTime closesAt) {
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.controller;
+
+import java.util.List;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.entity.CrawlCheckpoint;
+import com.example.service.ListingCrawlerService;
+
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequestMapping("/api/scrape/crawl")
+@RequiredArgsConstructor
+public class CrawlController {
+
+    private static final int MAX_LISTED = 100;
+
+    private final ListingCrawlerService listingCrawlerService;
+
+    /**
+     * Start crawling a search or listing page in the background; poll
+     * {@code GET /api/scrape/crawl/{id}} for progress.
+     */
+    @PostMapping
+    public ResponseEntity<?> start(@RequestBody CrawlRequest request) {
+        if (request.url() == null || request.url().isBlank()) {
+            return ResponseEntity.badRequest().body("No URL given");
+        }
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(listingCrawlerService.start(request.url(),
+                    request.maxPages(), request.listingSelector(), request.nextPageSelector()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /** Resume a stopped or failed crawl from its checkpoint. */
+    @PostMapping("/{crawlId}/resume")
+    public ResponseEntity<?> resume(@PathVariable int crawlId, @RequestParam(required = false) Integer maxPages) {
+        if (listingCrawlerService.find(crawlId).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(listingCrawlerService.resume(crawlId, maxPages));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        }
+    }
+
+    /** Stop a running crawl after the page in progress. */
+    @PostMapping("/{crawlId}/stop")
+    public ResponseEntity<Void> stop(@PathVariable int crawlId) {
+        return listingCrawlerService.stop(crawlId)
+                ? ResponseEntity.accepted().build()
+                : ResponseEntity.notFound().build();
+    }
+
+    @GetMapping("/{crawlId}")
+    public ResponseEntity<CrawlCheckpoint> status(@PathVariable int crawlId) {
+        return ResponseEntity.of(listingCrawlerService.find(crawlId));
+    }
+
+    /** Recent crawls, newest first. */
+    @GetMapping
+    public List<CrawlCheckpoint> list(@RequestParam(defaultValue = "20") int limit) {
+        return listingCrawlerService.recent(Math.max(1, Math.min(limit, MAX_LISTED)));
+    }
+
+    public record CrawlRequest(String url, Integer maxPages, String listingSelector, String nextPageSelector) {
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.controller;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.entity.Report;
+import com.example.service.DocumentProcessingService;
+import com.example.service.ReportAnalyzer.Finding;
+
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequestMapping("/api/documents/jobs")
+@RequiredArgsConstructor
+public class DocumentJobController {
+
+    private final DocumentProcessingService documentProcessingService;
+
+    /** State of an uploaded report's text extraction, and the fields parsed from it. */
+    @GetMapping("/{jobId}")
+    public ResponseEntity<JobStatus> status(@PathVariable String jobId) {
+        return ResponseEntity.of(documentProcessingService.findJob(jobId).map(JobStatus::of));
+    }
+
+    /** Everything found in the report's text (VIN, odometer reading, keywords) with offsets. */
+    @GetMapping("/{jobId}/findings")
+    public ResponseEntity<List<Finding>> findings(@PathVariable String jobId) {
+        return ResponseEntity.of(documentProcessingService.findJob(jobId).map(documentProcessingService::findings));
+    }
+
+    /** The full extracted text; read from storage only here. */
+    @GetMapping(value = "/{jobId}/text", produces = MediaType.TEXT_PLAIN_VALUE)
+    public ResponseEntity<String> text(@PathVariable String jobId) {
+        return ResponseEntity.of(documentProcessingService.findJob(jobId).flatMap(documentProcessingService::text));
+    }
+
+    /**
+     * Job state and the parsed fields, without the extracted text itself;
+     * {@code textLength} is set once it is done.
+     */
+    public record JobStatus(String jobId, Integer reportId, String status, String fileType, String error,
+            Integer textLength, String vin, Integer mileage, Boolean accidentIndicators, Boolean roadworthyPass,
+            Integer keywordHits, LocalDateTime uploadedAt, LocalDateTime processedAt) {
+
+        static JobStatus of(Report report) {
+            return new JobStatus(report.getJobId(), report.getReportId(),
+                    report.getStatus() == null ? Report.DONE : report.getStatus(), report.getFileType(),
+                    report.getError(), report.getTextLength(), report.getVin(), report.getMileage(),
+                    report.getAccidentIndicators(), report.getRoadworthyPass(), report.getKeywordHits(),
+                    report.getUploadedAt(), report.getProcessedAt());
+        }
+    }
+}
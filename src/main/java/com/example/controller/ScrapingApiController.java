@@ -0,0 +1,67 @@
+package com.example.controller;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.example.service.BulkScrapingService;
+import com.google.gson.Gson;
+
+@RestController
+@RequestMapping("/api/scrape")
+public class ScrapingApiController {
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final Gson GSON = new Gson();
+
+    private final BulkScrapingService bulkScrapingService;
+    private final int maxUrls;
+
+    public ScrapingApiController(BulkScrapingService bulkScrapingService,
+            @Value("${app.scraping.bulk.max-urls:1000}") int maxUrls) {
+        this.bulkScrapingService = bulkScrapingService;
+        this.maxUrls = maxUrls;
+    }
+
+    /**
+     * Scrape and save a list of listing URLs. The response is one JSON line
+     * per URL, written as soon as that URL is done, in completion order.
+     */
+    @PostMapping("/bulk")
+    public ResponseEntity<?> bulk(@RequestBody List<String> urls) {
+        if (urls == null || urls.isEmpty()) {
+            return ResponseEntity.badRequest().body("No URLs given");
+        }
+        if (urls.size() > maxUrls) {
+            return ResponseEntity.badRequest().body("At most " + maxUrls + " URLs per request");
+        }
+
+        StreamingResponseBody body = out -> {
+            Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+            bulkScrapingService.scrapeAll(urls, outcome -> {
+                try {
+                    writer.write(GSON.toJson(outcome));
+                    writer.write('\n');
+                    writer.flush();
+                } catch (IOException e) {
+                    // Client went away; stops the remaining fetches
+                    throw new UncheckedIOException(e);
+                }
+            });
+            writer.flush();
+        };
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.controller;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.service.SearchIndex.SearchPage;
+import com.example.service.SearchService;
+
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequestMapping("/api/search")
+@RequiredArgsConstructor
+public class SearchController {
+
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private final SearchService searchService;
+
+    /**
+     * Reports and auctions matching {@code q}, best first: words, prefixes
+     * ({@code cor*}) and quoted phrases ({@code "chassis damage"}), all of
+     * which must match. {@code type} is {@code report} or {@code auction};
+     * without it both are searched. Pages count from 0.
+     */
+    @GetMapping
+    public ResponseEntity<?> search(@RequestParam String q, @RequestParam(required = false) String type,
+            @RequestParam(defaultValue = "0") int page, @RequestParam(defaultValue = "20") int size) {
+        if (type != null && !SearchService.REPORT.equals(type) && !SearchService.AUCTION.equals(type)) {
+            return ResponseEntity.badRequest().body("Unknown type: " + type);
+        }
+        SearchPage results = searchService.search(q, type, Math.max(0, page),
+                Math.max(1, Math.min(size, MAX_PAGE_SIZE)));
+        return ResponseEntity.ok(results);
+    }
+}
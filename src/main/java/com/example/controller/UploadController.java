@@ -1,6 +1,7 @@
 package com.example.controller;
 
 import com.example.entity.Auction;
+import com.example.entity.Report;
 import com.example.entity.Vehicle;
 import com.example.entity.User;
 import com.example.service.DocumentParsingService;
@@ -16,6 +17,8 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 @Slf4j
@@ -54,10 +57,12 @@ public class UploadController {
             vehicle.setMileage(parseInt(scraped.get("mileage")));
             vehicle = vehicleManagementService.upsertVehicle(user, vehicle);
 
+            // PDFs are parsed in the background; the review page links to each job's status
+            List<Report> reports = new ArrayList<>();
             if (files != null) {
                 for (MultipartFile file : files) {
                     if (!file.isEmpty()) {
-                        vehicleManagementService.saveReport(vehicle, file);
+                        reports.add(vehicleManagementService.saveReport(vehicle, file));
                     }
                 }
             }
@@ -65,6 +70,7 @@ public class UploadController {
             model.addAttribute("vehicle", vehicle);
             model.addAttribute("auction", auction);
             model.addAttribute("scraped", scraped);
+            model.addAttribute("reports", reports);
             return "review";
 
         } catch (IOException e) {
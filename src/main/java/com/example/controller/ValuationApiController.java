@@ -0,0 +1,67 @@
+package com.example.controller;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.entity.Vehicle;
+import com.example.repository.ValuationRepository;
+import com.example.repository.VehicleRepository;
+import com.example.service.ValuationBreakdown;
+import com.example.service.ValuationEngineService.VehicleData;
+import com.example.service.ValuationSweepService;
+import com.example.service.ValuationSweepService.SweepRequest;
+
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequestMapping("/api/valuations")
+@RequiredArgsConstructor
+public class ValuationApiController {
+
+    private final ValuationRepository valuationRepository;
+    private final VehicleRepository vehicleRepository;
+    private final ValuationSweepService valuationSweepService;
+
+    /** Readable breakdown of a stored valuation, rendered from its compact form. */
+    @GetMapping(value = "/{valuationId}/breakdown", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<String> breakdown(@PathVariable Integer valuationId) {
+        return valuationRepository.findById(valuationId)
+                .filter(valuation -> valuation.getValuationBreakdown() != null)
+                .map(valuation -> ResponseEntity.ok(ValuationBreakdown.render(valuation.getValuationBreakdown())))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * What-if grid for a vehicle across mileages, owner counts and condition
+     * flags. Nothing is persisted.
+     */
+    @PostMapping("/sweep/{vehicleId}")
+    public ResponseEntity<?> sweep(@PathVariable Integer vehicleId, @RequestBody SweepRequest request) {
+        Vehicle vehicle = vehicleRepository.findById(vehicleId).orElse(null);
+        if (vehicle == null) {
+            return ResponseEntity.notFound().build();
+        }
+
+        VehicleData data = new VehicleData();
+        data.setMake(vehicle.getMake());
+        data.setModel(vehicle.getModel());
+        data.setYear(vehicle.getYear());
+        data.setVin(vehicle.getVin());
+        data.setMileage(vehicle.getMileage());
+        data.setFuelType(vehicle.getFuelType());
+        data.setTransmission(vehicle.getTransmission());
+        data.setRoadworthyPass(true);
+
+        try {
+            return ResponseEntity.ok(valuationSweepService.sweep(data, request));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.example.controller;
 import com.example.entity.Vehicle;
 import com.example.entity.Valuation;
 import com.example.repository.VehicleRepository;
+import com.example.service.ValuationBreakdown;
 import com.example.service.ValuationEngineService.VehicleData;
 import com.example.service.ValuationWorkflowService;
 import lombok.RequiredArgsConstructor;
@@ -68,6 +69,7 @@ public class ValuationController {
 
         Valuation valuation = valuationWorkflowService.runValuation(vehicle, data);
         model.addAttribute("valuation", valuation);
+        model.addAttribute("breakdown", ValuationBreakdown.render(valuation.getValuationBreakdown()));
         model.addAttribute("vehicle", vehicle);
         return "results";
     }
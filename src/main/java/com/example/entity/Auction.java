@@ -9,14 +9,18 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "auctions")
+@Table(name = "auctions",
+        uniqueConstraints = @UniqueConstraint(name = "uk_auctions_vehicle_url", columnNames = "vehicle_url"),
+        indexes = @Index(name = "idx_auctions_make_model", columnList = "make, model"))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Auction {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "auctions")
+    @TableGenerator(name = "auctions", table = "id_generators", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "auctions", allocationSize = 50)
     @Column(name = "auction_id")
     private Integer auctionId;
 
@@ -41,14 +45,21 @@ public class Auction {
     @Column(name = "auction_date")
     private LocalDate auctionDate;
 
+    @Column(name = "description", columnDefinition = "TEXT")
+    private String description; // as scraped from the listing, for search
+
     @Column(name = "vehicle_url", length = 255)
-    private String vehicleUrl;
+    private String vehicleUrl; // normalized (see PageCache.normalize); one row per listing
 
     @Column(name = "scraped_at", nullable = false, columnDefinition = "TIMESTAMP DEFAULT CURRENT_TIMESTAMP")
-    private LocalDateTime scrapedAt;
+    private LocalDateTime scrapedAt; // first scraped
+
+    @Column(name = "last_scraped_at")
+    private LocalDateTime lastScrapedAt;
 
     @PrePersist
     protected void onCreate() {
         scrapedAt = LocalDateTime.now();
+        lastScrapedAt = scrapedAt;
     }
 }
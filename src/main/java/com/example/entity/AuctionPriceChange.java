@@ -0,0 +1,38 @@
+package com.example.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * One observed change of an auction's price; append-only. The first row of
+ * an auction is the price it was first scraped at.
+ */
+@Entity
+@Table(name = "auction_price_history",
+        indexes = @Index(name = "idx_auction_price_history_auction", columnList = "auction_id, observed_at"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AuctionPriceChange {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "auction_price_history")
+    @TableGenerator(name = "auction_price_history", table = "id_generators", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "auction_price_history", allocationSize = 50)
+    @Column(name = "price_change_id")
+    private Long priceChangeId;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "auction_id", nullable = false)
+    private Auction auction;
+
+    @Column(name = "price", precision = 12, scale = 2, nullable = false)
+    private BigDecimal price;
+
+    @Column(name = "observed_at", nullable = false)
+    private LocalDateTime observedAt;
+}
@@ -0,0 +1,74 @@
+package com.example.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "crawl_checkpoints")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CrawlCheckpoint {
+
+    public static final String RUNNING = "RUNNING";
+    public static final String STOPPED = "STOPPED";
+    public static final String FAILED = "FAILED";
+    public static final String DONE = "DONE";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "crawl_checkpoints")
+    @TableGenerator(name = "crawl_checkpoints", table = "id_generators", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "crawl_checkpoints", allocationSize = 50)
+    @Column(name = "crawl_id")
+    private Integer crawlId;
+
+    @Column(name = "source", length = 100)
+    private String source;
+
+    @Column(name = "start_url", length = 1024, nullable = false)
+    private String startUrl;
+
+    @Column(name = "next_page_url", length = 1024)
+    private String nextPageUrl; // first index page not yet done; null once the last page is done
+
+    @Column(name = "listing_selector", length = 255)
+    private String listingSelector; // overrides the source's listing-link selector
+
+    @Column(name = "next_page_selector", length = 255)
+    private String nextPageSelector; // overrides the source's pagination selector
+
+    @Column(name = "status", length = 20, nullable = false)
+    private String status;
+
+    @Column(name = "pages_crawled", nullable = false)
+    private int pagesCrawled;
+
+    @Column(name = "listings_found", nullable = false)
+    private int listingsFound;
+
+    @Column(name = "listings_skipped", nullable = false)
+    private int listingsSkipped; // already in auctions, or seen earlier in the crawl
+
+    @Column(name = "listings_saved", nullable = false)
+    private int listingsSaved;
+
+    @Column(name = "listings_failed", nullable = false)
+    private int listingsFailed;
+
+    @Column(name = "last_error", length = 255)
+    private String lastError;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @Column(name = "created_at", nullable = false, columnDefinition = "TIMESTAMP DEFAULT CURRENT_TIMESTAMP")
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One thing ReportAnalyzer found in a document's text (the VIN, the odometer
+ * reading or a keyword) and where. Stored once per distinct document, by
+ * content hash, like its text in document_texts.
+ */
+@Entity
+@Table(name = "document_findings", indexes = @Index(name = "idx_document_findings_content_hash",
+        columnList = "content_hash"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DocumentFinding {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "document_findings")
+    @TableGenerator(name = "document_findings", table = "id_generators", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "document_findings", allocationSize = 50)
+    @Column(name = "finding_id")
+    private Long findingId;
+
+    @Column(name = "content_hash", nullable = false, length = 64)
+    private String contentHash;
+
+    @Column(name = "category", nullable = false, length = 30)
+    private String category; // vin, odometer, or a keyword category
+
+    @Column(name = "matched_text", nullable = false, length = 100)
+    private String matchedText;
+
+    @Column(name = "start_offset", nullable = false)
+    private int startOffset;
+
+    @Column(name = "end_offset", nullable = false)
+    private int endOffset;
+}
@@ -0,0 +1,54 @@
+package com.example.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * Text extracted from one uploaded document, by content hash: the fields
+ * parsed from it and the text itself, deflated. Lookups that only need the
+ * fields go through {@code DocumentTextRepository.findSummaryByContentHash},
+ * which never reads the text; see DocumentTextCache.
+ */
+@Entity
+@Table(name = "document_texts")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DocumentText {
+
+    @Id
+    @Column(name = "content_hash", length = 64)
+    private String contentHash; // SHA-256 of the document, as in document_blobs
+
+    @Column(name = "compressed_text", columnDefinition = "LONGBLOB")
+    private byte[] compressedText; // UTF-8, deflated; see TextCompression
+
+    @Column(name = "text_length")
+    private Integer textLength; // chars, before compression
+
+    @Column(name = "vin", length = 17)
+    private String vin;
+
+    @Column(name = "mileage")
+    private Integer mileage;
+
+    @Column(name = "accident_indicators", nullable = false)
+    private boolean accidentIndicators;
+
+    @Column(name = "roadworthy_pass", nullable = false)
+    private boolean roadworthyPass;
+
+    @Column(name = "keyword_hits")
+    private Integer keywordHits;
+
+    @Column(name = "created_at", nullable = false, columnDefinition = "TIMESTAMP DEFAULT CURRENT_TIMESTAMP")
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
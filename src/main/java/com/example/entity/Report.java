@@ -7,14 +7,27 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "reports")
+@Table(name = "reports",
+        uniqueConstraints = @UniqueConstraint(name = "uk_reports_job_id", columnNames = "job_id"),
+        indexes = {
+                @Index(name = "idx_reports_status", columnList = "status"),
+                @Index(name = "idx_reports_content_hash", columnList = "content_hash")
+        })
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Report {
 
+    // Text extraction states, see DocumentProcessingService; reports from before it are null (done)
+    public static final String PENDING = "PENDING";
+    public static final String PROCESSING = "PROCESSING";
+    public static final String DONE = "DONE";
+    public static final String FAILED = "FAILED";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "reports")
+    @TableGenerator(name = "reports", table = "id_generators", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "reports", allocationSize = 50)
     @Column(name = "report_id")
     private Integer reportId;
 
@@ -25,11 +38,45 @@ public class Report {
     @Column(name = "file_path", nullable = false, length = 255)
     private String filePath;
 
+    @Column(name = "file_name", length = 255)
+    private String fileName; // as uploaded
+
+    @Column(name = "content_hash", length = 64)
+    private String contentHash; // SHA-256 of the file, see DocumentStore
+
     @Column(name = "file_type", length = 50)
     private String fileType; // pdf, jpg, png, etc.
 
-    @Column(name = "extracted_text", columnDefinition = "LONGTEXT")
-    private String extractedText;
+    // Parsed from the extracted text, which is kept once per content hash in document_texts
+    @Column(name = "text_length")
+    private Integer textLength;
+
+    @Column(name = "vin", length = 17)
+    private String vin;
+
+    @Column(name = "mileage")
+    private Integer mileage;
+
+    @Column(name = "accident_indicators")
+    private Boolean accidentIndicators;
+
+    @Column(name = "roadworthy_pass")
+    private Boolean roadworthyPass;
+
+    @Column(name = "keyword_hits")
+    private Integer keywordHits; // see document_findings for what and where
+
+    @Column(name = "job_id", length = 36)
+    private String jobId; // returned to the uploader to poll the extraction status
+
+    @Column(name = "status", length = 20)
+    private String status;
+
+    @Column(name = "error", length = 255)
+    private String error;
+
+    @Column(name = "processed_at")
+    private LocalDateTime processedAt;
 
     @Column(name = "uploaded_at", nullable = false, columnDefinition = "TIMESTAMP DEFAULT CURRENT_TIMESTAMP")
     private LocalDateTime uploadedAt;
@@ -13,7 +13,9 @@ import lombok.NoArgsConstructor;
 public class Role {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "roles")
+    @TableGenerator(name = "roles", table = "id_generators", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "roles", allocationSize = 50)
     @Column(name = "role_id")
     private Integer roleId;
 
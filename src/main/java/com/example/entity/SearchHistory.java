@@ -14,7 +14,9 @@ import java.time.LocalDateTime;
 public class SearchHistory {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "search_history")
+    @TableGenerator(name = "search_history", table = "id_generators", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "search_history", allocationSize = 50)
     @Column(name = "search_id")
     private Integer searchId;
 
@@ -15,7 +15,9 @@ import java.time.LocalDateTime;
 public class Valuation {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "valuations")
+    @TableGenerator(name = "valuations", table = "id_generators", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "valuations", allocationSize = 50)
     @Column(name = "valuation_id")
     private Integer valuationId;
 
@@ -33,7 +35,10 @@ public class Valuation {
     private LocalDateTime generatedAt;
 
     @Column(name = "valuation_breakdown", columnDefinition = "LONGTEXT")
-    private String valuationBreakdown; // JSON format
+    private String valuationBreakdown; // compact JSON array, see ValuationBreakdown
+
+    @Column(name = "rules_version", length = 32)
+    private String rulesVersion; // AdjustmentRules version that priced this valuation
 
     @PrePersist
     protected void onCreate() {
@@ -14,7 +14,9 @@ import java.time.LocalDateTime;
 public class Vehicle {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "vehicles")
+    @TableGenerator(name = "vehicles", table = "id_generators", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "vehicles", allocationSize = 50)
     @Column(name = "vehicle_id")
     private Integer vehicleId;
 
@@ -0,0 +1,61 @@
+package com.example.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "watched_listings",
+        indexes = @Index(name = "idx_watched_listings_due", columnList = "active, next_check_at"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WatchedListing {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "watched_listings")
+    @TableGenerator(name = "watched_listings", table = "id_generators", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "watched_listings", allocationSize = 50)
+    @Column(name = "watch_id")
+    private Integer watchId;
+
+    @Column(name = "vehicle_url", length = 255, nullable = false, unique = true)
+    private String vehicleUrl;
+
+    @Column(name = "source", length = 100)
+    private String source;
+
+    @Column(name = "closes_at")
+    private LocalDateTime closesAt; // when the auction closes, if known; drives the check interval
+
+    @Column(name = "fields_hash", length = 64)
+    private String fieldsHash; // SHA-256 of the last scraped fields, see AuctionWatcherService
+
+    @Column(name = "next_check_at", nullable = false)
+    private LocalDateTime nextCheckAt;
+
+    @Column(name = "last_checked_at")
+    private LocalDateTime lastCheckedAt;
+
+    @Column(name = "last_changed_at")
+    private LocalDateTime lastChangedAt;
+
+    @Column(name = "consecutive_failures", nullable = false)
+    private int consecutiveFailures;
+
+    @Column(name = "last_error", length = 255)
+    private String lastError;
+
+    @Column(name = "active", nullable = false)
+    private boolean active;
+
+    @Column(name = "created_at", nullable = false, columnDefinition = "TIMESTAMP DEFAULT CURRENT_TIMESTAMP")
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
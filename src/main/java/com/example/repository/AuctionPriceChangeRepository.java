@@ -0,0 +1,12 @@
+package com.example.repository;
+
+import com.example.entity.AuctionPriceChange;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface AuctionPriceChangeRepository extends JpaRepository<AuctionPriceChange, Long> {
+    List<AuctionPriceChange> findByAuctionAuctionIdOrderByObservedAt(Integer auctionId);
+}
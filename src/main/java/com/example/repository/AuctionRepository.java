@@ -1,12 +1,44 @@
 package com.example.repository;
 
 import com.example.entity.Auction;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface AuctionRepository extends JpaRepository<Auction, Integer> {
     List<Auction> findByMakeAndModel(String make, String model);
+
+    // Not locking, so it takes no gap lock when the URL is missing
+    boolean existsByVehicleUrl(String vehicleUrl);
+
+    // First by id: the row the duplicates migration keeps, should there still be duplicates.
+    // Locked until the caller's transaction ends, so updates of one listing take turns. Read only
+    // once the row exists: a locking read of a missing URL takes a gap lock
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<Auction> findFirstByVehicleUrlOrderByAuctionId(String vehicleUrl);
+
+    /**
+     * Insert a bare row for a listing unless its URL is taken. An insert of
+     * the same URL by another transaction waits for that one to end, then
+     * does nothing if it committed.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO auctions (auction_id, vehicle_url, scraped_at, last_scraped_at) "
+            + "VALUES (:id, :vehicleUrl, :now, :now) ON DUPLICATE KEY UPDATE auction_id = auction_id",
+            nativeQuery = true)
+    int insertIfAbsent(@Param("id") Integer id, @Param("vehicleUrl") String vehicleUrl,
+            @Param("now") LocalDateTime now);
+
+    Slice<Auction> findAllBy(Pageable pageable);
 }
@@ -0,0 +1,13 @@
+package com.example.repository;
+
+import com.example.entity.CrawlCheckpoint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface CrawlCheckpointRepository extends JpaRepository<CrawlCheckpoint, Integer> {
+    List<CrawlCheckpoint> findAllByOrderByCrawlIdDesc(Pageable pageable);
+}
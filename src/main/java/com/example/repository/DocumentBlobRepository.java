@@ -0,0 +1,37 @@
+package com.example.repository;
+
+import com.example.entity.DocumentBlob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface DocumentBlobRepository extends JpaRepository<DocumentBlob, String> {
+
+    /** Count one more reference; 0 if the blob has no row yet. */
+    @Transactional
+    @Modifying
+    @Query("UPDATE DocumentBlob b SET b.refCount = b.refCount + 1 WHERE b.contentHash = :hash")
+    int addReference(@Param("hash") String hash);
+
+    /** Insert with one reference; fails if another upload inserted it first. */
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO document_blobs (content_hash, size_bytes, ref_count, created_at) "
+            + "VALUES (:hash, :size, 1, CURRENT_TIMESTAMP)", nativeQuery = true)
+    int insertReferenced(@Param("hash") String hash, @Param("size") long size);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE DocumentBlob b SET b.refCount = b.refCount - 1 WHERE b.contentHash = :hash AND b.refCount > 0")
+    int removeReference(@Param("hash") String hash);
+
+    /** Delete the row once nothing references it; 1 if deleted. */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM DocumentBlob b WHERE b.contentHash = :hash AND b.refCount = 0")
+    int deleteUnreferenced(@Param("hash") String hash);
+}
@@ -0,0 +1,12 @@
+package com.example.repository;
+
+import com.example.entity.DocumentFinding;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface DocumentFindingRepository extends JpaRepository<DocumentFinding, Long> {
+    List<DocumentFinding> findByContentHashOrderByStartOffset(String contentHash);
+}
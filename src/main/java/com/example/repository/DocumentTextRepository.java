@@ -0,0 +1,30 @@
+package com.example.repository;
+
+import com.example.entity.DocumentText;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface DocumentTextRepository extends JpaRepository<DocumentText, String> {
+
+    /** The parsed fields of a document, without reading its text. */
+    Optional<DocumentTextSummary> findSummaryByContentHash(String contentHash);
+
+    interface DocumentTextSummary {
+        String getContentHash();
+
+        Integer getTextLength();
+
+        String getVin();
+
+        Integer getMileage();
+
+        boolean isAccidentIndicators();
+
+        boolean isRoadworthyPass();
+
+        Integer getKeywordHits();
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.repository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Ids for rows inserted with plain JDBC, drawn from the same
+ * {@code id_generators} rows as the entities' {@code @TableGenerator}s.
+ * Blocks are claimed the way Hibernate's pooled optimizer claims them:
+ * whoever reads {@code next_val = n} and raises it by the allocation size
+ * owns the block ending at {@code n + 1} (the table stores the last value
+ * used, see {@code hibernate.id.generator.stored_last_used}, on by default),
+ * so JDBC writers and entities never collide.
+ * <p>
+ * When the application starts, each generator is raised past the largest id
+ * in its table, so tables filled under AUTO_INCREMENT carry on from their
+ * last id and a new generator row never hands out an id already in use.
+ */
+@Slf4j
+@Repository
+@DependsOn("entityManagerFactory")
+public class IdAllocator implements InitializingBean {
+
+    /** As in the entities' {@code @TableGenerator(allocationSize = ...)}. */
+    public static final int ALLOCATION_SIZE = 50;
+
+    // Generators are named after the table they number; each to its id column
+    private static final Map<String, String> ID_COLUMNS = Map.ofEntries(
+            Map.entry("auctions", "auction_id"),
+            Map.entry("auction_price_history", "price_change_id"),
+            Map.entry("crawl_checkpoints", "crawl_id"),
+            Map.entry("document_findings", "finding_id"),
+            Map.entry("reports", "report_id"),
+            Map.entry("roles", "role_id"),
+            Map.entry("search_history", "search_id"),
+            Map.entry("users", "user_id"),
+            Map.entry("valuations", "valuation_id"),
+            Map.entry("vehicles", "vehicle_id"),
+            Map.entry("watched_listings", "watch_id"));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    // Generator to the rest of its block for nextId: { next id, last id }
+    private final Map<String, long[]> blocks = new HashMap<>();
+
+    public IdAllocator(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        // Like Hibernate's generator, claim ids outside the caller's transaction so the row lock is short
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Claim at least {@code count} consecutive ids from a generator, e.g.
+     * {@code "valuations"}, and return the first. Ids are claimed in whole
+     * blocks; the rest of the last block goes unused.
+     */
+    public long allocate(String generator, int count) {
+        int blocks = Math.max(1, (count + ALLOCATION_SIZE - 1) / ALLOCATION_SIZE);
+        Long next = transactionTemplate.execute(status -> {
+            Long value = jdbcTemplate.query("SELECT next_val FROM id_generators WHERE sequence_name = ? FOR UPDATE",
+                    rs -> rs.next() ? rs.getLong(1) : null, generator);
+            if (value == null) {
+                throw new IllegalStateException("No id generator named " + generator);
+            }
+            jdbcTemplate.update("UPDATE id_generators SET next_val = ? WHERE sequence_name = ?",
+                    value + (long) blocks * ALLOCATION_SIZE, generator);
+            return value;
+        });
+        // Hibernate reads n as n + 1 and hands out the block ending there
+        return next + 1 - ALLOCATION_SIZE + 1;
+    }
+
+    /** One id from a generator, out of a block held in memory as Hibernate does. */
+    public synchronized long nextId(String generator) {
+        long[] block = blocks.get(generator);
+        if (block == null || block[0] > block[1]) {
+            long first = allocate(generator, ALLOCATION_SIZE);
+            block = new long[] { first, first + ALLOCATION_SIZE - 1 };
+            blocks.put(generator, block);
+        }
+        return block[0]++;
+    }
+
+    /** Batch arguments with a fresh id from {@code generator} put in front of each row. */
+    public List<Object[]> withIds(String generator, List<Object[]> rows) {
+        if (rows.isEmpty()) {
+            return rows;
+        }
+        long id = allocate(generator, rows.size());
+        List<Object[]> numbered = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            Object[] args = new Object[row.length + 1];
+            args[0] = id++;
+            System.arraycopy(row, 0, args, 1, row.length);
+            numbered.add(args);
+        }
+        return numbered;
+    }
+
+    /**
+     * Runs once the entity manager factory has created {@code id_generators},
+     * before scheduled tasks or requests can insert a row.
+     */
+    @Override
+    public void afterPropertiesSet() {
+        ID_COLUMNS.forEach((generator, idColumn) -> transactionTemplate.executeWithoutResult(status -> {
+            Long maxId = jdbcTemplate.queryForObject(
+                    "SELECT COALESCE(MAX(" + idColumn + "), 0) FROM " + generator, Long.class);
+            // The first block handed out, ending at floor + 1, starts right after the largest id
+            long floor = (maxId == null ? 0 : maxId) + ALLOCATION_SIZE - 1;
+            Long value = jdbcTemplate.query("SELECT next_val FROM id_generators WHERE sequence_name = ? FOR UPDATE",
+                    rs -> rs.next() ? rs.getLong(1) : null, generator);
+            if (value == null) {
+                jdbcTemplate.update("INSERT INTO id_generators (sequence_name, next_val) VALUES (?, ?)",
+                        generator, floor);
+            } else if (value < floor) {
+                jdbcTemplate.update("UPDATE id_generators SET next_val = ? WHERE sequence_name = ?", floor,
+                        generator);
+                log.info("Id generator {} raised from {} to {}", generator, value, floor);
+            }
+        }));
+    }
+}
@@ -1,12 +1,18 @@
 package com.example.repository;
 
 import com.example.entity.Report;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ReportRepository extends JpaRepository<Report, Integer> {
     List<Report> findByVehicleVehicleId(Integer vehicleId);
+
+    Optional<Report> findByJobId(String jobId);
+
+    List<Report> findByStatusOrderByReportId(String status, Pageable pageable);
 }
@@ -0,0 +1,84 @@
+package com.example.repository;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.entity.Valuation;
+
+/**
+ * Writes valuations and their search-history rows with JDBC batch inserts,
+ * one transaction per call. Used for bulk revaluations where one
+ * {@code save()} per row would mean thousands of round trips. Ids come from
+ * the {@link IdAllocator}, so a batch needs no generated keys read back.
+ */
+@Repository
+public class ValuationBatchWriter {
+
+    private static final String INSERT_VALUATION = "INSERT INTO valuations "
+            + "(valuation_id, vehicle_id, estimated_value, confidence_score, generated_at, valuation_breakdown, "
+            + "rules_version) VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_SEARCH_HISTORY = "INSERT INTO search_history "
+            + "(search_id, user_id, vehicle_id, searched_at) VALUES (?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final IdAllocator idAllocator;
+
+    public ValuationBatchWriter(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+            IdAllocator idAllocator) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.idAllocator = idAllocator;
+    }
+
+    /**
+     * Insert the valuations and one search-history row each in a single
+     * transaction. Generated ids and timestamps are set on the given entities;
+     * vehicles must already be persisted and have a user.
+     */
+    public void insertAll(List<Valuation> valuations) {
+        if (valuations.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        Timestamp timestamp = Timestamp.valueOf(now);
+
+        int firstValuationId = (int) idAllocator.allocate("valuations", valuations.size());
+        int firstSearchId = (int) idAllocator.allocate("search_history", valuations.size());
+        for (int i = 0; i < valuations.size(); i++) {
+            valuations.get(i).setValuationId(firstValuationId + i);
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate(INSERT_VALUATION, valuations, valuations.size(), (ps, valuation) -> {
+                ps.setInt(1, valuation.getValuationId());
+                ps.setInt(2, valuation.getVehicle().getVehicleId());
+                ps.setBigDecimal(3, valuation.getEstimatedValue());
+                ps.setBigDecimal(4, valuation.getConfidenceScore());
+                ps.setTimestamp(5, timestamp);
+                if (valuation.getValuationBreakdown() != null) {
+                    ps.setString(6, valuation.getValuationBreakdown());
+                } else {
+                    ps.setNull(6, Types.LONGVARCHAR);
+                }
+                ps.setString(7, valuation.getRulesVersion());
+            });
+
+            int[] searchId = { firstSearchId };
+            jdbcTemplate.batchUpdate(INSERT_SEARCH_HISTORY, valuations, valuations.size(), (ps, valuation) -> {
+                ps.setInt(1, searchId[0]++);
+                ps.setInt(2, valuation.getVehicle().getUser().getUserId());
+                ps.setInt(3, valuation.getVehicle().getVehicleId());
+                ps.setTimestamp(4, timestamp);
+            });
+        });
+        valuations.forEach(valuation -> valuation.setGeneratedAt(now));
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.repository;
+
+import com.example.entity.WatchedListing;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface WatchedListingRepository extends JpaRepository<WatchedListing, Integer> {
+    Optional<WatchedListing> findByVehicleUrl(String vehicleUrl);
+
+    List<WatchedListing> findByActiveTrueAndNextCheckAtLessThanEqualOrderByNextCheckAt(LocalDateTime now,
+            Pageable pageable);
+
+    List<WatchedListing> findByActiveTrueOrderByNextCheckAt(Pageable pageable);
+
+    /** Push the next check of still watched listings out to {@code until}; the number leased. */
+    @Transactional
+    @Modifying
+    @Query("UPDATE WatchedListing w SET w.nextCheckAt = :until WHERE w.watchId IN :ids AND w.active = true")
+    int lease(@Param("ids") Collection<Integer> ids, @Param("until") LocalDateTime until);
+
+    /**
+     * Write the outcome of a check, unless the listing was unwatched while
+     * it ran; 0 then. What {@code watch} sets, e.g. the close, is left as it is.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE WatchedListing w SET w.fieldsHash = :fieldsHash, w.lastCheckedAt = :lastCheckedAt, "
+            + "w.lastChangedAt = :lastChangedAt, w.consecutiveFailures = :consecutiveFailures, "
+            + "w.lastError = :lastError, w.nextCheckAt = :nextCheckAt, w.active = :active "
+            + "WHERE w.watchId = :watchId AND w.active = true")
+    int recordCheck(@Param("watchId") Integer watchId, @Param("fieldsHash") String fieldsHash,
+            @Param("lastCheckedAt") LocalDateTime lastCheckedAt, @Param("lastChangedAt") LocalDateTime lastChangedAt,
+            @Param("consecutiveFailures") int consecutiveFailures, @Param("lastError") String lastError,
+            @Param("nextCheckAt") LocalDateTime nextCheckAt, @Param("active") boolean active);
+}
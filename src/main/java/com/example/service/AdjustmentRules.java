@@ -0,0 +1,255 @@
+package com.example.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Immutable, compiled snapshot of the valuation adjustment rules, parsed once
+ * from a rules file (see {@code pricing/adjustment-rules.txt}). Each banded
+ * factor is compiled into sorted bound/percent arrays, and into a flat lookup
+ * table when its bounds span a small range, so evaluating a rule costs about
+ * the same as the if/else ladder it replaced.
+ */
+public final class AdjustmentRules {
+
+    static final int MIN_PERCENT = 1;
+    static final int MAX_PERCENT = 200;
+
+    private final String version;
+    private final Bands age;
+    private final Bands mileage;
+    private final Bands owners;
+    private final int accidentPenalty;
+    private final int roadworthyPenalty;
+    private final int tirePenalty;
+    private final int suspensionPenalty;
+
+    private AdjustmentRules(String version, Bands age, Bands mileage, Bands owners, int accidentPenalty,
+            int roadworthyPenalty, int tirePenalty, int suspensionPenalty) {
+        this.version = version;
+        this.age = age;
+        this.mileage = mileage;
+        this.owners = owners;
+        this.accidentPenalty = accidentPenalty;
+        this.roadworthyPenalty = roadworthyPenalty;
+        this.tirePenalty = tirePenalty;
+        this.suspensionPenalty = suspensionPenalty;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    /** Age depreciation (percent) for a vehicle of the given age in years. */
+    public int ageAdjustment(int ageYears) {
+        return age.percentFor(ageYears);
+    }
+
+    /** Mileage adjustment (percent); missing or non-positive mileage is "unknown". */
+    public int mileageAdjustment(Integer km) {
+        return km == null || km <= 0 ? mileage.unknown : mileage.percentFor(km);
+    }
+
+    /** Owner-count adjustment (percent); missing or non-positive counts are "unknown". */
+    public int ownerAdjustment(Integer numberOfOwners) {
+        return numberOfOwners == null || numberOfOwners <= 0 ? owners.unknown : owners.percentFor(numberOfOwners);
+    }
+
+    public int getAccidentPenalty() {
+        return accidentPenalty;
+    }
+
+    public int getRoadworthyPenalty() {
+        return roadworthyPenalty;
+    }
+
+    public int getTirePenalty() {
+        return tirePenalty;
+    }
+
+    public int getSuspensionPenalty() {
+        return suspensionPenalty;
+    }
+
+    /**
+     * Parse and compile a rules file. Lines are {@code @version} directives,
+     * {@code <factor> <upper-bound|*|unknown> <percent>} bands, or
+     * {@code <condition> <percent>} penalties.
+     */
+    public static AdjustmentRules parse(Reader source) throws IOException {
+        String version = null;
+        BandsBuilder age = new BandsBuilder("age", false);
+        BandsBuilder mileage = new BandsBuilder("mileage", true);
+        BandsBuilder owners = new BandsBuilder("owners", true);
+        Map<String, Integer> penalties = new TreeMap<>();
+
+        BufferedReader reader = new BufferedReader(source);
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            try {
+                String[] parts = line.split("\\s+");
+                switch (parts[0]) {
+                    case "@version" -> version = requireParts(parts, 2)[1];
+                    case "age" -> age.add(requireParts(parts, 3));
+                    case "mileage" -> mileage.add(requireParts(parts, 3));
+                    case "owners" -> owners.add(requireParts(parts, 3));
+                    case "accident", "roadworthy-fail", "tires-worn", "suspension" -> {
+                        if (penalties.put(parts[0], percent(requireParts(parts, 2)[1])) != null) {
+                            throw new IllegalArgumentException("Duplicate penalty " + parts[0]);
+                        }
+                    }
+                    default -> throw new IllegalArgumentException("Unknown rule " + parts[0]);
+                }
+            } catch (RuntimeException e) {
+                throw new IOException("Invalid adjustment rules line " + lineNumber + ": " + line, e);
+            }
+        }
+
+        if (version == null) {
+            throw new IOException("Adjustment rules have no @version directive");
+        }
+        try {
+            return new AdjustmentRules(version, age.build(), mileage.build(), owners.build(),
+                    requirePenalty(penalties, "accident"), requirePenalty(penalties, "roadworthy-fail"),
+                    requirePenalty(penalties, "tires-worn"), requirePenalty(penalties, "suspension"));
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid adjustment rules: " + e.getMessage(), e);
+        }
+    }
+
+    private static String[] requireParts(String[] parts, int count) {
+        if (parts.length != count) {
+            throw new IllegalArgumentException("Expected " + (count - 1) + " argument(s) for " + parts[0]);
+        }
+        return parts;
+    }
+
+    private static int requirePenalty(Map<String, Integer> penalties, String name) {
+        Integer percent = penalties.get(name);
+        if (percent == null) {
+            throw new IllegalArgumentException("Missing penalty " + name);
+        }
+        return percent;
+    }
+
+    private static int percent(String value) {
+        int percent = Integer.parseInt(value);
+        // Bounded so that the product of every factor still fits the kernel's long
+        if (percent < MIN_PERCENT || percent > MAX_PERCENT) {
+            throw new IllegalArgumentException("Percent must be between " + MIN_PERCENT + " and "
+                    + MAX_PERCENT + ": " + value);
+        }
+        return percent;
+    }
+
+    /**
+     * A compiled banded factor. {@code percents[i]} applies up to and including
+     * {@code bounds[i]}; the extra last percent applies above every bound.
+     */
+    private static final class Bands {
+        private static final int MAX_TABLE_SIZE = 1024;
+
+        private final int[] bounds;
+        private final int[] percents;
+        private final int unknown;
+        // Flat table for values from tableBase up to the last bound, or null
+        private final int[] table;
+        private final int tableBase;
+
+        private Bands(int[] bounds, int[] percents, int unknown) {
+            this.bounds = bounds;
+            this.percents = percents;
+            this.unknown = unknown;
+            int first = bounds[0];
+            long span = (long) bounds[bounds.length - 1] - first + 1;
+            if (span <= MAX_TABLE_SIZE) {
+                table = new int[(int) span];
+                for (int i = 0; i < table.length; i++) {
+                    table[i] = search(first + i);
+                }
+                tableBase = first;
+            } else {
+                table = null;
+                tableBase = 0;
+            }
+        }
+
+        int percentFor(int value) {
+            if (table != null) {
+                int i = value - tableBase;
+                return i <= 0 ? table[0] : i < table.length ? table[i] : percents[bounds.length];
+            }
+            return search(value);
+        }
+
+        private int search(int value) {
+            int i = Arrays.binarySearch(bounds, value);
+            return percents[i >= 0 ? i : -i - 1];
+        }
+    }
+
+    /**
+     * Mutable accumulator for one banded factor while parsing.
+     */
+    private static final class BandsBuilder {
+        private final String name;
+        private final boolean allowsUnknown;
+        private final TreeMap<Integer, Integer> bands = new TreeMap<>();
+        private Integer above;
+        private Integer unknown;
+
+        private BandsBuilder(String name, boolean allowsUnknown) {
+            this.name = name;
+            this.allowsUnknown = allowsUnknown;
+        }
+
+        void add(String[] parts) {
+            int percent = percent(parts[2]);
+            Integer previous;
+            switch (parts[1]) {
+                case "*" -> {
+                    previous = above;
+                    above = percent;
+                }
+                case "unknown" -> {
+                    if (!allowsUnknown) {
+                        throw new IllegalArgumentException(name + " has no unknown band");
+                    }
+                    previous = unknown;
+                    unknown = percent;
+                }
+                default -> previous = bands.put(Integer.valueOf(parts[1]), percent);
+            }
+            if (previous != null) {
+                throw new IllegalArgumentException("Duplicate " + name + " band " + parts[1]);
+            }
+        }
+
+        Bands build() {
+            if (bands.isEmpty() || above == null) {
+                throw new IllegalArgumentException(name + " needs at least one bound and a \"*\" band");
+            }
+            if (allowsUnknown && unknown == null) {
+                throw new IllegalArgumentException(name + " needs an \"unknown\" band");
+            }
+            int[] bounds = bands.keySet().stream().mapToInt(Integer::intValue).toArray();
+            int[] percents = new int[bounds.length + 1];
+            int i = 0;
+            for (int percent : bands.values()) {
+                percents[i++] = percent;
+            }
+            percents[bounds.length] = above;
+            return new Bands(bounds, percents, allowsUnknown ? unknown : 0);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Holds the active {@link AdjustmentRules}. Rules are compiled once at startup
+ * and swapped atomically when the backing file changes; a valuation reads the
+ * reference once, so it is priced by exactly one rules version.
+ */
+@Service
+public class AdjustmentRulesService {
+
+    private final ReloadableResource<AdjustmentRules> rules;
+
+    public AdjustmentRulesService(ResourceLoader resourceLoader,
+            @Value("${app.valuation.rules:classpath:pricing/adjustment-rules.txt}") String rulesLocation) {
+        this.rules = new ReloadableResource<>("adjustment rules", resourceLoader.getResource(rulesLocation),
+                AdjustmentRules::parse, loaded -> "version " + loaded.getVersion());
+    }
+
+    public AdjustmentRules getRules() {
+        return rules.get();
+    }
+
+    /**
+     * Re-read and compile the rules file and swap it in. Rules that fail to
+     * parse are rejected and the previous version stays active.
+     */
+    public AdjustmentRules reload() {
+        return rules.reload();
+    }
+
+    /**
+     * Poll the rules file and hot-swap it when it has been modified.
+     */
+    @Scheduled(fixedDelayString = "${app.valuation.rules.refresh-interval:60000}")
+    public void reloadIfModified() {
+        rules.reloadIfModified();
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.service;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.example.repository.IdAllocator;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * One-off collapse of duplicate auction rows, left by scraping the same
+ * listing more than once, to one row per normalized {@code vehicle_url}
+ * (see {@link PageCache#normalize}). Enable with
+ * {@code app.auctions.dedupe-on-startup=true}.
+ * <p>
+ * Rows are read in id order. The first row of a listing is kept, and each
+ * later row folds its values into it, as if it had been scraped through the
+ * upsert. A price that differs from the last one goes into
+ * {@code auction_price_history}, dated when that row was scraped. Then the
+ * later row is deleted.
+ * <p>
+ * Re-running is safe: a kept row's last recorded price is read back from
+ * the history, so prices are not recorded twice. Once no duplicates are
+ * left, the unique key on {@code vehicle_url} is added. The normalized URLs
+ * seen so far are held in memory, about 100 bytes per listing.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.auctions.dedupe-on-startup", havingValue = "true")
+public class AuctionDeduplicationMigration implements ApplicationRunner {
+
+    private static final int BATCH_SIZE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final IdAllocator idAllocator;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        Map<Integer, BigDecimal> lastPrices = new HashMap<>();
+        jdbcTemplate.query("SELECT auction_id, price FROM auction_price_history ORDER BY price_change_id",
+                rs -> {
+                    lastPrices.put(rs.getInt(1), rs.getBigDecimal(2));
+                });
+
+        Map<String, Integer> kept = new HashMap<>();
+        List<Object[]> renames = new ArrayList<>();
+        int lastId = 0;
+        int collapsed = 0;
+        int priceChanges = 0;
+        while (true) {
+            List<Object[]> rows = jdbcTemplate.query(
+                    "SELECT auction_id, vehicle_url, source, make, model, year, mileage, auction_price, "
+                            + "auction_date, scraped_at FROM auctions "
+                            + "WHERE auction_id > ? AND vehicle_url IS NOT NULL ORDER BY auction_id LIMIT ?",
+                    (rs, rowNum) -> new Object[] { rs.getInt(1), rs.getString(2), rs.getString(3),
+                            rs.getString(4), rs.getString(5), rs.getObject(6), rs.getObject(7),
+                            rs.getBigDecimal(8), rs.getDate(9), rs.getTimestamp(10) },
+                    lastId, BATCH_SIZE);
+            if (rows.isEmpty()) {
+                break;
+            }
+
+            List<Object[]> history = new ArrayList<>();
+            List<Object[]> updates = new ArrayList<>();
+            List<Object[]> deletes = new ArrayList<>();
+            for (Object[] row : rows) {
+                int id = (Integer) row[0];
+                lastId = id;
+                String url = PageCache.normalize((String) row[1]);
+                BigDecimal price = (BigDecimal) row[7];
+                Timestamp scrapedAt = (Timestamp) row[9];
+                Integer keeper = kept.putIfAbsent(url, id);
+                if (keeper == null) {
+                    if (!url.equals(row[1])) {
+                        renames.add(new Object[] { url, id });
+                    }
+                    if (price != null && !lastPrices.containsKey(id)) {
+                        history.add(new Object[] { id, price, scrapedAt });
+                        lastPrices.put(id, price);
+                    }
+                    continue;
+                }
+                BigDecimal lastPrice = lastPrices.get(keeper);
+                if (price != null && (lastPrice == null || lastPrice.compareTo(price) != 0)) {
+                    history.add(new Object[] { keeper, price, scrapedAt });
+                    lastPrices.put(keeper, price);
+                }
+                updates.add(new Object[] { row[2], row[3], row[4], row[5], row[6], price, row[8], scrapedAt,
+                        keeper });
+                deletes.add(new Object[] { keeper, id });
+            }
+
+            jdbcTemplate.batchUpdate("INSERT INTO auction_price_history (price_change_id, auction_id, price, "
+                    + "observed_at) VALUES (?, ?, ?, ?)", idAllocator.withIds("auction_price_history", history));
+            jdbcTemplate.batchUpdate("UPDATE auctions SET source = COALESCE(?, source), make = COALESCE(?, make), "
+                    + "model = COALESCE(?, model), year = COALESCE(?, year), mileage = COALESCE(?, mileage), "
+                    + "auction_price = COALESCE(?, auction_price), auction_date = COALESCE(?, auction_date), "
+                    + "last_scraped_at = ? WHERE auction_id = ?", updates);
+            // History written against a duplicate, should the upsert have run before this migration
+            jdbcTemplate.batchUpdate("UPDATE auction_price_history SET auction_id = ? WHERE auction_id = ?", deletes);
+            jdbcTemplate.batchUpdate("DELETE FROM auctions WHERE auction_id = ?",
+                    deletes.stream().map(delete -> new Object[] { delete[1] }).toList());
+            collapsed += deletes.size();
+            priceChanges += history.size();
+        }
+
+        // Renamed only now, when no duplicate holds the normalized URL any more
+        jdbcTemplate.batchUpdate("UPDATE auctions SET vehicle_url = ? WHERE auction_id = ?", renames);
+        try {
+            jdbcTemplate.execute("CREATE UNIQUE INDEX uk_auctions_vehicle_url ON auctions (vehicle_url)");
+        } catch (DataAccessException e) {
+            log.debug("Unique key on auctions.vehicle_url not added: {}", e.getMessage());
+        }
+        log.info("Auction deduplication finished: {} listings, {} duplicate rows removed, {} URLs normalized, "
+                + "{} price changes recorded", kept.size(), collapsed, renames.size(), priceChanges);
+    }
+}
@@ -0,0 +1,291 @@
+package com.example.service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jsoup.HttpStatusException;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.example.entity.WatchedListing;
+import com.example.repository.WatchedListingRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps re-scraping watched auction listings until they close. Each listing
+ * has its own next check time, sooner the closer the auction is to closing:
+ * a fraction of the time left, between {@code min-interval-seconds} and
+ * {@code max-interval-seconds}, with random jitter so listings added
+ * together drift apart. After the close one last check records the final
+ * price and the listing is retired.
+ * <p>
+ * The scraped fields are hashed; a new auction snapshot is written only
+ * when the hash changes. A poller claims due listings, at most as many as
+ * there are free workers, by pushing their next check out by a lease; so
+ * however many listings fall due at once, only {@code threads} are fetched
+ * at a time and the rest wait for the next poll. A check writes back only
+ * the columns it owns, and nothing once the listing was unwatched. Failures
+ * back off exponentially; a listing that is gone (404/410) or keeps failing
+ * is retired.
+ */
+@Slf4j
+@Service
+public class AuctionWatcherService implements DisposableBean {
+
+    // Check every (time left / this) while the auction is open
+    private static final int CLOSING_DIVISOR = 8;
+    private static final HexFormat HEX = HexFormat.of();
+
+    private final WebScrapingService webScrapingService;
+    private final VehicleManagementService vehicleManagementService;
+    private final WatchedListingRepository watchedListingRepository;
+    private final int threads;
+    private final Duration minInterval;
+    private final Duration maxInterval;
+    private final double jitter;
+    private final int maxFailures;
+    private final Duration closeGrace;
+    private final Duration lease;
+    private final Clock clock;
+    private final ExecutorService workers;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    @Autowired
+    public AuctionWatcherService(WebScrapingService webScrapingService,
+            VehicleManagementService vehicleManagementService,
+            WatchedListingRepository watchedListingRepository,
+            @Value("${app.watcher.threads:4}") int threads,
+            @Value("${app.watcher.min-interval-seconds:60}") long minIntervalSeconds,
+            @Value("${app.watcher.max-interval-seconds:21600}") long maxIntervalSeconds,
+            @Value("${app.watcher.jitter:0.1}") double jitter,
+            @Value("${app.watcher.max-failures:8}") int maxFailures,
+            @Value("${app.watcher.close-grace-seconds:600}") long closeGraceSeconds,
+            @Value("${app.watcher.lease-seconds:600}") long leaseSeconds) {
+        this(webScrapingService, vehicleManagementService, watchedListingRepository, threads,
+                Duration.ofSeconds(minIntervalSeconds), Duration.ofSeconds(maxIntervalSeconds), jitter, maxFailures,
+                Duration.ofSeconds(closeGraceSeconds), Duration.ofSeconds(leaseSeconds), Clock.systemDefaultZone());
+    }
+
+    AuctionWatcherService(WebScrapingService webScrapingService, VehicleManagementService vehicleManagementService,
+            WatchedListingRepository watchedListingRepository, int threads, Duration minInterval,
+            Duration maxInterval, double jitter, int maxFailures, Duration closeGrace, Duration lease, Clock clock) {
+        this.webScrapingService = webScrapingService;
+        this.vehicleManagementService = vehicleManagementService;
+        this.watchedListingRepository = watchedListingRepository;
+        this.threads = threads;
+        this.minInterval = minInterval;
+        this.maxInterval = maxInterval;
+        this.jitter = jitter;
+        this.maxFailures = maxFailures;
+        this.closeGrace = closeGrace;
+        this.lease = lease;
+        this.clock = clock;
+        this.workers = Executors.newFixedThreadPool(threads, Thread.ofPlatform().name("auction-watcher-", 0)
+                .daemon(true).factory());
+    }
+
+    /**
+     * Start watching a listing, or update when it closes. The first check is
+     * spread over the minimum interval rather than made at once.
+     */
+    public WatchedListing watch(String url, LocalDateTime closesAt) {
+        String normalized = PageCache.normalize(url);
+        WatchedListing watched = watchedListingRepository.findByVehicleUrl(normalized).orElseGet(() -> {
+            WatchedListing created = new WatchedListing();
+            created.setVehicleUrl(normalized);
+            created.setSource(webScrapingService.detectAuctionSource(normalized));
+            return created;
+        });
+        watched.setClosesAt(closesAt);
+        watched.setActive(true);
+        watched.setConsecutiveFailures(0);
+        watched.setLastError(null);
+        watched.setNextCheckAt(now().plus(jittered(minInterval, 1.0)));
+        return watchedListingRepository.save(watched);
+    }
+
+    /** Stop watching a listing; false if it was not watched. */
+    public boolean unwatch(String url) {
+        return watchedListingRepository.findByVehicleUrl(PageCache.normalize(url)).map(watched -> {
+            watched.setActive(false);
+            watchedListingRepository.save(watched);
+            return true;
+        }).orElse(false);
+    }
+
+    public List<WatchedListing> listActive(int limit) {
+        return watchedListingRepository.findByActiveTrueOrderByNextCheckAt(PageRequest.of(0, limit));
+    }
+
+    /**
+     * Claim due listings for the free workers and check them in the
+     * background.
+     */
+    @Scheduled(fixedDelayString = "${app.watcher.poll-interval-millis:15000}",
+            initialDelayString = "${app.watcher.poll-interval-millis:15000}")
+    public void poll() {
+        int free = threads - inFlight.get();
+        if (free <= 0) {
+            return;
+        }
+        LocalDateTime now = now();
+        List<WatchedListing> due = watchedListingRepository
+                .findByActiveTrueAndNextCheckAtLessThanEqualOrderByNextCheckAt(now, PageRequest.of(0, free));
+        if (due.isEmpty()) {
+            return;
+        }
+        // Leased, so a check still running at the next poll is not claimed twice
+        for (WatchedListing watched : due) {
+            watched.setNextCheckAt(now.plus(lease));
+        }
+        watchedListingRepository.lease(due.stream().map(WatchedListing::getWatchId).toList(), now.plus(lease));
+        for (WatchedListing watched : due) {
+            inFlight.incrementAndGet();
+            workers.execute(() -> {
+                try {
+                    check(watched);
+                } catch (RuntimeException e) {
+                    log.error("Watching " + watched.getVehicleUrl() + " failed", e);
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+            });
+        }
+    }
+
+    /**
+     * Scrape one listing, bypassing a fresh page in the page cache, record a
+     * snapshot if its fields changed and schedule the next check.
+     */
+    void check(WatchedListing watched) {
+        LocalDateTime now = now();
+        watched.setLastCheckedAt(now);
+        try {
+            Map<String, String> fields = webScrapingService.fetchListing(watched.getVehicleUrl(), false);
+            fields.put("source", watched.getSource());
+            String hash = fieldsHash(fields);
+            if (!hash.equals(watched.getFieldsHash())) {
+                vehicleManagementService.saveAuctionSnapshot(fields, watched.getVehicleUrl());
+                watched.setFieldsHash(hash);
+                watched.setLastChangedAt(now);
+                log.debug("Listing changed: {}", watched.getVehicleUrl());
+            }
+            watched.setConsecutiveFailures(0);
+            watched.setLastError(null);
+            scheduleNext(watched, now);
+        } catch (IOException e) {
+            int failures = watched.getConsecutiveFailures() + 1;
+            watched.setConsecutiveFailures(failures);
+            watched.setLastError(truncate(e.getClass().getSimpleName() + ": " + e.getMessage()));
+            boolean gone = e instanceof HttpStatusException status
+                    && (status.getStatusCode() == 404 || status.getStatusCode() == 410);
+            if (gone || failures >= maxFailures) {
+                log.info("No longer watching {} after {} failure(s): {}", watched.getVehicleUrl(), failures,
+                        watched.getLastError());
+                watched.setActive(false);
+            } else {
+                Duration backoff = minInterval.multipliedBy(1L << Math.min(failures, 20));
+                watched.setNextCheckAt(now.plus(jittered(min(backoff, maxInterval), jitter)));
+            }
+        }
+        // Only the columns a check owns, and not over an unwatch made while it ran
+        if (watchedListingRepository.recordCheck(watched.getWatchId(), watched.getFieldsHash(),
+                watched.getLastCheckedAt(), watched.getLastChangedAt(), watched.getConsecutiveFailures(),
+                watched.getLastError(), watched.getNextCheckAt(), watched.isActive()) == 0) {
+            log.debug("Stopped watching {} during its check", watched.getVehicleUrl());
+        }
+    }
+
+    private void scheduleNext(WatchedListing watched, LocalDateTime now) {
+        LocalDateTime closesAt = watched.getClosesAt();
+        if (closesAt != null && !now.isBefore(closesAt.plus(closeGrace))) {
+            // Checked after the close: this was the final price
+            watched.setActive(false);
+            return;
+        }
+        watched.setNextCheckAt(now.plus(jittered(interval(now, closesAt), jitter)));
+    }
+
+    /**
+     * Time to the next check: the maximum interval when the close is unknown,
+     * otherwise a fraction of the time left, clamped to the interval bounds.
+     * Past the close, the grace period, so one last check sees the result.
+     */
+    Duration interval(LocalDateTime now, LocalDateTime closesAt) {
+        if (closesAt == null) {
+            return maxInterval;
+        }
+        Duration left = Duration.between(now, closesAt);
+        if (left.isNegative() || left.isZero()) {
+            return max(minInterval, closeGrace);
+        }
+        return max(minInterval, min(maxInterval, left.dividedBy(CLOSING_DIVISOR)));
+    }
+
+    /** The duration scaled by a random factor in [1 - spread, 1 + spread]. */
+    private static Duration jittered(Duration duration, double spread) {
+        if (spread <= 0) {
+            return duration;
+        }
+        double factor = 1 + spread * (2 * ThreadLocalRandom.current().nextDouble() - 1);
+        return Duration.ofMillis(Math.max(0, (long) (duration.toMillis() * factor)));
+    }
+
+    /**
+     * SHA-256 over the fields in key order, so the same listing content
+     * always hashes the same whatever the map's iteration order.
+     */
+    static String fieldsHash(Map<String, String> fields) {
+        StringBuilder canonical = new StringBuilder();
+        new TreeMap<>(fields).forEach((key, value) -> {
+            if (value != null) {
+                canonical.append(key).append('=').append(value).append('\n');
+            }
+        });
+        try {
+            return HEX.formatHex(MessageDigest.getInstance("SHA-256")
+                    .digest(canonical.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private LocalDateTime now() {
+        return LocalDateTime.now(clock);
+    }
+
+    private static Duration min(Duration a, Duration b) {
+        return a.compareTo(b) <= 0 ? a : b;
+    }
+
+    private static Duration max(Duration a, Duration b) {
+        return a.compareTo(b) >= 0 ? a : b;
+    }
+
+    private static String truncate(String message) {
+        return message.length() <= 255 ? message : message.substring(0, 255);
+    }
+
+    @Override
+    public void destroy() {
+        workers.shutdownNow();
+    }
+}
@@ -0,0 +1,276 @@
+package com.example.service;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.jsoup.HttpStatusException;
+import org.jsoup.UnsupportedMimeTypeException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.entity.Auction;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Scrapes many listing URLs at once. Every URL is fetched on its own virtual
+ * thread; a semaphore per host caps concurrent requests to one site and a
+ * token bucket per auction source (see
+ * {@link WebScrapingService#detectAuctionSource}) caps the request rate.
+ * Rate-limited (429), server (5xx) and network errors are retried with
+ * exponential backoff and jitter.
+ * <p>
+ * Outcomes are handed to the caller's listener as they complete. Scraped
+ * listings are saved as auction snapshots in batches, one transaction per
+ * batch; a batch is flushed when full or when no outcome arrived for
+ * {@code flush-interval-millis}, so results keep streaming while slow
+ * URLs are still in flight.
+ */
+@Slf4j
+@Service
+public class BulkScrapingService {
+
+    private final WebScrapingService webScrapingService;
+    private final VehicleManagementService vehicleManagementService;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxPerHost;
+    private final double defaultRatePerSecond;
+    private final int burst;
+    private final Map<String, Double> sourceRates;
+    private final int maxAttempts;
+    private final long backoffMillis;
+    private final long maxBackoffMillis;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+
+    private final Map<String, Semaphore> hostPermits = new ConcurrentHashMap<>();
+    private final Map<String, TokenBucket> sourceBuckets = new ConcurrentHashMap<>();
+
+    public BulkScrapingService(WebScrapingService webScrapingService,
+            VehicleManagementService vehicleManagementService,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.scraping.bulk.max-per-host:4}") int maxPerHost,
+            @Value("${app.scraping.bulk.rate-per-second:2}") double defaultRatePerSecond,
+            @Value("${app.scraping.bulk.burst:4}") int burst,
+            @Value("${app.scraping.bulk.source-rates:}") String sourceRates,
+            @Value("${app.scraping.bulk.max-attempts:3}") int maxAttempts,
+            @Value("${app.scraping.bulk.backoff-millis:500}") long backoffMillis,
+            @Value("${app.scraping.bulk.max-backoff-millis:10000}") long maxBackoffMillis,
+            @Value("${app.scraping.bulk.batch-size:50}") int batchSize,
+            @Value("${app.scraping.bulk.flush-interval-millis:500}") long flushIntervalMillis) {
+        this.webScrapingService = webScrapingService;
+        this.vehicleManagementService = vehicleManagementService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxPerHost = maxPerHost;
+        this.defaultRatePerSecond = defaultRatePerSecond;
+        this.burst = burst;
+        this.sourceRates = parseSourceRates(sourceRates);
+        this.maxAttempts = maxAttempts;
+        this.backoffMillis = backoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+    }
+
+    /**
+     * Scrape and save every URL, passing each outcome to {@code listener} on
+     * the calling thread as soon as it is final. Returns when all URLs are
+     * done. If the listener throws, remaining fetches are cancelled.
+     */
+    public void scrapeAll(List<String> urls, Consumer<ScrapeOutcome> listener) {
+        BlockingQueue<ScrapeOutcome> completed = new LinkedBlockingQueue<>();
+        int scraped = 0;
+        int failed = 0;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (String url : urls) {
+                executor.submit(() -> completed.add(scrape(url)));
+            }
+            try {
+                List<ScrapeOutcome> pending = new ArrayList<>(batchSize);
+                int received = 0;
+                while (received < urls.size()) {
+                    ScrapeOutcome outcome = completed.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                    if (outcome == null) {
+                        // Nothing new for a while; don't hold finished results back
+                        flush(pending, listener);
+                        continue;
+                    }
+                    received++;
+                    if (outcome.isSuccess()) {
+                        scraped++;
+                        pending.add(outcome);
+                        if (pending.size() >= batchSize) {
+                            flush(pending, listener);
+                        }
+                    } else {
+                        failed++;
+                        listener.accept(outcome);
+                    }
+                }
+                flush(pending, listener);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                executor.shutdownNow();
+            } catch (RuntimeException e) {
+                executor.shutdownNow();
+                throw e;
+            }
+        }
+        log.info("Bulk scrape of {} URLs finished: {} scraped, {} failed", urls.size(), scraped, failed);
+    }
+
+    /**
+     * Fetch one URL with retries. Never throws; failures become outcomes.
+     */
+    private ScrapeOutcome scrape(String url) {
+        String source = null;
+        int attempt = 0;
+        try {
+            String host = host(url);
+            source = webScrapingService.detectAuctionSource(url);
+            Semaphore permits = hostPermits.computeIfAbsent(host, h -> new Semaphore(maxPerHost));
+            TokenBucket bucket = sourceBuckets.computeIfAbsent(source,
+                    s -> new TokenBucket(sourceRates.getOrDefault(s, defaultRatePerSecond), burst));
+
+            while (true) {
+                attempt++;
+                try {
+                    Map<String, String> fields;
+                    permits.acquire();
+                    try {
+                        bucket.acquire();
+                        fields = webScrapingService.fetchListing(url);
+                    } finally {
+                        permits.release();
+                    }
+                    fields.put("source", source);
+                    return new ScrapeOutcome(url, source, fields, null, attempt, null);
+                } catch (IOException e) {
+                    if (attempt >= maxAttempts || !isRetryable(e)) {
+                        return ScrapeOutcome.failed(url, source, attempt, describe(e));
+                    }
+                    log.debug("Retrying {} after attempt {}: {}", url, attempt, describe(e));
+                    Thread.sleep(backoff(attempt));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ScrapeOutcome.failed(url, source, attempt, "Cancelled");
+        } catch (RuntimeException e) {
+            return ScrapeOutcome.failed(url, source, attempt, e.getMessage());
+        }
+    }
+
+    /**
+     * Save the pending listings as auction snapshots in one transaction, then
+     * report them. If the batch fails, every listing in it is reported failed.
+     */
+    private void flush(List<ScrapeOutcome> pending, Consumer<ScrapeOutcome> listener) {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<ScrapeOutcome> saved = new ArrayList<>(pending.size());
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (ScrapeOutcome outcome : pending) {
+                    Auction auction = vehicleManagementService.saveAuctionSnapshot(outcome.fields(), outcome.url());
+                    saved.add(new ScrapeOutcome(outcome.url(), outcome.source(), outcome.fields(),
+                            auction.getAuctionId(), outcome.attempts(), null));
+                }
+            });
+        } catch (RuntimeException e) {
+            log.error("Failed to save batch of " + pending.size() + " scraped listings", e);
+            saved.clear();
+            for (ScrapeOutcome outcome : pending) {
+                saved.add(new ScrapeOutcome(outcome.url(), outcome.source(), outcome.fields(), null,
+                        outcome.attempts(), "Saving auction failed: " + e.getMessage()));
+            }
+        }
+        pending.clear();
+        saved.forEach(listener);
+    }
+
+    /**
+     * Exponential backoff with "equal jitter": half the delay is fixed and
+     * half random, so retries from many threads spread out.
+     */
+    private long backoff(int attempt) {
+        long delay = Math.min(maxBackoffMillis, backoffMillis << Math.min(attempt - 1, 20));
+        long half = delay / 2;
+        return half + ThreadLocalRandom.current().nextLong(half + 1);
+    }
+
+    static boolean isRetryable(IOException e) {
+        if (e instanceof HttpStatusException status) {
+            return status.getStatusCode() == 429 || status.getStatusCode() >= 500;
+        }
+        // Not HTML, or not recorded when replaying from the page cache
+        return !(e instanceof UnsupportedMimeTypeException || e instanceof FileNotFoundException);
+    }
+
+    private static String describe(IOException e) {
+        if (e instanceof HttpStatusException status) {
+            return "HTTP " + status.getStatusCode();
+        }
+        return e.getClass().getSimpleName() + (e.getMessage() == null ? "" : ": " + e.getMessage());
+    }
+
+    private static String host(String url) {
+        String host = URI.create(url.trim()).getHost();
+        if (host == null) {
+            throw new IllegalArgumentException("Not an absolute URL: " + url);
+        }
+        return host.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Parse {@code Source=rate} pairs, e.g. {@code Copart=1,Gumtree=0.5}.
+     */
+    static Map<String, Double> parseSourceRates(String value) {
+        Map<String, Double> rates = new HashMap<>();
+        if (value == null || value.isBlank()) {
+            return rates;
+        }
+        for (String entry : value.split(",")) {
+            int eq = entry.lastIndexOf('=');
+            if (eq <= 0) {
+                throw new IllegalArgumentException("Expected Source=rate in app.scraping.bulk.source-rates: " + entry);
+            }
+            rates.put(entry.substring(0, eq).trim(), Double.valueOf(entry.substring(eq + 1).trim()));
+        }
+        return rates;
+    }
+
+    /**
+     * Final result for one URL: the scraped fields and saved auction id, or an
+     * error. {@code attempts} counts fetches, including retries.
+     */
+    public record ScrapeOutcome(String url, String source, Map<String, String> fields, Integer auctionId,
+            int attempts, String error) {
+
+        static ScrapeOutcome failed(String url, String source, int attempts, String error) {
+            return new ScrapeOutcome(url, source, null, null, attempts, error);
+        }
+
+        public boolean isSuccess() {
+            return error == null;
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.service;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Service;
+
+import com.example.entity.Auction;
+import com.example.repository.AuctionRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-memory index of comparable auction sales, grouped by make, model and
+ * year band. Each group keeps streaming quantile sketches of price and
+ * mileage and a precomputed {@link ComparableSummary}, so a valuation reads
+ * one map entry instead of querying and sorting the auctions table.
+ * Loaded once at startup and updated as auction snapshots are saved; an
+ * auction scraped again replaces its earlier sale, so each listing counts once.
+ */
+@Slf4j
+@Service
+public class ComparablesIndex {
+
+    private static final int LOAD_PAGE_SIZE = 1000;
+
+    private final AuctionRepository auctionRepository;
+    private final int yearBandWidth;
+    private final Map<String, ComparableGroup> groups = new ConcurrentHashMap<>();
+
+    public ComparablesIndex(AuctionRepository auctionRepository,
+            @Value("${app.valuation.comparables.year-band:3}") int yearBandWidth) {
+        this.auctionRepository = auctionRepository;
+        this.yearBandWidth = yearBandWidth;
+    }
+
+    /** Load all stored auctions, a page at a time. */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadFromRepository() {
+        long started = System.currentTimeMillis();
+        int loaded = 0;
+        Pageable page = PageRequest.of(0, LOAD_PAGE_SIZE);
+        Slice<Auction> slice;
+        do {
+            slice = auctionRepository.findAllBy(page);
+            for (Auction auction : slice) {
+                if (record(auction)) {
+                    loaded++;
+                }
+            }
+            page = slice.nextPageable();
+        } while (slice.hasNext());
+        log.info("Comparables index loaded {} auctions into {} groups in {} ms",
+                loaded, groups.size(), System.currentTimeMillis() - started);
+    }
+
+    /**
+     * Add one auction sale. Returns false when the auction lacks the make,
+     * model, year or price needed to be a comparable.
+     */
+    public boolean record(Auction auction) {
+        String key = groupKey(auction.getMake(), auction.getModel(), auction.getYear());
+        BigDecimal price = auction.getAuctionPrice();
+        if (key == null || price == null || price.signum() <= 0) {
+            return false;
+        }
+        groups.computeIfAbsent(key, k -> new ComparableGroup())
+                .add(price.doubleValue(), auction.getMileage());
+        return true;
+    }
+
+    /**
+     * Replace an auction's earlier values with its current ones, when a
+     * listing is scraped again. {@code previous} holds the values it was
+     * recorded with.
+     */
+    public void replace(Auction previous, Auction current) {
+        String previousKey = groupKey(previous.getMake(), previous.getModel(), previous.getYear());
+        BigDecimal previousPrice = previous.getAuctionPrice();
+        if (previousKey != null && previousPrice != null && previousPrice.signum() > 0) {
+            ComparableGroup group = groups.get(previousKey);
+            if (group != null) {
+                group.remove(previousPrice.doubleValue(), previous.getMileage());
+            }
+        }
+        record(current);
+    }
+
+    /**
+     * Summary of comparable sales for the vehicle's make, model and year band,
+     * or null when there are none.
+     */
+    public ComparableSummary lookup(String make, String model, Integer year) {
+        String key = groupKey(make, model, year);
+        if (key == null) {
+            return null;
+        }
+        ComparableGroup group = groups.get(key);
+        return group == null ? null : group.summary;
+    }
+
+    private String groupKey(String make, String model, Integer year) {
+        if (make == null || model == null || year == null) {
+            return null;
+        }
+        String normalizedMake = NormalizedKeyMap.normalize(make);
+        String normalizedModel = NormalizedKeyMap.normalize(model);
+        if (normalizedMake.isEmpty() || normalizedModel.isEmpty()) {
+            return null;
+        }
+        return normalizedMake + '|' + normalizedModel + '|' + Math.floorDiv(year, yearBandWidth);
+    }
+
+    /**
+     * Sketches for one group. Writers synchronize; readers only see the
+     * immutable summary published after each write.
+     */
+    private static final class ComparableGroup {
+        private final QuantileSketch prices = new QuantileSketch();
+        private final QuantileSketch mileages = new QuantileSketch();
+        private volatile ComparableSummary summary;
+
+        synchronized void add(double price, Integer mileage) {
+            prices.add(price);
+            if (mileage != null && mileage > 0) {
+                mileages.add(mileage);
+            }
+            summarize();
+        }
+
+        synchronized void remove(double price, Integer mileage) {
+            prices.remove(price);
+            if (mileage != null && mileage > 0) {
+                mileages.remove(mileage);
+            }
+            summarize();
+        }
+
+        private void summarize() {
+            if (prices.getCount() == 0) {
+                summary = null;
+                return;
+            }
+            summary = new ComparableSummary(
+                    prices.getCount(),
+                    toCents(prices.quantile(0.25)),
+                    toCents(prices.quantile(0.50)),
+                    toCents(prices.quantile(0.75)),
+                    mileages.getCount() == 0 ? null : (int) Math.round(mileages.quantile(0.50)));
+        }
+
+        private static long toCents(double amount) {
+            return Math.round(amount * 100);
+        }
+    }
+
+    /**
+     * Price quartiles (in cents) and median mileage of a comparables group.
+     * {@code medianMileage} is null when no sale recorded a mileage.
+     */
+    public record ComparableSummary(long count, long lowerQuartileCents, long medianCents,
+            long upperQuartileCents, Integer medianMileage) {
+    }
+}
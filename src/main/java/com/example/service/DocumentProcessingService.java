@@ -0,0 +1,202 @@
+package com.example.service;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.example.entity.Report;
+import com.example.repository.ReportRepository;
+import com.example.service.DocumentTextCache.CachedText;
+import com.example.service.ReportAnalyzer.Finding;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Extracts the text of uploaded reports off the request thread. Each
+ * report is saved {@link Report#PENDING} and queued; a fixed pool of
+ * {@code workers} platform threads (by default one fewer than the cores, so
+ * text stripping never takes every core from the web threads) parses it
+ * with the {@link PdfTextExtractor} and fills in the fields parsed from it,
+ * or records why it failed. Text already extracted from the same document is taken from the
+ * {@link DocumentTextCache}.
+ * <p>
+ * The queue is bounded. A report that does not fit stays pending in the
+ * database and is picked up by a periodic sweep once there is room, as are
+ * reports left pending or half-processed by a restart; so the reports table
+ * is the durable queue and the in-memory one only a buffer in front of it.
+ */
+@Slf4j
+@Service
+public class DocumentProcessingService implements DisposableBean {
+
+    private final ReportRepository reportRepository;
+    private final PdfTextExtractor pdfTextExtractor;
+    private final DocumentTextCache documentTextCache;
+    private final SearchService searchService;
+    private final int queueCapacity;
+    private final ThreadPoolExecutor workers;
+    // Reports queued or being parsed in this process
+    private final Set<Integer> queued = ConcurrentHashMap.newKeySet();
+
+    public DocumentProcessingService(ReportRepository reportRepository,
+            PdfTextExtractor pdfTextExtractor, DocumentTextCache documentTextCache, SearchService searchService,
+            @Value("${app.documents.workers:0}") int workers,
+            @Value("${app.documents.queue-capacity:100}") int queueCapacity) {
+        this.reportRepository = reportRepository;
+        this.pdfTextExtractor = pdfTextExtractor;
+        this.documentTextCache = documentTextCache;
+        this.searchService = searchService;
+        this.queueCapacity = queueCapacity;
+        int threads = workers > 0 ? workers : Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        this.workers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                Thread.ofPlatform().name("document-worker-", 0).daemon(true).factory(),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Queue a pending report for text extraction. Returns false if the queue
+     * is full; the report then waits for the next sweep.
+     */
+    public boolean enqueue(Report report) {
+        Integer reportId = report.getReportId();
+        if (!queued.add(reportId)) {
+            return true;
+        }
+        try {
+            workers.execute(() -> process(reportId));
+            return true;
+        } catch (RejectedExecutionException e) {
+            queued.remove(reportId);
+            log.info("Document queue full, report {} waits for the next sweep", reportId);
+            return false;
+        }
+    }
+
+    public Optional<Report> findJob(String jobId) {
+        return reportRepository.findByJobId(jobId);
+    }
+
+    /** The full text extracted from the report's document, if any. */
+    public Optional<String> text(Report report) {
+        return documentTextCache.text(report.getContentHash());
+    }
+
+    /** What was found in the report's document, with offsets into its text. */
+    public List<Finding> findings(Report report) {
+        return documentTextCache.findings(report.getContentHash());
+    }
+
+    /**
+     * Extract one report's text and record the outcome. Reports no longer
+     * pending (already done, or picked up twice) are left alone.
+     */
+    void process(Integer reportId) {
+        try {
+            Report report = reportRepository.findById(reportId).orElse(null);
+            if (report == null || !Report.PENDING.equals(report.getStatus())) {
+                return;
+            }
+            report.setStatus(Report.PROCESSING);
+            report = reportRepository.save(report);
+            long started = System.nanoTime();
+            String text = null;
+            try {
+                Extracted extracted = extractText(report);
+                extracted.fields().applyTo(report);
+                text = extracted.text();
+                report.setStatus(Report.DONE);
+                report.setError(null);
+                log.debug("Extracted report {} in {} ms", reportId,
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+            } catch (IOException | RuntimeException e) {
+                report.setStatus(Report.FAILED);
+                report.setError(truncate(e.getClass().getSimpleName() + ": " + e.getMessage()));
+            }
+            report.setProcessedAt(LocalDateTime.now());
+            report = reportRepository.save(report);
+            if (Report.DONE.equals(report.getStatus())) {
+                searchService.indexReport(report, text);
+            }
+        } catch (RuntimeException e) {
+            log.error("Processing report " + reportId + " failed", e);
+        } finally {
+            queued.remove(reportId);
+        }
+    }
+
+    /**
+     * The report's text and fields: from the {@link DocumentTextCache}, when
+     * the same document was parsed for another report meanwhile; otherwise
+     * extracted and analyzed now. The text is held whole, as the analyzer's
+     * offsets and the search index need it, which is why extraction stops
+     * at {@code app.documents.pdf.max-text-chars}.
+     */
+    private Extracted extractText(Report report) throws IOException {
+        Optional<CachedText> cached = documentTextCache.get(report.getContentHash());
+        if (cached.isPresent()) {
+            return new Extracted(cached.get(), documentTextCache.text(report.getContentHash()).orElse(null));
+        }
+        String text = pdfTextExtractor.extractText(Paths.get(report.getFilePath()));
+        return new Extracted(documentTextCache.put(report.getContentHash(), text), text);
+    }
+
+    private record Extracted(CachedText fields, String text) {
+    }
+
+    /** Queue pending reports that did not fit in the queue, while there is room. */
+    @Scheduled(fixedDelayString = "${app.documents.sweep-interval-millis:30000}",
+            initialDelayString = "${app.documents.sweep-interval-millis:30000}")
+    public void sweep() {
+        int room = queueCapacity - workers.getQueue().size();
+        if (room <= 0) {
+            return;
+        }
+        List<Report> pending = reportRepository.findByStatusOrderByReportId(Report.PENDING,
+                PageRequest.of(0, room + queued.size()));
+        for (Report report : pending) {
+            if (!queued.contains(report.getReportId()) && !enqueue(report)) {
+                return;
+            }
+        }
+    }
+
+    /** Reports half-processed when the application stopped are parsed again. */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recover() {
+        List<Report> interrupted = reportRepository.findByStatusOrderByReportId(Report.PROCESSING,
+                Pageable.unpaged());
+        interrupted.forEach(report -> report.setStatus(Report.PENDING));
+        reportRepository.saveAll(interrupted);
+        if (!interrupted.isEmpty()) {
+            log.info("Re-queueing {} report(s) interrupted by a restart", interrupted.size());
+        }
+        sweep();
+    }
+
+    private static String truncate(String message) {
+        return message.length() <= 255 ? message : message.substring(0, 255);
+    }
+
+    @Override
+    public void destroy() {
+        workers.shutdownNow();
+    }
+}
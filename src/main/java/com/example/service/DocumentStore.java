@@ -0,0 +1,171 @@
+package com.example.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import com.example.repository.DocumentBlobRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Content-addressed storage for uploaded files. An upload is streamed to a
+ * temporary file through a fixed buffer while its SHA-256 is computed, so
+ * its size never matters to the heap, then moved to
+ * {@code blobs/<first two hex digits>/<sha256>} under the upload directory.
+ * Identical files, whatever they were called, are stored once.
+ * <p>
+ * Each blob has a row in {@code document_blobs} counting the reports that
+ * use it; {@link #release} deletes the file with the last reference. Storing
+ * and releasing the same hash are serialized by a striped lock, so a blob is
+ * never deleted while an upload of the same content is being counted.
+ */
+@Slf4j
+@Component
+public class DocumentStore {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int LOCK_STRIPES = 64;
+    private static final HexFormat HEX = HexFormat.of();
+
+    private final Path blobDir;
+    private final Path tempDir;
+    private final DocumentBlobRepository documentBlobRepository;
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    @Autowired
+    public DocumentStore(@Value("${app.upload.dir:uploads/}") String uploadDir,
+            DocumentBlobRepository documentBlobRepository) throws IOException {
+        this(Paths.get(uploadDir), documentBlobRepository);
+    }
+
+    DocumentStore(Path uploadDir, DocumentBlobRepository documentBlobRepository) throws IOException {
+        this.blobDir = Files.createDirectories(uploadDir.resolve("blobs"));
+        this.tempDir = Files.createDirectories(uploadDir.resolve("tmp"));
+        this.documentBlobRepository = documentBlobRepository;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * Store an upload and count a reference to it. The result says whether
+     * the content was already stored, by this or an earlier upload.
+     */
+    public StoredDocument store(MultipartFile file) throws IOException {
+        try (InputStream in = file.getInputStream()) {
+            return store(in);
+        }
+    }
+
+    StoredDocument store(InputStream content) throws IOException {
+        Path temp = Files.createTempFile(tempDir, "upload-", ".part");
+        try {
+            MessageDigest digest = sha256();
+            long size = 0;
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            try (ReadableByteChannel in = Channels.newChannel(content);
+                    FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                while (in.read(buffer) != -1) {
+                    buffer.flip();
+                    digest.update(buffer.array(), 0, buffer.limit());
+                    size += buffer.remaining();
+                    while (buffer.hasRemaining()) {
+                        out.write(buffer);
+                    }
+                    buffer.clear();
+                }
+            }
+            String hash = HEX.formatHex(digest.digest());
+            Path blob = path(hash);
+
+            synchronized (lockFor(hash)) {
+                // Checked first: an atomic move may silently replace an existing file
+                boolean existed = Files.exists(blob);
+                if (!existed) {
+                    Files.createDirectories(blob.getParent());
+                    Files.move(temp, blob, StandardCopyOption.ATOMIC_MOVE);
+                }
+                // A blob left behind by a reference that was never counted is reused, but counted as new
+                boolean referenced = addReference(hash, size);
+                log.debug("Stored upload {} ({} bytes, {})", hash, size, existed ? "duplicate" : "new");
+                return new StoredDocument(hash, blob, size, existed && referenced);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Drop one reference to a blob; the file and its row are deleted with
+     * the last one.
+     */
+    public void release(String hash) throws IOException {
+        synchronized (lockFor(hash)) {
+            documentBlobRepository.removeReference(hash);
+            if (documentBlobRepository.deleteUnreferenced(hash) > 0) {
+                Files.deleteIfExists(path(hash));
+                log.debug("Deleted unreferenced upload {}", hash);
+            }
+        }
+    }
+
+    /** Where the blob with this hash is (or would be) stored. */
+    public Path path(String hash) {
+        return blobDir.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    /**
+     * Count a reference; true if the blob already had references, false if
+     * this is the first.
+     */
+    private boolean addReference(String hash, long size) {
+        if (documentBlobRepository.addReference(hash) > 0) {
+            return true;
+        }
+        try {
+            documentBlobRepository.insertReferenced(hash, size);
+            return false;
+        } catch (DataIntegrityViolationException e) {
+            // Inserted meanwhile by another instance
+            documentBlobRepository.addReference(hash);
+            return true;
+        }
+    }
+
+    private Object lockFor(String hash) {
+        return locks[Math.floorMod(hash.hashCode(), LOCK_STRIPES)];
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * A stored upload: its SHA-256 and blob path, and whether the same
+     * content had been stored before.
+     */
+    public record StoredDocument(String hash, Path path, long size, boolean duplicate) {
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.entity.DocumentFinding;
+import com.example.entity.DocumentText;
+import com.example.entity.Report;
+import com.example.repository.DocumentFindingRepository;
+import com.example.repository.DocumentTextRepository;
+import com.example.repository.DocumentTextRepository.DocumentTextSummary;
+import com.example.service.ReportAnalyzer.Finding;
+import com.example.service.ReportAnalyzer.ReportFindings;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * What was parsed from uploaded documents, keyed by the document's content
+ * hash (see {@link DocumentStore}), so a report uploaded again is never run
+ * through PDFBox twice.
+ * <p>
+ * Each document is analyzed once. Its fields (VIN, mileage, flags) are
+ * copied onto every report of it; its findings go to
+ * {@code document_findings}; and its text is kept deflated in
+ * {@code document_texts}, read only when asked for by {@link #text}. Text
+ * and findings are written in one transaction, so a document never has one
+ * without the other. The fields of the most recently used documents are
+ * also held in an LRU map of {@code max-entries}.
+ */
+@Slf4j
+@Component
+public class DocumentTextCache {
+
+    private static final int MAX_MATCHED_TEXT = 100;
+
+    private final DocumentTextRepository documentTextRepository;
+    private final DocumentFindingRepository documentFindingRepository;
+    private final ReportAnalyzer reportAnalyzer;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<String, CachedText> entries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder storedHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public DocumentTextCache(DocumentTextRepository documentTextRepository,
+            DocumentFindingRepository documentFindingRepository, ReportAnalyzer reportAnalyzer,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.documents.text-cache.max-entries:10000}") int maxEntries) {
+        this.documentTextRepository = documentTextRepository;
+        this.documentFindingRepository = documentFindingRepository;
+        this.reportAnalyzer = reportAnalyzer;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.entries = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedText> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /** The fields parsed from the document with this hash, if it was parsed before. */
+    public Optional<CachedText> get(String contentHash) {
+        if (contentHash == null) {
+            return Optional.empty();
+        }
+        synchronized (this) {
+            CachedText cached = entries.get(contentHash);
+            if (cached != null) {
+                hits.increment();
+                return Optional.of(cached);
+            }
+        }
+        Optional<CachedText> stored = documentTextRepository.findSummaryByContentHash(contentHash)
+                .map(CachedText::of);
+        if (stored.isPresent()) {
+            storedHits.increment();
+            remember(stored.get());
+        } else {
+            misses.increment();
+        }
+        return stored;
+    }
+
+    /**
+     * Analyze the text extracted from a document and store it, its fields
+     * and its findings. Returns the fields.
+     */
+    public CachedText put(String contentHash, String text) {
+        ReportFindings findings = reportAnalyzer.analyze(text);
+        CachedText parsed = new CachedText(contentHash, text.length(), findings.vin(), findings.mileage(),
+                findings.accidentIndicators(), findings.roadworthyPass(), findings.keywordHits());
+        if (contentHash == null) {
+            return parsed;
+        }
+        if (documentTextRepository.existsById(contentHash)) {
+            // Parsed meanwhile from another upload of the same document; same text
+            log.debug("Text of {} already stored", contentHash);
+        } else {
+            DocumentText stored = new DocumentText(contentHash, TextCompression.compress(text), text.length(),
+                    parsed.vin(), parsed.mileage(), parsed.accidentIndicators(), parsed.roadworthyPass(),
+                    parsed.keywordHits(), null);
+            List<DocumentFinding> found = findings.findings().stream()
+                    .map(finding -> toEntity(contentHash, finding)).toList();
+            try {
+                // Caught here too when the duplicate only shows at commit
+                transactionTemplate.executeWithoutResult(status -> {
+                    documentTextRepository.save(stored);
+                    documentFindingRepository.saveAll(found);
+                });
+            } catch (DataIntegrityViolationException e) {
+                log.debug("Text of {} stored concurrently", contentHash);
+            }
+        }
+        remember(parsed);
+        return parsed;
+    }
+
+    /** The full text of the document with this hash, read and inflated now. */
+    public Optional<String> text(String contentHash) {
+        return Optional.ofNullable(contentHash).flatMap(documentTextRepository::findById)
+                .filter(stored -> stored.getCompressedText() != null)
+                .map(stored -> TextCompression.decompress(stored.getCompressedText()));
+    }
+
+    /** What was found in the document with this hash, in text order. */
+    public List<Finding> findings(String contentHash) {
+        if (contentHash == null) {
+            return List.of();
+        }
+        return documentFindingRepository.findByContentHashOrderByStartOffset(contentHash).stream()
+                .map(stored -> new Finding(stored.getCategory(), stored.getMatchedText(),
+                        stored.getStartOffset(), stored.getEndOffset()))
+                .toList();
+    }
+
+    private synchronized void remember(CachedText text) {
+        entries.put(text.contentHash(), text);
+    }
+
+    public synchronized Map<String, Long> stats() {
+        return Map.of("entries", (long) entries.size(), "hits", hits.sum(), "storedHits", storedHits.sum(),
+                "misses", misses.sum());
+    }
+
+    private static DocumentFinding toEntity(String contentHash, Finding finding) {
+        String matched = finding.text().length() <= MAX_MATCHED_TEXT ? finding.text()
+                : finding.text().substring(0, MAX_MATCHED_TEXT);
+        return new DocumentFinding(null, contentHash, finding.category(), matched, finding.start(),
+                finding.end());
+    }
+
+    /** The fields parsed from one document's text. */
+    public record CachedText(String contentHash, int textLength, String vin, Integer mileage,
+            boolean accidentIndicators, boolean roadworthyPass, int keywordHits) {
+
+        static CachedText of(DocumentTextSummary stored) {
+            return new CachedText(stored.getContentHash(), zeroIfNull(stored.getTextLength()), stored.getVin(),
+                    stored.getMileage(), stored.isAccidentIndicators(), stored.isRoadworthyPass(),
+                    zeroIfNull(stored.getKeywordHits()));
+        }
+
+        /** Copy the fields onto a report of this document. */
+        public void applyTo(Report report) {
+            report.setTextLength(textLength);
+            report.setVin(vin);
+            report.setMileage(mileage);
+            report.setAccidentIndicators(accidentIndicators);
+            report.setRoadworthyPass(roadworthyPass);
+            report.setKeywordHits(keywordHits);
+        }
+
+        private static int zeroIfNull(Integer value) {
+            return value == null ? 0 : value;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.repository.IdAllocator;
+import com.example.service.ReportAnalyzer.Finding;
+import com.example.service.ReportAnalyzer.ReportFindings;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * One-off move of extracted text out of the reports table. Enable with
+ * {@code app.documents.migrate-text-on-startup=true}.
+ * <p>
+ * Text in {@code document_texts.extracted_text} is deflated into
+ * {@code compressed_text}. Text in {@code reports.extracted_text} is
+ * analyzed into the report's columns and, for reports with a content hash,
+ * stored deflated in {@code document_texts} unless already there. Findings
+ * are written for each document moved. Rows are converted in key order and
+ * in batches, each written in one transaction and clearing the text it
+ * moved, so the migration can be stopped and re-run; the emptied columns
+ * are dropped at the end.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.documents.migrate-text-on-startup", havingValue = "true")
+public class DocumentTextMigration implements ApplicationRunner {
+
+    private static final int BATCH_SIZE = 200;
+    private static final int MAX_MATCHED_TEXT = 100;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ReportAnalyzer reportAnalyzer;
+    private final IdAllocator idAllocator;
+    private final TransactionTemplate transactionTemplate;
+
+    public DocumentTextMigration(JdbcTemplate jdbcTemplate, ReportAnalyzer reportAnalyzer, IdAllocator idAllocator,
+            PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.reportAnalyzer = reportAnalyzer;
+        this.idAllocator = idAllocator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        int documents = migrateDocumentTexts();
+        int reports = migrateReports();
+        dropColumn("document_texts", documents);
+        dropColumn("reports", reports);
+        log.info("Document text migration finished: {} document texts compressed, {} report texts moved",
+                Math.max(documents, 0), Math.max(reports, 0));
+    }
+
+    /** Returns the number of texts compressed, or -1 if there is no legacy column. */
+    private int migrateDocumentTexts() {
+        String lastHash = "";
+        int migrated = 0;
+        try {
+            while (true) {
+                List<String[]> rows = jdbcTemplate.query(
+                        "SELECT content_hash, extracted_text FROM document_texts "
+                                + "WHERE content_hash > ? AND extracted_text IS NOT NULL "
+                                + "ORDER BY content_hash LIMIT ?",
+                        (rs, rowNum) -> new String[] { rs.getString(1), rs.getString(2) },
+                        lastHash, BATCH_SIZE);
+                if (rows.isEmpty()) {
+                    return migrated;
+                }
+                List<Object[]> updates = new ArrayList<>();
+                List<Object[]> findings = new ArrayList<>();
+                for (String[] row : rows) {
+                    lastHash = row[0];
+                    ReportFindings parsed = reportAnalyzer.analyze(row[1]);
+                    updates.add(new Object[] { TextCompression.compress(row[1]), row[1].length(),
+                            parsed.keywordHits(), row[0] });
+                    addFindings(findings, row[0], parsed);
+                }
+                transactionTemplate.executeWithoutResult(status -> {
+                    jdbcTemplate.batchUpdate("DELETE FROM document_findings WHERE content_hash = ?",
+                            updates.stream().map(update -> new Object[] { update[3] }).toList());
+                    insertFindings(findings);
+                    jdbcTemplate.batchUpdate("UPDATE document_texts SET compressed_text = ?, text_length = ?, "
+                            + "keyword_hits = ?, extracted_text = NULL WHERE content_hash = ?", updates);
+                });
+                migrated += updates.size();
+            }
+        } catch (BadSqlGrammarException e) {
+            log.debug("No text left in document_texts.extracted_text: {}", e.getMessage());
+            return -1;
+        }
+    }
+
+    /** Returns the number of report texts moved, or -1 if there is no legacy column. */
+    private int migrateReports() {
+        int lastId = 0;
+        int migrated = 0;
+        try {
+            while (true) {
+                List<Object[]> rows = jdbcTemplate.query(
+                        "SELECT report_id, content_hash, extracted_text FROM reports "
+                                + "WHERE report_id > ? AND extracted_text IS NOT NULL ORDER BY report_id LIMIT ?",
+                        (rs, rowNum) -> new Object[] { rs.getInt(1), rs.getString(2), rs.getString(3) },
+                        lastId, BATCH_SIZE);
+                if (rows.isEmpty()) {
+                    return migrated;
+                }
+                List<Object[]> updates = new ArrayList<>();
+                List<Object[]> texts = new ArrayList<>();
+                List<Object[]> findings = new ArrayList<>();
+                Set<String> batchHashes = new HashSet<>();
+                for (Object[] row : rows) {
+                    lastId = (Integer) row[0];
+                    String hash = (String) row[1];
+                    String text = (String) row[2];
+                    ReportFindings parsed = reportAnalyzer.analyze(text);
+                    updates.add(new Object[] { text.length(), parsed.vin(), parsed.mileage(),
+                            parsed.accidentIndicators(), parsed.roadworthyPass(), parsed.keywordHits(), row[0] });
+                    if (hash != null && batchHashes.add(hash) && !documentTextExists(hash)) {
+                        texts.add(new Object[] { hash, TextCompression.compress(text), text.length(), parsed.vin(),
+                                parsed.mileage(), parsed.accidentIndicators(), parsed.roadworthyPass(),
+                                parsed.keywordHits() });
+                        addFindings(findings, hash, parsed);
+                    }
+                }
+                // A document's text is never stored without its findings, which a re-run would skip
+                transactionTemplate.executeWithoutResult(status -> {
+                    jdbcTemplate.batchUpdate("INSERT INTO document_texts (content_hash, compressed_text, "
+                            + "text_length, vin, mileage, accident_indicators, roadworthy_pass, keyword_hits, "
+                            + "created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, CURRENT_TIMESTAMP)", texts);
+                    insertFindings(findings);
+                    jdbcTemplate.batchUpdate("UPDATE reports SET text_length = ?, vin = ?, mileage = ?, "
+                            + "accident_indicators = ?, roadworthy_pass = ?, keyword_hits = ?, extracted_text = NULL "
+                            + "WHERE report_id = ?", updates);
+                });
+                migrated += updates.size();
+            }
+        } catch (BadSqlGrammarException e) {
+            log.debug("No text left in reports.extracted_text: {}", e.getMessage());
+            return -1;
+        }
+    }
+
+    private boolean documentTextExists(String hash) {
+        Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM document_texts WHERE content_hash = ?",
+                Integer.class, hash);
+        return count != null && count > 0;
+    }
+
+    private static void addFindings(List<Object[]> findings, String hash, ReportFindings parsed) {
+        for (Finding finding : parsed.findings()) {
+            String matched = finding.text().length() <= MAX_MATCHED_TEXT ? finding.text()
+                    : finding.text().substring(0, MAX_MATCHED_TEXT);
+            findings.add(new Object[] { hash, finding.category(), matched, finding.start(), finding.end() });
+        }
+    }
+
+    private void insertFindings(List<Object[]> findings) {
+        jdbcTemplate.batchUpdate("INSERT INTO document_findings (finding_id, content_hash, category, "
+                + "matched_text, start_offset, end_offset) VALUES (?, ?, ?, ?, ?, ?)",
+                idAllocator.withIds("document_findings", findings));
+    }
+
+    /** Drop a table's emptied extracted_text column, once every row was moved. */
+    private void dropColumn(String table, int migrated) {
+        if (migrated < 0) {
+            return;
+        }
+        try {
+            jdbcTemplate.execute("ALTER TABLE " + table + " DROP COLUMN extracted_text");
+        } catch (DataAccessException e) {
+            log.debug("{}.extracted_text not dropped: {}", table, e.getMessage());
+        }
+    }
+}
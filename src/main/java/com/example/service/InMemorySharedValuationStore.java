@@ -0,0 +1,61 @@
+package com.example.service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.example.service.ValuationEngineService.ValuationResult;
+
+/**
+ * In-process stand-in for a shared valuation store, enabled with
+ * {@code app.valuation.cache.shared=local}. Useful for development and tests
+ * where no external cache is running.
+ */
+@Component
+@ConditionalOnProperty(name = "app.valuation.cache.shared", havingValue = "local")
+public class InMemorySharedValuationStore implements SharedValuationStore {
+
+    private final Map<String, StoredResult> results = new ConcurrentHashMap<>();
+    private final Clock clock;
+
+    public InMemorySharedValuationStore() {
+        this(Clock.systemDefaultZone());
+    }
+
+    InMemorySharedValuationStore(Clock clock) {
+        this.clock = clock;
+    }
+
+    @Override
+    public ValuationResult get(String key) {
+        StoredResult stored = results.get(key);
+        if (stored == null) {
+            return null;
+        }
+        if (stored.expiresAt() <= clock.millis()) {
+            results.remove(key, stored);
+            return null;
+        }
+        return stored.result();
+    }
+
+    @Override
+    public void put(String key, ValuationResult result, Duration ttl) {
+        results.put(key, new StoredResult(result, clock.millis() + ttl.toMillis()));
+    }
+
+    /** Drop expired results that were never read again. */
+    @Scheduled(fixedDelay = 60000)
+    public void removeExpired() {
+        long now = clock.millis();
+        results.values().removeIf(stored -> stored.expiresAt() <= now);
+    }
+
+    private record StoredResult(ValuationResult result, long expiresAt) {
+    }
+}
@@ -0,0 +1,283 @@
+package com.example.service;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.example.service.SearchIndex.DocKey;
+import com.example.service.SearchIndex.Postings;
+
+/**
+ * One immutable segment of the {@link SearchIndex} on disk, read through a
+ * memory mapping so postings are paged in by the OS, not copied onto the
+ * heap. Only the term dictionary and the document table are decoded when a
+ * segment is opened.
+ * <p>
+ * Layout: the postings of each term in term order (per document: the
+ * document number delta, the term frequency and the position deltas, all
+ * varints); the document table (number, type, id); the term dictionary
+ * (term, postings offset, document frequency); then a footer with the
+ * offsets of the two tables. Segments are written once, by a flush or a
+ * merge, and capped below 2 GB so one mapping covers them.
+ */
+final class IndexSegment implements SearchIndex.Segment {
+
+    private static final int MAGIC = 0x53454731; // "SEG1"
+    private static final int FOOTER_SIZE = 8 + 8 + 4;
+
+    private final Path file;
+    private final MappedByteBuffer data;
+    private final int[] docs;
+    private final DocKey[] keys;
+    private final String[] terms;
+    private final long[] offsets;
+    private final int[] docFreqs;
+
+    private IndexSegment(Path file, MappedByteBuffer data, int[] docs, DocKey[] keys, String[] terms,
+            long[] offsets, int[] docFreqs) {
+        this.file = file;
+        this.data = data;
+        this.docs = docs;
+        this.keys = keys;
+        this.terms = terms;
+        this.offsets = offsets;
+        this.docFreqs = docFreqs;
+    }
+
+    static IndexSegment open(Path file) throws IOException {
+        MappedByteBuffer data;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        int end = data.limit();
+        if (end < FOOTER_SIZE || data.getInt(end - 4) != MAGIC) {
+            throw new IOException("Not an index segment: " + file);
+        }
+        int docTable = (int) data.getLong(end - FOOTER_SIZE);
+        int dictionary = (int) data.getLong(end - FOOTER_SIZE + 8);
+
+        ByteBuffer in = data.duplicate().position(docTable);
+        int docCount = in.getInt();
+        int[] docs = new int[docCount];
+        DocKey[] keys = new DocKey[docCount];
+        for (int i = 0; i < docCount; i++) {
+            docs[i] = in.getInt();
+            keys[i] = new DocKey(string(in), in.getInt());
+        }
+        in.position(dictionary);
+        int termCount = in.getInt();
+        String[] terms = new String[termCount];
+        long[] offsets = new long[termCount];
+        int[] docFreqs = new int[termCount];
+        for (int i = 0; i < termCount; i++) {
+            terms[i] = string(in);
+            offsets[i] = in.getLong();
+            docFreqs[i] = in.getInt();
+        }
+        return new IndexSegment(file, data, docs, keys, terms, offsets, docFreqs);
+    }
+
+    Path file() {
+        return file;
+    }
+
+    long sizeInBytes() {
+        return data.limit();
+    }
+
+    @Override
+    public int docCount() {
+        return docs.length;
+    }
+
+    /** Document numbers in this segment, ascending, and their keys by index. */
+    int[] docs() {
+        return docs;
+    }
+
+    DocKey key(int index) {
+        return keys[index];
+    }
+
+    @Override
+    public DocKey key(int doc, DocKey absent) {
+        int index = Arrays.binarySearch(docs, doc);
+        return index < 0 ? absent : keys[index];
+    }
+
+    String[] terms() {
+        return terms;
+    }
+
+    @Override
+    public Postings postings(String term) {
+        int index = Arrays.binarySearch(terms, term);
+        return index < 0 ? null : decode(index);
+    }
+
+    @Override
+    public List<String> termsWithPrefix(String prefix, int max) {
+        int from = Arrays.binarySearch(terms, prefix);
+        if (from < 0) {
+            from = -from - 1;
+        }
+        List<String> matching = new ArrayList<>();
+        for (int i = from; i < terms.length && matching.size() < max && terms[i].startsWith(prefix); i++) {
+            matching.add(terms[i]);
+        }
+        return matching;
+    }
+
+    private Postings decode(int index) {
+        int docFreq = docFreqs[index];
+        int[] postingDocs = new int[docFreq];
+        int[] freqs = new int[docFreq];
+        int[] starts = new int[docFreq + 1];
+        int[] positions = new int[16];
+        int[] cursor = { (int) offsets[index] };
+        int doc = 0;
+        int count = 0;
+        for (int i = 0; i < docFreq; i++) {
+            doc += readVarint(cursor);
+            int freq = readVarint(cursor);
+            postingDocs[i] = doc;
+            freqs[i] = freq;
+            starts[i] = count;
+            if (count + freq > positions.length) {
+                positions = Arrays.copyOf(positions, Math.max(positions.length * 2, count + freq));
+            }
+            int position = 0;
+            for (int f = 0; f < freq; f++) {
+                position += readVarint(cursor);
+                positions[count++] = position;
+            }
+        }
+        starts[docFreq] = count;
+        return new Postings(postingDocs, freqs, starts, positions);
+    }
+
+    private int readVarint(int[] cursor) {
+        int value = 0;
+        int shift = 0;
+        while (true) {
+            byte b = data.get(cursor[0]++);
+            value |= (b & 0x7f) << shift;
+            if (b >= 0) {
+                return value;
+            }
+            shift += 7;
+        }
+    }
+
+    private static String string(ByteBuffer in) {
+        byte[] bytes = new byte[in.getShort() & 0xffff];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes a segment: terms in ascending order with their postings, then
+     * the documents. The file is forced to disk on {@link #finish}.
+     */
+    static final class Writer implements AutoCloseable {
+
+        private final FileChannel channel;
+        private final DataOutputStream out;
+        private final List<String> terms = new ArrayList<>();
+        private final List<long[]> entries = new ArrayList<>();
+        private int[] docNumbers = new int[64];
+        private final List<DocKey> docKeys = new ArrayList<>();
+        private String lastTerm;
+
+        Writer(Path file) throws IOException {
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            this.out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024));
+        }
+
+        void addTerm(String term, Postings postings) throws IOException {
+            if (lastTerm != null && term.compareTo(lastTerm) <= 0) {
+                throw new IllegalArgumentException("Terms out of order: " + term + " after " + lastTerm);
+            }
+            lastTerm = term;
+            long offset = out.size();
+            int previous = 0;
+            for (int i = 0; i < postings.docs().length; i++) {
+                writeVarint(postings.docs()[i] - previous);
+                previous = postings.docs()[i];
+                writeVarint(postings.freqs()[i]);
+                int position = 0;
+                for (int p = postings.starts()[i]; p < postings.starts()[i + 1]; p++) {
+                    writeVarint(postings.positions()[p] - position);
+                    position = postings.positions()[p];
+                }
+            }
+            terms.add(term);
+            entries.add(new long[] { offset, postings.docs().length });
+        }
+
+        /** Add a document; documents must be added in ascending number order. */
+        void addDoc(int doc, DocKey key) {
+            if (docKeys.size() == docNumbers.length) {
+                docNumbers = Arrays.copyOf(docNumbers, docNumbers.length * 2);
+            }
+            docNumbers[docKeys.size()] = doc;
+            docKeys.add(key);
+        }
+
+        /** Bytes written so far. */
+        long size() {
+            return out.size();
+        }
+
+        void finish() throws IOException {
+            long docTable = out.size();
+            out.writeInt(docKeys.size());
+            for (int i = 0; i < docKeys.size(); i++) {
+                out.writeInt(docNumbers[i]);
+                writeString(docKeys.get(i).type());
+                out.writeInt(docKeys.get(i).id());
+            }
+            long dictionary = out.size();
+            out.writeInt(terms.size());
+            for (int i = 0; i < terms.size(); i++) {
+                writeString(terms.get(i));
+                out.writeLong(entries.get(i)[0]);
+                out.writeInt((int) entries.get(i)[1]);
+            }
+            out.writeLong(docTable);
+            out.writeLong(dictionary);
+            out.writeInt(MAGIC);
+            out.flush();
+            channel.force(true);
+        }
+
+        private void writeVarint(int value) throws IOException {
+            while ((value & ~0x7f) != 0) {
+                out.writeByte((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            out.writeByte(value);
+        }
+
+        private void writeString(String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeShort(bytes.length);
+            out.write(bytes);
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+}
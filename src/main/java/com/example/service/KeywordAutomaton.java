@@ -0,0 +1,140 @@
+package com.example.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+
+/**
+ * Aho-Corasick automaton over a fixed set of terms, matched case-insensitively
+ * anywhere in the text. Built once into a dense transition table over the
+ * characters the terms use (any other character leads back to the root), so
+ * a scan is one table lookup per character however many terms there are,
+ * and reports every occurrence, overlapping ones included.
+ */
+final class KeywordAutomaton {
+
+    /** Receives each occurrence: the term's index and where it starts and ends (exclusive). */
+    interface Listener {
+        void onMatch(int term, int start, int end);
+    }
+
+    private static final int[] NO_OUTPUTS = {};
+
+    // Characters the terms use, as 1-based columns of the table; 0 is every other character
+    private final char[] columns = new char[Character.MAX_VALUE + 1];
+    private final int width;
+    private final int[] transitions;
+    // Terms ending at each state, its own and those of its suffixes
+    private final int[][] outputs;
+    private final int[] termLengths;
+
+    KeywordAutomaton(List<String> terms) {
+        termLengths = new int[terms.size()];
+        int alphabet = 0;
+        for (String term : terms) {
+            for (char c : fold(term).toCharArray()) {
+                if (columns[c] == 0) {
+                    columns[c] = (char) ++alphabet;
+                }
+            }
+        }
+        width = alphabet + 1;
+
+        // Trie first, growing the table as states are added
+        int[] table = new int[width * 16];
+        List<int[]> ends = new ArrayList<>();
+        ends.add(NO_OUTPUTS);
+        int states = 1;
+        for (int t = 0; t < terms.size(); t++) {
+            String term = fold(terms.get(t));
+            if (term.isEmpty()) {
+                throw new IllegalArgumentException("Empty keyword");
+            }
+            termLengths[t] = term.length();
+            int state = 0;
+            for (int i = 0; i < term.length(); i++) {
+                int slot = state * width + columns[term.charAt(i)];
+                if (table[slot] == 0) {
+                    if ((states + 1) * width > table.length) {
+                        table = Arrays.copyOf(table, table.length * 2);
+                    }
+                    table[slot] = states++;
+                    ends.add(NO_OUTPUTS);
+                }
+                state = table[slot];
+            }
+            ends.set(state, append(ends.get(state), t));
+        }
+
+        // Then failure links, breadth first, folded into the table so a scan never follows one
+        transitions = Arrays.copyOf(table, states * width);
+        outputs = ends.toArray(new int[0][]);
+        int[] fail = new int[states];
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int c = 1; c < width; c++) {
+            int next = transitions[c];
+            if (next != 0) {
+                queue.add(next);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.remove();
+            outputs[state] = concat(outputs[state], outputs[fail[state]]);
+            for (int c = 1; c < width; c++) {
+                int slot = state * width + c;
+                int next = transitions[slot];
+                int fallback = transitions[fail[state] * width + c];
+                if (next == 0) {
+                    transitions[slot] = fallback;
+                } else {
+                    fail[next] = fallback;
+                    queue.add(next);
+                }
+            }
+        }
+    }
+
+    /** Report every occurrence of every term in {@code text}, in order of where they end. */
+    void scan(CharSequence text, Listener listener) {
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            state = transitions[state * width + columns[fold(text.charAt(i))]];
+            for (int term : outputs[state]) {
+                listener.onMatch(term, i + 1 - termLengths[term], i + 1);
+            }
+        }
+    }
+
+    int size() {
+        return termLengths.length;
+    }
+
+    private static char fold(char c) {
+        return c < 128 ? (c >= 'A' && c <= 'Z' ? (char) (c + 32) : c) : Character.toLowerCase(c);
+    }
+
+    private static String fold(String term) {
+        char[] chars = term.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = fold(chars[i]);
+        }
+        return new String(chars);
+    }
+
+    private static int[] append(int[] terms, int term) {
+        int[] grown = Arrays.copyOf(terms, terms.length + 1);
+        grown[terms.length] = term;
+        return grown;
+    }
+
+    private static int[] concat(int[] own, int[] inherited) {
+        if (inherited.length == 0) {
+            return own;
+        }
+        int[] all = Arrays.copyOf(own, own.length + inherited.length);
+        System.arraycopy(inherited, 0, all, own.length, inherited.length);
+        return all;
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.service;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * The normalized URLs of saved listings (see {@link PageCache#normalize}),
+ * as a Bloom filter: "no" is always right, "yes" is wrong for about one URL
+ * in {@code false-positive-rate}. Loaded from {@code auctions} on first use;
+ * {@link VehicleManagementService} adds each new listing once its save
+ * commits, whichever path saved it.
+ */
+@Slf4j
+@Component
+public class KnownListings {
+
+    // Keyset page size when loading known listing URLs into the Bloom filter
+    private static final int LOAD_BATCH_SIZE = 10_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long expectedListings;
+    private final double falsePositiveRate;
+    private volatile BloomFilter filter;
+
+    public KnownListings(JdbcTemplate jdbcTemplate,
+            @Value("${app.crawler.bloom.expected-listings:1000000}") long expectedListings,
+            @Value("${app.crawler.bloom.false-positive-rate:0.001}") double falsePositiveRate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.expectedListings = expectedListings;
+        this.falsePositiveRate = falsePositiveRate;
+    }
+
+    /** Whether a listing with this normalized URL may have been saved. */
+    public boolean mightContain(String url) {
+        return filter().mightContain(url);
+    }
+
+    /**
+     * Record a saved listing's normalized URL. Before the filter is loaded
+     * this is a no-op, as the load reads the listing from the table; while
+     * it loads, this waits for it.
+     */
+    public void add(String url) {
+        BloomFilter loaded = filter;
+        if (loaded == null) {
+            synchronized (this) {
+                loaded = filter;
+            }
+        }
+        if (loaded != null) {
+            loaded.add(url);
+        }
+    }
+
+    /**
+     * The filter, loaded on first use by walking {@code auctions} in id
+     * order, sized for twice the rows already there or
+     * {@code expected-listings}, whichever is more.
+     */
+    private BloomFilter filter() {
+        BloomFilter loaded = filter;
+        return loaded != null ? loaded : load();
+    }
+
+    private synchronized BloomFilter load() {
+        if (filter != null) {
+            return filter;
+        }
+        Long rows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM auctions", Long.class);
+        BloomFilter loading = new BloomFilter(Math.max(expectedListings, 2 * (rows == null ? 0 : rows)),
+                falsePositiveRate);
+        int lastId = 0;
+        int loadedUrls = 0;
+        while (true) {
+            List<Object[]> batch = jdbcTemplate.query(
+                    "SELECT auction_id, vehicle_url FROM auctions WHERE auction_id > ? ORDER BY auction_id LIMIT ?",
+                    (rs, rowNum) -> new Object[] { rs.getInt(1), rs.getString(2) },
+                    lastId, LOAD_BATCH_SIZE);
+            for (Object[] row : batch) {
+                lastId = (Integer) row[0];
+                if (row[1] != null) {
+                    loading.add(PageCache.normalize((String) row[1]));
+                    loadedUrls++;
+                }
+            }
+            if (batch.size() < LOAD_BATCH_SIZE) {
+                break;
+            }
+        }
+        log.info("Loaded {} auction URLs into a {} KB Bloom filter", loadedUrls, loading.sizeInBytes() / 1024);
+        filter = loading;
+        return loading;
+    }
+}
@@ -0,0 +1,384 @@
+package com.example.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import com.example.entity.CrawlCheckpoint;
+import com.example.repository.CrawlCheckpointRepository;
+import com.example.service.PageFetcher.FetchedPage;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Crawls a source's search or listing pages for bulk ingest. From the start
+ * page it follows the pagination link page by page; the vehicle links found
+ * on each page are scraped concurrently and saved in batches by
+ * {@link BulkScrapingService}, while the next index page is fetched in the
+ * background.
+ * <p>
+ * Links already in {@code auctions.vehicle_url} are skipped using the
+ * Bloom filter of {@link KnownListings}, to which every listing saved is
+ * added, whether by a crawl or any other path, so duplicates cost no query. At the configured false-positive rate about one
+ * new listing in a thousand is wrongly skipped; a later crawl, after a
+ * restart, gets another chance at it.
+ * <p>
+ * Progress is checkpointed in {@code crawl_checkpoints} after every index
+ * page, once its listings are saved: a stopped, failed or interrupted crawl
+ * is resumed from the first page not yet done. A page interrupted half-way
+ * is crawled again; the listings it already saved are then skipped.
+ */
+@Slf4j
+@Service
+public class ListingCrawlerService implements DisposableBean {
+
+    private static final String NEXT_PAGE = "a[rel=next], link[rel=next], .pagination a.next, li.next > a, "
+            + "a.next, a[aria-label=Next], a[aria-label=\"Next page\"]";
+    private static final Rules GENERIC = new Rules(
+            "a[href*=/lot/], a[href*=/listing/], a[href*=/vehicle/], a[href*=/for-sale/]", NEXT_PAGE);
+    private static final Map<String, Rules> SOURCE_RULES = Map.of(
+            "Cars.co.za", new Rules("a[href*=/for-sale/used/], a[href*=/for-sale/new/]", NEXT_PAGE),
+            "Gumtree", new Rules("a[href*=/a-cars-bakkies/], a.related-ad-title", NEXT_PAGE),
+            "Copart", new Rules("a[href*=/lot/]", NEXT_PAGE));
+
+    private final PageFetcher pageFetcher;
+    private final WebScrapingService webScrapingService;
+    private final BulkScrapingService bulkScrapingService;
+    private final CrawlCheckpointRepository crawlCheckpointRepository;
+    private final KnownListings knownListings;
+    private final int defaultMaxPages;
+    private final long minPageIntervalMillis;
+    private final int maxAttempts;
+    private final long backoffMillis;
+
+    private final ExecutorService crawls = Executors.newVirtualThreadPerTaskExecutor();
+    // Stop flags of the crawls running in this process
+    private final Map<Integer, AtomicBoolean> running = new ConcurrentHashMap<>();
+
+    public ListingCrawlerService(PageFetcher pageFetcher, WebScrapingService webScrapingService,
+            BulkScrapingService bulkScrapingService, CrawlCheckpointRepository crawlCheckpointRepository,
+            KnownListings knownListings,
+            @Value("${app.crawler.max-pages:1000}") int defaultMaxPages,
+            @Value("${app.crawler.min-page-interval-millis:1000}") long minPageIntervalMillis,
+            @Value("${app.crawler.max-attempts:3}") int maxAttempts,
+            @Value("${app.crawler.backoff-millis:2000}") long backoffMillis) {
+        this.pageFetcher = pageFetcher;
+        this.webScrapingService = webScrapingService;
+        this.bulkScrapingService = bulkScrapingService;
+        this.crawlCheckpointRepository = crawlCheckpointRepository;
+        this.knownListings = knownListings;
+        this.defaultMaxPages = defaultMaxPages;
+        this.minPageIntervalMillis = minPageIntervalMillis;
+        this.maxAttempts = maxAttempts;
+        this.backoffMillis = backoffMillis;
+    }
+
+    /**
+     * Start crawling from {@code startUrl} in the background. The selectors
+     * are optional and override the source's rules for finding listing links
+     * and the next page.
+     */
+    public CrawlCheckpoint start(String startUrl, Integer maxPages, String listingSelector,
+            String nextPageSelector) {
+        host(startUrl);
+        CrawlCheckpoint checkpoint = new CrawlCheckpoint();
+        checkpoint.setStartUrl(startUrl.trim());
+        checkpoint.setNextPageUrl(startUrl.trim());
+        checkpoint.setSource(webScrapingService.detectAuctionSource(startUrl));
+        checkpoint.setListingSelector(blankToNull(listingSelector));
+        checkpoint.setNextPageSelector(blankToNull(nextPageSelector));
+        checkpoint.setStatus(CrawlCheckpoint.RUNNING);
+        checkpoint.setUpdatedAt(LocalDateTime.now());
+        checkpoint = crawlCheckpointRepository.save(checkpoint);
+        AtomicBoolean stopRequested = new AtomicBoolean();
+        running.put(checkpoint.getCrawlId(), stopRequested);
+        submit(checkpoint, maxPages, stopRequested);
+        return checkpoint;
+    }
+
+    /**
+     * Resume a stopped or failed crawl, or one left running when the
+     * application went down, from its checkpoint.
+     */
+    public CrawlCheckpoint resume(int crawlId, Integer maxPages) {
+        CrawlCheckpoint checkpoint = crawlCheckpointRepository.findById(crawlId)
+                .orElseThrow(() -> new IllegalArgumentException("No crawl " + crawlId));
+        if (CrawlCheckpoint.DONE.equals(checkpoint.getStatus())) {
+            throw new IllegalStateException("Crawl " + crawlId + " is already done");
+        }
+        AtomicBoolean stopRequested = new AtomicBoolean();
+        if (running.putIfAbsent(crawlId, stopRequested) != null) {
+            throw new IllegalStateException("Crawl " + crawlId + " is already running");
+        }
+        checkpoint.setStatus(CrawlCheckpoint.RUNNING);
+        checkpoint.setLastError(null);
+        try {
+            saveCheckpoint(checkpoint);
+        } catch (RuntimeException e) {
+            running.remove(crawlId);
+            throw e;
+        }
+        submit(checkpoint, maxPages, stopRequested);
+        return checkpoint;
+    }
+
+    /**
+     * Ask a running crawl to stop once its current page is saved; false if it
+     * is not running here.
+     */
+    public boolean stop(int crawlId) {
+        AtomicBoolean stopRequested = running.get(crawlId);
+        if (stopRequested == null) {
+            return false;
+        }
+        stopRequested.set(true);
+        return true;
+    }
+
+    public Optional<CrawlCheckpoint> find(int crawlId) {
+        return crawlCheckpointRepository.findById(crawlId);
+    }
+
+    /** Most recent crawls first. */
+    public List<CrawlCheckpoint> recent(int limit) {
+        return crawlCheckpointRepository.findAllByOrderByCrawlIdDesc(PageRequest.of(0, limit));
+    }
+
+    private void submit(CrawlCheckpoint checkpoint, Integer maxPages, AtomicBoolean stopRequested) {
+        int pages = maxPages == null || maxPages < 1 ? defaultMaxPages : maxPages;
+        crawls.execute(() -> {
+            try {
+                crawl(checkpoint, pages, stopRequested);
+            } catch (RuntimeException e) {
+                log.error("Crawl " + checkpoint.getCrawlId() + " failed", e);
+                checkpoint.setStatus(CrawlCheckpoint.FAILED);
+                checkpoint.setLastError(truncate(e.toString()));
+                saveCheckpoint(checkpoint);
+            } finally {
+                running.remove(checkpoint.getCrawlId());
+            }
+        });
+    }
+
+    /**
+     * Crawl up to {@code maxPages} index pages from the checkpoint's next
+     * page, on the calling thread, saving the checkpoint after each page.
+     */
+    void crawl(CrawlCheckpoint checkpoint, int maxPages, AtomicBoolean stopRequested) {
+        Rules rules = rules(checkpoint);
+        Set<String> visited = new HashSet<>();
+        Set<String> queued = new HashSet<>();
+        String pageUrl = checkpoint.getNextPageUrl();
+        Future<IndexPage> prefetched = null;
+        int pages = 0;
+        log.info("Crawl {} starting at {}", checkpoint.getCrawlId(), pageUrl);
+
+        try (ExecutorService prefetcher = Executors.newVirtualThreadPerTaskExecutor()) {
+            while (pageUrl != null) {
+                if (pages >= maxPages || stopRequested.get()) {
+                    if (prefetched != null) {
+                        prefetched.cancel(true);
+                    }
+                    checkpoint.setStatus(CrawlCheckpoint.STOPPED);
+                    break;
+                }
+                visited.add(pageUrl);
+                long fetchedAt = System.nanoTime();
+                IndexPage page = prefetched != null ? await(prefetched) : fetchIndex(pageUrl, rules, fetchedAt);
+                prefetched = null;
+
+                String next = page.nextPageUrl();
+                if (next != null && visited.contains(next)) {
+                    // Pagination went round in a circle
+                    next = null;
+                }
+                if (next != null && pages + 1 < maxPages) {
+                    String url = next;
+                    long notBefore = fetchedAt + TimeUnit.MILLISECONDS.toNanos(minPageIntervalMillis);
+                    prefetched = prefetcher.submit(() -> fetchIndex(url, rules, notBefore));
+                }
+
+                List<String> fresh = new ArrayList<>(page.listingUrls().size());
+                for (String url : page.listingUrls()) {
+                    if (!knownListings.mightContain(url) && queued.add(url)) {
+                        fresh.add(url);
+                    }
+                }
+                checkpoint.setListingsFound(checkpoint.getListingsFound() + page.listingUrls().size());
+                checkpoint.setListingsSkipped(
+                        checkpoint.getListingsSkipped() + page.listingUrls().size() - fresh.size());
+                if (!fresh.isEmpty()) {
+                    bulkScrapingService.scrapeAll(fresh, outcome -> {
+                        if (outcome.isSuccess()) {
+                            knownListings.add(PageCache.normalize(outcome.url()));
+                            checkpoint.setListingsSaved(checkpoint.getListingsSaved() + 1);
+                        } else {
+                            checkpoint.setListingsFailed(checkpoint.getListingsFailed() + 1);
+                        }
+                    });
+                }
+
+                pages++;
+                checkpoint.setPagesCrawled(checkpoint.getPagesCrawled() + 1);
+                checkpoint.setNextPageUrl(next);
+                pageUrl = next;
+                if (pageUrl == null) {
+                    checkpoint.setStatus(CrawlCheckpoint.DONE);
+                }
+                saveCheckpoint(checkpoint);
+            }
+        } catch (IOException e) {
+            log.warn("Crawl {} failed at {}: {}", checkpoint.getCrawlId(), pageUrl, e.toString());
+            checkpoint.setStatus(CrawlCheckpoint.FAILED);
+            checkpoint.setLastError(truncate(e.toString()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            checkpoint.setStatus(CrawlCheckpoint.STOPPED);
+        }
+        saveCheckpoint(checkpoint);
+        log.info("Crawl {} {} after {} page(s): {} listings found, {} skipped, {} saved, {} failed",
+                checkpoint.getCrawlId(), checkpoint.getStatus().toLowerCase(Locale.ROOT), pages,
+                checkpoint.getListingsFound(), checkpoint.getListingsSkipped(), checkpoint.getListingsSaved(),
+                checkpoint.getListingsFailed());
+    }
+
+    /**
+     * Fetch an index page, no sooner than {@code notBeforeNanos}, retrying
+     * errors {@link BulkScrapingService#isRetryable} accepts with backoff.
+     */
+    IndexPage fetchIndex(String url, Rules rules, long notBeforeNanos) throws IOException, InterruptedException {
+        long wait = notBeforeNanos - System.nanoTime();
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+        for (int attempt = 1;; attempt++) {
+            try {
+                FetchedPage page = pageFetcher.fetch(url, null, null);
+                Document doc = Jsoup.parse(new ByteArrayInputStream(page.body()),
+                        page.charset() == null ? null : page.charset().name(), url);
+                return parseIndex(doc, rules);
+            } catch (IOException e) {
+                if (attempt >= maxAttempts || !BulkScrapingService.isRetryable(e)) {
+                    throw e;
+                }
+                log.debug("Retrying index page {} after attempt {}: {}", url, attempt, e.toString());
+                Thread.sleep(backoffMillis << Math.min(attempt - 1, 20));
+            }
+        }
+    }
+
+    /**
+     * The listing links on an index page, normalized and on the page's own
+     * host (so ads and partner sites are left alone), and its next page.
+     */
+    static IndexPage parseIndex(Document doc, Rules rules) {
+        String host = host(doc.location());
+        Set<String> listings = new LinkedHashSet<>();
+        for (Element link : doc.select(rules.listingSelector())) {
+            String href = link.absUrl("href");
+            if (!href.isEmpty() && host.equals(hostOrNull(href))) {
+                listings.add(PageCache.normalize(href));
+            }
+        }
+        String next = null;
+        Element nextLink = doc.selectFirst(rules.nextPageSelector());
+        if (nextLink != null && !nextLink.absUrl("href").isEmpty()) {
+            next = nextLink.absUrl("href");
+        }
+        return new IndexPage(List.copyOf(listings), next);
+    }
+
+    private Rules rules(CrawlCheckpoint checkpoint) {
+        Rules rules = SOURCE_RULES.getOrDefault(checkpoint.getSource(), GENERIC);
+        return new Rules(
+                checkpoint.getListingSelector() != null ? checkpoint.getListingSelector() : rules.listingSelector(),
+                checkpoint.getNextPageSelector() != null
+                        ? checkpoint.getNextPageSelector() : rules.nextPageSelector());
+    }
+
+    private void saveCheckpoint(CrawlCheckpoint checkpoint) {
+        checkpoint.setUpdatedAt(LocalDateTime.now());
+        crawlCheckpointRepository.save(checkpoint);
+    }
+
+    private static IndexPage await(Future<IndexPage> page) throws IOException, InterruptedException {
+        try {
+            return page.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            if (e.getCause() instanceof InterruptedException interrupted) {
+                throw interrupted;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static String host(String url) {
+        String host = hostOrNull(url);
+        if (host == null) {
+            throw new IllegalArgumentException("Not an absolute URL: " + url);
+        }
+        return host;
+    }
+
+    // Lower-cased, without "www.", so www.example.com and example.com match
+    private static String hostOrNull(String url) {
+        try {
+            String host = URI.create(url.trim()).getHost();
+            if (host == null) {
+                return null;
+            }
+            host = host.toLowerCase(Locale.ROOT);
+            return host.startsWith("www.") ? host.substring(4) : host;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    private static String truncate(String message) {
+        return message.length() <= 255 ? message : message.substring(0, 255);
+    }
+
+    @Override
+    public void destroy() {
+        running.values().forEach(stopRequested -> stopRequested.set(true));
+        crawls.shutdownNow();
+    }
+
+    /** CSS selectors for the listing links and the next-page link on an index page. */
+    record Rules(String listingSelector, String nextPageSelector) {
+    }
+
+    record IndexPage(List<String> listingUrls, String nextPageUrl) {
+    }
+}
@@ -0,0 +1,225 @@
+package com.example.service;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.service.ListingFieldExtractor.Match;
+import com.example.service.StructuredListingData.Item;
+
+/**
+ * Site-specific listing extractors keyed by source (as named by
+ * {@link WebScrapingService#detectAuctionSource}); sources without one get
+ * the generic selectors.
+ * <p>
+ * Per host it remembers where each field was found last time: the selector
+ * that matched and the element's position in the page, and where the
+ * structured data was (or that there was none). Pages from one site share a
+ * template, so the next page is first checked at those positions, a handful
+ * of node lookups; then with the remembered selector alone; and only fields
+ * still missing take a walk over the whole page. A remembered selector is
+ * trusted even if a more preferred one would also match the new page.
+ */
+@Component
+public class ListingExtractorRegistry {
+
+    // Pages without structured data between re-checks of a host that had none
+    private static final int STRUCTURED_DATA_RECHECK = 100;
+
+    private final Map<String, SiteExtractor> extractors = new ConcurrentHashMap<>();
+    private final int maxHosts;
+    // Learned positions per host, in LRU order
+    private final LinkedHashMap<String, HostHints> hosts = new LinkedHashMap<>(256, 0.75f, true);
+
+    public ListingExtractorRegistry(@Value("${app.scraping.extractors.max-hosts:10000}") int maxHosts) {
+        this.maxHosts = maxHosts;
+        register(SiteExtractor.builder("Cars.co.za")
+                .structuredData()
+                .build());
+        register(SiteExtractor.builder("Gumtree")
+                .structuredData()
+                .build());
+        register(SiteExtractor.builder("Copart")
+                // The lot title leads with the year, e.g. "2015 TOYOTA COROLLA L"
+                .selectors(SiteExtractor.YEAR, "h1.title")
+                .selectors(SiteExtractor.MILEAGE, "[data-uname=lotdetailOdometervalue]")
+                .build());
+    }
+
+    /** Add or replace the extractor for its source. */
+    void register(SiteExtractor extractor) {
+        extractors.put(extractor.source(), extractor);
+    }
+
+    /**
+     * Listing fields of a page fetched from {@code url}: every field is
+     * present, null where the page has no value for it.
+     */
+    Map<String, String> extract(String url, String source, Element doc) {
+        SiteExtractor site = extractors.getOrDefault(source, SiteExtractor.GENERIC);
+        HostHints hints = hints(hostOf(url, source), site);
+        ListingFieldExtractor fields = site.fields();
+        int count = fields.fieldCount();
+        String[] values = new String[count];
+
+        if (site.readsStructuredData()) {
+            Map<String, String> structured = readStructuredData(doc, hints);
+            if (structured != null) {
+                for (int f = 0; f < count; f++) {
+                    values[f] = structured.get(fields.fieldName(f));
+                }
+            }
+        }
+
+        boolean[] wanted = new boolean[count];
+        boolean walk = false;
+        for (int f = 0; f < count; f++) {
+            if (values[f] == null) {
+                values[f] = fromHint(fields, f, doc, hints);
+            }
+            wanted[f] = values[f] == null;
+            walk |= wanted[f];
+        }
+
+        if (walk) {
+            Match[] matches = fields.match(doc, wanted);
+            for (int f = 0; f < count; f++) {
+                if (matches[f] != null) {
+                    values[f] = matches[f].value();
+                    hints.fields.set(f, new FieldHint(matches[f].selector(), pathOf(matches[f].element())));
+                }
+            }
+        }
+
+        Map<String, String> result = new HashMap<>();
+        for (int f = 0; f < count; f++) {
+            result.put(fields.fieldName(f), values[f]);
+        }
+        return result;
+    }
+
+    /**
+     * The field's value at its remembered position, or from the first match
+     * of its remembered selector; null if neither has one.
+     */
+    private static String fromHint(ListingFieldExtractor fields, int field, Element doc, HostHints hints) {
+        FieldHint hint = hints.fields.get(field);
+        if (hint == null) {
+            return null;
+        }
+        String value = fields.valueAt(field, hint.selector(), doc, resolve(doc, hint.path()));
+        if (value != null) {
+            return value;
+        }
+        Match match = fields.selectFirst(field, hint.selector(), doc);
+        if (match == null) {
+            return null;
+        }
+        hints.fields.set(field, new FieldHint(hint.selector(), pathOf(match.element())));
+        return match.value();
+    }
+
+    private static Map<String, String> readStructuredData(Element doc, HostHints hints) {
+        int[] path = hints.structuredData;
+        if (path == HostHints.NONE
+                && hints.pagesWithoutStructuredData.incrementAndGet() % STRUCTURED_DATA_RECHECK != 0) {
+            return null;
+        }
+        if (path != null && path != HostHints.NONE) {
+            Element element = resolve(doc, path);
+            Map<String, String> fields = element == null ? null : StructuredListingData.read(element);
+            if (fields != null) {
+                return fields;
+            }
+        }
+        Item item = StructuredListingData.find(doc);
+        hints.structuredData = item == null ? HostHints.NONE : pathOf(item.element());
+        return item == null ? null : item.fields();
+    }
+
+    private HostHints hints(String host, SiteExtractor site) {
+        synchronized (hosts) {
+            HostHints hints = hosts.get(host);
+            // Positions index the selectors of one extractor; start over if it was replaced
+            if (hints == null || hints.site != site) {
+                hints = new HostHints(site);
+                hosts.put(host, hints);
+                if (hosts.size() > maxHosts) {
+                    hosts.remove(hosts.keySet().iterator().next());
+                }
+            }
+            return hints;
+        }
+    }
+
+    private static String hostOf(String url, String source) {
+        try {
+            String host = URI.create(url).getHost();
+            if (host != null) {
+                host = host.toLowerCase(Locale.ROOT);
+                return host.startsWith("www.") ? host.substring(4) : host;
+            }
+        } catch (IllegalArgumentException e) {
+            // Not a URI; group the page with its source
+        }
+        return source;
+    }
+
+    /** Child node indexes from the document down to the element. */
+    static int[] pathOf(Element element) {
+        List<Integer> reversed = new ArrayList<>();
+        Node node = element;
+        while (node.parent() != null) {
+            reversed.add(node.siblingIndex());
+            node = node.parent();
+        }
+        int[] path = new int[reversed.size()];
+        for (int i = 0; i < path.length; i++) {
+            path[i] = reversed.get(path.length - 1 - i);
+        }
+        return path;
+    }
+
+    /** The element at a path from {@link #pathOf}, or null if the page has none there. */
+    static Element resolve(Element root, int[] path) {
+        Node node = root;
+        for (int index : path) {
+            if (index >= node.childNodeSize()) {
+                return null;
+            }
+            node = node.childNode(index);
+        }
+        return node instanceof Element element ? element : null;
+    }
+
+    /** Where a field was found: the selector's index and the element's path. */
+    private record FieldHint(int selector, int[] path) {
+    }
+
+    private static final class HostHints {
+        static final int[] NONE = new int[0];
+
+        final SiteExtractor site;
+        final AtomicReferenceArray<FieldHint> fields;
+        // Path of the structured data, NONE if the host had none, null if not looked for yet
+        volatile int[] structuredData;
+        final AtomicInteger pagesWithoutStructuredData = new AtomicInteger();
+
+        HostHints(SiteExtractor site) {
+            this.site = site;
+            this.fields = new AtomicReferenceArray<>(site.fields().fieldCount());
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package com.example.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.select.Evaluator;
+import org.jsoup.select.NodeFilter;
+import org.jsoup.select.NodeTraversor;
+import org.jsoup.select.QueryParser;
+
+/**
+ * Extracts a fixed set of fields from a page in one walk over the DOM.
+ * <p>
+ * Each field has CSS selectors in order of preference; its value comes from
+ * the first selector whose first match (in document order) has text the
+ * field accepts, which is what trying {@code selectFirst} per selector would
+ * give. All selectors are compiled once, and the walk stops as soon as every
+ * field is settled: either resolved by its best possible selector, or every
+ * better selector has had its first match and been rejected.
+ * <p>
+ * Fields and selectors are also addressable by index, so a caller that
+ * remembers where a field was found (see {@link ListingExtractorRegistry})
+ * can check that one selector, or one element, on the next page first.
+ * <p>
+ * Instances are immutable and thread-safe.
+ */
+final class ListingFieldExtractor {
+
+    private final Field[] fields;
+    private final int selectorCount;
+
+    private ListingFieldExtractor(Field[] fields) {
+        this.fields = fields;
+        int count = 0;
+        for (Field field : fields) {
+            count += field.evaluators.length;
+        }
+        this.selectorCount = count;
+    }
+
+    static Builder builder() {
+        return new Builder();
+    }
+
+    int fieldCount() {
+        return fields.length;
+    }
+
+    String fieldName(int field) {
+        return fields[field].name;
+    }
+
+    /**
+     * Values for every field, null where no selector produced one.
+     */
+    Map<String, String> extract(Element root) {
+        Match[] matches = match(root, null);
+        Map<String, String> values = new HashMap<>();
+        for (int f = 0; f < fields.length; f++) {
+            values.put(fields[f].name, matches[f] == null ? null : matches[f].value());
+        }
+        return values;
+    }
+
+    /**
+     * Where each wanted field was found, by field index, in one walk; null
+     * for fields not wanted ({@code wanted} null means all) or not found.
+     */
+    Match[] match(Element root, boolean[] wanted) {
+        Walk walk = new Walk(root, wanted);
+        if (walk.unsettled > 0) {
+            NodeTraversor.filter(walk, root);
+        }
+        Match[] matches = new Match[fields.length];
+        for (int f = 0; f < fields.length; f++) {
+            if (walk.values[f] != null) {
+                matches[f] = new Match(walk.best[f], walk.elements[f], walk.values[f]);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * The field's value from {@code element} if it matches the given
+     * selector, otherwise null.
+     */
+    String valueAt(int field, int selector, Element root, Element element) {
+        Field f = fields[field];
+        if (element == null || !f.evaluators[selector].matches(root, element)) {
+            return null;
+        }
+        return f.valueOf(element.text());
+    }
+
+    /**
+     * The first match of one of the field's selectors, if it has a value.
+     */
+    Match selectFirst(int field, int selector, Element root) {
+        Field f = fields[field];
+        Element element = root.selectFirst(f.evaluators[selector]);
+        String value = element == null ? null : f.valueOf(element.text());
+        return value == null ? null : new Match(selector, element, value);
+    }
+
+    /**
+     * Per-extraction state: which selectors have seen their first match and
+     * the best value found so far for each field.
+     */
+    private final class Walk implements NodeFilter {
+        private final Element root;
+        private final String[] values = new String[fields.length];
+        private final Element[] elements = new Element[fields.length];
+        private final int[] best = new int[fields.length];
+        private final boolean[] settled = new boolean[fields.length];
+        private final boolean[] firstMatchSeen = new boolean[selectorCount];
+        private int unsettled = fields.length;
+
+        private Walk(Element root, boolean[] wanted) {
+            this.root = root;
+            Arrays.fill(best, Integer.MAX_VALUE);
+            if (wanted != null) {
+                for (int f = 0; f < fields.length; f++) {
+                    if (!wanted[f]) {
+                        settled[f] = true;
+                        unsettled--;
+                    }
+                }
+            }
+        }
+
+        @Override
+        public FilterResult head(Node node, int depth) {
+            if (!(node instanceof Element element)) {
+                return FilterResult.CONTINUE;
+            }
+            String text = null;
+            for (int f = 0; f < fields.length; f++) {
+                if (settled[f]) {
+                    continue;
+                }
+                Field field = fields[f];
+                int limit = Math.min(best[f], field.evaluators.length);
+                for (int s = 0; s < limit; s++) {
+                    int id = field.offset + s;
+                    if (firstMatchSeen[id] || !field.evaluators[s].matches(root, element)) {
+                        continue;
+                    }
+                    firstMatchSeen[id] = true;
+                    if (text == null) {
+                        text = element.text();
+                    }
+                    String value = field.valueOf(text);
+                    if (value != null) {
+                        best[f] = s;
+                        values[f] = value;
+                        elements[f] = element;
+                        break;
+                    }
+                }
+                if (isSettled(f)) {
+                    settled[f] = true;
+                    unsettled--;
+                }
+            }
+            return unsettled == 0 ? FilterResult.STOP : FilterResult.CONTINUE;
+        }
+
+        @Override
+        public FilterResult tail(Node node, int depth) {
+            return FilterResult.CONTINUE;
+        }
+
+        private boolean isSettled(int f) {
+            Field field = fields[f];
+            int limit = Math.min(best[f], field.evaluators.length);
+            for (int s = 0; s < limit; s++) {
+                if (!firstMatchSeen[field.offset + s]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * A field's compiled selectors, in order of preference, and the function
+     * turning matched text into its value (null to try the next selector).
+     */
+    private record Field(String name, Evaluator[] evaluators, int offset, UnaryOperator<String> value) {
+
+        String valueOf(String text) {
+            return text.isEmpty() ? null : value.apply(text);
+        }
+    }
+
+    /**
+     * A field's value, the element it came from and the index of the
+     * selector that matched it.
+     */
+    record Match(int selector, Element element, String value) {
+    }
+
+    static final class Builder {
+        private final List<Field> fields = new ArrayList<>();
+        private int offset;
+
+        private Builder() {
+        }
+
+        /** A field taking the matched element's text as is. */
+        Builder field(String name, String... selectors) {
+            return field(name, UnaryOperator.identity(), selectors);
+        }
+
+        /** A field whose value is derived from the matched text, or null to fall through. */
+        Builder field(String name, UnaryOperator<String> value, String... selectors) {
+            Evaluator[] evaluators = new Evaluator[selectors.length];
+            for (int i = 0; i < selectors.length; i++) {
+                evaluators[i] = QueryParser.parse(selectors[i]);
+            }
+            fields.add(new Field(name, evaluators, offset, value));
+            offset += selectors.length;
+            return this;
+        }
+
+        ListingFieldExtractor build() {
+            return new ListingFieldExtractor(fields.toArray(new Field[0]));
+        }
+    }
+}
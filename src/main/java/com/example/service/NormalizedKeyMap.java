@@ -0,0 +1,118 @@
+package com.example.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Immutable open-addressing map whose keys compare case-, space- and
+ * punctuation-insensitively. Lookups hash the raw input on the fly, so no
+ * normalized copy of the caller's string is ever allocated.
+ */
+final class NormalizedKeyMap<V> {
+
+    private final String[] keys;
+    private final Object[] values;
+    private final int mask;
+    private final int size;
+
+    private NormalizedKeyMap(Map<String, V> entries) {
+        int capacity = Integer.highestOneBit(Math.max(2, entries.size() * 2 - 1)) << 1;
+        this.keys = new String[capacity];
+        this.values = new Object[capacity];
+        this.mask = capacity - 1;
+        this.size = entries.size();
+        for (Map.Entry<String, V> entry : entries.entrySet()) {
+            int i = hash(entry.getKey()) & mask;
+            while (keys[i] != null) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = entry.getKey();
+            values[i] = entry.getValue();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(CharSequence raw) {
+        if (raw == null) {
+            return null;
+        }
+        for (int i = hash(raw) & mask;; i = (i + 1) & mask) {
+            String key = keys[i];
+            if (key == null) {
+                return null;
+            }
+            if (matches(key, raw)) {
+                return (V) values[i];
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Lower-case letters and digits only, e.g. "Land-Cruiser 200" becomes "landcruiser200".
+     */
+    static String normalize(CharSequence raw) {
+        StringBuilder sb = new StringBuilder(raw.length());
+        for (int i = 0; i < raw.length(); i++) {
+            char c = raw.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                sb.append(Character.toLowerCase(c));
+            }
+        }
+        return sb.toString();
+    }
+
+    private static int hash(CharSequence raw) {
+        int h = 0;
+        for (int i = 0; i < raw.length(); i++) {
+            char c = raw.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                h = 31 * h + Character.toLowerCase(c);
+            }
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private static boolean matches(String normalized, CharSequence raw) {
+        int j = 0;
+        for (int i = 0; i < raw.length(); i++) {
+            char c = raw.charAt(i);
+            if (!Character.isLetterOrDigit(c)) {
+                continue;
+            }
+            if (j >= normalized.length() || normalized.charAt(j++) != Character.toLowerCase(c)) {
+                return false;
+            }
+        }
+        return j == normalized.length();
+    }
+
+    static <V> Builder<V> builder() {
+        return new Builder<>();
+    }
+
+    static final class Builder<V> {
+        private final Map<String, V> entries = new LinkedHashMap<>();
+
+        /** Returns the value already stored under the normalized key, or null. */
+        V get(String rawKey) {
+            return entries.get(normalize(rawKey));
+        }
+
+        Builder<V> put(String rawKey, V value) {
+            String key = normalize(rawKey);
+            if (key.isEmpty()) {
+                throw new IllegalArgumentException("Key has no letters or digits: '" + rawKey + "'");
+            }
+            entries.put(key.intern(), value);
+            return this;
+        }
+
+        NormalizedKeyMap<V> build() {
+            return new NormalizedKeyMap<>(entries);
+        }
+    }
+}
@@ -0,0 +1,518 @@
+package com.example.service;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.service.PageFetcher.FetchedPage;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Scraped pages on disk, keyed by normalized URL, so a listing pasted again
+ * within its source's TTL is served without a fetch. Bodies are stored once
+ * per distinct content under their SHA-256 ({@code blobs/}), shared by every
+ * URL that served them, and read back memory-mapped; a small properties file
+ * per URL ({@code entries/}) holds the blob, validators and fetch time. The
+ * total size of the blobs is bounded; the least recently used URLs are
+ * evicted first and a blob is deleted with the last URL referring to it.
+ * <p>
+ * Modes ({@code app.scraping.cache.mode}):
+ * <ul>
+ * <li>{@code live}: fresh pages are served from disk, others fetched and stored</li>
+ * <li>{@code replay}: every page is served from disk, however old; a page
+ * that was never recorded fails with {@link FileNotFoundException}. No
+ * network is used, so tests and load runs replay a recorded directory.</li>
+ * <li>{@code off}: nothing is stored</li>
+ * </ul>
+ */
+@Slf4j
+@Component
+public class PageCache {
+
+    public enum Mode {
+        LIVE, REPLAY, OFF
+    }
+
+    private static final HexFormat HEX = HexFormat.of();
+
+    private final Mode mode;
+    private final Path blobDir;
+    private final Path entryDir;
+    private final long maxBytes;
+    private final Duration defaultTtl;
+    private final Map<String, Duration> sourceTtls;
+    private final Clock clock;
+
+    // Guarded by this: entries by normalized URL in LRU order, blobs by hash
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private final Map<String, Blob> blobs = new HashMap<>();
+    private long totalBytes;
+
+    public PageCache(@Value("${app.scraping.cache.dir:page-cache}") String dir,
+            @Value("${app.scraping.cache.mode:live}") String mode,
+            @Value("${app.scraping.cache.max-bytes:268435456}") long maxBytes,
+            @Value("${app.scraping.cache.ttl-seconds:300}") long ttlSeconds,
+            @Value("${app.scraping.cache.source-ttls:}") String sourceTtls) throws IOException {
+        this(Paths.get(dir), Mode.valueOf(mode.trim().toUpperCase(Locale.ROOT)), maxBytes,
+                Duration.ofSeconds(ttlSeconds), parseSourceTtls(sourceTtls), Clock.systemUTC());
+    }
+
+    PageCache(Path dir, Mode mode, long maxBytes, Duration defaultTtl, Map<String, Duration> sourceTtls,
+            Clock clock) throws IOException {
+        this.mode = mode;
+        this.blobDir = dir.resolve("blobs");
+        this.entryDir = dir.resolve("entries");
+        this.maxBytes = maxBytes;
+        this.defaultTtl = defaultTtl;
+        this.sourceTtls = sourceTtls;
+        this.clock = clock;
+        if (mode != Mode.OFF) {
+            Files.createDirectories(blobDir);
+            Files.createDirectories(entryDir);
+            load();
+        }
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public boolean isReplay() {
+        return mode == Mode.REPLAY;
+    }
+
+    /**
+     * The stored page for a URL, fresh or not, with its body mapped from
+     * disk; null if there is none.
+     */
+    public CachedPage get(String url) {
+        if (mode == Mode.OFF) {
+            return null;
+        }
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(normalize(url));
+        }
+        if (entry == null) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(blobPath(entry.blob()), StandardOpenOption.READ)) {
+            ByteBuffer body = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new CachedPage(entry.url(), body, entry.charset() == null ? null : Charset.forName(entry.charset()),
+                    entry.etag(), entry.lastModified(), entry.fetchedAt());
+        } catch (IOException e) {
+            // Evicted meanwhile, or removed from disk
+            log.debug("Cached page for {} unreadable: {}", url, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Whether a stored page may be served without asking the site: always
+     * when replaying, otherwise within its source's TTL.
+     */
+    public boolean isFresh(CachedPage page, String source) {
+        if (mode == Mode.REPLAY) {
+            return true;
+        }
+        Duration ttl = sourceTtls.getOrDefault(source, defaultTtl);
+        return page.fetchedAt().plus(ttl).isAfter(clock.instant());
+    }
+
+    /**
+     * For replay mode: the error for a page that was never recorded.
+     */
+    public FileNotFoundException notRecorded(String url) {
+        return new FileNotFoundException("No recorded page for " + url);
+    }
+
+    /**
+     * Store a fetched page (not a 304) for its URL, replacing what was there.
+     */
+    public void put(String url, FetchedPage page) throws IOException {
+        if (mode != Mode.LIVE || page.notModified()) {
+            return;
+        }
+        String key = normalize(url);
+        byte[] body = page.body();
+        String hash = sha256(body);
+        Entry entry = new Entry(key, hash, body.length, page.charset() == null ? null : page.charset().name(),
+                page.etag(), page.lastModified(), clock.instant());
+
+        // Reserve the blob so eviction cannot delete it while it is written
+        synchronized (this) {
+            blobs.computeIfAbsent(hash, h -> new Blob(body.length)).refs++;
+        }
+        try {
+            Path blobPath = blobPath(hash);
+            if (!Files.exists(blobPath)) {
+                Files.createDirectories(blobPath.getParent());
+                writeAtomically(blobPath, body);
+            }
+        } catch (IOException | RuntimeException e) {
+            synchronized (this) {
+                release(hash);
+            }
+            throw e;
+        }
+        synchronized (this) {
+            // Under the lock, so an eviction of the URL's previous entry cannot delete the new file
+            try {
+                writeEntry(entry);
+            } catch (IOException | RuntimeException e) {
+                release(hash);
+                throw e;
+            }
+            Entry previous = entries.put(key, entry);
+            if (previous != null) {
+                release(previous.blob());
+            }
+            Blob blob = blobs.get(hash);
+            if (!blob.counted) {
+                blob.counted = true;
+                totalBytes += blob.size;
+            }
+            evict(key);
+        }
+    }
+
+    /**
+     * The site answered 304 for a stored page: it is fresh again, with any
+     * validators the response updated.
+     */
+    public void revalidated(String url, FetchedPage notModified) throws IOException {
+        if (mode != Mode.LIVE) {
+            return;
+        }
+        String key = normalize(url);
+        synchronized (this) {
+            Entry stored = entries.get(key);
+            if (stored == null) {
+                return;
+            }
+            Entry entry = new Entry(key, stored.blob(), stored.size(), stored.charset(),
+                    notModified.etag() != null ? notModified.etag() : stored.etag(),
+                    notModified.lastModified() != null ? notModified.lastModified() : stored.lastModified(),
+                    clock.instant());
+            writeEntry(entry);
+            entries.put(key, entry);
+        }
+    }
+
+    /** Total size of the stored bodies. */
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /** Drop least recently used URLs until the blobs fit, keeping {@code keep}. */
+    private void evict(String keep) {
+        Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<String, Entry> next = eldest.next();
+            if (next.getKey().equals(keep)) {
+                continue;
+            }
+            eldest.remove();
+            deleteQuietly(entryPath(next.getKey()));
+            release(next.getValue().blob());
+        }
+    }
+
+    private void release(String hash) {
+        Blob blob = blobs.get(hash);
+        if (blob == null || --blob.refs > 0) {
+            return;
+        }
+        blobs.remove(hash);
+        if (blob.counted) {
+            totalBytes -= blob.size;
+        }
+        deleteQuietly(blobPath(hash));
+    }
+
+    /**
+     * Rebuild the index from the entry files, oldest fetch first. When live,
+     * entries whose blob is gone and blobs no entry refers to are removed; a
+     * replayed directory is only read.
+     */
+    private synchronized void load() throws IOException {
+        boolean live = mode == Mode.LIVE;
+        List<Entry> loaded = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(entryDir, "*.properties")) {
+            for (Path file : files) {
+                Entry entry = readEntry(file);
+                if (entry != null && Files.exists(blobPath(entry.blob()))) {
+                    loaded.add(entry);
+                } else if (live) {
+                    deleteQuietly(file);
+                }
+            }
+        }
+        loaded.sort((a, b) -> a.fetchedAt().compareTo(b.fetchedAt()));
+        for (Entry entry : loaded) {
+            entries.put(entry.url(), entry);
+            Blob blob = blobs.computeIfAbsent(entry.blob(), h -> new Blob(entry.size()));
+            blob.refs++;
+            if (!blob.counted) {
+                blob.counted = true;
+                totalBytes += blob.size;
+            }
+        }
+        if (live) {
+            try (Stream<Path> files = Files.walk(blobDir)) {
+                files.filter(Files::isRegularFile)
+                        .filter(file -> !blobs.containsKey(file.getFileName().toString()))
+                        .forEach(PageCache::deleteQuietly);
+            }
+            evict(null);
+        }
+        log.info("Page cache at {}: {} pages, {} bytes, mode {}", blobDir.getParent(), entries.size(), totalBytes,
+                mode);
+    }
+
+    private void writeEntry(Entry entry) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("url", entry.url());
+        properties.setProperty("blob", entry.blob());
+        properties.setProperty("size", Long.toString(entry.size()));
+        properties.setProperty("fetchedAt", entry.fetchedAt().toString());
+        if (entry.charset() != null) {
+            properties.setProperty("charset", entry.charset());
+        }
+        if (entry.etag() != null) {
+            properties.setProperty("etag", entry.etag());
+        }
+        if (entry.lastModified() != null) {
+            properties.setProperty("lastModified", entry.lastModified());
+        }
+        Path path = entryPath(entry.url());
+        Path temp = Files.createTempFile(entryDir, "entry", ".tmp");
+        try (Writer out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            properties.store(out, null);
+        }
+        move(temp, path);
+    }
+
+    private static Entry readEntry(Path file) {
+        Properties properties = new Properties();
+        try (Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(in);
+            return new Entry(properties.getProperty("url"), properties.getProperty("blob"),
+                    Long.parseLong(properties.getProperty("size")), properties.getProperty("charset"),
+                    properties.getProperty("etag"), properties.getProperty("lastModified"),
+                    Instant.parse(properties.getProperty("fetchedAt")));
+        } catch (IOException | RuntimeException e) {
+            log.warn("Ignoring unreadable page cache entry {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeAtomically(Path path, byte[] content) throws IOException {
+        Path temp = Files.createTempFile(path.getParent(), "blob", ".tmp");
+        Files.write(temp, content);
+        move(temp, path);
+    }
+
+    private static void move(Path temp, Path target) throws IOException {
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private Path blobPath(String hash) {
+        return blobDir.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    private Path entryPath(String key) {
+        return entryDir.resolve(sha256(key.getBytes(StandardCharsets.UTF_8)) + ".properties");
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Could not delete {}: {}", path, e.getMessage());
+        }
+    }
+
+    private static String sha256(byte[] content) {
+        try {
+            return HEX.formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * The cache key for a URL: scheme and host lower-cased, default port,
+     * fragment and tracking parameters ({@code utm_*}, {@code fbclid},
+     * {@code gclid}) dropped, remaining query parameters sorted. URLs that
+     * do not parse are used as they are.
+     */
+    static String normalize(String url) {
+        try {
+            URI uri = new URI(url.trim());
+            if (uri.getScheme() == null || uri.getRawAuthority() == null) {
+                return url.trim();
+            }
+            String scheme = uri.getScheme().toLowerCase(Locale.ROOT);
+            int port = uri.getPort();
+            if ((port == 80 && scheme.equals("http")) || (port == 443 && scheme.equals("https"))) {
+                port = -1;
+            }
+            StringBuilder key = new StringBuilder(scheme).append("://");
+            if (uri.getHost() == null) {
+                // Registry-based authority, e.g. a host name with an underscore
+                key.append(uri.getRawAuthority().toLowerCase(Locale.ROOT));
+            } else {
+                if (uri.getRawUserInfo() != null) {
+                    key.append(uri.getRawUserInfo()).append('@');
+                }
+                key.append(uri.getHost().toLowerCase(Locale.ROOT));
+                if (port != -1) {
+                    key.append(':').append(port);
+                }
+            }
+            String path = uri.getRawPath();
+            key.append(path == null || path.isEmpty() ? "/" : path);
+            if (uri.getRawQuery() != null) {
+                TreeMap<String, List<String>> parameters = new TreeMap<>();
+                for (String parameter : uri.getRawQuery().split("&")) {
+                    if (parameter.isEmpty()) {
+                        continue;
+                    }
+                    int eq = parameter.indexOf('=');
+                    String name = eq < 0 ? parameter : parameter.substring(0, eq);
+                    if (name.startsWith("utm_") || name.equals("fbclid") || name.equals("gclid")) {
+                        continue;
+                    }
+                    parameters.computeIfAbsent(name, n -> new ArrayList<>()).add(parameter);
+                }
+                String separator = "?";
+                for (List<String> values : parameters.values()) {
+                    for (String parameter : values) {
+                        key.append(separator).append(parameter);
+                        separator = "&";
+                    }
+                }
+            }
+            return key.toString();
+        } catch (URISyntaxException e) {
+            return url.trim();
+        }
+    }
+
+    /**
+     * Parse {@code Source=seconds} pairs, e.g. {@code Copart=60,Gumtree=900}.
+     */
+    static Map<String, Duration> parseSourceTtls(String value) {
+        Map<String, Duration> ttls = new HashMap<>();
+        if (value == null || value.isBlank()) {
+            return ttls;
+        }
+        for (String entry : value.split(",")) {
+            int eq = entry.lastIndexOf('=');
+            if (eq <= 0) {
+                throw new IllegalArgumentException("Expected Source=seconds in app.scraping.cache.source-ttls: "
+                        + entry);
+            }
+            ttls.put(entry.substring(0, eq).trim(),
+                    Duration.ofSeconds(Long.parseLong(entry.substring(eq + 1).trim())));
+        }
+        return ttls;
+    }
+
+    /**
+     * A stored page. {@code body} is a read-only mapping of the stored file;
+     * {@link #openBody()} reads it without copying it onto the heap first.
+     */
+    public record CachedPage(String url, ByteBuffer body, Charset charset, String etag, String lastModified,
+            Instant fetchedAt) {
+
+        public InputStream openBody() {
+            ByteBuffer buffer = body.duplicate();
+            return new InputStream() {
+                @Override
+                public int read() {
+                    return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+                }
+
+                @Override
+                public int read(byte[] bytes, int offset, int length) {
+                    if (length == 0) {
+                        return 0;
+                    }
+                    if (!buffer.hasRemaining()) {
+                        return -1;
+                    }
+                    int count = Math.min(length, buffer.remaining());
+                    buffer.get(bytes, offset, count);
+                    return count;
+                }
+
+                @Override
+                public int available() {
+                    return buffer.remaining();
+                }
+            };
+        }
+    }
+
+    private record Entry(String url, String blob, long size, String charset, String etag, String lastModified,
+            Instant fetchedAt) {
+    }
+
+    private static final class Blob {
+        final long size;
+        int refs;
+        // Whether size is in totalBytes; not until an entry refers to it
+        boolean counted;
+
+        Blob(long size) {
+            this.size = size;
+        }
+    }
+}
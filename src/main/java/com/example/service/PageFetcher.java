@@ -0,0 +1,195 @@
+package com.example.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.Charset;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManager;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.brotli.dec.BrotliInputStream;
+import org.jsoup.HttpStatusException;
+import org.jsoup.UnsupportedMimeTypeException;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * HTTP fetches for scraping on one pooled, keep-alive async client, so
+ * connections and TLS sessions are reused across listings from the same
+ * site. Responses may be gzip, deflate or brotli compressed and are decoded
+ * here. Callers pass the validators of an earlier response to make the
+ * request conditional and get {@link FetchedPage#notModified()} back on a 304.
+ * <p>
+ * Error statuses are thrown as Jsoup's {@link HttpStatusException} and
+ * non-HTML content as {@link UnsupportedMimeTypeException}, as
+ * {@code Jsoup.connect} did.
+ */
+@Component
+public class PageFetcher implements DisposableBean {
+
+    private static final String USER_AGENT = "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36";
+    private static final String ACCEPT_ENCODING = "gzip, deflate, br";
+
+    private final CloseableHttpAsyncClient client;
+    private final long timeoutMillis;
+
+    public PageFetcher(@Value("${app.scraping.http.max-connections:200}") int maxConnections,
+            @Value("${app.scraping.http.max-connections-per-host:4}") int maxConnectionsPerHost,
+            @Value("${app.scraping.http.timeout-millis:30000}") long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+        PoolingAsyncClientConnectionManager connectionManager = PoolingAsyncClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxConnections)
+                .setMaxConnPerRoute(maxConnectionsPerHost)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(timeoutMillis))
+                        .setSocketTimeout(Timeout.ofMilliseconds(timeoutMillis))
+                        .build())
+                .build();
+        this.client = HttpAsyncClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.ofMilliseconds(timeoutMillis))
+                        .setResponseTimeout(Timeout.ofMilliseconds(timeoutMillis))
+                        .build())
+                .setUserAgent(USER_AGENT)
+                // Retries belong to the caller (see BulkScrapingService), with its own backoff and limits
+                .disableAutomaticRetries()
+                .evictIdleConnections(TimeValue.ofMinutes(1))
+                .build();
+        this.client.start();
+    }
+
+    /**
+     * GET the page, conditionally when {@code etag} or {@code lastModified}
+     * (from an earlier response) is given. Follows redirects.
+     */
+    public FetchedPage fetch(String url, String etag, String lastModified) throws IOException {
+        SimpleRequestBuilder builder = SimpleRequestBuilder.get(url)
+                .addHeader(HttpHeaders.ACCEPT, "text/html,application/xhtml+xml,*/*;q=0.8")
+                .addHeader(HttpHeaders.ACCEPT_ENCODING, ACCEPT_ENCODING);
+        if (etag != null) {
+            builder.addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+        }
+        if (lastModified != null) {
+            builder.addHeader(HttpHeaders.IF_MODIFIED_SINCE, lastModified);
+        }
+        SimpleHttpResponse response = execute(builder.build());
+
+        int status = response.getCode();
+        String responseEtag = headerValue(response, HttpHeaders.ETAG);
+        String responseLastModified = headerValue(response, HttpHeaders.LAST_MODIFIED);
+        if (status == 304) {
+            return new FetchedPage(url, true, null, null,
+                    responseEtag != null ? responseEtag : etag,
+                    responseLastModified != null ? responseLastModified : lastModified);
+        }
+        if (status < 200 || status >= 300) {
+            throw new HttpStatusException("HTTP error fetching URL", status, url);
+        }
+
+        ContentType contentType = response.getContentType();
+        if (contentType != null && !isHtml(contentType.getMimeType())) {
+            throw new UnsupportedMimeTypeException("Unhandled content type", contentType.toString(), url);
+        }
+        byte[] body = decode(response.getBodyBytes(), headerValue(response, HttpHeaders.CONTENT_ENCODING));
+        Charset charset = contentType == null ? null : contentType.getCharset();
+        return new FetchedPage(url, false, body, charset, responseEtag, responseLastModified);
+    }
+
+    private SimpleHttpResponse execute(SimpleHttpRequest request) throws IOException {
+        Future<SimpleHttpResponse> future = client.execute(request, null);
+        try {
+            // The client enforces its own timeouts; this only guards against a stuck exchange
+            return future.get(2 * timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted fetching " + request.getRequestUri());
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new SocketTimeoutException("Timed out fetching " + request.getRequestUri());
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException("Failed fetching " + request.getRequestUri(), e.getCause());
+        }
+    }
+
+    /**
+     * Undo the response's content coding; the async client leaves bodies as sent.
+     */
+    static byte[] decode(byte[] body, String contentEncoding) throws IOException {
+        if (body == null) {
+            return new byte[0];
+        }
+        if (contentEncoding == null) {
+            return body;
+        }
+        String coding = contentEncoding.trim().toLowerCase(Locale.ROOT);
+        InputStream decoded = switch (coding) {
+            case "gzip", "x-gzip" -> new GZIPInputStream(new ByteArrayInputStream(body));
+            case "deflate" -> new InflaterInputStream(new ByteArrayInputStream(body));
+            case "br" -> new BrotliInputStream(new ByteArrayInputStream(body));
+            case "", "identity" -> null;
+            default -> throw new IOException("Unsupported content encoding " + contentEncoding);
+        };
+        if (decoded == null) {
+            return body;
+        }
+        try (InputStream in = decoded) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static boolean isHtml(String mimeType) {
+        String type = mimeType.toLowerCase(Locale.ROOT);
+        return type.startsWith("text/") || type.equals("application/xhtml+xml") || type.endsWith("+xml")
+                || type.equals("application/xml");
+    }
+
+    private static String headerValue(SimpleHttpResponse response, String name) {
+        Header header = response.getFirstHeader(name);
+        return header == null ? null : header.getValue();
+    }
+
+    @Override
+    public void destroy() {
+        client.close(CloseMode.GRACEFUL);
+    }
+
+    /**
+     * A fetched page: the raw (decoded) body and its charset, if declared, or
+     * {@code notModified} with no body. Validators are for the next fetch.
+     */
+    public record FetchedPage(String url, boolean notModified, byte[] body, Charset charset, String etag,
+            String lastModified) {
+
+        public boolean hasValidators() {
+            return etag != null || lastModified != null;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Memory-bounded PDF text extraction. Documents are opened with PDFBox's
+ * mixed memory setting: parsed streams beyond {@code max-main-memory-bytes}
+ * spill to temporary files instead of the heap.
+ * <p>
+ * Documents longer than {@code pages-per-range} are split into page ranges
+ * stripped in parallel, each on its own {@link PDDocument} (they are not
+ * thread-safe), and written to the caller's {@link Writer} in page order.
+ * At most two ranges per thread are in flight, so only their text is held
+ * at once, not the document's.
+ * <p>
+ * Every document has a budget: files over {@code max-file-bytes} are
+ * refused, only the first {@code max-pages} pages are read and text stops
+ * after {@code max-text-chars}; the result says when it was cut short.
+ */
+@Slf4j
+@Component
+public class PdfTextExtractor implements DisposableBean {
+
+    private final int pagesPerRange;
+    private final int threads;
+    private final int maxPages;
+    private final long maxFileBytes;
+    private final long maxTextChars;
+    private final long maxMainMemoryBytes;
+    private final ExecutorService rangeWorkers;
+
+    public PdfTextExtractor(@Value("${app.documents.pdf.pages-per-range:16}") int pagesPerRange,
+            @Value("${app.documents.pdf.threads:0}") int threads,
+            @Value("${app.documents.pdf.max-pages:1000}") int maxPages,
+            @Value("${app.documents.pdf.max-file-bytes:104857600}") long maxFileBytes,
+            @Value("${app.documents.pdf.max-text-chars:16777216}") long maxTextChars,
+            @Value("${app.documents.pdf.max-main-memory-bytes:16777216}") long maxMainMemoryBytes) {
+        this.pagesPerRange = pagesPerRange;
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.maxPages = maxPages;
+        this.maxFileBytes = maxFileBytes;
+        this.maxTextChars = maxTextChars;
+        this.maxMainMemoryBytes = maxMainMemoryBytes;
+        this.rangeWorkers = Executors.newFixedThreadPool(this.threads,
+                Thread.ofPlatform().name("pdf-range-", 0).daemon(true).factory());
+    }
+
+    /** Extract the document's text into {@code out}, within its budget. */
+    public Extraction extract(Path pdf, Writer out) throws IOException {
+        long size = Files.size(pdf);
+        if (size > maxFileBytes) {
+            throw new IOException("PDF is " + size + " bytes, over the " + maxFileBytes + " byte limit");
+        }
+        int pageCount;
+        try (PDDocument document = load(pdf.toFile())) {
+            pageCount = document.getNumberOfPages();
+            if (pageCount <= pagesPerRange || threads == 1) {
+                // Short enough to strip in one go, on this thread
+                int pages = Math.min(pageCount, maxPages);
+                String text = strip(document, 1, pages);
+                return write(out, text, 0, pages, pageCount);
+            }
+        }
+
+        int pages = Math.min(pageCount, maxPages);
+        Deque<Future<String>> inFlight = new ArrayDeque<>();
+        long written = 0;
+        int nextStart = 1;
+        try {
+            while (nextStart <= pages || !inFlight.isEmpty()) {
+                while (nextStart <= pages && inFlight.size() < 2 * threads) {
+                    int start = nextStart;
+                    int end = Math.min(pages, start + pagesPerRange - 1);
+                    inFlight.add(rangeWorkers.submit(() -> stripRange(pdf, start, end)));
+                    nextStart = end + 1;
+                }
+                String text = await(inFlight.removeFirst());
+                Extraction progress = write(out, text, written, pages, pageCount);
+                written = progress.chars();
+                if (progress.truncated() && written >= maxTextChars) {
+                    return progress;
+                }
+            }
+            return new Extraction(pages, pageCount, written, pages < pageCount);
+        } finally {
+            inFlight.forEach(future -> future.cancel(true));
+        }
+    }
+
+    /** As {@link #extract(Path, Writer)}, into a string. */
+    public String extractText(Path pdf) throws IOException {
+        StringWriter out = new StringWriter();
+        Extraction extraction = extract(pdf, out);
+        if (extraction.truncated()) {
+            log.info("Text of {} cut short: {} of {} pages, {} chars", pdf.getFileName(),
+                    extraction.pagesRead(), extraction.pageCount(), extraction.chars());
+        }
+        return out.toString();
+    }
+
+    private String stripRange(Path pdf, int start, int end) throws IOException {
+        try (PDDocument document = load(pdf.toFile())) {
+            return strip(document, start, end);
+        }
+    }
+
+    private static String strip(PDDocument document, int start, int end) throws IOException {
+        PDFTextStripper stripper = new PDFTextStripper();
+        stripper.setStartPage(start);
+        stripper.setEndPage(end);
+        return stripper.getText(document);
+    }
+
+    /**
+     * Write a range's text after {@code written} chars, up to the text budget.
+     */
+    private Extraction write(Writer out, String text, long written, int pages, int pageCount) throws IOException {
+        long room = maxTextChars - written;
+        if (text.length() > room) {
+            out.write(text, 0, (int) room);
+            return new Extraction(pages, pageCount, maxTextChars, true);
+        }
+        out.write(text);
+        return new Extraction(pages, pageCount, written + text.length(), pages < pageCount);
+    }
+
+    private PDDocument load(File pdf) throws IOException {
+        return PDDocument.load(pdf, MemoryUsageSetting.setupMixed(maxMainMemoryBytes));
+    }
+
+    private static String await(Future<String> range) throws IOException {
+        try {
+            return range.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted extracting PDF text", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException("Failed extracting PDF text", e.getCause());
+        }
+    }
+
+    @Override
+    public void destroy() {
+        rangeWorkers.shutdownNow();
+    }
+
+    /**
+     * Outcome of one extraction: pages read of the document's page count,
+     * chars written, and whether a budget cut the text short.
+     */
+    public record Extraction(int pagesRead, int pageCount, long chars, boolean truncated) {
+    }
+}
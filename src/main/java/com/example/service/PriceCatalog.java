@@ -0,0 +1,268 @@
+package com.example.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Immutable snapshot of base market prices, parsed once from a catalog file
+ * (see {@code pricing/base-prices.csv}). Lookups are O(1) and allocation free.
+ */
+@Slf4j
+public final class PriceCatalog {
+
+    private final String version;
+    private final PriceEntry defaultPrice;
+    private final NormalizedKeyMap<NormalizedKeyMap<ModelPrices>> makes;
+    private final int modelCount;
+
+    private PriceCatalog(String version, PriceEntry defaultPrice,
+            NormalizedKeyMap<NormalizedKeyMap<ModelPrices>> makes, int modelCount) {
+        this.version = version;
+        this.defaultPrice = defaultPrice;
+        this.makes = makes;
+        this.modelCount = modelCount;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public int getModelCount() {
+        return modelCount;
+    }
+
+    public PriceEntry getDefaultPrice() {
+        return defaultPrice;
+    }
+
+    /**
+     * Most specific price for the vehicle: trim + year, trim, model + year, model,
+     * then the catalog default. Year and trim may be null.
+     */
+    public PriceEntry lookup(String make, String model, Integer year, String trim) {
+        NormalizedKeyMap<ModelPrices> models = makes.get(make);
+        if (models == null) {
+            return defaultPrice;
+        }
+        ModelPrices prices = models.get(model);
+        if (prices == null) {
+            return defaultPrice;
+        }
+        if (trim != null && prices.trims != null) {
+            ModelPrices trimPrices = prices.trims.get(trim);
+            if (trimPrices != null) {
+                PriceEntry entry = trimPrices.forYear(year);
+                if (entry != null) {
+                    return entry;
+                }
+            }
+        }
+        PriceEntry entry = prices.forYear(year);
+        return entry != null ? entry : defaultPrice;
+    }
+
+    /**
+     * Parse a catalog. Lines are {@code make,model,year,trim,price} rows or
+     * {@code @version}, {@code @default} and {@code @alias} directives. An
+     * alias to a make without rows is logged and left out.
+     */
+    public static PriceCatalog parse(Reader source) throws IOException {
+        String version = null;
+        PriceEntry defaultPrice = null;
+        Map<String, String> aliases = new LinkedHashMap<>();
+        Map<String, Map<String, RowGroup>> rows = new LinkedHashMap<>();
+
+        BufferedReader reader = new BufferedReader(source);
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            try {
+                if (line.startsWith("@")) {
+                    String[] parts = line.split("\\s+", 3);
+                    switch (parts[0]) {
+                        case "@version" -> version = requirePart(parts, 1);
+                        case "@default" -> defaultPrice = PriceEntry.of(requirePart(parts, 1));
+                        case "@alias" -> aliases.put(requirePart(parts, 1), requirePart(parts, 2));
+                        default -> throw new IllegalArgumentException("Unknown directive " + parts[0]);
+                    }
+                    continue;
+                }
+                String[] cols = line.split(",", -1);
+                if (cols.length != 5) {
+                    throw new IllegalArgumentException("Expected make,model,year,trim,price");
+                }
+                String make = cols[0].trim();
+                String model = cols[1].trim();
+                Integer year = cols[2].isBlank() ? null : Integer.valueOf(cols[2].trim());
+                String trim = cols[3].isBlank() ? null : cols[3].trim();
+                PriceEntry price = PriceEntry.of(cols[4].trim());
+
+                RowGroup group = rows
+                        .computeIfAbsent(NormalizedKeyMap.normalize(make), k -> new LinkedHashMap<>())
+                        .computeIfAbsent(NormalizedKeyMap.normalize(model), k -> new RowGroup(make, model));
+                group.add(trim, year, price);
+            } catch (RuntimeException e) {
+                throw new IOException("Invalid price catalog line " + lineNumber + ": " + line, e);
+            }
+        }
+
+        if (version == null) {
+            throw new IOException("Price catalog has no @version directive");
+        }
+        if (defaultPrice == null) {
+            throw new IOException("Price catalog has no @default directive");
+        }
+
+        NormalizedKeyMap.Builder<NormalizedKeyMap<ModelPrices>> makesBuilder = NormalizedKeyMap.builder();
+        int modelCount = 0;
+        for (Map<String, RowGroup> models : rows.values()) {
+            NormalizedKeyMap.Builder<ModelPrices> modelsBuilder = NormalizedKeyMap.builder();
+            String make = null;
+            for (RowGroup group : models.values()) {
+                modelsBuilder.put(group.model, group.build());
+                make = group.make;
+                modelCount++;
+            }
+            makesBuilder.put(make, modelsBuilder.build());
+        }
+        for (Map.Entry<String, String> alias : aliases.entrySet()) {
+            // Aliases may be declared ahead of the make's first price row
+            NormalizedKeyMap<ModelPrices> target = makesBuilder.get(alias.getValue());
+            if (target == null) {
+                // Prices the alias at the default until the make gets rows of its own
+                log.warn("Price catalog {} aliases {} to {}, which has no prices", version, alias.getKey(),
+                        alias.getValue());
+            } else if (makesBuilder.get(alias.getKey()) == null) {
+                makesBuilder.put(alias.getKey(), target);
+            }
+        }
+
+        return new PriceCatalog(version, defaultPrice, makesBuilder.build(), modelCount);
+    }
+
+    private static String requirePart(String[] parts, int index) {
+        if (parts.length <= index || parts[index].isBlank()) {
+            throw new IllegalArgumentException("Missing argument for " + parts[0]);
+        }
+        return parts[index];
+    }
+
+    /**
+     * A catalog price, held both as whole cents and as a shared {@link BigDecimal}.
+     */
+    public static final class PriceEntry {
+        private final long cents;
+        private final BigDecimal amount;
+
+        private PriceEntry(BigDecimal amount) {
+            this.amount = amount;
+            this.cents = amount.movePointRight(2).longValueExact();
+        }
+
+        static PriceEntry of(String value) {
+            BigDecimal amount = new BigDecimal(value);
+            if (amount.signum() <= 0) {
+                throw new IllegalArgumentException("Price must be positive: " + value);
+            }
+            return new PriceEntry(amount);
+        }
+
+        public long getCents() {
+            return cents;
+        }
+
+        public BigDecimal getAmount() {
+            return amount;
+        }
+    }
+
+    /**
+     * Prices for one model (or one trim of a model), optionally split by year.
+     */
+    private static final class ModelPrices {
+        private final PriceEntry anyYear;
+        private final int[] years;
+        private final PriceEntry[] yearPrices;
+        private final NormalizedKeyMap<ModelPrices> trims;
+
+        private ModelPrices(PriceEntry anyYear, TreeMap<Integer, PriceEntry> byYear,
+                NormalizedKeyMap<ModelPrices> trims) {
+            this.anyYear = anyYear;
+            this.years = byYear.keySet().stream().mapToInt(Integer::intValue).toArray();
+            this.yearPrices = byYear.values().toArray(new PriceEntry[0]);
+            this.trims = trims;
+        }
+
+        PriceEntry forYear(Integer year) {
+            if (year != null && years.length > 0) {
+                int i = Arrays.binarySearch(years, year);
+                if (i >= 0) {
+                    return yearPrices[i];
+                }
+            }
+            return anyYear;
+        }
+    }
+
+    /**
+     * Mutable accumulator for the rows of one make/model while parsing.
+     */
+    private static final class RowGroup {
+        private final String make;
+        private final String model;
+        private PriceEntry anyYear;
+        private final TreeMap<Integer, PriceEntry> byYear = new TreeMap<>();
+        private final Map<String, RowGroup> trims = new LinkedHashMap<>();
+        private final List<String> trimNames = new ArrayList<>();
+
+        RowGroup(String make, String model) {
+            this.make = make;
+            this.model = model;
+        }
+
+        void add(String trim, Integer year, PriceEntry price) {
+            if (trim != null) {
+                String key = NormalizedKeyMap.normalize(trim);
+                RowGroup trimGroup = trims.get(key);
+                if (trimGroup == null) {
+                    trimGroup = new RowGroup(make, model);
+                    trims.put(key, trimGroup);
+                    trimNames.add(trim);
+                }
+                trimGroup.add(null, year, price);
+            } else if (year != null) {
+                byYear.put(year, price);
+            } else {
+                anyYear = price;
+            }
+        }
+
+        ModelPrices build() {
+            NormalizedKeyMap<ModelPrices> trimMap = null;
+            if (!trims.isEmpty()) {
+                NormalizedKeyMap.Builder<ModelPrices> builder = NormalizedKeyMap.builder();
+                int i = 0;
+                for (RowGroup trimGroup : trims.values()) {
+                    builder.put(trimNames.get(i++), trimGroup.build());
+                }
+                trimMap = builder.build();
+            }
+            return new ModelPrices(anyYear, byYear, trimMap);
+        }
+    }
+}
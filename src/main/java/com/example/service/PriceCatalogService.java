@@ -0,0 +1,51 @@
+package com.example.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.example.service.PriceCatalog.PriceEntry;
+
+/**
+ * Holds the active {@link PriceCatalog}. The catalog is loaded once at startup
+ * and swapped atomically when the backing file changes, so in-flight
+ * valuations always see one complete catalog version.
+ */
+@Service
+public class PriceCatalogService {
+
+    private final ReloadableResource<PriceCatalog> catalog;
+
+    public PriceCatalogService(ResourceLoader resourceLoader,
+            @Value("${app.pricing.catalog:classpath:pricing/base-prices.csv}") String catalogLocation) {
+        this.catalog = new ReloadableResource<>("price catalog", resourceLoader.getResource(catalogLocation),
+                PriceCatalog::parse,
+                loaded -> "version " + loaded.getVersion() + " (" + loaded.getModelCount() + " models)");
+    }
+
+    /** Base price for the vehicle, falling back to the catalog default. */
+    public PriceEntry lookup(String make, String model, Integer year, String trim) {
+        return catalog.get().lookup(make, model, year, trim);
+    }
+
+    public PriceCatalog getCatalog() {
+        return catalog.get();
+    }
+
+    /**
+     * Re-read the catalog file and swap it in. A catalog that fails to parse is
+     * rejected and the previous version stays active.
+     */
+    public PriceCatalog reload() {
+        return catalog.reload();
+    }
+
+    /**
+     * Poll the catalog file and hot-swap it when it has been modified.
+     */
+    @Scheduled(fixedDelayString = "${app.pricing.catalog.refresh-interval:60000}")
+    public void reloadIfModified() {
+        catalog.reloadIfModified();
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.service;
+
+import java.util.Arrays;
+
+/**
+ * Streaming quantile sketch with bounded relative error (the DDSketch
+ * approach). Positive values fall into logarithmic buckets that are 2% wide,
+ * so any quantile is accurate to within 1% whatever the number of samples,
+ * and memory only grows with the spread of values (a few hundred buckets
+ * cover R1 000 to R10 000 000). Values can be removed again.
+ * Not thread-safe; callers synchronize.
+ */
+final class QuantileSketch {
+
+    private static final double RELATIVE_ACCURACY = 0.01;
+    private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+
+    private int[] counts = new int[0];
+    private int offset;
+    private long count;
+
+    void add(double value) {
+        if (value <= 0) {
+            return;
+        }
+        int index = bucketIndex(value);
+        ensureCapacity(index);
+        counts[index - offset]++;
+        count++;
+    }
+
+    void remove(double value) {
+        if (value <= 0) {
+            return;
+        }
+        int slot = bucketIndex(value) - offset;
+        if (slot >= 0 && slot < counts.length && counts[slot] > 0) {
+            counts[slot]--;
+            count--;
+        }
+    }
+
+    long getCount() {
+        return count;
+    }
+
+    /**
+     * Estimated value at quantile {@code q} (0..1), or 0 when empty.
+     */
+    double quantile(double q) {
+        if (count == 0) {
+            return 0;
+        }
+        double rank = q * (count - 1);
+        long cumulative = 0;
+        for (int i = 0; i < counts.length; i++) {
+            cumulative += counts[i];
+            if (cumulative > rank) {
+                return bucketValue(i + offset);
+            }
+        }
+        return bucketValue(counts.length - 1 + offset);
+    }
+
+    private static int bucketIndex(double value) {
+        return (int) Math.ceil(Math.log(value) / LOG_GAMMA);
+    }
+
+    private static double bucketValue(int index) {
+        return 2 * Math.pow(GAMMA, index) / (GAMMA + 1);
+    }
+
+    private void ensureCapacity(int index) {
+        if (counts.length == 0) {
+            counts = new int[16];
+            offset = index - 8;
+        } else if (index < offset) {
+            int grow = Math.max(offset - index, counts.length / 2);
+            int[] resized = new int[counts.length + grow];
+            System.arraycopy(counts, 0, resized, grow, counts.length);
+            counts = resized;
+            offset -= grow;
+        } else if (index >= offset + counts.length) {
+            int needed = index - offset + 1;
+            counts = Arrays.copyOf(counts, Math.max(needed, counts.length + counts.length / 2));
+        }
+    }
+}
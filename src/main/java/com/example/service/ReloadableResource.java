@@ -0,0 +1,85 @@
+package com.example.service;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import org.springframework.core.io.Resource;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * A value parsed from a resource, loaded once on construction and swapped
+ * atomically when the resource is reloaded, so readers always see one
+ * complete version. A version that fails to parse is rejected and the
+ * previous one stays active; only the first load fails outright.
+ */
+@Slf4j
+final class ReloadableResource<T> {
+
+    /** Parses a value from the resource's text. */
+    @FunctionalInterface
+    interface Parser<T> {
+        T parse(Reader source) throws IOException;
+    }
+
+    private final String name;
+    private final Resource resource;
+    private final Parser<T> parser;
+    private final Function<? super T, String> describe;
+    private final AtomicReference<T> current = new AtomicReference<>();
+    private volatile long loadedLastModified;
+
+    /**
+     * @param name     what the resource holds, for log messages
+     * @param describe the version of a value, for log messages
+     */
+    ReloadableResource(String name, Resource resource, Parser<T> parser, Function<? super T, String> describe) {
+        this.name = name;
+        this.resource = resource;
+        this.parser = parser;
+        this.describe = describe;
+        reload();
+    }
+
+    T get() {
+        return current.get();
+    }
+
+    /** Re-read the resource and swap the value in. */
+    synchronized T reload() {
+        try (Reader reader = new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8)) {
+            T value = parser.parse(reader);
+            loadedLastModified = lastModified();
+            T previous = current.getAndSet(value);
+            log.info("Loaded {} {} from {}{}", name, describe.apply(value), resource.getDescription(),
+                    previous == null ? "" : " replacing " + describe.apply(previous));
+            return value;
+        } catch (IOException e) {
+            if (current.get() == null) {
+                throw new IllegalStateException("Failed to load " + name + " from " + resource.getDescription(), e);
+            }
+            log.error("Failed to reload " + name + ", keeping " + describe.apply(current.get()), e);
+            return current.get();
+        }
+    }
+
+    /** Reload when the resource is a file modified since the last load. */
+    void reloadIfModified() {
+        long lastModified = lastModified();
+        if (lastModified > 0 && lastModified != loadedLastModified) {
+            reload();
+        }
+    }
+
+    private long lastModified() {
+        try {
+            return resource.isFile() ? resource.lastModified() : 0L;
+        } catch (IOException e) {
+            return 0L;
+        }
+    }
+}
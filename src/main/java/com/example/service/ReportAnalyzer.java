@@ -0,0 +1,197 @@
+package com.example.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+/**
+ * Finds everything the application reads from a report's text at once:
+ * the VIN, the odometer reading and every keyword listed in the keyword file
+ * (see {@code documents/report-keywords.txt}), each with its offsets.
+ * <p>
+ * The keywords are compiled once into a {@link KeywordAutomaton}, so the
+ * scan costs the same for nine terms as for nine hundred. Odometer labels
+ * are keywords too; the reading is matched, with a precompiled pattern, only
+ * right after a label. The VIN is the first match of a precompiled pattern.
+ */
+@Component
+public class ReportAnalyzer {
+
+    static final String DEFAULT_KEYWORDS = "classpath:documents/report-keywords.txt";
+
+    public static final String VIN = "vin";
+    public static final String ODOMETER = "odometer";
+    public static final String ACCIDENT = "accident";
+    public static final String ROADWORTHY = "roadworthy";
+    public static final String PASS = "pass";
+
+    // 17 characters, alphanumeric, no I, O or Q
+    private static final Pattern VIN_PATTERN = Pattern.compile("[A-HJ-NPR-Z0-9]{17}");
+    private static final Pattern ODOMETER_READING = Pattern.compile("\\s*:?\\s*(\\d+[,.]?\\d*)");
+    // Keyword hits kept as findings per report; beyond this they are only counted
+    private static final int MAX_KEYWORD_FINDINGS = 1000;
+
+    private final KeywordAutomaton automaton;
+    private final String[] categories;
+
+    @Autowired
+    public ReportAnalyzer(ResourceLoader resourceLoader,
+            @Value("${app.documents.keywords:" + DEFAULT_KEYWORDS + "}") String keywordsLocation) {
+        Resource keywords = resourceLoader.getResource(keywordsLocation);
+        try (Reader reader = new InputStreamReader(keywords.getInputStream(), StandardCharsets.UTF_8)) {
+            Map<String, String> terms = parse(reader);
+            this.automaton = new KeywordAutomaton(new ArrayList<>(terms.keySet()));
+            this.categories = terms.values().toArray(new String[0]);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to load report keywords from " + keywords.getDescription(), e);
+        }
+    }
+
+    /** The analyzer with the bundled keyword file. */
+    public ReportAnalyzer() {
+        this(new DefaultResourceLoader(), DEFAULT_KEYWORDS);
+    }
+
+    /** Number of keywords the automaton matches. */
+    public int keywordCount() {
+        return automaton.size();
+    }
+
+    public ReportFindings analyze(String text) {
+        if (text == null || text.isEmpty()) {
+            return new ReportFindings(null, null, List.of(), Map.of());
+        }
+        Scan scan = new Scan(text);
+        automaton.scan(text, scan);
+
+        String vin = null;
+        Matcher vinMatch = VIN_PATTERN.matcher(text);
+        if (vinMatch.find()) {
+            vin = vinMatch.group();
+            scan.findings.add(0, new Finding(VIN, vin, vinMatch.start(), vinMatch.end()));
+        }
+        return new ReportFindings(vin, scan.mileage, Collections.unmodifiableList(scan.findings),
+                Collections.unmodifiableMap(scan.counts));
+    }
+
+    /** Collects the hits of one scan. */
+    private final class Scan implements KeywordAutomaton.Listener {
+
+        private final String text;
+        private final Matcher reading;
+        private final List<Finding> findings = new ArrayList<>();
+        private final Map<String, Integer> counts = new LinkedHashMap<>();
+        private Integer mileage;
+        private int keywordFindings;
+
+        Scan(String text) {
+            this.text = text;
+            this.reading = ODOMETER_READING.matcher(text);
+        }
+
+        @Override
+        public void onMatch(int term, int start, int end) {
+            String category = categories[term];
+            counts.merge(category, 1, Integer::sum);
+            if (ODOMETER.equals(category)) {
+                if (mileage == null) {
+                    odometerReading(end);
+                }
+                return;
+            }
+            if (keywordFindings++ < MAX_KEYWORD_FINDINGS) {
+                findings.add(new Finding(category, text.substring(start, end), start, end));
+            }
+        }
+
+        private void odometerReading(int labelEnd) {
+            reading.region(labelEnd, text.length());
+            if (!reading.lookingAt()) {
+                return;
+            }
+            try {
+                mileage = Integer.parseInt(reading.group(1).replaceAll("[,.]", ""));
+                findings.add(new Finding(ODOMETER, reading.group(1), reading.start(1), reading.end(1)));
+            } catch (NumberFormatException e) {
+                // Not a reading after all (too long for a mileage); try the next label
+            }
+        }
+    }
+
+    /**
+     * Parse a keyword file into term to category, in file order. A term
+     * listed twice keeps its first category.
+     */
+    static Map<String, String> parse(Reader source) throws IOException {
+        Map<String, String> terms = new LinkedHashMap<>();
+        BufferedReader reader = new BufferedReader(source);
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            line = line.strip();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            int colon = line.indexOf(':');
+            if (colon <= 0) {
+                throw new IOException("Line " + lineNumber + ": expected <category>: <term>, ...");
+            }
+            String category = line.substring(0, colon).strip();
+            for (String term : line.substring(colon + 1).split(",")) {
+                term = term.strip();
+                if (!term.isEmpty()) {
+                    terms.putIfAbsent(term, category);
+                }
+            }
+        }
+        return terms;
+    }
+
+    /** Something found in a report: what kind, the text and its offsets (end exclusive). */
+    public record Finding(String category, String text, int start, int end) {
+    }
+
+    /**
+     * Everything found in one report. Findings are in text order by where
+     * they end, except the VIN, which comes first; {@code counts} has the
+     * number of hits per keyword category, including those past the findings
+     * limit.
+     */
+    public record ReportFindings(String vin, Integer mileage, List<Finding> findings, Map<String, Integer> counts) {
+
+        public boolean accidentIndicators() {
+            return counts.containsKey(ACCIDENT);
+        }
+
+        public boolean roadworthyPass() {
+            return counts.containsKey(ROADWORTHY) && counts.containsKey(PASS);
+        }
+
+        /** Keyword hits of every category, odometer labels aside. */
+        public int keywordHits() {
+            return counts.entrySet().stream().filter(count -> !ODOMETER.equals(count.getKey()))
+                    .mapToInt(Map.Entry::getValue).sum();
+        }
+
+        public List<Finding> findings(String category) {
+            return findings.stream().filter(finding -> finding.category().equals(category)).toList();
+        }
+    }
+}
@@ -0,0 +1,706 @@
+package com.example.service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntPredicate;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.example.service.SearchQuery.Clause;
+import com.example.service.SearchQuery.Phrase;
+import com.example.service.SearchQuery.Prefix;
+import com.example.service.SearchQuery.Term;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-process full-text index over documents identified by a type and an id
+ * (reports, auctions). Supports terms, prefixes and phrases (see
+ * {@link SearchQuery}); every clause must match, and hits are ranked by a
+ * tf-idf score.
+ * <p>
+ * New documents go to an in-memory buffer, searchable at once, which is
+ * written out as an immutable {@link IndexSegment} every {@code flush-docs}
+ * documents or {@code flush-interval-millis}. Re-indexing a document marks
+ * its previous version deleted. When there are more than
+ * {@code merge-factor} segments, the smallest are merged on a background
+ * thread into one, dropping deleted documents, up to
+ * {@code max-segment-bytes}. The segment list, the next document number
+ * and the deletions are kept in a manifest replaced atomically, so after a
+ * crash the index is as of the last flush.
+ * <p>
+ * Searches share a read lock; indexing, flushes and swapping in a merged
+ * segment take the write lock, but a merge itself runs outside it.
+ */
+@Slf4j
+@Component
+public class SearchIndex implements DisposableBean {
+
+    private static final int MANIFEST_MAGIC = 0x4d414e31; // "MAN1"
+    private static final String MANIFEST = "manifest";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    // Terms a prefix expands to, per segment
+    private static final int MAX_PREFIX_EXPANSIONS = 256;
+
+    private final Path dir;
+    private final int flushDocs;
+    private final int mergeFactor;
+    private final long maxSegmentBytes;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ReentrantLock mergeLock = new ReentrantLock();
+    private List<IndexSegment> segments = new ArrayList<>();
+    private MemoryBuffer buffer = new MemoryBuffer();
+    private final Set<Integer> deleted = new HashSet<>();
+    private final Map<DocKey, Integer> live = new HashMap<>();
+    private int nextDoc;
+    private final AtomicLong nextSegment = new AtomicLong();
+    private boolean dirty;
+
+    private final ExecutorService merger = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("search-merge").daemon(true).factory());
+    private final AtomicBoolean merging = new AtomicBoolean();
+
+    @Autowired
+    public SearchIndex(@Value("${app.search.dir:search-index/}") String dir,
+            @Value("${app.search.flush-docs:1000}") int flushDocs,
+            @Value("${app.search.merge-factor:8}") int mergeFactor,
+            @Value("${app.search.max-segment-bytes:1073741824}") long maxSegmentBytes) throws IOException {
+        this(Paths.get(dir), flushDocs, mergeFactor, maxSegmentBytes);
+    }
+
+    SearchIndex(Path dir, int flushDocs, int mergeFactor, long maxSegmentBytes) throws IOException {
+        this.dir = Files.createDirectories(dir);
+        this.flushDocs = flushDocs;
+        this.mergeFactor = Math.max(2, mergeFactor);
+        this.maxSegmentBytes = Math.min(maxSegmentBytes, Integer.MAX_VALUE);
+        open();
+    }
+
+    /** Index a document, replacing any earlier version of it. */
+    public void index(String type, int id, String text) {
+        Map<String, List<Integer>> positions = new TreeMap<>();
+        SearchQuery.tokenize(text == null ? "" : text,
+                (token, position) -> positions.computeIfAbsent(token, t -> new ArrayList<>()).add(position));
+        DocKey key = new DocKey(type, id);
+        lock.writeLock().lock();
+        try {
+            int doc = nextDoc++;
+            Integer previous = live.put(key, doc);
+            if (previous != null) {
+                deleted.add(previous);
+            }
+            buffer.add(doc, key, positions);
+            dirty = true;
+            if (buffer.docCount() >= flushDocs) {
+                flushLocked();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void delete(String type, int id) {
+        lock.writeLock().lock();
+        try {
+            Integer previous = live.remove(new DocKey(type, id));
+            if (previous != null) {
+                deleted.add(previous);
+                dirty = true;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * One page of the documents matching {@code query}, best first;
+     * {@code type} null searches every type.
+     */
+    public SearchPage search(String query, String type, int page, int size) {
+        SearchQuery parsed = SearchQuery.parse(query == null ? "" : query);
+        if (parsed.clauses().isEmpty()) {
+            return new SearchPage(query, page, size, 0, List.of());
+        }
+        List<ScoredDoc> matches = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            List<Segment> readers = new ArrayList<>(segments);
+            readers.add(buffer);
+            for (Segment segment : readers) {
+                Map<Integer, Double> scores = evaluate(parsed, segment);
+                for (Map.Entry<Integer, Double> match : scores.entrySet()) {
+                    int doc = match.getKey();
+                    DocKey key = segment.key(doc, null);
+                    if (key != null && !deleted.contains(doc) && (type == null || type.equals(key.type()))) {
+                        matches.add(new ScoredDoc(doc, key, match.getValue()));
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        matches.sort(Comparator.comparingDouble(ScoredDoc::score).reversed()
+                .thenComparing(Comparator.comparingInt(ScoredDoc::doc).reversed()));
+        int from = (int) Math.min((long) page * size, matches.size());
+        int to = (int) Math.min((long) from + size, matches.size());
+        List<Hit> hits = matches.subList(from, to).stream()
+                .map(match -> new Hit(match.key().type(), match.key().id(), match.score()))
+                .toList();
+        return new SearchPage(query, page, size, matches.size(), hits);
+    }
+
+    public int docCount() {
+        lock.readLock().lock();
+        try {
+            return live.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Map<String, Long> stats() {
+        lock.readLock().lock();
+        try {
+            return Map.of("docs", (long) live.size(), "segments", (long) segments.size(),
+                    "bufferedDocs", (long) buffer.docCount(), "deletedDocs", (long) deleted.size(),
+                    "segmentBytes", segments.stream().mapToLong(IndexSegment::sizeInBytes).sum());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Write buffered documents and deletions to disk. */
+    @Scheduled(fixedDelayString = "${app.search.flush-interval-millis:5000}",
+            initialDelayString = "${app.search.flush-interval-millis:5000}")
+    public void flush() {
+        lock.writeLock().lock();
+        try {
+            flushLocked();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void flushLocked() {
+        if (!dirty) {
+            return;
+        }
+        try {
+            MemoryBuffer flushing = buffer;
+            List<Integer> docs = new ArrayList<>();
+            for (int doc : flushing.docs()) {
+                // Replaced or deleted before it was ever written: dropped, and forgotten
+                if (!deleted.remove(doc)) {
+                    docs.add(doc);
+                }
+            }
+            if (!docs.isEmpty()) {
+                Set<Integer> kept = new HashSet<>(docs);
+                Path file = dir.resolve(segmentName());
+                try (IndexSegment.Writer writer = new IndexSegment.Writer(file)) {
+                    for (Map.Entry<String, PostingsBuilder> term : flushing.sortedTerms()) {
+                        Postings postings = term.getValue().build(kept::contains);
+                        if (postings.docs().length > 0) {
+                            writer.addTerm(term.getKey(), postings);
+                        }
+                    }
+                    for (int doc : docs) {
+                        writer.addDoc(doc, flushing.key(doc, null));
+                    }
+                    writer.finish();
+                }
+                List<IndexSegment> updated = new ArrayList<>(segments);
+                updated.add(IndexSegment.open(file));
+                segments = updated;
+            }
+            buffer = new MemoryBuffer();
+            writeManifest();
+            dirty = false;
+            log.debug("Flushed {} documents to the search index", docs.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to flush the search index", e);
+        }
+        if (segments.size() > mergeFactor && merging.compareAndSet(false, true)) {
+            merger.execute(this::mergeInBackground);
+        }
+    }
+
+    private void mergeInBackground() {
+        try {
+            while (merge()) {
+                // Keep merging while a merge leaves too many segments
+            }
+        } catch (IOException | RuntimeException e) {
+            log.error("Search index merge failed", e);
+        } finally {
+            merging.set(false);
+        }
+    }
+
+    /**
+     * Merge the smallest segments, up to {@code merge-factor} of them and
+     * {@code max-segment-bytes} in all. Returns true if more merging is due.
+     * One merge runs at a time, so two never pick the same segments.
+     */
+    boolean merge() throws IOException {
+        mergeLock.lock();
+        try {
+            return mergeSmallest();
+        } finally {
+            mergeLock.unlock();
+        }
+    }
+
+    private boolean mergeSmallest() throws IOException {
+        List<IndexSegment> candidates = new ArrayList<>();
+        Set<Integer> deletedBefore;
+        Path file;
+        lock.readLock().lock();
+        try {
+            if (segments.size() <= mergeFactor) {
+                return false;
+            }
+            List<IndexSegment> bySize = new ArrayList<>(segments);
+            bySize.sort(Comparator.comparingLong(IndexSegment::sizeInBytes));
+            long total = 0;
+            for (IndexSegment segment : bySize) {
+                if (candidates.size() == mergeFactor || total + segment.sizeInBytes() > maxSegmentBytes) {
+                    break;
+                }
+                candidates.add(segment);
+                total += segment.sizeInBytes();
+            }
+            if (candidates.size() < 2) {
+                return false;
+            }
+            deletedBefore = new HashSet<>(deleted);
+            file = dir.resolve(segmentName());
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        writeMerged(file, candidates, deletedBefore);
+        IndexSegment merged = IndexSegment.open(file);
+
+        boolean more;
+        lock.writeLock().lock();
+        try {
+            List<IndexSegment> updated = new ArrayList<>(segments);
+            updated.removeAll(candidates);
+            if (merged.docCount() > 0) {
+                updated.add(merged);
+            }
+            segments = updated;
+            // Deleted documents the merge dropped are gone for good
+            for (IndexSegment segment : candidates) {
+                for (int doc : segment.docs()) {
+                    if (deletedBefore.contains(doc)) {
+                        deleted.remove(doc);
+                    }
+                }
+            }
+            writeManifest();
+            more = segments.size() > mergeFactor;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (merged.docCount() == 0) {
+            Files.deleteIfExists(file);
+        }
+        for (IndexSegment segment : candidates) {
+            // Still mapped by searches in flight; the mapping outlives the file
+            Files.deleteIfExists(segment.file());
+        }
+        log.info("Merged {} search index segments into one of {} documents", candidates.size(),
+                merged.docCount());
+        return more;
+    }
+
+    private static void writeMerged(Path file, List<IndexSegment> candidates, Set<Integer> deletedBefore)
+            throws IOException {
+        int[] cursors = new int[candidates.size()];
+        try (IndexSegment.Writer writer = new IndexSegment.Writer(file)) {
+            while (true) {
+                // Next term in order across the segments' dictionaries
+                String term = null;
+                for (int s = 0; s < candidates.size(); s++) {
+                    String[] terms = candidates.get(s).terms();
+                    if (cursors[s] < terms.length && (term == null || terms[cursors[s]].compareTo(term) < 0)) {
+                        term = terms[cursors[s]];
+                    }
+                }
+                if (term == null) {
+                    break;
+                }
+                PostingsBuilder merged = new PostingsBuilder();
+                List<Postings> parts = new ArrayList<>();
+                for (int s = 0; s < candidates.size(); s++) {
+                    String[] terms = candidates.get(s).terms();
+                    if (cursors[s] < terms.length && terms[cursors[s]].equals(term)) {
+                        parts.add(candidates.get(s).postings(term));
+                        cursors[s]++;
+                    }
+                }
+                merged.addAll(parts, deletedBefore);
+                Postings postings = merged.build(doc -> true);
+                if (postings.docs().length > 0) {
+                    writer.addTerm(term, postings);
+                }
+            }
+            List<int[]> docs = new ArrayList<>();
+            for (int s = 0; s < candidates.size(); s++) {
+                for (int doc : candidates.get(s).docs()) {
+                    if (!deletedBefore.contains(doc)) {
+                        docs.add(new int[] { doc, s });
+                    }
+                }
+            }
+            docs.sort(Comparator.comparingInt(doc -> doc[0]));
+            for (int[] doc : docs) {
+                writer.addDoc(doc[0], candidates.get(doc[1]).key(doc[0], null));
+            }
+            writer.finish();
+        }
+    }
+
+    private static Map<Integer, Double> evaluate(SearchQuery query, Segment segment) {
+        Map<Integer, Double> scores = null;
+        for (Clause clause : query.clauses()) {
+            Map<Integer, Double> clauseScores = evaluate(clause, segment);
+            if (scores == null) {
+                scores = clauseScores;
+            } else {
+                scores.keySet().retainAll(clauseScores.keySet());
+                scores.replaceAll((doc, score) -> score + clauseScores.get(doc));
+            }
+            if (scores.isEmpty()) {
+                break;
+            }
+        }
+        return scores;
+    }
+
+    private static Map<Integer, Double> evaluate(Clause clause, Segment segment) {
+        Map<Integer, Double> scores = new HashMap<>();
+        switch (clause) {
+            case Term term -> score(segment.postings(term.term()), segment, scores);
+            case Prefix prefix -> {
+                for (String term : segment.termsWithPrefix(prefix.prefix(), MAX_PREFIX_EXPANSIONS)) {
+                    score(segment.postings(term), segment, scores);
+                }
+            }
+            case Phrase phrase -> phrase(phrase.terms(), segment, scores);
+        }
+        return scores;
+    }
+
+    private static void score(Postings postings, Segment segment, Map<Integer, Double> scores) {
+        if (postings == null) {
+            return;
+        }
+        double idf = idf(postings, segment);
+        for (int i = 0; i < postings.docs().length; i++) {
+            scores.merge(postings.docs()[i], (1 + Math.log(postings.freqs()[i])) * idf, Double::sum);
+        }
+    }
+
+    private static void phrase(List<String> terms, Segment segment, Map<Integer, Double> scores) {
+        Postings[] postings = new Postings[terms.size()];
+        double idf = 0;
+        for (int t = 0; t < terms.size(); t++) {
+            postings[t] = segment.postings(terms.get(t));
+            if (postings[t] == null) {
+                return;
+            }
+            idf += idf(postings[t], segment);
+        }
+        Postings first = postings[0];
+        int[] index = new int[terms.size()];
+        for (int i = 0; i < first.docs().length; i++) {
+            int doc = first.docs()[i];
+            boolean inAll = true;
+            for (int t = 1; t < terms.size() && inAll; t++) {
+                index[t] = Arrays.binarySearch(postings[t].docs(), doc);
+                inAll = index[t] >= 0;
+            }
+            if (!inAll) {
+                continue;
+            }
+            int occurrences = 0;
+            for (int p = first.starts()[i]; p < first.starts()[i + 1]; p++) {
+                int start = first.positions()[p];
+                boolean follows = true;
+                for (int t = 1; t < terms.size() && follows; t++) {
+                    Postings next = postings[t];
+                    follows = Arrays.binarySearch(next.positions(), next.starts()[index[t]],
+                            next.starts()[index[t] + 1], start + t) >= 0;
+                }
+                if (follows) {
+                    occurrences++;
+                }
+            }
+            if (occurrences > 0) {
+                scores.merge(doc, (1 + Math.log(occurrences)) * idf, Double::sum);
+            }
+        }
+    }
+
+    private static double idf(Postings postings, Segment segment) {
+        return Math.log(1 + (double) segment.docCount() / postings.docs().length);
+    }
+
+    private String segmentName() {
+        return String.format("%012d%s", nextSegment.getAndIncrement(), SEGMENT_SUFFIX);
+    }
+
+    private void open() throws IOException {
+        Path manifest = dir.resolve(MANIFEST);
+        Set<String> listed = new HashSet<>();
+        if (Files.exists(manifest)) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(manifest)))) {
+                if (in.readInt() != MANIFEST_MAGIC) {
+                    throw new IOException("Not a search index manifest: " + manifest);
+                }
+                nextDoc = in.readInt();
+                nextSegment.set(in.readLong());
+                int segmentCount = in.readInt();
+                for (int i = 0; i < segmentCount; i++) {
+                    String name = in.readUTF();
+                    listed.add(name);
+                    segments.add(IndexSegment.open(dir.resolve(name)));
+                }
+                int deletedCount = in.readInt();
+                for (int i = 0; i < deletedCount; i++) {
+                    deleted.add(in.readInt());
+                }
+            }
+        }
+        // Segments written but never listed: a flush or merge cut short
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                if (!listed.contains(file.getFileName().toString())) {
+                    Files.delete(file);
+                }
+            }
+        }
+        for (IndexSegment segment : segments) {
+            for (int i = 0; i < segment.docs().length; i++) {
+                int doc = segment.docs()[i];
+                if (!deleted.contains(doc)) {
+                    Integer other = live.put(segment.key(i), doc);
+                    if (other != null) {
+                        int older = Math.min(other, doc);
+                        live.put(segment.key(i), Math.max(other, doc));
+                        deleted.add(older);
+                    }
+                }
+            }
+        }
+        log.info("Opened search index at {}: {} documents in {} segments", dir, live.size(), segments.size());
+    }
+
+    private void writeManifest() throws IOException {
+        Path temp = dir.resolve(MANIFEST + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MANIFEST_MAGIC);
+            out.writeInt(nextDoc);
+            out.writeLong(nextSegment.get());
+            out.writeInt(segments.size());
+            for (IndexSegment segment : segments) {
+                out.writeUTF(segment.file().getFileName().toString());
+            }
+            out.writeInt(deleted.size());
+            for (int doc : deleted) {
+                out.writeInt(doc);
+            }
+        }
+        Files.move(temp, dir.resolve(MANIFEST), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        flush();
+        merger.shutdown();
+        merger.awaitTermination(30, TimeUnit.SECONDS);
+    }
+
+    /** The documents of a segment, in memory or on disk, and their postings. */
+    interface Segment {
+        int docCount();
+
+        /** The term's postings, or null if no document has it. */
+        Postings postings(String term);
+
+        List<String> termsWithPrefix(String prefix, int max);
+
+        DocKey key(int doc, DocKey absent);
+    }
+
+    /**
+     * The documents a term occurs in, ascending; for the i-th, its frequency
+     * and its positions {@code positions[starts[i]..starts[i + 1])}, ascending.
+     */
+    record Postings(int[] docs, int[] freqs, int[] starts, int[] positions) {
+    }
+
+    record DocKey(String type, int id) {
+    }
+
+    private record ScoredDoc(int doc, DocKey key, double score) {
+    }
+
+    public record Hit(String type, int id, double score) {
+    }
+
+    public record SearchPage(String query, int page, int size, long total, List<Hit> hits) {
+    }
+
+    /** Postings under construction, documents added in ascending order. */
+    static final class PostingsBuilder {
+
+        private int[] docs = new int[4];
+        private int[] freqs = new int[4];
+        private int[] positions = new int[4];
+        private int docCount;
+        private int positionCount;
+
+        void add(int doc, List<Integer> docPositions) {
+            if (docCount == docs.length) {
+                docs = Arrays.copyOf(docs, docCount * 2);
+                freqs = Arrays.copyOf(freqs, docCount * 2);
+            }
+            if (positionCount + docPositions.size() > positions.length) {
+                positions = Arrays.copyOf(positions, Math.max(positions.length * 2,
+                        positionCount + docPositions.size()));
+            }
+            docs[docCount] = doc;
+            freqs[docCount++] = docPositions.size();
+            for (int position : docPositions) {
+                positions[positionCount++] = position;
+            }
+        }
+
+        /** Add the documents of several postings not in {@code skip}, in document order. */
+        void addAll(List<Postings> parts, Set<Integer> skip) {
+            List<int[]> entries = new ArrayList<>();
+            for (int p = 0; p < parts.size(); p++) {
+                for (int i = 0; i < parts.get(p).docs().length; i++) {
+                    if (!skip.contains(parts.get(p).docs()[i])) {
+                        entries.add(new int[] { parts.get(p).docs()[i], p, i });
+                    }
+                }
+            }
+            entries.sort(Comparator.comparingInt(entry -> entry[0]));
+            for (int[] entry : entries) {
+                Postings part = parts.get(entry[1]);
+                List<Integer> docPositions = new ArrayList<>();
+                for (int q = part.starts()[entry[2]]; q < part.starts()[entry[2] + 1]; q++) {
+                    docPositions.add(part.positions()[q]);
+                }
+                add(entry[0], docPositions);
+            }
+        }
+
+        /** The postings of the documents to keep. */
+        Postings build(IntPredicate keep) {
+            int[] keptDocs = new int[docCount];
+            int[] keptFreqs = new int[docCount];
+            int[] starts = new int[docCount + 1];
+            int[] keptPositions = new int[positionCount];
+            int kept = 0;
+            int positionsKept = 0;
+            int from = 0;
+            for (int i = 0; i < docCount; i++) {
+                int to = from + freqs[i];
+                if (keep.test(docs[i])) {
+                    keptDocs[kept] = docs[i];
+                    keptFreqs[kept] = freqs[i];
+                    starts[kept++] = positionsKept;
+                    System.arraycopy(positions, from, keptPositions, positionsKept, freqs[i]);
+                    positionsKept += freqs[i];
+                }
+                from = to;
+            }
+            starts[kept] = positionsKept;
+            return new Postings(Arrays.copyOf(keptDocs, kept), Arrays.copyOf(keptFreqs, kept),
+                    Arrays.copyOf(starts, kept + 1), Arrays.copyOf(keptPositions, positionsKept));
+        }
+    }
+
+    /** Documents indexed since the last flush. */
+    private static final class MemoryBuffer implements Segment {
+
+        private final Map<String, PostingsBuilder> terms = new HashMap<>();
+        private final Map<Integer, DocKey> keys = new HashMap<>();
+        private final List<Integer> docs = new ArrayList<>();
+
+        void add(int doc, DocKey key, Map<String, List<Integer>> positions) {
+            docs.add(doc);
+            keys.put(doc, key);
+            positions.forEach((term, termPositions) ->
+                    terms.computeIfAbsent(term, t -> new PostingsBuilder()).add(doc, termPositions));
+        }
+
+        List<Integer> docs() {
+            return docs;
+        }
+
+        List<Map.Entry<String, PostingsBuilder>> sortedTerms() {
+            List<Map.Entry<String, PostingsBuilder>> sorted = new ArrayList<>(terms.entrySet());
+            sorted.sort(Map.Entry.comparingByKey());
+            return sorted;
+        }
+
+        @Override
+        public int docCount() {
+            return docs.size();
+        }
+
+        @Override
+        public Postings postings(String term) {
+            PostingsBuilder builder = terms.get(term);
+            return builder == null ? null : builder.build(doc -> true);
+        }
+
+        @Override
+        public List<String> termsWithPrefix(String prefix, int max) {
+            return terms.keySet().stream().filter(term -> term.startsWith(prefix)).sorted().limit(max).toList();
+        }
+
+        @Override
+        public DocKey key(int doc, DocKey absent) {
+            return keys.getOrDefault(doc, absent);
+        }
+    }
+}
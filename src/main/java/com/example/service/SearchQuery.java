@@ -0,0 +1,97 @@
+package com.example.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A parsed search: every clause must match. Words are terms, a word ending
+ * in {@code *} is a prefix, and text in double quotes is a phrase, e.g.
+ * {@code "chassis damage" toyota cor*}. A word the tokenizer splits (such as
+ * {@code AB-123}) is searched as a phrase of its parts.
+ * <p>
+ * Text is tokenized the same way for indexing and for queries: runs of
+ * letters and digits, lowercased, cut at {@link #MAX_TOKEN_LENGTH}.
+ */
+record SearchQuery(List<Clause> clauses) {
+
+    static final int MAX_TOKEN_LENGTH = 64;
+
+    sealed interface Clause permits Term, Prefix, Phrase {
+    }
+
+    record Term(String term) implements Clause {
+    }
+
+    record Prefix(String prefix) implements Clause {
+    }
+
+    record Phrase(List<String> terms) implements Clause {
+    }
+
+    /** Receives the tokens of a text with their positions. */
+    interface TokenConsumer {
+        void accept(String token, int position);
+    }
+
+    static SearchQuery parse(String query) {
+        List<Clause> clauses = new ArrayList<>();
+        int i = 0;
+        while (i < query.length()) {
+            char c = query.charAt(i);
+            if (c == '"') {
+                int close = query.indexOf('"', i + 1);
+                int end = close < 0 ? query.length() : close;
+                addPhrase(clauses, tokens(query.substring(i + 1, end)));
+                i = end + 1;
+            } else if (Character.isWhitespace(c)) {
+                i++;
+            } else {
+                int end = i;
+                while (end < query.length() && !Character.isWhitespace(query.charAt(end))
+                        && query.charAt(end) != '"') {
+                    end++;
+                }
+                String word = query.substring(i, end);
+                List<String> tokens = tokens(word);
+                if (word.endsWith("*") && tokens.size() == 1) {
+                    clauses.add(new Prefix(tokens.get(0)));
+                } else {
+                    addPhrase(clauses, tokens);
+                }
+                i = end;
+            }
+        }
+        return new SearchQuery(List.copyOf(clauses));
+    }
+
+    private static void addPhrase(List<Clause> clauses, List<String> tokens) {
+        if (tokens.size() == 1) {
+            clauses.add(new Term(tokens.get(0)));
+        } else if (!tokens.isEmpty()) {
+            clauses.add(new Phrase(List.copyOf(tokens)));
+        }
+    }
+
+    static List<String> tokens(String text) {
+        List<String> tokens = new ArrayList<>();
+        tokenize(text, (token, position) -> tokens.add(token));
+        return tokens;
+    }
+
+    /** Split text into tokens, numbering them from 0. */
+    static void tokenize(String text, TokenConsumer consumer) {
+        StringBuilder token = new StringBuilder(MAX_TOKEN_LENGTH);
+        int position = 0;
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                if (token.length() < MAX_TOKEN_LENGTH) {
+                    token.append(Character.toLowerCase(c));
+                }
+            } else if (!token.isEmpty()) {
+                consumer.accept(token.toString(), position++);
+                token.setLength(0);
+            }
+        }
+    }
+}
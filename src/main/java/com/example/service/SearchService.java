@@ -0,0 +1,140 @@
+package com.example.service;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import com.example.entity.Auction;
+import com.example.entity.Report;
+import com.example.service.SearchIndex.SearchPage;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps the {@link SearchIndex} in step with reports and auctions: a report
+ * is indexed (file name and extracted text) once its text is known, an
+ * auction (source, make, model, year, description) each time it is saved.
+ * Inside a transaction the index is updated once it commits, so a rolled
+ * back save never becomes searchable.
+ * <p>
+ * The index is rebuilt from the database in the background at startup when
+ * it is empty, e.g. on first run or after its directory was removed, or when
+ * {@code app.search.rebuild-on-startup} is set.
+ */
+@Slf4j
+@Service
+public class SearchService {
+
+    public static final String REPORT = "report";
+    public static final String AUCTION = "auction";
+
+    private static final int BATCH_SIZE = 100;
+
+    private final SearchIndex searchIndex;
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean rebuildOnStartup;
+
+    public SearchService(SearchIndex searchIndex, JdbcTemplate jdbcTemplate,
+            @Value("${app.search.rebuild-on-startup:false}") boolean rebuildOnStartup) {
+        this.searchIndex = searchIndex;
+        this.jdbcTemplate = jdbcTemplate;
+        this.rebuildOnStartup = rebuildOnStartup;
+    }
+
+    public void indexAuction(Auction auction) {
+        indexAfterCommit(AUCTION, auction.getAuctionId(), join(auction.getSource(), auction.getMake(),
+                auction.getModel(), auction.getYear(), auction.getDescription()));
+    }
+
+    /** Index a report with its extracted text (null for files that have none). */
+    public void indexReport(Report report, String text) {
+        indexAfterCommit(REPORT, report.getReportId(), join(report.getFileName(), report.getVin(), text));
+    }
+
+    /** One page of matching reports and auctions; {@code type} null searches both. */
+    public SearchPage search(String query, String type, int page, int size) {
+        return searchIndex.search(query, type, page, size);
+    }
+
+    // The text is joined now, from the values being saved
+    private void indexAfterCommit(String type, Integer id, String text) {
+        Transactions.afterCommit(() -> index(type, id, text));
+    }
+
+    private void index(String type, Integer id, String text) {
+        try {
+            searchIndex.index(type, id, text);
+        } catch (RuntimeException e) {
+            // The row is saved either way; it will be found after the next rebuild
+            log.warn("Failed to index {} {}: {}", type, id, e.getMessage());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIfEmpty() {
+        if (rebuildOnStartup || searchIndex.docCount() == 0) {
+            Thread.ofVirtual().name("search-rebuild").start(this::rebuild);
+        }
+    }
+
+    /** Index every auction and every report with its text, in id order and in batches. */
+    void rebuild() {
+        long started = System.nanoTime();
+        int auctions = 0;
+        int lastId = 0;
+        while (true) {
+            List<Object[]> rows = jdbcTemplate.query(
+                    "SELECT auction_id, source, make, model, year, description FROM auctions "
+                            + "WHERE auction_id > ? ORDER BY auction_id LIMIT ?",
+                    (rs, rowNum) -> new Object[] { rs.getInt(1), join(rs.getString(2), rs.getString(3),
+                            rs.getString(4), rs.getObject(5), rs.getString(6)) },
+                    lastId, BATCH_SIZE);
+            if (rows.isEmpty()) {
+                break;
+            }
+            for (Object[] row : rows) {
+                lastId = (Integer) row[0];
+                index(AUCTION, lastId, (String) row[1]);
+            }
+            auctions += rows.size();
+        }
+
+        int reports = 0;
+        lastId = 0;
+        while (true) {
+            List<Object[]> rows = jdbcTemplate.query(
+                    "SELECT r.report_id, r.file_name, r.vin, d.compressed_text FROM reports r "
+                            + "LEFT JOIN document_texts d ON d.content_hash = r.content_hash "
+                            + "WHERE r.report_id > ? AND (r.status IS NULL OR r.status = ?) "
+                            + "ORDER BY r.report_id LIMIT ?",
+                    (rs, rowNum) -> {
+                        byte[] compressed = rs.getBytes(4);
+                        return new Object[] { rs.getInt(1), join(rs.getString(2), rs.getString(3),
+                                compressed == null ? null : TextCompression.decompress(compressed)) };
+                    },
+                    lastId, Report.DONE, BATCH_SIZE);
+            if (rows.isEmpty()) {
+                break;
+            }
+            for (Object[] row : rows) {
+                lastId = (Integer) row[0];
+                index(REPORT, lastId, (String) row[1]);
+            }
+            reports += rows.size();
+        }
+        searchIndex.flush();
+        log.info("Search index rebuilt: {} auctions, {} reports in {} ms", auctions, reports,
+                (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private static String join(Object... parts) {
+        return Stream.of(parts).filter(Objects::nonNull).map(Object::toString).collect(Collectors.joining("\n"));
+    }
+}
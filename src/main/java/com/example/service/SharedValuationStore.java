@@ -0,0 +1,19 @@
+package com.example.service;
+
+import java.time.Duration;
+
+import com.example.service.ValuationEngineService.ValuationResult;
+
+/**
+ * Second cache tier shared between application instances (for example a
+ * Redis-backed store). Keys already include the pricing version, so a store
+ * never has to be flushed when the catalog or rules change; stale keys just
+ * expire. {@link InMemorySharedValuationStore} is the local stand-in.
+ */
+public interface SharedValuationStore {
+
+    /** Cached result for the key, or null. */
+    ValuationResult get(String key);
+
+    void put(String key, ValuationResult result, Duration ttl);
+}
@@ -0,0 +1,137 @@
+package com.example.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * How to read listing fields from one source's pages: the site's own
+ * selectors, tried before the generic ones every page gets, and whether the
+ * site publishes schema.org structured data (JSON-LD or microdata) worth
+ * reading first. All selectors are compiled once, when the extractor is built.
+ */
+final class SiteExtractor {
+
+    static final String MAKE = "make";
+    static final String MODEL = "model";
+    static final String YEAR = "year";
+    static final String MILEAGE = "mileage";
+    static final String PRICE = "price";
+    static final String DESCRIPTION = "description";
+
+    private static final Pattern FOUR_DIGITS = Pattern.compile("\\d{4}");
+    private static final Pattern NON_DIGITS = Pattern.compile("[^0-9]");
+
+    // Common CSS selectors per field, most specific first
+    private static final Map<String, String[]> GENERIC_SELECTORS = new LinkedHashMap<>();
+
+    static {
+        GENERIC_SELECTORS.put(MAKE, new String[] { ".make", "[data-make]", ".vehicle-make", ".vehicle_make",
+                "span.make", "div.make", "[id*='make']" });
+        GENERIC_SELECTORS.put(MODEL, new String[] { ".model", "[data-model]", ".vehicle-model", ".vehicle_model",
+                "span.model", "div.model", "[id*='model']" });
+        GENERIC_SELECTORS.put(YEAR, new String[] { ".year", "[data-year]", ".vehicle-year", ".vehicle_year",
+                "span.year", "div.year", "[id*='year']" });
+        GENERIC_SELECTORS.put(MILEAGE, new String[] { ".mileage", "[data-mileage]", ".vehicle-mileage", ".km",
+                "span.mileage", "div.mileage", "[id*='mileage']" });
+        GENERIC_SELECTORS.put(PRICE, new String[] { ".price", "[data-price]", ".vehicle-price", ".auction-price",
+                "span.price", "div.price", "[id*='price']" });
+        GENERIC_SELECTORS.put(DESCRIPTION, new String[] { ".description", "[data-description]",
+                ".vehicle-description", "span.description", "div.description", ".details", "p" });
+    }
+
+    /** The generic selectors only, for sources without an extractor of their own. */
+    static final SiteExtractor GENERIC = builder("Unknown").build();
+
+    private final String source;
+    private final ListingFieldExtractor fields;
+    private final boolean structuredData;
+
+    private SiteExtractor(String source, ListingFieldExtractor fields, boolean structuredData) {
+        this.source = source;
+        this.fields = fields;
+        this.structuredData = structuredData;
+    }
+
+    static Builder builder(String source) {
+        return new Builder(source);
+    }
+
+    String source() {
+        return source;
+    }
+
+    ListingFieldExtractor fields() {
+        return fields;
+    }
+
+    boolean readsStructuredData() {
+        return structuredData;
+    }
+
+    /**
+     * A field's value from raw text, as every extraction path normalizes it:
+     * the first 4-digit number for the year, digits only for the mileage,
+     * trimmed text otherwise. Null when there is no value.
+     */
+    static String normalize(String field, String text) {
+        if (text == null) {
+            return null;
+        }
+        String trimmed = text.trim();
+        if (trimmed.isEmpty()) {
+            return null;
+        }
+        return switch (field) {
+            case YEAR -> findYear(trimmed);
+            case MILEAGE -> NON_DIGITS.matcher(trimmed).replaceAll("");
+            default -> trimmed;
+        };
+    }
+
+    private static String findYear(String text) {
+        Matcher matcher = FOUR_DIGITS.matcher(text);
+        return matcher.find() ? matcher.group() : null;
+    }
+
+    static final class Builder {
+        private final String source;
+        private final Map<String, List<String>> siteSelectors = new LinkedHashMap<>();
+        private boolean structuredData;
+
+        private Builder(String source) {
+            this.source = source;
+        }
+
+        /** Selectors for a field on this site, tried before the generic ones. */
+        Builder selectors(String field, String... selectors) {
+            if (!GENERIC_SELECTORS.containsKey(field)) {
+                throw new IllegalArgumentException("Unknown listing field " + field);
+            }
+            siteSelectors.computeIfAbsent(field, f -> new ArrayList<>()).addAll(Arrays.asList(selectors));
+            return this;
+        }
+
+        /** Read schema.org JSON-LD or microdata before any selectors. */
+        Builder structuredData() {
+            this.structuredData = true;
+            return this;
+        }
+
+        SiteExtractor build() {
+            ListingFieldExtractor.Builder fields = ListingFieldExtractor.builder();
+            GENERIC_SELECTORS.forEach((field, generic) -> {
+                List<String> selectors = new ArrayList<>(siteSelectors.getOrDefault(field, List.of()));
+                selectors.addAll(Arrays.asList(generic));
+                UnaryOperator<String> value = text -> normalize(field, text);
+                fields.field(field, value, selectors.toArray(new String[0]));
+            });
+            return new SiteExtractor(source, fields.build(), structuredData);
+        }
+    }
+}
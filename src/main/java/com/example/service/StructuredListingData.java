@@ -0,0 +1,237 @@
+package com.example.service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.jsoup.nodes.Element;
+import org.jsoup.select.Collector;
+import org.jsoup.select.Evaluator;
+import org.jsoup.select.QueryParser;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+/**
+ * Listing fields from schema.org structured data: a JSON-LD
+ * {@code <script type="application/ld+json">} or a microdata
+ * {@code itemscope} describing a vehicle (Car, Vehicle, Product, ...).
+ * Values are normalized as {@link SiteExtractor#normalize} does for
+ * scraped text.
+ */
+final class StructuredListingData {
+
+    private static final Evaluator JSON_LD = QueryParser.parse("script[type=application/ld+json]");
+    private static final Evaluator ITEM = QueryParser.parse("[itemscope][itemtype]");
+    private static final Evaluator ITEM_PROPERTY = QueryParser.parse("[itemprop]");
+    private static final Evaluator NAME_PROPERTY = QueryParser.parse("[itemprop=name]");
+    private static final Evaluator VALUE_PROPERTY = QueryParser.parse("[itemprop=value]");
+    private static final Set<String> VEHICLE_TYPES = Set.of("Car", "Vehicle", "Motorcycle", "MotorizedBicycle",
+            "BusOrCoach", "Product", "IndividualProduct");
+
+    private StructuredListingData() {
+    }
+
+    /**
+     * The first JSON-LD script describing a vehicle, or failing that the
+     * first microdata item of a vehicle type, with its fields; null if the
+     * page has neither.
+     */
+    static Item find(Element root) {
+        for (Element script : Collector.collect(JSON_LD, root)) {
+            Map<String, String> fields = read(script);
+            if (fields != null) {
+                return new Item(script, fields);
+            }
+        }
+        for (Element item : Collector.collect(ITEM, root)) {
+            Map<String, String> fields = read(item);
+            if (fields != null) {
+                return new Item(item, fields);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Fields from a JSON-LD script or microdata item, or null if it does not
+     * describe a vehicle. Only fields with a value are present.
+     */
+    static Map<String, String> read(Element element) {
+        if (element.normalName().equals("script")) {
+            return readJsonLd(element.data());
+        }
+        if (element.hasAttr("itemscope") && isVehicleType(element.attr("itemtype"))) {
+            return readMicrodata(element);
+        }
+        return null;
+    }
+
+    private static Map<String, String> readJsonLd(String json) {
+        JsonElement parsed;
+        try {
+            parsed = JsonParser.parseString(json);
+        } catch (JsonParseException e) {
+            return null;
+        }
+        JsonObject vehicle = findVehicle(parsed);
+        if (vehicle == null) {
+            return null;
+        }
+        Map<String, String> fields = new HashMap<>();
+        put(fields, SiteExtractor.MAKE, name(vehicle.get("brand")), name(vehicle.get("manufacturer")));
+        put(fields, SiteExtractor.MODEL, name(vehicle.get("model")));
+        put(fields, SiteExtractor.YEAR, string(vehicle.get("vehicleModelDate")), string(vehicle.get("modelDate")),
+                string(vehicle.get("productionDate")), string(vehicle.get("dateVehicleFirstRegistered")));
+        put(fields, SiteExtractor.MILEAGE, quantity(vehicle.get("mileageFromOdometer")));
+        put(fields, SiteExtractor.PRICE, price(vehicle.get("offers")));
+        put(fields, SiteExtractor.DESCRIPTION, string(vehicle.get("description")));
+        return fields;
+    }
+
+    /** The first object of a vehicle type, looking through arrays and {@code @graph}. */
+    private static JsonObject findVehicle(JsonElement element) {
+        if (element == null) {
+            return null;
+        }
+        if (element.isJsonArray()) {
+            for (JsonElement item : element.getAsJsonArray()) {
+                JsonObject vehicle = findVehicle(item);
+                if (vehicle != null) {
+                    return vehicle;
+                }
+            }
+            return null;
+        }
+        if (!element.isJsonObject()) {
+            return null;
+        }
+        JsonObject object = element.getAsJsonObject();
+        JsonElement type = object.get("@type");
+        if (type != null && type.isJsonArray()) {
+            for (JsonElement t : type.getAsJsonArray()) {
+                if (isVehicleType(string(t))) {
+                    return object;
+                }
+            }
+        } else if (isVehicleType(string(type))) {
+            return object;
+        }
+        return findVehicle(object.get("@graph"));
+    }
+
+    private static Map<String, String> readMicrodata(Element item) {
+        Map<String, String> fields = new HashMap<>();
+        for (Element property : Collector.collect(ITEM_PROPERTY, item)) {
+            if (property == item) {
+                continue;
+            }
+            for (String name : property.attr("itemprop").trim().split("\\s+")) {
+                switch (name) {
+                    case "brand", "manufacturer" ->
+                            put(fields, SiteExtractor.MAKE, nestedValue(property, NAME_PROPERTY));
+                    case "model" -> put(fields, SiteExtractor.MODEL, nestedValue(property, NAME_PROPERTY));
+                    case "vehicleModelDate", "modelDate", "productionDate", "dateVehicleFirstRegistered" ->
+                            put(fields, SiteExtractor.YEAR, itemValue(property));
+                    case "mileageFromOdometer" ->
+                            put(fields, SiteExtractor.MILEAGE, nestedValue(property, VALUE_PROPERTY));
+                    case "price" -> put(fields, SiteExtractor.PRICE, itemValue(property));
+                    case "description" -> put(fields, SiteExtractor.DESCRIPTION, itemValue(property));
+                    default -> {
+                    }
+                }
+            }
+        }
+        return fields;
+    }
+
+    /** A property's value, or for a nested item the value of one of its properties. */
+    private static String nestedValue(Element property, Evaluator nestedProperty) {
+        if (!property.hasAttr("itemscope")) {
+            return itemValue(property);
+        }
+        Element nested = property.selectFirst(nestedProperty);
+        return nested == null ? null : itemValue(nested);
+    }
+
+    /** A microdata property value: its {@code content}, the element's value attribute, or its text. */
+    private static String itemValue(Element property) {
+        if (property.hasAttr("content")) {
+            return property.attr("content");
+        }
+        return switch (property.normalName()) {
+            case "time" -> property.hasAttr("datetime") ? property.attr("datetime") : property.text();
+            case "data", "meter" -> property.attr("value");
+            default -> property.text();
+        };
+    }
+
+    private static boolean isVehicleType(String type) {
+        if (type == null) {
+            return false;
+        }
+        String trimmed = type.trim();
+        return VEHICLE_TYPES.contains(trimmed.substring(trimmed.lastIndexOf('/') + 1));
+    }
+
+    /** The first candidate with a value; fields already set are kept. */
+    private static void put(Map<String, String> fields, String field, String... candidates) {
+        if (fields.containsKey(field)) {
+            return;
+        }
+        for (String candidate : candidates) {
+            String value = SiteExtractor.normalize(field, candidate);
+            if (value != null) {
+                fields.put(field, value);
+                return;
+            }
+        }
+    }
+
+    private static String string(JsonElement element) {
+        return element != null && element.isJsonPrimitive() ? element.getAsString() : null;
+    }
+
+    /** A plain string, or a Thing's {@code name}. */
+    private static String name(JsonElement element) {
+        if (element != null && element.isJsonObject()) {
+            return string(element.getAsJsonObject().get("name"));
+        }
+        return string(element);
+    }
+
+    /** A number, or a QuantitativeValue's {@code value}. */
+    private static String quantity(JsonElement element) {
+        if (element != null && element.isJsonObject()) {
+            return string(element.getAsJsonObject().get("value"));
+        }
+        return string(element);
+    }
+
+    /** The price of an Offer, or of the first of several. */
+    private static String price(JsonElement offers) {
+        if (offers == null) {
+            return null;
+        }
+        if (offers.isJsonArray()) {
+            JsonArray array = offers.getAsJsonArray();
+            return array.isEmpty() ? null : price(array.get(0));
+        }
+        if (!offers.isJsonObject()) {
+            return null;
+        }
+        JsonObject offer = offers.getAsJsonObject();
+        String price = string(offer.get("price"));
+        if (price == null && offer.get("priceSpecification") instanceof JsonObject specification) {
+            price = string(specification.get("price"));
+        }
+        return price;
+    }
+
+    /** Structured data found on a page: where it is and what it says. */
+    record Item(Element element, Map<String, String> fields) {
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+
+/**
+ * Deflate for extracted report text, stored in {@code document_texts}.
+ * Report text is repetitive (labels, boilerplate, tables), so it usually
+ * shrinks to a fifth or less; the fastest level is used, since most of the
+ * gain comes at that level and texts are compressed on the worker threads.
+ * Text is encoded and deflated a buffer at a time, never copied whole as
+ * UTF-8.
+ */
+final class TextCompression {
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private TextCompression() {
+    }
+
+    static byte[] compress(String text) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, text.length() / 4));
+            char[] chars = new char[BUFFER_SIZE];
+            try (Writer writer = new OutputStreamWriter(new DeflaterOutputStream(out, deflater, BUFFER_SIZE),
+                    StandardCharsets.UTF_8)) {
+                // A chunk at a time: Writer.write(String) copies the whole string first
+                for (int start = 0; start < text.length(); start += BUFFER_SIZE) {
+                    int end = Math.min(text.length(), start + BUFFER_SIZE);
+                    text.getChars(start, end, chars, 0);
+                    writer.write(chars, 0, end - start);
+                }
+            }
+            return out.toByteArray();
+        } catch (IOException e) {
+            // Not from an in-memory stream
+            throw new UncheckedIOException(e);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    static String decompress(byte[] compressed) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(compressed.length * 4);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (!inflater.finished()) {
+                int inflated = inflater.inflate(buffer);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalArgumentException("Truncated compressed text");
+                }
+                out.write(buffer, 0, inflated);
+            }
+            return out.toString(StandardCharsets.UTF_8);
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Corrupt compressed text", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.service;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/** Helpers for work that must follow the outcome of the current transaction. */
+final class Transactions {
+
+    private Transactions() {
+    }
+
+    /**
+     * Run an action once the current transaction commits, and not at all if
+     * it rolls back; without a transaction, run it now. For in-memory state
+     * derived from rows, which must not show rows that were never saved.
+     */
+    static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,303 @@
+package com.example.service;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Fixed-schema record of how a valuation was priced. Money is held in cents
+ * and adjustments in percent, with 0 meaning "not applied".
+ * <p>
+ * It is stored in {@code valuations.valuation_breakdown} as a compact JSON
+ * array, e.g. {@code [1,"catalog",15000000,0,90,95,0,105,0,0,0,...]}, written
+ * and read with Gson's streaming API. The readable, keyed JSON is only
+ * rendered by {@link #render(String)} when someone asks to see it. Rows
+ * written before this format (pretty-printed JSON objects) are rendered as
+ * they are and can be converted with {@link #fromLegacyJson(String)}.
+ */
+public final class ValuationBreakdown {
+
+    static final int SCHEMA_VERSION = 1;
+
+    private String priceSource;
+    private long basePriceCents;
+    private long comparableSales;
+    private int ageDepreciation;
+    private int mileageAdjustment;
+    private int accidentAdjustment;
+    private int ownerAdjustment;
+    private int roadworthyAdjustment;
+    private int tireAdjustment;
+    private int suspensionAdjustment;
+    private long lowEstimateCents;
+    private long midEstimateCents;
+    private long highEstimateCents;
+    private long suggestedBuyPriceCents;
+
+    /**
+     * Compact form for storage.
+     */
+    public String encode() {
+        StringWriter out = new StringWriter(96);
+        try (JsonWriter writer = new JsonWriter(out)) {
+            writer.beginArray();
+            writer.value(SCHEMA_VERSION);
+            writer.value(priceSource);
+            writer.value(basePriceCents);
+            writer.value(comparableSales);
+            writer.value(ageDepreciation);
+            writer.value(mileageAdjustment);
+            writer.value(accidentAdjustment);
+            writer.value(ownerAdjustment);
+            writer.value(roadworthyAdjustment);
+            writer.value(tireAdjustment);
+            writer.value(suspensionAdjustment);
+            writer.value(lowEstimateCents);
+            writer.value(midEstimateCents);
+            writer.value(highEstimateCents);
+            writer.value(suggestedBuyPriceCents);
+            writer.endArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Read the compact form written by {@link #encode()}.
+     */
+    public static ValuationBreakdown decode(String encoded) {
+        try (JsonReader reader = new JsonReader(new StringReader(encoded))) {
+            reader.beginArray();
+            int version = reader.nextInt();
+            if (version != SCHEMA_VERSION) {
+                throw new IllegalArgumentException("Unsupported breakdown schema version " + version);
+            }
+            ValuationBreakdown breakdown = new ValuationBreakdown();
+            breakdown.priceSource = reader.nextString();
+            breakdown.basePriceCents = reader.nextLong();
+            breakdown.comparableSales = reader.nextLong();
+            breakdown.ageDepreciation = reader.nextInt();
+            breakdown.mileageAdjustment = reader.nextInt();
+            breakdown.accidentAdjustment = reader.nextInt();
+            breakdown.ownerAdjustment = reader.nextInt();
+            breakdown.roadworthyAdjustment = reader.nextInt();
+            breakdown.tireAdjustment = reader.nextInt();
+            breakdown.suspensionAdjustment = reader.nextInt();
+            breakdown.lowEstimateCents = reader.nextLong();
+            breakdown.midEstimateCents = reader.nextLong();
+            breakdown.highEstimateCents = reader.nextLong();
+            breakdown.suggestedBuyPriceCents = reader.nextLong();
+            reader.endArray();
+            return breakdown;
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid valuation breakdown: " + encoded, e);
+        }
+    }
+
+    /**
+     * Readable JSON for a stored breakdown column, in either format.
+     */
+    public static String render(String stored) {
+        if (stored == null || stored.isBlank()) {
+            return stored;
+        }
+        if (isLegacy(stored)) {
+            return stored;
+        }
+        return decode(stored).toPrettyJson();
+    }
+
+    /** True for breakdowns stored as pretty-printed JSON objects. */
+    public static boolean isLegacy(String stored) {
+        return stored.stripLeading().startsWith("{");
+    }
+
+    /**
+     * Convert a pretty-printed breakdown from before the compact format.
+     */
+    public static ValuationBreakdown fromLegacyJson(String json) {
+        JsonObject legacy = JsonParser.parseString(json).getAsJsonObject();
+        ValuationBreakdown breakdown = new ValuationBreakdown();
+        breakdown.priceSource = legacy.has("priceSource") ? legacy.get("priceSource").getAsString() : "catalog";
+        breakdown.basePriceCents = cents(legacy.get("basePrice"));
+        breakdown.comparableSales = legacy.has("comparableSales") ? legacy.get("comparableSales").getAsLong() : 0;
+        breakdown.ageDepreciation = percent(legacy.get("ageDepreciation"));
+        breakdown.mileageAdjustment = percent(legacy.get("mileageAdjustment"));
+        breakdown.accidentAdjustment = percent(legacy.get("accidentAdjustment"));
+        breakdown.ownerAdjustment = percent(legacy.get("ownerAdjustment"));
+        breakdown.roadworthyAdjustment = percent(legacy.get("roadworthyAdjustment"));
+        breakdown.tireAdjustment = percent(legacy.get("tireAdjustment"));
+        breakdown.suspensionAdjustment = percent(legacy.get("suspensionAdjustment"));
+        JsonObject estimates = legacy.getAsJsonObject("finalEstimates");
+        if (estimates != null) {
+            breakdown.lowEstimateCents = cents(estimates.get("lowEstimate"));
+            breakdown.midEstimateCents = cents(estimates.get("midEstimate"));
+            breakdown.highEstimateCents = cents(estimates.get("highEstimate"));
+            breakdown.suggestedBuyPriceCents = cents(estimates.get("suggestedBuyPrice"));
+        }
+        return breakdown;
+    }
+
+    /**
+     * Keyed, indented JSON as shown on the results page.
+     */
+    public String toPrettyJson() {
+        StringWriter out = new StringWriter(512);
+        try (JsonWriter writer = new JsonWriter(out)) {
+            writer.setIndent("  ");
+            writer.beginObject();
+            writer.name("basePrice").value(money(basePriceCents));
+            writer.name("priceSource").value(priceSource);
+            if (comparableSales > 0) {
+                writer.name("comparableSales").value(comparableSales);
+            }
+            writeFactor(writer, "ageDepreciation", ageDepreciation);
+            writeFactor(writer, "mileageAdjustment", mileageAdjustment);
+            writeFactor(writer, "accidentAdjustment", accidentAdjustment);
+            writeFactor(writer, "ownerAdjustment", ownerAdjustment);
+            writeFactor(writer, "roadworthyAdjustment", roadworthyAdjustment);
+            writeFactor(writer, "tireAdjustment", tireAdjustment);
+            writeFactor(writer, "suspensionAdjustment", suspensionAdjustment);
+            writer.name("finalEstimates").beginObject();
+            writer.name("lowEstimate").value(money(lowEstimateCents));
+            writer.name("midEstimate").value(money(midEstimateCents));
+            writer.name("highEstimate").value(money(highEstimateCents));
+            writer.name("suggestedBuyPrice").value(money(suggestedBuyPriceCents));
+            writer.endObject();
+            writer.endObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toString();
+    }
+
+    private static void writeFactor(JsonWriter writer, String name, int percent) throws IOException {
+        if (percent != 0) {
+            writer.name(name).value(BigDecimal.valueOf(percent, 2));
+        }
+    }
+
+    private static BigDecimal money(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    private static long cents(JsonElement value) {
+        return value == null || value.isJsonNull() ? 0 : value.getAsBigDecimal().movePointRight(2).longValue();
+    }
+
+    private static int percent(JsonElement value) {
+        return value == null || value.isJsonNull() ? 0 : value.getAsBigDecimal().movePointRight(2).intValue();
+    }
+
+    public String getPriceSource() {
+        return priceSource;
+    }
+
+    void setPriceSource(String priceSource) {
+        this.priceSource = priceSource;
+    }
+
+    public long getBasePriceCents() {
+        return basePriceCents;
+    }
+
+    void setBasePriceCents(long basePriceCents) {
+        this.basePriceCents = basePriceCents;
+    }
+
+    public long getComparableSales() {
+        return comparableSales;
+    }
+
+    void setComparableSales(long comparableSales) {
+        this.comparableSales = comparableSales;
+    }
+
+    public int getAgeDepreciation() {
+        return ageDepreciation;
+    }
+
+    void setAgeDepreciation(int ageDepreciation) {
+        this.ageDepreciation = ageDepreciation;
+    }
+
+    public int getMileageAdjustment() {
+        return mileageAdjustment;
+    }
+
+    void setMileageAdjustment(int mileageAdjustment) {
+        this.mileageAdjustment = mileageAdjustment;
+    }
+
+    public int getAccidentAdjustment() {
+        return accidentAdjustment;
+    }
+
+    void setAccidentAdjustment(int accidentAdjustment) {
+        this.accidentAdjustment = accidentAdjustment;
+    }
+
+    public int getOwnerAdjustment() {
+        return ownerAdjustment;
+    }
+
+    void setOwnerAdjustment(int ownerAdjustment) {
+        this.ownerAdjustment = ownerAdjustment;
+    }
+
+    public int getRoadworthyAdjustment() {
+        return roadworthyAdjustment;
+    }
+
+    void setRoadworthyAdjustment(int roadworthyAdjustment) {
+        this.roadworthyAdjustment = roadworthyAdjustment;
+    }
+
+    public int getTireAdjustment() {
+        return tireAdjustment;
+    }
+
+    void setTireAdjustment(int tireAdjustment) {
+        this.tireAdjustment = tireAdjustment;
+    }
+
+    public int getSuspensionAdjustment() {
+        return suspensionAdjustment;
+    }
+
+    void setSuspensionAdjustment(int suspensionAdjustment) {
+        this.suspensionAdjustment = suspensionAdjustment;
+    }
+
+    public long getLowEstimateCents() {
+        return lowEstimateCents;
+    }
+
+    public long getMidEstimateCents() {
+        return midEstimateCents;
+    }
+
+    public long getHighEstimateCents() {
+        return highEstimateCents;
+    }
+
+    public long getSuggestedBuyPriceCents() {
+        return suggestedBuyPriceCents;
+    }
+
+    void setEstimates(long lowCents, long midCents, long highCents, long suggestedCents) {
+        this.lowEstimateCents = lowCents;
+        this.midEstimateCents = midCents;
+        this.highEstimateCents = highCents;
+        this.suggestedBuyPriceCents = suggestedCents;
+    }
+}
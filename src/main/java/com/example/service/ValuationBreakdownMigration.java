@@ -0,0 +1,64 @@
+package com.example.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * One-off conversion of pretty-printed valuation breakdowns to the compact
+ * {@link ValuationBreakdown} format. Enable with
+ * {@code app.valuation.breakdown.migrate-on-startup=true}; rows are converted
+ * in id order and in batches, so the migration can be stopped and re-run.
+ * Rows that cannot be parsed are left unchanged (they still render as-is).
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.valuation.breakdown.migrate-on-startup", havingValue = "true")
+public class ValuationBreakdownMigration implements ApplicationRunner {
+
+    private static final int BATCH_SIZE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        int lastId = 0;
+        int converted = 0;
+        int skipped = 0;
+        while (true) {
+            List<Object[]> rows = jdbcTemplate.query(
+                    "SELECT valuation_id, valuation_breakdown FROM valuations "
+                            + "WHERE valuation_id > ? AND valuation_breakdown LIKE '{%' "
+                            + "ORDER BY valuation_id LIMIT ?",
+                    (rs, rowNum) -> new Object[] { rs.getInt(1), rs.getString(2) },
+                    lastId, BATCH_SIZE);
+            if (rows.isEmpty()) {
+                break;
+            }
+
+            List<Object[]> updates = new ArrayList<>(rows.size());
+            for (Object[] row : rows) {
+                lastId = (Integer) row[0];
+                try {
+                    String compact = ValuationBreakdown.fromLegacyJson((String) row[1]).encode();
+                    updates.add(new Object[] { compact, row[0] });
+                } catch (RuntimeException e) {
+                    log.warn("Leaving valuation {} breakdown unconverted: {}", row[0], e.getMessage());
+                    skipped++;
+                }
+            }
+            jdbcTemplate.batchUpdate("UPDATE valuations SET valuation_breakdown = ? WHERE valuation_id = ?", updates);
+            converted += updates.size();
+        }
+        log.info("Valuation breakdown migration finished: {} converted, {} skipped", converted, skipped);
+    }
+}
@@ -0,0 +1,223 @@
+package com.example.service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Year;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.service.ValuationEngineService.ValuationResult;
+import com.example.service.ValuationEngineService.VehicleData;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Memoizes {@link ValuationEngineService#calculateValuation} results.
+ * <p>
+ * Entries are keyed by a canonical form of {@link VehicleData}: make and
+ * model are normalized and VIN, fuel type and transmission are reduced to
+ * "present or not", which is all the engine looks at. The local tier is an
+ * LRU map bounded by size and entry age; an optional
+ * {@link SharedValuationStore} bean adds a second tier shared between
+ * instances. Every key carries the pricing generation (catalog version,
+ * adjustment rules version and current year), so a catalog or rules swap
+ * makes all older entries unreachable.
+ * <p>
+ * Comparable-sales prices move with every new auction, so they are only as
+ * fresh as the TTL.
+ */
+@Slf4j
+@Component
+public class ValuationCache {
+
+    private final PriceCatalogService priceCatalogService;
+    private final AdjustmentRulesService adjustmentRulesService;
+    private final SharedValuationStore sharedStore;
+    private final int maxEntries;
+    private final Duration ttl;
+    private final Clock clock;
+
+    private final LinkedHashMap<CacheKey, CachedResult> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private String generation;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder sharedHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    @Autowired
+    public ValuationCache(PriceCatalogService priceCatalogService,
+            AdjustmentRulesService adjustmentRulesService,
+            ObjectProvider<SharedValuationStore> sharedStore,
+            @Value("${app.valuation.cache.max-entries:10000}") int maxEntries,
+            @Value("${app.valuation.cache.ttl-seconds:600}") long ttlSeconds) {
+        this(priceCatalogService, adjustmentRulesService, sharedStore.getIfAvailable(), maxEntries,
+                Duration.ofSeconds(ttlSeconds), Clock.systemDefaultZone());
+    }
+
+    ValuationCache(PriceCatalogService priceCatalogService, AdjustmentRulesService adjustmentRulesService,
+            SharedValuationStore sharedStore, int maxEntries, Duration ttl, Clock clock) {
+        this.priceCatalogService = priceCatalogService;
+        this.adjustmentRulesService = adjustmentRulesService;
+        this.sharedStore = sharedStore;
+        this.maxEntries = maxEntries;
+        this.ttl = ttl;
+        this.clock = clock;
+    }
+
+    /**
+     * Cached valuation for the vehicle data, computing it with {@code loader}
+     * on a miss.
+     */
+    public ValuationResult get(VehicleData data, Function<VehicleData, ValuationResult> loader) {
+        String currentGeneration = currentGeneration();
+        CacheKey key = CacheKey.of(data);
+        long now = clock.millis();
+
+        synchronized (this) {
+            if (!currentGeneration.equals(generation)) {
+                if (generation != null) {
+                    log.info("Pricing changed from {} to {}, dropping {} cached valuations",
+                            generation, currentGeneration, entries.size());
+                }
+                entries.clear();
+                generation = currentGeneration;
+            }
+            CachedResult cached = entries.get(key);
+            if (cached != null) {
+                if (cached.expiresAt() > now) {
+                    hits.increment();
+                    return cached.result();
+                }
+                entries.remove(key);
+            }
+        }
+
+        String sharedKey = null;
+        ValuationResult result = null;
+        if (sharedStore != null) {
+            sharedKey = "valuation:" + currentGeneration + ":" + key.fingerprint();
+            result = sharedStore.get(sharedKey);
+        }
+        if (result != null) {
+            sharedHits.increment();
+        } else {
+            misses.increment();
+            result = loader.apply(data);
+            if (sharedStore != null) {
+                sharedStore.put(sharedKey, result, ttl);
+            }
+        }
+
+        synchronized (this) {
+            if (currentGeneration.equals(generation)) {
+                entries.put(key, new CachedResult(result, now + ttl.toMillis()));
+                evictOverflow();
+            }
+        }
+        return result;
+    }
+
+    public synchronized void invalidateAll() {
+        entries.clear();
+    }
+
+    public CacheStats getStats() {
+        int size;
+        synchronized (this) {
+            size = entries.size();
+        }
+        return new CacheStats(hits.sum(), sharedHits.sum(), misses.sum(), evictions.sum(), size);
+    }
+
+    private void evictOverflow() {
+        Iterator<Map.Entry<CacheKey, CachedResult>> eldest = entries.entrySet().iterator();
+        while (entries.size() > maxEntries && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    private String currentGeneration() {
+        // Age depreciation depends on the calendar year
+        return priceCatalogService.getCatalog().getVersion() + "/" + adjustmentRulesService.getRules().getVersion()
+                + "/" + Year.now().getValue();
+    }
+
+    public record CacheStats(long hits, long sharedHits, long misses, long evictions, int size) {
+    }
+
+    private record CachedResult(ValuationResult result, long expiresAt) {
+    }
+
+    /**
+     * Canonical form of the inputs that affect a valuation.
+     */
+    private record CacheKey(String make, String model, Integer year, Integer mileage, Integer owners, int flags) {
+
+        private static final int ACCIDENTS = 1;
+        private static final int ROADWORTHY = 1 << 1;
+        private static final int TIRES_WORN = 1 << 2;
+        private static final int SUSPENSION = 1 << 3;
+        private static final int HAS_VIN = 1 << 4;
+        private static final int HAS_FUEL_TYPE = 1 << 5;
+        private static final int HAS_TRANSMISSION = 1 << 6;
+
+        static CacheKey of(VehicleData data) {
+            int flags = 0;
+            flags |= data.isHasAccidents() ? ACCIDENTS : 0;
+            flags |= data.isRoadworthyPass() ? ROADWORTHY : 0;
+            flags |= data.isTireWorn() ? TIRES_WORN : 0;
+            flags |= data.isSuspensionIssues() ? SUSPENSION : 0;
+            flags |= isPresent(data.getVin()) ? HAS_VIN : 0;
+            flags |= isPresent(data.getFuelType()) ? HAS_FUEL_TYPE : 0;
+            flags |= isPresent(data.getTransmission()) ? HAS_TRANSMISSION : 0;
+            return new CacheKey(
+                    data.getMake() == null ? null : NormalizedKeyMap.normalize(data.getMake()),
+                    data.getModel() == null ? null : NormalizedKeyMap.normalize(data.getModel()),
+                    data.getYear(), data.getMileage(), data.getNumberOfOwners(), flags);
+        }
+
+        private static boolean isPresent(String value) {
+            return value != null && !value.isEmpty();
+        }
+
+        /** 64-bit FNV-1a hash of the canonical fields, as hex, for the shared store. */
+        String fingerprint() {
+            long h = 0xcbf29ce484222325L;
+            h = mix(h, make);
+            h = mix(h, model);
+            h = mix(h, year == null ? Integer.MIN_VALUE : year);
+            h = mix(h, mileage == null ? Integer.MIN_VALUE : mileage);
+            h = mix(h, owners == null ? Integer.MIN_VALUE : owners);
+            h = mix(h, flags);
+            return Long.toHexString(h);
+        }
+
+        private static long mix(long h, String value) {
+            if (value == null) {
+                return mix(h, -1);
+            }
+            for (int i = 0; i < value.length(); i++) {
+                h = (h ^ value.charAt(i)) * 0x100000001b3L;
+            }
+            return (h ^ 0xff) * 0x100000001b3L;
+        }
+
+        private static long mix(long h, int value) {
+            for (int shift = 0; shift < 32; shift += 8) {
+                h = (h ^ ((value >>> shift) & 0xff)) * 0x100000001b3L;
+            }
+            return h;
+        }
+    }
+}
@@ -1,102 +1,130 @@
 package com.example.service;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
+import com.example.service.ComparablesIndex.ComparableSummary;
+import com.example.service.PriceCatalog.PriceEntry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
-import java.util.HashMap;
-import java.util.Map;
+import java.time.Year;
 
 @Slf4j
 @Service
 public class ValuationEngineService {
 
-    private static final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+    // Estimate spreads, in percent; the adjustments themselves come from AdjustmentRules
+    private static final int LOW_SPREAD = 90; // 10% lower
+    private static final int HIGH_SPREAD = 110; // 10% higher
+    static final int SUGGESTED_BUY = 95;
+    static final int COMPLETENESS_CHECKS = 9;
+    private static final int MIN_LOW_SPREAD = 70; // at most 30% below comparables' median
+    private static final int MAX_HIGH_SPREAD = 130; // at most 30% above comparables' median
+
+    private final PriceCatalogService priceCatalogService;
+    private final AdjustmentRulesService adjustmentRulesService;
+    private final ComparablesIndex comparablesIndex;
+    private final int minComparables;
+
+    public ValuationEngineService(PriceCatalogService priceCatalogService,
+            AdjustmentRulesService adjustmentRulesService, ComparablesIndex comparablesIndex,
+            @Value("${app.valuation.comparables.min-samples:5}") int minComparables) {
+        this.priceCatalogService = priceCatalogService;
+        this.adjustmentRulesService = adjustmentRulesService;
+        this.comparablesIndex = comparablesIndex;
+        this.minComparables = minComparables;
+    }
 
     /**
-     * Calculate vehicle valuation based on rules-based approach
+     * Calculate vehicle valuation based on rules-based approach.
+     * Prices are carried in cents and factors in percent (see {@link ValuationKernel});
+     * BigDecimals are only created for the result. Adjustments come from the
+     * active {@link AdjustmentRules}, whose version is recorded on the result.
      */
     public ValuationResult calculateValuation(VehicleData vehicleData) {
-        log.info("Calculating valuation for: {} {} ({})",
+        log.debug("Calculating valuation for: {} {} ({})",
                 vehicleData.getMake(), vehicleData.getModel(), vehicleData.getYear());
 
-        // Step 1: Get base market price (simplified - in production, use external API)
-        BigDecimal basePrice = getBaseMarketPrice(vehicleData);
+        // Step 1: Get base market price, from comparable sales when there are
+        // enough of them, otherwise from the price catalog
+        PricingBasis basis = resolvePricingBasis(vehicleData);
+        AdjustmentRules rules = basis.rules();
+        long baseCents = basis.baseCents();
 
-        // Step 2: Apply adjustments
-        Map<String, Object> breakdown = new HashMap<>();
-        breakdown.put("basePrice", basePrice);
+        ValuationBreakdown breakdown = new ValuationBreakdown();
+        breakdown.setPriceSource(basis.priceSource());
+        breakdown.setComparableSales(basis.comparableSales());
+        breakdown.setBasePriceCents(baseCents);
 
-        BigDecimal adjustedPrice = basePrice;
+        // Step 2: Apply adjustments
+        long factors = 1;
+        int factorCount = 0;
 
         // Age/Depreciation adjustment
-        BigDecimal ageAdjustment = calculateAgeDepreciation(vehicleData.getYear());
-        adjustedPrice = adjustedPrice.multiply(ageAdjustment);
-        breakdown.put("ageDepreciation", ageAdjustment);
+        int ageAdjustment = basis.ageAdjustment();
+        factors = ValuationKernel.multiply(factors, ageAdjustment);
+        factorCount++;
+        breakdown.setAgeDepreciation(ageAdjustment);
 
         // Mileage adjustment
-        BigDecimal mileageAdjustment = calculateMileageAdjustment(vehicleData.getMileage());
-        adjustedPrice = adjustedPrice.multiply(mileageAdjustment);
-        breakdown.put("mileageAdjustment", mileageAdjustment);
+        int mileageAdjustment = calculateMileageAdjustment(basis, vehicleData.getMileage());
+        factors = ValuationKernel.multiply(factors, mileageAdjustment);
+        factorCount++;
+        breakdown.setMileageAdjustment(mileageAdjustment);
 
         // Accident history adjustment
         if (vehicleData.isHasAccidents()) {
-            BigDecimal accidentAdjustment = new BigDecimal("0.85"); // 15% penalty
-            adjustedPrice = adjustedPrice.multiply(accidentAdjustment);
-            breakdown.put("accidentAdjustment", accidentAdjustment);
+            factors = ValuationKernel.multiply(factors, rules.getAccidentPenalty());
+            factorCount++;
+            breakdown.setAccidentAdjustment(rules.getAccidentPenalty());
         }
 
         // Previous owners adjustment
-        BigDecimal ownerAdjustment = calculateOwnerAdjustment(vehicleData.getNumberOfOwners());
-        adjustedPrice = adjustedPrice.multiply(ownerAdjustment);
-        breakdown.put("ownerAdjustment", ownerAdjustment);
+        int ownerAdjustment = rules.ownerAdjustment(vehicleData.getNumberOfOwners());
+        factors = ValuationKernel.multiply(factors, ownerAdjustment);
+        factorCount++;
+        breakdown.setOwnerAdjustment(ownerAdjustment);
 
         // Roadworthy status
         if (!vehicleData.isRoadworthyPass()) {
-            BigDecimal roadworthyAdjustment = new BigDecimal("0.90"); // 10% penalty
-            adjustedPrice = adjustedPrice.multiply(roadworthyAdjustment);
-            breakdown.put("roadworthyAdjustment", roadworthyAdjustment);
+            factors = ValuationKernel.multiply(factors, rules.getRoadworthyPenalty());
+            factorCount++;
+            breakdown.setRoadworthyAdjustment(rules.getRoadworthyPenalty());
         }
 
         // Tire condition
         if (vehicleData.isTireWorn()) {
-            BigDecimal tireAdjustment = new BigDecimal("0.95"); // 5% penalty
-            adjustedPrice = adjustedPrice.multiply(tireAdjustment);
-            breakdown.put("tireAdjustment", tireAdjustment);
+            factors = ValuationKernel.multiply(factors, rules.getTirePenalty());
+            factorCount++;
+            breakdown.setTireAdjustment(rules.getTirePenalty());
         }
 
         // Suspension issues
         if (vehicleData.isSuspensionIssues()) {
-            BigDecimal suspensionAdjustment = new BigDecimal("0.92"); // 8% penalty
-            adjustedPrice = adjustedPrice.multiply(suspensionAdjustment);
-            breakdown.put("suspensionAdjustment", suspensionAdjustment);
+            factors = ValuationKernel.multiply(factors, rules.getSuspensionPenalty());
+            factorCount++;
+            breakdown.setSuspensionAdjustment(rules.getSuspensionPenalty());
         }
 
-        // Step 3: Calculate low, mid, high estimates with variance
-        BigDecimal lowEst = adjustedPrice.multiply(new BigDecimal("0.90")); // 10% lower
-        BigDecimal midEst = adjustedPrice;
-        BigDecimal highEst = adjustedPrice.multiply(new BigDecimal("1.10")); // 10% higher
+        // Step 3: Calculate low, mid, high estimates with variance, and the
+        // suggested buy price (slightly below mid estimate), rounded to cents
+        long lowCents = ValuationKernel.applyFactors(baseCents,
+                ValuationKernel.multiply(factors, basis.lowSpread()), factorCount + 1);
+        long midCents = ValuationKernel.applyFactors(baseCents, factors, factorCount);
+        long highCents = ValuationKernel.applyFactors(baseCents,
+                ValuationKernel.multiply(factors, basis.highSpread()), factorCount + 1);
+        long suggestedCents = ValuationKernel.applyFactors(baseCents,
+                ValuationKernel.multiply(factors, SUGGESTED_BUY), factorCount + 1);
 
-        // Calculate suggested buy price (slightly below mid estimate)
-        BigDecimal suggestedPrice = adjustedPrice.multiply(new BigDecimal("0.95"));
+        breakdown.setEstimates(lowCents, midCents, highCents, suggestedCents);
 
-        // Round to 2 decimal places
-        lowEst = lowEst.setScale(2, RoundingMode.HALF_UP);
-        midEst = midEst.setScale(2, RoundingMode.HALF_UP);
-        highEst = highEst.setScale(2, RoundingMode.HALF_UP);
-        suggestedPrice = suggestedPrice.setScale(2, RoundingMode.HALF_UP);
-
-        breakdown.put("finalEstimates", Map.of(
-                "lowEstimate", lowEst,
-                "midEstimate", midEst,
-                "highEstimate", highEst,
-                "suggestedBuyPrice", suggestedPrice));
+        BigDecimal lowEst = BigDecimal.valueOf(lowCents, 2);
+        BigDecimal midEst = BigDecimal.valueOf(midCents, 2);
+        BigDecimal highEst = BigDecimal.valueOf(highCents, 2);
+        BigDecimal suggestedPrice = BigDecimal.valueOf(suggestedCents, 2);
 
         // Calculate confidence score based on data completeness
-        BigDecimal confidenceScore = calculateConfidenceScore(vehicleData, breakdown);
+        BigDecimal confidenceScore = calculateConfidenceScore(vehicleData);
 
         ValuationResult result = new ValuationResult();
         result.setLowEstimate(lowEst);
@@ -104,115 +132,92 @@ public class ValuationEngineService {
         result.setHighEstimate(highEst);
         result.setSuggestedBuyPrice(suggestedPrice);
         result.setConfidenceScore(confidenceScore);
-        result.setBreakdownJson(gson.toJson(breakdown));
+        result.setBreakdown(breakdown);
+        result.setRulesVersion(rules.getVersion());
 
-        log.info("Valuation calculated - Low: {}, Mid: {}, High: {}", lowEst, midEst, highEst);
+        log.debug("Valuation calculated - Low: {}, Mid: {}, High: {}", lowEst, midEst, highEst);
 
         return result;
     }
 
     /**
-     * Get base market price for vehicle (simplified)
-     * In production, integrate with real market data API
+     * Base price, age depreciation and estimate spread for the vehicle, with
+     * the rules snapshot used for every other adjustment. These depend only on
+     * make, model and year, so a sweep resolves them once.
      */
-    private BigDecimal getBaseMarketPrice(VehicleData vehicleData) {
-        // Simplified pricing - in production use external API
-        Map<String, Map<String, BigDecimal>> priceTable = new HashMap<>();
-
-        // This is a simplified mock - replace with real market data
-        Map<String, BigDecimal> toyotaModels = new HashMap<>();
-        toyotaModels.put("Corolla", new BigDecimal("150000"));
-        toyotaModels.put("Camry", new BigDecimal("200000"));
-        toyotaModels.put("Hilux", new BigDecimal("250000"));
-
-        Map<String, BigDecimal> hondaModels = new HashMap<>();
-        hondaModels.put("Civic", new BigDecimal("140000"));
-        hondaModels.put("Accord", new BigDecimal("190000"));
-
-        priceTable.put("Toyota", toyotaModels);
-        priceTable.put("Honda", hondaModels);
-
-        // Fallback price if make/model not found
-        BigDecimal basePrice = new BigDecimal("150000");
+    PricingBasis resolvePricingBasis(VehicleData vehicleData) {
+        AdjustmentRules rules = adjustmentRulesService.getRules();
+        ComparableSummary comparables = findComparables(vehicleData);
+        if (comparables != null) {
+            long baseCents = comparables.medianCents();
+            return new PricingBasis("comparables", baseCents, comparables.count(),
+                    // Sales in the same year band already carry the age depreciation
+                    ValuationKernel.NEUTRAL,
+                    comparables.medianMileage(),
+                    // Spread follows the quartiles of the comparable sales
+                    clamp(ValuationKernel.percentage(comparables.lowerQuartileCents(), baseCents),
+                            MIN_LOW_SPREAD, ValuationKernel.NEUTRAL),
+                    clamp(ValuationKernel.percentage(comparables.upperQuartileCents(), baseCents),
+                            ValuationKernel.NEUTRAL, MAX_HIGH_SPREAD),
+                    rules);
+        }
+        PriceEntry basePrice = getBaseMarketPrice(vehicleData);
+        return new PricingBasis("catalog", basePrice.getCents(), 0,
+                rules.ageAdjustment(Year.now().getValue() - vehicleData.getYear()), null, LOW_SPREAD, HIGH_SPREAD,
+                rules);
+    }
 
-        if (priceTable.containsKey(vehicleData.getMake())) {
-            Map<String, BigDecimal> modelPrices = priceTable.get(vehicleData.getMake());
-            if (modelPrices.containsKey(vehicleData.getModel())) {
-                basePrice = modelPrices.get(vehicleData.getModel());
-            }
+    /**
+     * Mileage adjustment (percent); relative to the comparables' median mileage
+     * when the price comes from comparable sales
+     */
+    int calculateMileageAdjustment(PricingBasis basis, Integer mileage) {
+        if (basis.comparableSales() > 0) {
+            return calculateRelativeMileageAdjustment(basis.rules(), mileage, basis.comparableMileage());
         }
-
-        return basePrice;
+        return basis.rules().mileageAdjustment(mileage);
     }
 
     /**
-     * Calculate age and depreciation adjustment
+     * Get base market price for vehicle from the preloaded price catalog
      */
-    private BigDecimal calculateAgeDepreciation(Integer year) {
-        int currentYear = java.time.Year.now().getValue();
-        int age = currentYear - year;
-
-        if (age <= 0) {
-            return new BigDecimal("1.0"); // New car
-        } else if (age <= 3) {
-            return new BigDecimal("0.90"); // 10% depreciation
-        } else if (age <= 5) {
-            return new BigDecimal("0.80"); // 20% depreciation
-        } else if (age <= 10) {
-            return new BigDecimal("0.65"); // 35% depreciation
-        } else {
-            return new BigDecimal("0.50"); // 50% depreciation
-        }
+    private PriceEntry getBaseMarketPrice(VehicleData vehicleData) {
+        return priceCatalogService.lookup(vehicleData.getMake(), vehicleData.getModel(), vehicleData.getYear(), null);
     }
 
     /**
-     * Calculate mileage adjustment
+     * Comparable sales for the vehicle, or null when there are too few to price from
      */
-    private BigDecimal calculateMileageAdjustment(Integer mileage) {
-        if (mileage == null || mileage <= 0) {
-            return new BigDecimal("1.0"); // Unknown mileage, no adjustment
-        }
-
-        if (mileage <= 50000) {
-            return new BigDecimal("1.0"); // Low mileage, no penalty
-        } else if (mileage <= 100000) {
-            return new BigDecimal("0.95"); // 5% penalty
-        } else if (mileage <= 150000) {
-            return new BigDecimal("0.88"); // 12% penalty
-        } else if (mileage <= 200000) {
-            return new BigDecimal("0.80"); // 20% penalty
-        } else {
-            return new BigDecimal("0.70"); // 30% penalty for high mileage
-        }
+    private ComparableSummary findComparables(VehicleData vehicleData) {
+        ComparableSummary summary = comparablesIndex.lookup(
+                vehicleData.getMake(), vehicleData.getModel(), vehicleData.getYear());
+        return summary != null && summary.count() >= minComparables ? summary : null;
     }
 
     /**
-     * Calculate adjustment based on number of owners
+     * Mileage adjustment relative to the median mileage of comparable sales (percent)
      */
-    private BigDecimal calculateOwnerAdjustment(Integer numberOfOwners) {
-        if (numberOfOwners == null || numberOfOwners <= 0) {
-            return new BigDecimal("0.95"); // Unknown owners, slight penalty
-        }
-
-        if (numberOfOwners == 1) {
-            return new BigDecimal("1.05"); // Single owner, slight premium
-        } else if (numberOfOwners == 2) {
-            return new BigDecimal("1.0");
-        } else if (numberOfOwners == 3) {
-            return new BigDecimal("0.97"); // 3% penalty
-        } else if (numberOfOwners <= 5) {
-            return new BigDecimal("0.93"); // 7% penalty
-        } else {
-            return new BigDecimal("0.85"); // 15% penalty for many owners
+    private static int calculateRelativeMileageAdjustment(AdjustmentRules rules, Integer mileage,
+            Integer comparableMileage) {
+        if (mileage == null || mileage <= 0 || comparableMileage == null) {
+            return ValuationKernel.NEUTRAL;
         }
+        return (int) ValuationKernel.percentage(
+                rules.mileageAdjustment(mileage), rules.mileageAdjustment(comparableMileage));
     }
 
     /**
      * Calculate confidence score based on data completeness
      */
-    private BigDecimal calculateConfidenceScore(VehicleData data, Map<String, Object> breakdown) {
+    BigDecimal calculateConfidenceScore(VehicleData data) {
+        return confidenceScore(countCompleteFields(data));
+    }
+
+    /**
+     * Number of the {@link #COMPLETENESS_CHECKS} data-completeness checks the vehicle passes
+     */
+    int countCompleteFields(VehicleData data) {
         int completenessScore = 0;
-        int totalChecks = 9;
 
         if (data.getMake() != null && !data.getMake().isEmpty())
             completenessScore++;
@@ -233,12 +238,29 @@ public class ValuationEngineService {
         if (!data.isHasAccidents())
             completenessScore++;
 
-        // Calculate percentage and convert to 0-100 scale
-        BigDecimal score = new BigDecimal(completenessScore)
-                .divide(new BigDecimal(totalChecks), 2, RoundingMode.HALF_UP)
-                .multiply(new BigDecimal("100"));
+        return completenessScore;
+    }
 
-        return score;
+    /**
+     * Percentage of checks passed, rounded to a whole number, on a 0-100 scale with two decimals
+     */
+    static BigDecimal confidenceScore(int completenessScore) {
+        long percent = ValuationKernel.percentage(completenessScore, COMPLETENESS_CHECKS);
+        return BigDecimal.valueOf(percent * 100, 2);
+    }
+
+    private static int clamp(long percent, int min, int max) {
+        return (int) Math.max(min, Math.min(max, percent));
+    }
+
+    /**
+     * Vehicle-level pricing inputs: where the base price came from, the base
+     * price itself, the age adjustment and the low/high spread (percent).
+     * {@code comparableMileage} is the comparables' median mileage, if any, and
+     * {@code rules} the adjustment rules the valuation is priced with.
+     */
+    record PricingBasis(String priceSource, long baseCents, long comparableSales, int ageAdjustment,
+            Integer comparableMileage, int lowSpread, int highSpread, AdjustmentRules rules) {
     }
 
     /**
@@ -365,7 +387,8 @@ public class ValuationEngineService {
         private BigDecimal highEstimate;
         private BigDecimal suggestedBuyPrice;
         private BigDecimal confidenceScore;
-        private String breakdownJson;
+        private ValuationBreakdown breakdown;
+        private String rulesVersion;
 
         // Getters and Setters
         public BigDecimal getLowEstimate() {
@@ -408,12 +431,26 @@ public class ValuationEngineService {
             this.confidenceScore = confidenceScore;
         }
 
-        public String getBreakdownJson() {
-            return breakdownJson;
+        public ValuationBreakdown getBreakdown() {
+            return breakdown;
         }
 
-        public void setBreakdownJson(String breakdownJson) {
-            this.breakdownJson = breakdownJson;
+        public void setBreakdown(ValuationBreakdown breakdown) {
+            this.breakdown = breakdown;
+        }
+
+        /** Version of the adjustment rules that priced this valuation. */
+        public String getRulesVersion() {
+            return rulesVersion;
+        }
+
+        public void setRulesVersion(String rulesVersion) {
+            this.rulesVersion = rulesVersion;
+        }
+
+        /** Readable breakdown JSON, rendered on demand. */
+        public String getBreakdownJson() {
+            return breakdown == null ? null : breakdown.toPrettyJson();
         }
     }
 }
@@ -0,0 +1,103 @@
+package com.example.service;
+
+/**
+ * Fixed-point arithmetic for valuations. Money is carried in whole cents and
+ * adjustment factors in percent (0.85 is 85), so a chain of adjustments is a
+ * single {@code long} product. The only rounding step is the final HALF_UP to
+ * the cent, which gives exactly the same result as multiplying the equivalent
+ * {@link java.math.BigDecimal}s and calling {@code setScale(2, HALF_UP)}.
+ */
+final class ValuationKernel {
+
+    /** Factor value that leaves a price unchanged. */
+    static final int NEUTRAL = 100;
+
+    private static final long LOW_MASK = 0xFFFFFFFFL;
+    private static final int MAX_DIVISOR_DIGITS = 18;
+    private static final long[] POWERS_OF_TEN = new long[MAX_DIVISOR_DIGITS + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private ValuationKernel() {
+    }
+
+    /**
+     * Add one percent factor to a running product; throws if the product no
+     * longer fits in a {@code long}.
+     */
+    static long multiply(long percentProduct, int percent) {
+        return Math.multiplyExact(percentProduct, percent);
+    }
+
+    /**
+     * {@code cents * percentProduct / 100^factorCount}, rounded HALF_UP to the cent.
+     *
+     * @param cents          non-negative amount in cents
+     * @param percentProduct product of {@code factorCount} percent factors
+     * @param factorCount    number of factors multiplied into {@code percentProduct}
+     */
+    static long applyFactors(long cents, long percentProduct, int factorCount) {
+        if (cents < 0 || percentProduct < 0) {
+            throw new ArithmeticException("Negative valuation input");
+        }
+        int digits = factorCount * 2;
+        if (digits > MAX_DIVISOR_DIGITS) {
+            throw new ArithmeticException("Too many factors: " + factorCount);
+        }
+        if (digits == 0) {
+            return Math.multiplyExact(cents, percentProduct);
+        }
+
+        // 128-bit product (both operands are non-negative)
+        long hi = Math.multiplyHigh(cents, percentProduct);
+        long lo = cents * percentProduct;
+
+        // Add half the divisor so that the floor division below rounds HALF_UP
+        long half = POWERS_OF_TEN[digits] / 2;
+        long sum = lo + half;
+        if (Long.compareUnsigned(sum, lo) < 0) {
+            hi++;
+        }
+        lo = sum;
+
+        // Divide by 10^digits in steps of at most 10^9, one 32-bit limb at a time
+        while (digits > 0) {
+            int step = Math.min(9, digits);
+            long divisor = POWERS_OF_TEN[step];
+            digits -= step;
+
+            long l3 = hi >>> 32;
+            long l2 = hi & LOW_MASK;
+            long l1 = lo >>> 32;
+            long l0 = lo & LOW_MASK;
+
+            long q3 = l3 / divisor;
+            long cur = ((l3 % divisor) << 32) | l2;
+            long q2 = cur / divisor;
+            cur = ((cur % divisor) << 32) | l1;
+            long q1 = cur / divisor;
+            cur = ((cur % divisor) << 32) | l0;
+            long q0 = cur / divisor;
+
+            hi = (q3 << 32) | q2;
+            lo = (q1 << 32) | q0;
+        }
+
+        if (hi != 0 || lo < 0) {
+            throw new ArithmeticException("Valuation overflow");
+        }
+        return lo;
+    }
+
+    /**
+     * {@code numerator / denominator} as a percentage, rounded HALF_UP to a whole percent.
+     */
+    static long percentage(long numerator, long denominator) {
+        return (numerator * 200 + denominator) / (2 * denominator);
+    }
+}
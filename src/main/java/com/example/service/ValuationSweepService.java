@@ -0,0 +1,213 @@
+package com.example.service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.example.service.ValuationEngineService.PricingBasis;
+import com.example.service.ValuationEngineService.VehicleData;
+
+/**
+ * What-if valuation grids: one vehicle priced across mileages, owner counts
+ * and condition flags without persisting anything.
+ * <p>
+ * The base price, age depreciation and spread are resolved once for the
+ * vehicle. Each axis is then reduced to a table of percent factors, so every
+ * cell is a few long multiplications in {@link ValuationKernel} and gives
+ * exactly what {@link ValuationEngineService#calculateValuation} would.
+ */
+@Service
+public class ValuationSweepService {
+
+    private final ValuationEngineService valuationEngineService;
+    private final int maxCells;
+
+    public ValuationSweepService(ValuationEngineService valuationEngineService,
+            @Value("${app.valuation.sweep.max-cells:10000}") int maxCells) {
+        this.valuationEngineService = valuationEngineService;
+        this.maxCells = maxCells;
+    }
+
+    /**
+     * Value every combination of the request's axes. Axes left null or empty
+     * keep the value from {@code vehicle}. Cells are indexed
+     * {@code [condition][owners][mileage]}. A null mileage or owner count is
+     * priced as unknown; a negative one, or a null condition flag, is
+     * rejected with an {@link IllegalArgumentException}.
+     */
+    public SweepResult sweep(VehicleData vehicle, SweepRequest request) {
+        List<Integer> mileages = countAxis("mileages", request.mileages(), vehicle.getMileage());
+        List<Integer> owners = countAxis("owners", request.owners(), vehicle.getNumberOfOwners());
+        List<Condition> conditions = conditions(vehicle, request);
+
+        long cellCount = (long) mileages.size() * owners.size() * conditions.size();
+        if (cellCount > maxCells) {
+            throw new IllegalArgumentException("Sweep of " + cellCount + " cells exceeds the limit of " + maxCells);
+        }
+
+        PricingBasis basis = valuationEngineService.resolvePricingBasis(vehicle);
+        AdjustmentRules rules = basis.rules();
+        long baseCents = basis.baseCents();
+
+        // Per-axis factor tables; the age factor is shared by every cell
+        int[] mileageFactors = new int[mileages.size()];
+        int[] mileageComplete = new int[mileages.size()];
+        for (int m = 0; m < mileageFactors.length; m++) {
+            Integer mileage = mileages.get(m);
+            mileageFactors[m] = valuationEngineService.calculateMileageAdjustment(basis, mileage);
+            mileageComplete[m] = mileage != null && mileage > 0 ? 1 : 0;
+        }
+        int[] ownerFactors = new int[owners.size()];
+        for (int o = 0; o < ownerFactors.length; o++) {
+            ownerFactors[o] = rules.ownerAdjustment(owners.get(o));
+        }
+
+        // Completeness checks that do not vary across the grid
+        VehicleData fixedFields = copyOf(vehicle);
+        fixedFields.setMileage(null);
+        fixedFields.setRoadworthyPass(false);
+        fixedFields.setHasAccidents(true);
+        int fixedComplete = valuationEngineService.countCompleteFields(fixedFields);
+        BigDecimal[] confidence = new BigDecimal[ValuationEngineService.COMPLETENESS_CHECKS + 1];
+        for (int i = 0; i < confidence.length; i++) {
+            confidence[i] = ValuationEngineService.confidenceScore(i);
+        }
+
+        List<List<List<SweepCell>>> cells = new ArrayList<>(conditions.size());
+        for (Condition condition : conditions) {
+            long conditionFactors = ValuationKernel.multiply(1, basis.ageAdjustment());
+            int conditionFactorCount = 1;
+            if (condition.accidents()) {
+                conditionFactors = ValuationKernel.multiply(conditionFactors, rules.getAccidentPenalty());
+                conditionFactorCount++;
+            }
+            if (!condition.roadworthy()) {
+                conditionFactors = ValuationKernel.multiply(conditionFactors, rules.getRoadworthyPenalty());
+                conditionFactorCount++;
+            }
+            if (condition.tiresWorn()) {
+                conditionFactors = ValuationKernel.multiply(conditionFactors, rules.getTirePenalty());
+                conditionFactorCount++;
+            }
+            if (condition.suspension()) {
+                conditionFactors = ValuationKernel.multiply(conditionFactors, rules.getSuspensionPenalty());
+                conditionFactorCount++;
+            }
+            int conditionComplete = fixedComplete + (condition.roadworthy() ? 1 : 0) + (condition.accidents() ? 0 : 1);
+            // mileage and owner factors are always applied
+            int factorCount = conditionFactorCount + 2;
+
+            List<List<SweepCell>> ownerRows = new ArrayList<>(ownerFactors.length);
+            for (int ownerFactor : ownerFactors) {
+                long ownerProduct = ValuationKernel.multiply(conditionFactors, ownerFactor);
+                SweepCell[] row = new SweepCell[mileageFactors.length];
+                for (int m = 0; m < mileageFactors.length; m++) {
+                    long factors = ValuationKernel.multiply(ownerProduct, mileageFactors[m]);
+                    row[m] = new SweepCell(
+                            money(baseCents, ValuationKernel.multiply(factors, basis.lowSpread()), factorCount + 1),
+                            money(baseCents, factors, factorCount),
+                            money(baseCents, ValuationKernel.multiply(factors, basis.highSpread()), factorCount + 1),
+                            money(baseCents, ValuationKernel.multiply(factors, ValuationEngineService.SUGGESTED_BUY),
+                                    factorCount + 1),
+                            confidence[conditionComplete + mileageComplete[m]]);
+                }
+                ownerRows.add(Arrays.asList(row));
+            }
+            cells.add(ownerRows);
+        }
+
+        return new SweepResult(basis.priceSource(), BigDecimal.valueOf(baseCents, 2), rules.getVersion(),
+                mileages, owners, conditions, cells);
+    }
+
+    private static BigDecimal money(long baseCents, long factors, int factorCount) {
+        return BigDecimal.valueOf(ValuationKernel.applyFactors(baseCents, factors, factorCount), 2);
+    }
+
+    private static <T> List<T> axis(List<T> values, T fallback) {
+        if (values == null || values.isEmpty()) {
+            return Arrays.asList(fallback);
+        }
+        return values;
+    }
+
+    private static List<Integer> countAxis(String name, List<Integer> values, Integer fallback) {
+        if (values != null) {
+            for (Integer value : values) {
+                if (value != null && value < 0) {
+                    throw new IllegalArgumentException(name + " must not be negative: " + value);
+                }
+            }
+        }
+        return axis(values, fallback);
+    }
+
+    private static List<Boolean> flagAxis(String name, List<Boolean> values, boolean fallback) {
+        if (values != null) {
+            // Not contains(null): immutable lists throw on it
+            for (Boolean value : values) {
+                if (value == null) {
+                    throw new IllegalArgumentException(name + " must be true or false, not null");
+                }
+            }
+        }
+        return axis(values, fallback);
+    }
+
+    private static List<Condition> conditions(VehicleData vehicle, SweepRequest request) {
+        List<Boolean> accidents = flagAxis("accidents", request.accidents(), vehicle.isHasAccidents());
+        List<Boolean> roadworthy = flagAxis("roadworthy", request.roadworthy(), vehicle.isRoadworthyPass());
+        List<Boolean> tiresWorn = flagAxis("tiresWorn", request.tiresWorn(), vehicle.isTireWorn());
+        List<Boolean> suspension = flagAxis("suspension", request.suspension(), vehicle.isSuspensionIssues());
+
+        List<Condition> conditions = new ArrayList<>();
+        for (boolean a : accidents) {
+            for (boolean r : roadworthy) {
+                for (boolean t : tiresWorn) {
+                    for (boolean s : suspension) {
+                        conditions.add(new Condition(a, r, t, s));
+                    }
+                }
+            }
+        }
+        return conditions;
+    }
+
+    private static VehicleData copyOf(VehicleData source) {
+        VehicleData copy = new VehicleData();
+        copy.setMake(source.getMake());
+        copy.setModel(source.getModel());
+        copy.setYear(source.getYear());
+        copy.setVin(source.getVin());
+        copy.setFuelType(source.getFuelType());
+        copy.setTransmission(source.getTransmission());
+        return copy;
+    }
+
+    /**
+     * Axes of a sweep. Any axis may be null to keep the vehicle's own value.
+     */
+    public record SweepRequest(List<Integer> mileages, List<Integer> owners, List<Boolean> accidents,
+            List<Boolean> roadworthy, List<Boolean> tiresWorn, List<Boolean> suspension) {
+    }
+
+    public record Condition(boolean accidents, boolean roadworthy, boolean tiresWorn, boolean suspension) {
+    }
+
+    public record SweepCell(BigDecimal lowEstimate, BigDecimal midEstimate, BigDecimal highEstimate,
+            BigDecimal suggestedBuyPrice, BigDecimal confidenceScore) {
+    }
+
+    /**
+     * Valuation matrix; {@code cells[c][o][m]} is for {@code conditions[c]},
+     * {@code owners[o]} and {@code mileages[m]}.
+     */
+    public record SweepResult(String priceSource, BigDecimal basePrice, String rulesVersion,
+            List<Integer> mileages, List<Integer> owners, List<Condition> conditions,
+            List<List<List<SweepCell>>> cells) {
+    }
+}
@@ -1,30 +1,140 @@
 package com.example.service;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
 import com.example.entity.Vehicle;
 import com.example.entity.Valuation;
+import com.example.repository.ValuationBatchWriter;
 import com.example.service.ValuationEngineService.ValuationResult;
 import com.example.service.ValuationEngineService.VehicleData;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class ValuationWorkflowService {
 
     private final ValuationEngineService valuationEngineService;
     private final VehicleManagementService vehicleManagementService;
+    private final ValuationBatchWriter valuationBatchWriter;
+    private final ValuationCache valuationCache;
+    private final int batchChunkSize;
+
+    public ValuationWorkflowService(ValuationEngineService valuationEngineService,
+            VehicleManagementService vehicleManagementService,
+            ValuationBatchWriter valuationBatchWriter,
+            ValuationCache valuationCache,
+            @Value("${app.valuation.batch.chunk-size:500}") int batchChunkSize) {
+        this.valuationEngineService = valuationEngineService;
+        this.vehicleManagementService = vehicleManagementService;
+        this.valuationBatchWriter = valuationBatchWriter;
+        this.valuationCache = valuationCache;
+        this.batchChunkSize = batchChunkSize;
+    }
 
     /**
-     * Run valuation, persist results, and return the valuation entity.
+     * Run valuation (served from the valuation cache when the same inputs were
+     * valued recently), persist results, and return the valuation entity.
      */
     public Valuation runValuation(Vehicle vehicle, VehicleData data) {
-        ValuationResult result = valuationEngineService.calculateValuation(data);
+        ValuationResult result = valuationCache.get(data, valuationEngineService::calculateValuation);
         return vehicleManagementService.saveValuation(
                 vehicle,
                 result.getMidEstimate(),
                 result.getConfidenceScore(),
-                result.getBreakdownJson());
+                result.getBreakdown().encode(),
+                result.getRulesVersion());
+    }
+
+    /**
+     * Value many vehicles at once. Valuations are computed in parallel on the
+     * fork-join pool, then written with JDBC batch inserts in chunked
+     * transactions. A failure affects only its own item (calculation) or its
+     * own chunk (persistence); every request gets an outcome, in input order.
+     */
+    public List<ValuationOutcome> runValuations(List<ValuationRequest> requests) {
+        ValuationOutcome[] outcomes = IntStream.range(0, requests.size())
+                .parallel()
+                .mapToObj(i -> calculate(i, requests.get(i)))
+                .toArray(ValuationOutcome[]::new);
+
+        List<ValuationOutcome> pending = new ArrayList<>(batchChunkSize);
+        for (ValuationOutcome outcome : outcomes) {
+            if (outcome.error() == null) {
+                pending.add(outcome);
+                if (pending.size() == batchChunkSize) {
+                    persistChunk(pending, outcomes);
+                    pending.clear();
+                }
+            }
+        }
+        persistChunk(pending, outcomes);
+
+        return Arrays.asList(outcomes);
+    }
+
+    private ValuationOutcome calculate(int index, ValuationRequest request) {
+        Vehicle vehicle = request.vehicle();
+        try {
+            if (vehicle == null || vehicle.getVehicleId() == null) {
+                return ValuationOutcome.failed(index, vehicle, "Vehicle is not persisted");
+            }
+            if (vehicle.getUser() == null || vehicle.getUser().getUserId() == null) {
+                return ValuationOutcome.failed(index, vehicle, "Vehicle has no user");
+            }
+            ValuationResult result = valuationEngineService.calculateValuation(request.data());
+
+            Valuation valuation = new Valuation();
+            valuation.setVehicle(vehicle);
+            valuation.setEstimatedValue(result.getMidEstimate());
+            valuation.setConfidenceScore(result.getConfidenceScore());
+            valuation.setValuationBreakdown(result.getBreakdown().encode());
+            valuation.setRulesVersion(result.getRulesVersion());
+            return new ValuationOutcome(index, vehicle, result, valuation, null);
+        } catch (RuntimeException e) {
+            log.warn("Valuation failed for batch item {}: {}", index, e.getMessage());
+            return ValuationOutcome.failed(index, vehicle, "Valuation failed: " + e.getMessage());
+        }
+    }
+
+    private void persistChunk(List<ValuationOutcome> chunk, ValuationOutcome[] outcomes) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        try {
+            valuationBatchWriter.insertAll(chunk.stream().map(ValuationOutcome::valuation).toList());
+        } catch (RuntimeException e) {
+            log.error("Failed to persist valuation batch of " + chunk.size(), e);
+            for (ValuationOutcome outcome : chunk) {
+                outcomes[outcome.index()] = new ValuationOutcome(outcome.index(), outcome.vehicle(),
+                        outcome.result(), null, "Persisting valuation failed: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * One vehicle to value in a batch.
+     */
+    public record ValuationRequest(Vehicle vehicle, VehicleData data) {
+    }
+
+    /**
+     * Result of one batch item: the persisted valuation, or an error message.
+     * {@code result} is kept when calculation succeeded but persisting failed.
+     */
+    public record ValuationOutcome(int index, Vehicle vehicle, ValuationResult result,
+            Valuation valuation, String error) {
+
+        static ValuationOutcome failed(int index, Vehicle vehicle, String error) {
+            return new ValuationOutcome(index, vehicle, null, null, error);
+        }
+
+        public boolean isSuccess() {
+            return error == null;
+        }
     }
 }
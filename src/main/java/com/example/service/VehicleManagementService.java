@@ -3,26 +3,34 @@ package com.example.service;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
 
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import com.example.entity.Auction;
+import com.example.entity.AuctionPriceChange;
 import com.example.entity.Report;
 import com.example.entity.Role;
 import com.example.entity.SearchHistory;
 import com.example.entity.User;
 import com.example.entity.Valuation;
 import com.example.entity.Vehicle;
+import com.example.repository.AuctionPriceChangeRepository;
 import com.example.repository.AuctionRepository;
+import com.example.repository.IdAllocator;
 import com.example.repository.ReportRepository;
 import com.example.repository.SearchHistoryRepository;
 import com.example.repository.UserRepository;
 import com.example.repository.ValuationRepository;
 import com.example.repository.VehicleRepository;
+import com.example.service.DocumentStore.StoredDocument;
+import com.example.service.DocumentTextCache.CachedText;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -36,9 +44,16 @@ public class VehicleManagementService {
     private final VehicleRepository vehicleRepository;
     private final ReportRepository reportRepository;
     private final AuctionRepository auctionRepository;
+    private final AuctionPriceChangeRepository auctionPriceChangeRepository;
     private final ValuationRepository valuationRepository;
     private final SearchHistoryRepository searchHistoryRepository;
-    private final DocumentParsingService documentParsingService;
+    private final DocumentStore documentStore;
+    private final DocumentTextCache documentTextCache;
+    private final DocumentProcessingService documentProcessingService;
+    private final ComparablesIndex comparablesIndex;
+    private final KnownListings knownListings;
+    private final SearchService searchService;
+    private final IdAllocator idAllocator;
 
     /** Save or fetch the user performing the operation (simplified stub). */
     public User ensureUser(String email, String fullName) {
@@ -60,50 +75,167 @@ public class VehicleManagementService {
         return vehicleRepository.save(vehicle);
     }
 
-    /** Persist scraped auction snapshot. */
+    /**
+     * Persist a scraped auction snapshot: one row per listing, keyed by the
+     * normalized URL. A listing seen before is updated in place, keeping
+     * earlier values for fields this scrape did not find, and a price change
+     * is appended to the auction's price history, in one transaction. The
+     * listing's row stays locked until it ends, so concurrent saves of one
+     * listing (watcher, crawler, bulk scrape, upload) apply one after the
+     * other instead of failing on the unique URL. The comparables index and
+     * the crawler's {@link KnownListings} see the change only once it
+     * commits, e.g. at the end of a bulk batch.
+     */
+    @Transactional
     public Auction saveAuctionSnapshot(Map<String, String> scraped, String url) {
-        Auction auction = new Auction();
-        auction.setVehicleUrl(url);
-        auction.setSource(scraped.getOrDefault("source", "Unknown"));
-        auction.setMake(scraped.get("make"));
-        auction.setModel(scraped.get("model"));
-        auction.setYear(parseInt(scraped.get("year")));
-        auction.setMileage(parseInt(scraped.get("mileage")));
-        auction.setAuctionPrice(parseDecimal(scraped.get("price")));
+        String vehicleUrl = PageCache.normalize(url);
+        LocalDateTime now = LocalDateTime.now();
+        BigDecimal price = parseDecimal(scraped.get("price"));
+        // Only an existing row is read locked: a locked read of a missing URL takes a gap lock, which
+        // two saves can hold at once and then deadlock on with their inserts. The plain read takes none
+        Integer id = null;
+        if (!auctionRepository.existsByVehicleUrl(vehicleUrl)) {
+            // Whichever save inserts the row first creates the listing; any other updates it after
+            id = Math.toIntExact(idAllocator.nextId("auctions"));
+            auctionRepository.insertIfAbsent(id, vehicleUrl, now);
+        }
+        Auction auction = auctionRepository.findFirstByVehicleUrlOrderByAuctionId(vehicleUrl).orElseThrow();
+        if (id != null && id.equals(auction.getAuctionId())) {
+            auction.setSource(scraped.getOrDefault("source", "Unknown"));
+            auction.setMake(scraped.get("make"));
+            auction.setModel(scraped.get("model"));
+            auction.setYear(parseInt(scraped.get("year")));
+            auction.setMileage(parseInt(scraped.get("mileage")));
+            auction.setAuctionPrice(price);
+            auction.setAuctionDate(LocalDate.now());
+            auction.setDescription(scraped.get("description"));
+            auction = auctionRepository.save(auction);
+            if (price != null) {
+                recordPriceChange(auction, price, now);
+            }
+            Auction recorded = comparable(auction);
+            Transactions.afterCommit(() -> {
+                comparablesIndex.record(recorded);
+                knownListings.add(vehicleUrl);
+            });
+            searchService.indexAuction(auction);
+            return auction;
+        }
+
+        // Copied before the update, to take its old values out of the comparables index
+        Auction previous = comparable(auction);
+        BigDecimal previousPrice = auction.getAuctionPrice();
+        if (scraped.get("source") != null) {
+            auction.setSource(scraped.get("source"));
+        }
+        auction.setMake(Optional.ofNullable(scraped.get("make")).orElse(auction.getMake()));
+        auction.setModel(Optional.ofNullable(scraped.get("model")).orElse(auction.getModel()));
+        auction.setYear(Optional.ofNullable(parseInt(scraped.get("year"))).orElse(auction.getYear()));
+        auction.setMileage(Optional.ofNullable(parseInt(scraped.get("mileage"))).orElse(auction.getMileage()));
+        if (price != null) {
+            auction.setAuctionPrice(price);
+        }
+        auction.setDescription(Optional.ofNullable(scraped.get("description")).orElse(auction.getDescription()));
         auction.setAuctionDate(LocalDate.now());
-        return auctionRepository.save(auction);
+        auction.setLastScrapedAt(now);
+        auction = auctionRepository.save(auction);
+        if (price != null && (previousPrice == null || previousPrice.compareTo(price) != 0)) {
+            recordPriceChange(auction, price, now);
+        }
+        Auction current = comparable(auction);
+        Transactions.afterCommit(() -> comparablesIndex.replace(previous, current));
+        searchService.indexAuction(auction);
+        return auction;
+    }
+
+    /**
+     * The values the comparables index keeps of an auction, copied: the index
+     * is updated once the save commits, and the entity may change before.
+     */
+    private static Auction comparable(Auction auction) {
+        Auction copy = new Auction();
+        copy.setMake(auction.getMake());
+        copy.setModel(auction.getModel());
+        copy.setYear(auction.getYear());
+        copy.setMileage(auction.getMileage());
+        copy.setAuctionPrice(auction.getAuctionPrice());
+        return copy;
+    }
+
+    /** Price changes of an auction, oldest first. */
+    public List<AuctionPriceChange> priceHistory(Integer auctionId) {
+        return auctionPriceChangeRepository.findByAuctionAuctionIdOrderByObservedAt(auctionId);
+    }
+
+    private void recordPriceChange(Auction auction, BigDecimal price, LocalDateTime observedAt) {
+        auctionPriceChangeRepository.save(new AuctionPriceChange(null, auction, price, observedAt));
     }
 
-    /** Save uploaded report and extracted text. */
+    /**
+     * Save an uploaded report. The file is stored once per distinct content
+     * (see {@link DocumentStore}). A PDF whose content was parsed before
+     * takes its fields from the {@link DocumentTextCache}; otherwise it is
+     * saved pending and its text extracted
+     * in the background (see {@link DocumentProcessingService}), to be
+     * polled by job id. Other files are stored as they are. Reports are
+     * indexed for search once their text is known. If the report cannot be
+     * saved, its reference to the stored file is released.
+     */
     public Report saveReport(Vehicle vehicle, MultipartFile file) throws IOException {
         String ext = Optional.ofNullable(file.getOriginalFilename())
                 .map(name -> name.contains(".") ? name.substring(name.lastIndexOf('.') + 1) : "")
                 .orElse("");
 
-        String extractedText = "";
-        if ("pdf".equalsIgnoreCase(ext)) {
-            extractedText = documentParsingService.parsePdfFile(file);
-        } else {
-            documentParsingService.saveImageFile(file);
-        }
+        boolean pdf = "pdf".equalsIgnoreCase(ext);
+        StoredDocument stored = documentStore.store(file);
 
         Report report = new Report();
         report.setVehicle(vehicle);
-        report.setFilePath(file.getOriginalFilename());
+        report.setFilePath(stored.path().toString());
+        report.setFileName(file.getOriginalFilename());
         report.setFileType(ext);
-        report.setExtractedText(extractedText);
-        return reportRepository.save(report);
+        report.setContentHash(stored.hash());
+        report.setJobId(UUID.randomUUID().toString());
+        Optional<CachedText> parsed;
+        try {
+            parsed = pdf ? documentTextCache.get(stored.hash()) : Optional.empty();
+            if (parsed.isPresent()) {
+                log.debug("Report {} was parsed before, reusing its fields", stored.hash());
+                parsed.get().applyTo(report);
+            } else if (!pdf) {
+                report.setTextLength(0);
+            }
+            if (pdf && parsed.isEmpty()) {
+                report.setStatus(Report.PENDING);
+            } else {
+                report.setStatus(Report.DONE);
+                report.setProcessedAt(LocalDateTime.now());
+            }
+            report = reportRepository.save(report);
+        } catch (RuntimeException e) {
+            // No report refers to the stored file after all
+            documentStore.release(stored.hash());
+            throw e;
+        }
+        if (Report.PENDING.equals(report.getStatus())) {
+            documentProcessingService.enqueue(report);
+        } else {
+            String text = parsed.isPresent() ? documentTextCache.text(stored.hash()).orElse(null) : null;
+            searchService.indexReport(report, text);
+        }
+        return report;
     }
 
-    /** Save valuation and search history. */
+    /** Save valuation (with its compact breakdown) and search history. */
     public Valuation saveValuation(Vehicle vehicle, BigDecimal midEstimate, BigDecimal confidence,
 
-            String breakdownJson) {
+            String breakdown, String rulesVersion) {
         Valuation valuation = new Valuation();
         valuation.setVehicle(vehicle);
         valuation.setEstimatedValue(midEstimate);
         valuation.setConfidenceScore(confidence);
-        valuation.setValuationBreakdown(breakdownJson);
+        valuation.setValuationBreakdown(breakdown);
+        valuation.setRulesVersion(rulesVersion);
         valuation = valuationRepository.save(valuation);
 
         SearchHistory history = new SearchHistory();
@@ -1,23 +1,40 @@
 package com.example.service;
 
+import com.example.service.PageCache.CachedPage;
+import com.example.service.PageFetcher.FetchedPage;
 import lombok.extern.slf4j.Slf4j;
-import org.jsoup.Connection;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
-import org.jsoup.nodes.Element;
-import org.jsoup.select.Elements;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 @Slf4j
 @Service
 public class WebScrapingService {
 
-    private static final String USER_AGENT = "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36";
-    private static final int TIMEOUT = 30000; // 30 seconds
+    private final PageFetcher pageFetcher;
+    private final PageCache pageCache;
+    private final ListingExtractorRegistry extractors;
+    private final int maxRevalidatedListings;
+    // Fields of recently scraped listings with their validators, in LRU order, by normalized URL
+    private final LinkedHashMap<String, CachedListing> listings = new LinkedHashMap<>(256, 0.75f, true);
+
+    public WebScrapingService(PageFetcher pageFetcher, PageCache pageCache, ListingExtractorRegistry extractors,
+            @Value("${app.scraping.revalidate.max-entries:10000}") int maxRevalidatedListings) {
+        this.pageFetcher = pageFetcher;
+        this.pageCache = pageCache;
+        this.extractors = extractors;
+        this.maxRevalidatedListings = maxRevalidatedListings;
+    }
 
     /**
      * Scrape vehicle listing data from a URL
@@ -26,15 +43,7 @@ public class WebScrapingService {
         Map<String, String> scrapedData = new HashMap<>();
 
         try {
-            Document doc = fetchDocument(url);
-
-            // Extract data based on common HTML patterns
-            scrapedData.put("make", extractMake(doc));
-            scrapedData.put("model", extractModel(doc));
-            scrapedData.put("year", extractYear(doc));
-            scrapedData.put("mileage", extractMileage(doc));
-            scrapedData.put("price", extractPrice(doc));
-            scrapedData.put("description", extractDescription(doc));
+            scrapedData.putAll(fetchListing(url));
 
             log.info("Successfully scraped listing from: " + url);
 
@@ -47,141 +56,91 @@ public class WebScrapingService {
     }
 
     /**
-     * Fetch HTML document from URL with error handling
+     * Fetch a listing page and extract its fields. Unlike
+     * {@link #scrapeVehicleListing(String)} failures are thrown, so callers can
+     * tell an HTTP status ({@link org.jsoup.HttpStatusException}) from a network error.
+     * <p>
+     * A page in the {@link PageCache} within its source's TTL is parsed from
+     * disk without a request; in replay mode every page comes from there. A
+     * listing seen before is otherwise revalidated with its ETag/Last-Modified;
+     * if the server answers 304 the earlier fields, or the stored page, are
+     * used without downloading the page again.
      */
-    private Document fetchDocument(String url) throws IOException {
-        Connection connection = Jsoup.connect(url)
-                .userAgent(USER_AGENT)
-                .timeout(TIMEOUT)
-                .followRedirects(true);
-
-        return connection.get();
+    public Map<String, String> fetchListing(String url) throws IOException {
+        return fetchListing(url, true);
     }
 
     /**
-     * Extract vehicle make from common HTML selectors
+     * As {@link #fetchListing(String)}, but with {@code useFreshPage} false a
+     * page in the page cache is revalidated with the site even within its
+     * TTL, for callers that need the listing as it is now. Replay mode still
+     * serves only stored pages.
      */
-    private String extractMake(Document doc) {
-        // Try common CSS selectors
-        String[] selectors = {
-                ".make", "[data-make]", ".vehicle-make", ".vehicle_make",
-                "span.make", "div.make", "[id*='make']"
-        };
-
-        for (String selector : selectors) {
-            Element element = doc.selectFirst(selector);
-            if (element != null && !element.text().isEmpty()) {
-                return element.text().trim();
-            }
+    public Map<String, String> fetchListing(String url, boolean useFreshPage) throws IOException {
+        String source = detectAuctionSource(url);
+        CachedPage stored = pageCache.get(url);
+        if (stored != null && ((useFreshPage && pageCache.isFresh(stored, source)) || pageCache.isReplay())) {
+            log.debug("Listing served from page cache: {}", url);
+            return extract(url, source, stored.openBody(), stored.charset());
         }
-
-        // Fallback: extract from text patterns
-        String text = doc.text();
-        // This is a simplified approach
-        return null;
-    }
-
-    /**
-     * Extract vehicle model from common HTML selectors
-     */
-    private String extractModel(Document doc) {
-        String[] selectors = {
-                ".model", "[data-model]", ".vehicle-model", ".vehicle_model",
-                "span.model", "div.model", "[id*='model']"
-        };
-
-        for (String selector : selectors) {
-            Element element = doc.selectFirst(selector);
-            if (element != null && !element.text().isEmpty()) {
-                return element.text().trim();
-            }
+        if (pageCache.isReplay()) {
+            throw pageCache.notRecorded(url);
         }
 
-        return null;
-    }
-
-    /**
-     * Extract vehicle year from common HTML selectors
-     */
-    private String extractYear(Document doc) {
-        String[] selectors = {
-                ".year", "[data-year]", ".vehicle-year", ".vehicle_year",
-                "span.year", "div.year", "[id*='year']"
-        };
-
-        for (String selector : selectors) {
-            Element element = doc.selectFirst(selector);
-            if (element != null && !element.text().isEmpty()) {
-                String year = element.text().trim();
-                // Extract 4-digit year
-                java.util.regex.Pattern pattern = java.util.regex.Pattern.compile("\\d{4}");
-                java.util.regex.Matcher matcher = pattern.matcher(year);
-                if (matcher.find()) {
-                    return matcher.group();
-                }
+        CachedListing cached = cachedListing(url);
+        FetchedPage page;
+        if (cached != null) {
+            page = pageFetcher.fetch(url, cached.etag(), cached.lastModified());
+        } else if (stored != null) {
+            page = pageFetcher.fetch(url, stored.etag(), stored.lastModified());
+        } else {
+            page = pageFetcher.fetch(url, null, null);
+        }
+        if (page.notModified()) {
+            pageCache.revalidated(url, page);
+            if (cached != null) {
+                log.debug("Listing not modified: {}", url);
+                return new HashMap<>(cached.fields());
+            }
+            if (stored != null) {
+                log.debug("Listing not modified, parsing the stored page: {}", url);
+                return extract(url, source, stored.openBody(), stored.charset());
             }
+            // 304 to an unconditional request; evicted meanwhile, so fetch it in full
+            page = pageFetcher.fetch(url, null, null);
         }
 
-        return null;
+        pageCache.put(url, page);
+        Map<String, String> fields = extract(url, source, new ByteArrayInputStream(page.body()), page.charset());
+        if (page.hasValidators()) {
+            cacheListing(url, new CachedListing(page.etag(), page.lastModified(),
+                    Collections.unmodifiableMap(new HashMap<>(fields))));
+        }
+        return fields;
     }
 
-    /**
-     * Extract vehicle mileage from common HTML selectors
-     */
-    private String extractMileage(Document doc) {
-        String[] selectors = {
-                ".mileage", "[data-mileage]", ".vehicle-mileage", ".km",
-                "span.mileage", "div.mileage", "[id*='mileage']"
-        };
-
-        for (String selector : selectors) {
-            Element element = doc.selectFirst(selector);
-            if (element != null && !element.text().isEmpty()) {
-                String mileageText = element.text().trim();
-                // Extract numbers only
-                return mileageText.replaceAll("[^0-9]", "");
-            }
-        }
+    private Map<String, String> extract(String url, String source, InputStream body, Charset charset)
+            throws IOException {
+        Document doc = Jsoup.parse(body, charset == null ? null : charset.name(), url);
+        return extractors.extract(url, source, doc);
+    }
 
-        return null;
+    private synchronized CachedListing cachedListing(String url) {
+        return listings.get(PageCache.normalize(url));
     }
 
-    /**
-     * Extract listing price from common HTML selectors
-     */
-    private String extractPrice(Document doc) {
-        String[] selectors = {
-                ".price", "[data-price]", ".vehicle-price", ".auction-price",
-                "span.price", "div.price", "[id*='price']"
-        };
-
-        for (String selector : selectors) {
-            Element element = doc.selectFirst(selector);
-            if (element != null && !element.text().isEmpty()) {
-                return element.text().trim();
-            }
+    private synchronized void cacheListing(String url, CachedListing listing) {
+        listings.put(PageCache.normalize(url), listing);
+        if (listings.size() > maxRevalidatedListings) {
+            listings.remove(listings.keySet().iterator().next());
         }
-
-        return null;
     }
 
     /**
-     * Extract vehicle description from common HTML selectors
+     * Extract listing fields from a fetched page based on common HTML patterns
      */
-    private String extractDescription(Document doc) {
-        String[] selectors = {
-                ".description", "[data-description]", ".vehicle-description",
-                "span.description", "div.description", ".details", "p"
-        };
-
-        for (String selector : selectors) {
-            Element element = doc.selectFirst(selector);
-            if (element != null && !element.text().isEmpty()) {
-                return element.text().trim();
-            }
-        }
-
-        return null;
+    Map<String, String> extractListingFields(Document doc) {
+        return SiteExtractor.GENERIC.fields().extract(doc);
     }
 
     /**
@@ -202,4 +161,7 @@ public class WebScrapingService {
 
         return "Unknown";
     }
+
+    private record CachedListing(String etag, String lastModified, Map<String, String> fields) {
+    }
 }
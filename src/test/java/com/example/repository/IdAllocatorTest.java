@@ -0,0 +1,122 @@
+package com.example.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import com.example.entity.Auction;
+import com.example.entity.AuctionPriceChange;
+import com.example.entity.CrawlCheckpoint;
+import com.example.entity.DocumentBlob;
+import com.example.entity.DocumentFinding;
+import com.example.entity.DocumentText;
+import com.example.entity.Report;
+import com.example.entity.Role;
+import com.example.entity.SearchHistory;
+import com.example.entity.User;
+import com.example.entity.Valuation;
+import com.example.entity.Vehicle;
+import com.example.entity.WatchedListing;
+
+/**
+ * {@link IdAllocator} against Hibernate's own pooled table generator, both
+ * drawing from the {@code roles} generator of one in-memory database.
+ */
+class IdAllocatorTest {
+
+    private static final Class<?>[] ENTITIES = { Auction.class, AuctionPriceChange.class, CrawlCheckpoint.class,
+            DocumentBlob.class, DocumentFinding.class, DocumentText.class, Report.class, Role.class,
+            SearchHistory.class, User.class, Valuation.class, Vehicle.class, WatchedListing.class };
+
+    private SessionFactory sessionFactory;
+    private JdbcTemplate jdbcTemplate;
+    private IdAllocator idAllocator;
+    private int names;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;NON_KEYWORDS=YEAR,VALUE;DB_CLOSE_DELAY=-1");
+        Configuration configuration = new Configuration()
+                .setProperty(AvailableSettings.HBM2DDL_AUTO, "create")
+                .setProperty("hibernate.id.generator.stored_last_used", "true");
+        configuration.getProperties().put(AvailableSettings.JAKARTA_NON_JTA_DATASOURCE, dataSource);
+        for (Class<?> entity : ENTITIES) {
+            configuration.addAnnotatedClass(entity);
+        }
+        sessionFactory = configuration.buildSessionFactory();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        idAllocator = new IdAllocator(jdbcTemplate, new DataSourceTransactionManager(dataSource));
+    }
+
+    @AfterEach
+    void tearDown() {
+        sessionFactory.close();
+    }
+
+    private List<Integer> persistRoles(int count) {
+        return sessionFactory.fromTransaction(session -> {
+            List<Role> roles = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                Role role = new Role(null, "jpa-" + names++);
+                session.persist(role);
+                roles.add(role);
+            }
+            return roles.stream().map(Role::getRoleId).toList();
+        });
+    }
+
+    private List<Long> insertRoles(int count) {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            rows.add(new Object[] { "jdbc-" + names++ });
+        }
+        List<Object[]> numbered = idAllocator.withIds("roles", rows);
+        jdbcTemplate.batchUpdate("INSERT INTO roles (role_id, role_name) VALUES (?, ?)", numbered);
+        return numbered.stream().map(row -> (Long) row[0]).toList();
+    }
+
+    @Test
+    void continuesAfterTheLargestExistingId() {
+        jdbcTemplate.update("INSERT INTO roles (role_id, role_name) VALUES (120, 'legacy')");
+
+        idAllocator.afterPropertiesSet();
+        idAllocator.afterPropertiesSet();
+
+        assertEquals(List.of(121, 122), persistRoles(2));
+        // Hibernate holds 121..170; the allocator's block comes next
+        assertEquals(List.of(171L, 172L), insertRoles(2));
+        assertEquals(List.of(123), persistRoles(1));
+    }
+
+    @Test
+    void alternatingClaimsNeverShareAnId() {
+        idAllocator.afterPropertiesSet();
+
+        for (int round = 0; round < 4; round++) {
+            // Each side both uses the block it holds and claims new ones
+            persistRoles(60);
+            insertRoles(30);
+            insertRoles(70);
+            jdbcTemplate.update("INSERT INTO roles (role_id, role_name) VALUES (?, ?)",
+                    idAllocator.nextId("roles"), "single-" + names++);
+        }
+
+        Integer rows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM roles", Integer.class);
+        Integer ids = jdbcTemplate.queryForObject("SELECT COUNT(DISTINCT role_id) FROM roles", Integer.class);
+        assertEquals(4 * 161, rows);
+        assertEquals(rows, ids);
+    }
+}
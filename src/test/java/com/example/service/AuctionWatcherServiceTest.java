@@ -0,0 +1,196 @@
+package com.example.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.jsoup.HttpStatusException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.Pageable;
+
+import com.example.entity.WatchedListing;
+import com.example.repository.WatchedListingRepository;
+
+class AuctionWatcherServiceTest {
+
+    private static final String URL = "https://www.copart.com/lot/123";
+    private static final Instant NOW = Instant.parse("2024-06-01T10:00:00Z");
+
+    private final WebScrapingService webScrapingService = mock(WebScrapingService.class);
+    private final VehicleManagementService vehicleManagementService = mock(VehicleManagementService.class);
+    private final WatchedListingRepository repository = mock(WatchedListingRepository.class);
+    private final AuctionWatcherService watcher = new AuctionWatcherService(webScrapingService,
+            vehicleManagementService, repository, 2, Duration.ofMinutes(1), Duration.ofHours(6), 0, 3,
+            Duration.ofMinutes(10), Duration.ofMinutes(10), Clock.fixed(NOW, ZoneOffset.UTC));
+
+    @AfterEach
+    void stopWorkers() {
+        watcher.destroy();
+    }
+
+    private static LocalDateTime now() {
+        return LocalDateTime.ofInstant(NOW, ZoneOffset.UTC);
+    }
+
+    private static WatchedListing watched(LocalDateTime closesAt) {
+        WatchedListing watched = new WatchedListing();
+        watched.setVehicleUrl(URL);
+        watched.setSource("Copart");
+        watched.setClosesAt(closesAt);
+        watched.setActive(true);
+        return watched;
+    }
+
+    private static Map<String, String> fields(String price) {
+        Map<String, String> fields = new HashMap<>();
+        fields.put("make", "Toyota");
+        fields.put("model", "Corolla");
+        fields.put("price", price);
+        fields.put("description", null);
+        return fields;
+    }
+
+    @Test
+    void checksMoreOftenAsTheCloseNears() {
+        assertEquals(Duration.ofHours(6), watcher.interval(now(), null));
+        assertEquals(Duration.ofHours(6), watcher.interval(now(), now().plusDays(7)));
+        assertEquals(Duration.ofHours(1), watcher.interval(now(), now().plusHours(8)));
+        assertEquals(Duration.ofMinutes(5), watcher.interval(now(), now().plusMinutes(40)));
+        assertEquals(Duration.ofMinutes(1), watcher.interval(now(), now().plusMinutes(4)));
+        // Past the close, one more check after the grace period
+        assertEquals(Duration.ofMinutes(10), watcher.interval(now(), now().minusMinutes(1)));
+    }
+
+    @Test
+    void recordsASnapshotOnlyWhenTheFieldsChange() throws IOException {
+        when(webScrapingService.fetchListing(URL, false))
+                .thenReturn(fields("R 100 000"), fields("R 100 000"), fields("R 95 000"));
+        WatchedListing watched = watched(now().plusHours(8));
+
+        watcher.check(watched);
+        String firstHash = watched.getFieldsHash();
+        watcher.check(watched);
+        assertEquals(firstHash, watched.getFieldsHash());
+        watcher.check(watched);
+        assertNotEquals(firstHash, watched.getFieldsHash());
+
+        verify(vehicleManagementService, times(2)).saveAuctionSnapshot(any(), eq(URL));
+        assertEquals(now().plusHours(1), watched.getNextCheckAt());
+        assertTrue(watched.isActive());
+    }
+
+    @Test
+    void retiresAListingOnceCheckedAfterItsClose() throws IOException {
+        when(webScrapingService.fetchListing(URL, false)).thenReturn(fields("R 120 000"));
+        WatchedListing watched = watched(now().minusMinutes(15));
+
+        watcher.check(watched);
+
+        assertFalse(watched.isActive());
+        verify(vehicleManagementService).saveAuctionSnapshot(any(), eq(URL));
+    }
+
+    @Test
+    void writesBackTheCheckWithoutOverwritingTheRow() throws IOException {
+        when(webScrapingService.fetchListing(URL, false)).thenReturn(fields("R 120 000"));
+        WatchedListing watched = watched(now().minusMinutes(15));
+        watched.setWatchId(7);
+
+        watcher.check(watched);
+
+        // Guarded by active = true, so an unwatch made meanwhile stays
+        verify(repository).recordCheck(eq(7), eq(watched.getFieldsHash()), eq(now()), eq(now()), eq(0),
+                eq(null), any(), eq(false));
+        verify(repository, never()).save(any());
+    }
+
+    @Test
+    void leasesClaimedListingsWithoutSavingThem() throws Exception {
+        CountDownLatch checked = new CountDownLatch(2);
+        when(webScrapingService.fetchListing(anyString(), eq(false))).thenReturn(fields("R 1"));
+        when(repository.recordCheck(any(), any(), any(), any(), anyInt(), any(), any(), anyBoolean()))
+                .thenAnswer(invocation -> {
+                    checked.countDown();
+                    return 1;
+                });
+        WatchedListing first = watched(null);
+        first.setWatchId(1);
+        WatchedListing second = watched(null);
+        second.setWatchId(2);
+        when(repository.findByActiveTrueAndNextCheckAtLessThanEqualOrderByNextCheckAt(any(), any()))
+                .thenReturn(List.of(first, second));
+
+        watcher.poll();
+
+        assertTrue(checked.await(5, TimeUnit.SECONDS));
+        verify(repository).lease(List.of(1, 2), now().plusMinutes(10));
+        verify(repository, never()).saveAll(any());
+    }
+
+    @Test
+    void backsOffOnFailuresAndRetiresGoneListings() throws IOException {
+        when(webScrapingService.fetchListing(URL, false))
+                .thenThrow(new IOException("reset"))
+                .thenThrow(new HttpStatusException("HTTP error fetching URL", 404, URL));
+        WatchedListing watched = watched(null);
+
+        watcher.check(watched);
+        assertTrue(watched.isActive());
+        assertEquals(1, watched.getConsecutiveFailures());
+        assertEquals(now().plusMinutes(2), watched.getNextCheckAt());
+        assertEquals("IOException: reset", watched.getLastError());
+
+        watcher.check(watched);
+        assertFalse(watched.isActive());
+        verify(vehicleManagementService, never()).saveAuctionSnapshot(any(), anyString());
+    }
+
+    @Test
+    void claimsNoMoreListingsThanThereAreFreeWorkers() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(2);
+        when(webScrapingService.fetchListing(anyString(), eq(false))).thenAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return fields("R 1");
+        });
+        when(repository.findByActiveTrueAndNextCheckAtLessThanEqualOrderByNextCheckAt(any(), any()))
+                .thenReturn(List.of(watched(null), watched(null)));
+
+        watcher.poll();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        // Both workers busy: the next poll does not even look for due listings
+        watcher.poll();
+        release.countDown();
+
+        ArgumentCaptor<Pageable> page = ArgumentCaptor.forClass(Pageable.class);
+        verify(repository, times(1)).findByActiveTrueAndNextCheckAtLessThanEqualOrderByNextCheckAt(eq(now()),
+                page.capture());
+        assertEquals(2, page.getValue().getPageSize());
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.service;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class BloomFilterTest {
+
+    @Test
+    void neverMissesAnAddedUrlAndRarelyClaimsAnother() {
+        BloomFilter filter = new BloomFilter(50_000, 0.01);
+        for (int i = 0; i < 50_000; i++) {
+            filter.add("https://www.copart.com/lot/" + i);
+        }
+        for (int i = 0; i < 50_000; i++) {
+            assertTrue(filter.mightContain("https://www.copart.com/lot/" + i));
+        }
+        int falsePositives = 0;
+        for (int i = 50_000; i < 150_000; i++) {
+            if (filter.mightContain("https://www.copart.com/lot/" + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 2_000, "false positives: " + falsePositives);
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.example.entity.Auction;
+import com.example.service.BulkScrapingService.ScrapeOutcome;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+class BulkScrapingServiceTest {
+
+    private static final String LISTING = "<html><body><span class=\"make\">Toyota</span>"
+            + "<span class=\"model\">Corolla</span><span class=\"year\">2019</span>"
+            + "<span class=\"mileage\">87 412 km</span><span class=\"price\">R 279 900</span></body></html>";
+
+    private HttpServer server;
+    private String baseUrl;
+    private final Map<String, AtomicInteger> hits = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private VehicleManagementService vehicleManagementService;
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final PageFetcher pageFetcher = new PageFetcher(50, 8, 5_000);
+    private final AtomicInteger nextAuctionId = new AtomicInteger(1);
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+
+        vehicleManagementService = mock(VehicleManagementService.class);
+        when(vehicleManagementService.saveAuctionSnapshot(any(), anyString())).thenAnswer(invocation -> {
+            Auction auction = new Auction();
+            auction.setAuctionId(nextAuctionId.getAndIncrement());
+            return auction;
+        });
+    }
+
+    @AfterEach
+    void stopServer() {
+        pageFetcher.destroy();
+        server.stop(0);
+    }
+
+    /**
+     * {@code /ok/*} serves a listing after a short delay, {@code /flaky/*}
+     * answers 503 twice before succeeding and {@code /missing/*} is a 404.
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        int hit = hits.computeIfAbsent(path, p -> new AtomicInteger()).incrementAndGet();
+        int concurrent = inFlight.incrementAndGet();
+        maxInFlight.accumulateAndGet(concurrent, Math::max);
+        try {
+            Thread.sleep(30);
+            if (path.startsWith("/missing/")) {
+                respond(exchange, 404, "not found");
+            } else if (path.startsWith("/flaky/") && hit <= 2) {
+                respond(exchange, 503, "busy");
+            } else {
+                respond(exchange, 200, LISTING);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/html; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private BulkScrapingService service(int maxPerHost, double ratePerSecond, int burst, int batchSize) {
+        WebScrapingService webScrapingService = new WebScrapingService(pageFetcher,
+                PageCacheTest.disabled(), new ListingExtractorRegistry(100), 100);
+        return new BulkScrapingService(webScrapingService, vehicleManagementService, transactionManager,
+                maxPerHost, ratePerSecond, burst, "", 3, 10, 50, batchSize, 200);
+    }
+
+    @Test
+    void scrapesEveryUrlAndSavesInBatches() {
+        List<String> urls = IntStream.range(0, 7).mapToObj(i -> baseUrl + "/ok/" + i).toList();
+        List<ScrapeOutcome> outcomes = new ArrayList<>();
+
+        service(4, 1000, 100, 3).scrapeAll(urls, outcomes::add);
+
+        assertEquals(7, outcomes.size());
+        for (ScrapeOutcome outcome : outcomes) {
+            assertTrue(outcome.isSuccess(), outcome.error());
+            assertEquals("Toyota", outcome.fields().get("make"));
+            assertEquals("87412", outcome.fields().get("mileage"));
+            assertEquals("Unknown", outcome.fields().get("source"));
+            assertNotNull(outcome.auctionId());
+            assertEquals(1, outcome.attempts());
+        }
+        assertEquals(urls.stream().sorted().toList(), outcomes.stream().map(ScrapeOutcome::url).sorted().toList());
+        verify(vehicleManagementService, times(7)).saveAuctionSnapshot(any(), anyString());
+        // At most 3 per transaction
+        verify(transactionManager, atLeast(3)).getTransaction(any());
+    }
+
+    @Test
+    void retriesServerErrorsButNotMissingPages() {
+        List<String> urls = List.of(baseUrl + "/flaky/a", baseUrl + "/missing/b");
+        Map<String, ScrapeOutcome> outcomes = new ConcurrentHashMap<>();
+
+        service(4, 1000, 100, 10).scrapeAll(urls, outcome -> outcomes.put(outcome.url(), outcome));
+
+        ScrapeOutcome flaky = outcomes.get(baseUrl + "/flaky/a");
+        assertTrue(flaky.isSuccess(), flaky.error());
+        assertEquals(3, flaky.attempts());
+
+        ScrapeOutcome missing = outcomes.get(baseUrl + "/missing/b");
+        assertFalse(missing.isSuccess());
+        assertEquals("HTTP 404", missing.error());
+        assertEquals(1, missing.attempts());
+        assertNull(missing.auctionId());
+        assertEquals(1, hits.get("/missing/b").get());
+    }
+
+    @Test
+    void limitsConcurrencyPerHostAndRatePerSource() {
+        List<String> urls = IntStream.range(0, 12).mapToObj(i -> baseUrl + "/ok/" + i).toList();
+        List<ScrapeOutcome> outcomes = new ArrayList<>();
+
+        long start = System.nanoTime();
+        // 2 at a time, 2 requests up front then 20 per second
+        service(2, 20, 2, 50).scrapeAll(urls, outcomes::add);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(12, outcomes.size());
+        assertTrue(maxInFlight.get() <= 2, "max in flight " + maxInFlight.get());
+        // 10 requests beyond the burst at 20 per second take at least 500 ms
+        assertTrue(elapsedMillis >= 450, "finished in " + elapsedMillis + " ms");
+    }
+
+    @Test
+    void badUrlsFailWithoutAFetch() {
+        List<ScrapeOutcome> outcomes = new ArrayList<>();
+
+        service(4, 1000, 100, 10).scrapeAll(List.of("not a url", baseUrl + "/ok/1"), outcomes::add);
+
+        Map<Boolean, Long> bySuccess = outcomes.stream()
+                .collect(Collectors.groupingBy(ScrapeOutcome::isSuccess, Collectors.counting()));
+        assertEquals(Map.of(true, 1L, false, 1L), bySuccess);
+        assertEquals(1, hits.size());
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.example.entity.DocumentText;
+import com.example.entity.Report;
+import com.example.repository.DocumentFindingRepository;
+import com.example.repository.DocumentTextRepository;
+import com.example.repository.ReportRepository;
+
+class DocumentProcessingServiceTest {
+
+    private final ReportRepository repository = mock(ReportRepository.class);
+    private final PdfTextExtractor extractor = mock(PdfTextExtractor.class);
+    private final SearchService search = mock(SearchService.class);
+    private final DocumentTextRepository textRepository = mock(DocumentTextRepository.class);
+    private final Map<Integer, Report> reports = new ConcurrentHashMap<>();
+    private final Map<String, DocumentText> texts = new ConcurrentHashMap<>();
+    private DocumentProcessingService service;
+
+    @BeforeEach
+    void setUp() {
+        when(repository.findById(any())).thenAnswer(invocation -> Optional.ofNullable(
+                reports.get(invocation.getArgument(0))).map(DocumentProcessingServiceTest::copy));
+        when(repository.save(any())).thenAnswer(invocation -> {
+            Report report = copy(invocation.getArgument(0));
+            reports.put(report.getReportId(), report);
+            return copy(report);
+        });
+        when(repository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Report> saved = invocation.getArgument(0);
+            saved.forEach(report -> reports.put(report.getReportId(), copy(report)));
+            return saved;
+        });
+        when(repository.findByStatusOrderByReportId(anyString(), any(Pageable.class))).thenAnswer(invocation ->
+                reports.values().stream()
+                        .filter(report -> invocation.getArgument(0).equals(report.getStatus()))
+                        .map(DocumentProcessingServiceTest::copy)
+                        .limit(((Pageable) invocation.getArgument(1)).isPaged()
+                                ? ((Pageable) invocation.getArgument(1)).getPageSize() : Long.MAX_VALUE)
+                        .toList());
+        when(textRepository.findSummaryByContentHash(anyString())).thenAnswer(invocation ->
+                Optional.ofNullable(texts.get(invocation.getArgument(0))).map(DocumentTextCacheTest::summary));
+        when(textRepository.existsById(anyString())).thenAnswer(invocation ->
+                texts.containsKey(invocation.getArgument(0)));
+        when(textRepository.save(any())).thenAnswer(invocation -> {
+            DocumentText text = invocation.getArgument(0);
+            texts.put(text.getContentHash(), text);
+            return text;
+        });
+        service = new DocumentProcessingService(repository, extractor,
+                new DocumentTextCache(textRepository,
+                        mock(DocumentFindingRepository.class), new ReportAnalyzer(),
+                        mock(PlatformTransactionManager.class), 100), search, 1, 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.destroy();
+    }
+
+    private static Report copy(Report report) {
+        return new Report(report.getReportId(), report.getVehicle(), report.getFilePath(), report.getFileName(),
+                report.getContentHash(), report.getFileType(), report.getTextLength(), report.getVin(),
+                report.getMileage(), report.getAccidentIndicators(), report.getRoadworthyPass(),
+                report.getKeywordHits(), report.getJobId(), report.getStatus(), report.getError(),
+                report.getProcessedAt(), report.getUploadedAt());
+    }
+
+    private Report pending(int id) {
+        Report report = new Report();
+        report.setReportId(id);
+        report.setFilePath("uploads/report-" + id + ".pdf");
+        report.setFileType("pdf");
+        report.setJobId("job-" + id);
+        report.setContentHash("hash-" + id);
+        report.setStatus(Report.PENDING);
+        reports.put(id, report);
+        return copy(report);
+    }
+
+    private void awaitStatus(int id, String status) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!status.equals(reports.get(id).getStatus()) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(status, reports.get(id).getStatus());
+    }
+
+    @Test
+    void fillsInTheFieldsOrTheErrorInTheBackground() throws Exception {
+        when(extractor.extractText(Path.of("uploads/report-1.pdf"))).thenReturn("Roadworthy: PASS");
+        when(extractor.extractText(Path.of("uploads/report-2.pdf"))).thenThrow(new IOException("Not a PDF"));
+
+        assertTrue(service.enqueue(pending(1)));
+        awaitStatus(1, Report.DONE);
+        assertTrue(service.enqueue(pending(2)));
+        awaitStatus(2, Report.FAILED);
+
+        assertTrue(reports.get(1).getRoadworthyPass());
+        assertEquals("Roadworthy: PASS".length(), reports.get(1).getTextLength());
+        assertEquals("IOException: Not a PDF", reports.get(2).getError());
+        verify(search, timeout(5000)).indexReport(any(), eq("Roadworthy: PASS"));
+        assertTrue(reports.get(2).getProcessedAt() != null);
+    }
+
+    @Test
+    void parsesEachDocumentOnce() throws Exception {
+        when(extractor.extractText(any())).thenReturn("VIN AHTFR22G906012345");
+        Report first = pending(1);
+        Report second = pending(2);
+        reports.get(2).setContentHash("hash-1");
+
+        service.enqueue(first);
+        awaitStatus(1, Report.DONE);
+        service.enqueue(second);
+        awaitStatus(2, Report.DONE);
+
+        assertEquals("AHTFR22G906012345", reports.get(2).getVin());
+        verify(extractor, times(1)).extractText(any());
+    }
+
+    @Test
+    void reportsThatDoNotFitTheQueueWaitForTheSweep() throws Exception {
+        CountDownLatch parsing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(extractor.extractText(any())).thenAnswer(invocation -> {
+            parsing.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return "text";
+        });
+
+        assertTrue(service.enqueue(pending(1)));
+        assertTrue(parsing.await(5, TimeUnit.SECONDS));
+        // One worker busy and the one queue slot taken: the third is turned away
+        assertTrue(service.enqueue(pending(2)));
+        assertFalse(service.enqueue(pending(3)));
+        assertEquals(Report.PENDING, reports.get(3).getStatus());
+
+        release.countDown();
+        awaitStatus(2, Report.DONE);
+        service.sweep();
+        awaitStatus(3, Report.DONE);
+    }
+
+    @Test
+    void requeuesReportsInterruptedByARestart() throws Exception {
+        when(extractor.extractText(any())).thenReturn("text");
+        pending(1);
+        reports.get(1).setStatus(Report.PROCESSING);
+
+        service.recover();
+
+        awaitStatus(1, Report.DONE);
+    }
+}
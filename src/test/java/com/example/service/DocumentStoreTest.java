@@ -0,0 +1,111 @@
+package com.example.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+
+import com.example.repository.DocumentBlobRepository;
+import com.example.service.DocumentStore.StoredDocument;
+
+class DocumentStoreTest {
+
+    @TempDir
+    Path uploadDir;
+
+    private final DocumentBlobRepository repository = mock(DocumentBlobRepository.class);
+    // content hash -> reference count, standing in for document_blobs
+    private final Map<String, Integer> refCounts = new ConcurrentHashMap<>();
+    private DocumentStore store;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        when(repository.addReference(anyString())).thenAnswer(invocation ->
+                refCounts.computeIfPresent(invocation.getArgument(0), (hash, count) -> count + 1) == null ? 0 : 1);
+        when(repository.insertReferenced(anyString(), anyLong())).thenAnswer(invocation -> {
+            if (refCounts.putIfAbsent(invocation.getArgument(0), 1) != null) {
+                throw new IllegalStateException("Duplicate key");
+            }
+            return 1;
+        });
+        when(repository.removeReference(anyString())).thenAnswer(invocation ->
+                refCounts.computeIfPresent(invocation.getArgument(0), (hash, count) -> Math.max(0, count - 1))
+                        == null ? 0 : 1);
+        when(repository.deleteUnreferenced(anyString())).thenAnswer(invocation ->
+                refCounts.remove(invocation.getArgument(0), 0) ? 1 : 0);
+        store = new DocumentStore(uploadDir, repository);
+    }
+
+    private static MockMultipartFile upload(String name, byte[] content) {
+        return new MockMultipartFile("files", name, "application/pdf", content);
+    }
+
+    @Test
+    void streamsUploadsToBlobsNamedByTheirHash() throws Exception {
+        byte[] content = new byte[3 * 1024 * 1024 + 17];
+        new Random(7).nextBytes(content);
+
+        StoredDocument stored = store.store(upload("inspection.pdf", content));
+
+        String expected = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        assertEquals(expected, stored.hash());
+        assertEquals(content.length, stored.size());
+        assertEquals(uploadDir.resolve("blobs").resolve(expected.substring(0, 2)).resolve(expected), stored.path());
+        assertArrayEquals(content, Files.readAllBytes(stored.path()));
+        assertFalse(stored.duplicate());
+        try (var temp = Files.list(uploadDir.resolve("tmp"))) {
+            assertEquals(0, temp.count());
+        }
+    }
+
+    @Test
+    void storesIdenticalContentOnceWhateverItIsCalled() throws Exception {
+        byte[] report = "%PDF-1.4 roadworthy certificate".getBytes(StandardCharsets.UTF_8);
+
+        StoredDocument first = store.store(upload("report.pdf", report));
+        StoredDocument second = store.store(upload("dealer-copy.pdf", report));
+        StoredDocument other = store.store(upload("report.pdf", "%PDF-1.4 other".getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(first.path(), second.path());
+        assertTrue(second.duplicate());
+        assertNotEquals(first.path(), other.path());
+        assertFalse(other.duplicate());
+        assertEquals(2, refCounts.get(first.hash()));
+    }
+
+    @Test
+    void deletesTheBlobWithItsLastReference() throws Exception {
+        byte[] report = "%PDF-1.4 inspection".getBytes(StandardCharsets.UTF_8);
+        StoredDocument stored = store.store(upload("a.pdf", report));
+        store.store(upload("b.pdf", report));
+
+        store.release(stored.hash());
+        assertTrue(Files.exists(stored.path()));
+        store.release(stored.hash());
+        assertFalse(Files.exists(stored.path()));
+
+        // Stored again from scratch afterwards
+        assertFalse(store.store(upload("c.pdf", report)).duplicate());
+        assertTrue(Files.exists(stored.path()));
+    }
+}
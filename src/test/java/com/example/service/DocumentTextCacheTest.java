@@ -0,0 +1,173 @@
+package com.example.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.example.entity.DocumentFinding;
+import com.example.entity.DocumentText;
+import com.example.entity.Report;
+import com.example.repository.DocumentFindingRepository;
+import com.example.repository.DocumentTextRepository;
+import com.example.repository.DocumentTextRepository.DocumentTextSummary;
+import com.example.service.DocumentTextCache.CachedText;
+import com.example.service.ReportAnalyzer.Finding;
+
+class DocumentTextCacheTest {
+
+    private static final String REPORT = "Roadworthy certificate: PASS\nVIN: AHTFR22G906012345\n"
+            + "Odometer: 84,500 km\nMinor collision damage to the rear bumper\n"
+            + "Service history: ".repeat(200);
+
+    private final DocumentTextRepository repository = mock(DocumentTextRepository.class);
+    private final DocumentFindingRepository findingRepository = mock(DocumentFindingRepository.class);
+    private final Map<String, DocumentText> stored = new HashMap<>();
+    private final List<DocumentFinding> storedFindings = new ArrayList<>();
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final DocumentTextCache cache = new DocumentTextCache(repository, findingRepository,
+            new ReportAnalyzer(), transactionManager, 4);
+
+    /** A summary projection of a stored text, as the repository returns it. */
+    static DocumentTextSummary summary(DocumentText text) {
+        return new DocumentTextSummary() {
+            public String getContentHash() {
+                return text.getContentHash();
+            }
+
+            public Integer getTextLength() {
+                return text.getTextLength();
+            }
+
+            public String getVin() {
+                return text.getVin();
+            }
+
+            public Integer getMileage() {
+                return text.getMileage();
+            }
+
+            public boolean isAccidentIndicators() {
+                return text.isAccidentIndicators();
+            }
+
+            public boolean isRoadworthyPass() {
+                return text.isRoadworthyPass();
+            }
+
+            public Integer getKeywordHits() {
+                return text.getKeywordHits();
+            }
+        };
+    }
+
+    @BeforeEach
+    void setUp() {
+        when(repository.findSummaryByContentHash(anyString())).thenAnswer(invocation ->
+                Optional.ofNullable(stored.get(invocation.getArgument(0))).map(DocumentTextCacheTest::summary));
+        when(repository.findById(anyString())).thenAnswer(invocation ->
+                Optional.ofNullable(stored.get(invocation.getArgument(0))));
+        when(repository.existsById(anyString())).thenAnswer(invocation ->
+                stored.containsKey(invocation.getArgument(0)));
+        when(repository.save(any())).thenAnswer(invocation -> {
+            DocumentText text = invocation.getArgument(0);
+            stored.put(text.getContentHash(), text);
+            return text;
+        });
+        when(findingRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<DocumentFinding> findings = invocation.getArgument(0);
+            storedFindings.addAll(findings);
+            return findings;
+        });
+        when(findingRepository.findByContentHashOrderByStartOffset(anyString())).thenAnswer(invocation ->
+                storedFindings.stream().filter(finding -> finding.getContentHash().equals(invocation.getArgument(0)))
+                        .sorted(Comparator.comparingInt(DocumentFinding::getStartOffset)).toList());
+    }
+
+    @Test
+    void parsesTheFieldsOnceAndKeepsTheTextCompressed() {
+        CachedText cached = cache.put("a", REPORT);
+
+        assertEquals("AHTFR22G906012345", cached.vin());
+        assertEquals(84_500, cached.mileage());
+        assertTrue(cached.accidentIndicators());
+        assertTrue(cached.roadworthyPass());
+        assertEquals(cached, cache.get("a").orElseThrow());
+        assertEquals("AHTFR22G906012345", stored.get("a").getVin());
+
+        assertTrue(stored.get("a").getCompressedText().length < REPORT.length() / 4);
+        assertEquals(REPORT, cache.text("a").orElseThrow());
+
+        Report report = new Report();
+        cached.applyTo(report);
+        assertEquals(REPORT.length(), report.getTextLength());
+        assertEquals(84_500, report.getMileage());
+    }
+
+    @Test
+    void keepsTextThatIsNotAsciiIntactAcrossCompressionBuffers() {
+        // A surrogate pair split by the 8K chunking, and a multi-byte char on every line
+        String text = "x".repeat(8 * 1024 - 1) + "\uD83D\uDE97 " + "Überprüfung Fahrgestell\n".repeat(2_000);
+
+        cache.put("a", text);
+
+        assertEquals(text, cache.text("a").orElseThrow());
+    }
+
+    @Test
+    void rollsTheTextBackWhenItsFindingsFail() {
+        when(findingRepository.saveAll(anyList())).thenThrow(new QueryTimeoutException("lock wait timeout"));
+
+        assertThrows(QueryTimeoutException.class, () -> cache.put("a", REPORT));
+
+        verify(repository).save(any());
+        verify(transactionManager).rollback(any());
+        verify(transactionManager, never()).commit(any());
+    }
+
+    @Test
+    void storesFindingsWithOffsets() {
+        cache.put("a", REPORT);
+
+        List<Finding> findings = cache.findings("a");
+        Finding vin = findings.stream().filter(finding -> finding.category().equals(ReportAnalyzer.VIN))
+                .findFirst().orElseThrow();
+        assertEquals("AHTFR22G906012345", REPORT.substring(vin.start(), vin.end()));
+        assertTrue(findings.stream().anyMatch(finding -> finding.text().equals("collision")));
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedAndFallsBackToTheTableWithoutReadingTheText() {
+        for (String hash : new String[] { "a", "b", "c", "d" }) {
+            cache.put(hash, REPORT);
+        }
+        cache.get("a");
+        cache.put("e", REPORT);
+
+        assertEquals(4L, cache.stats().get("entries"));
+        // "b" was least recently used: gone from memory, still in the table
+        assertEquals(84_500, cache.get("b").orElseThrow().mileage());
+        assertEquals(1L, cache.stats().get("storedHits"));
+        assertFalse(cache.get("missing").isPresent());
+        verify(repository, never()).findById(anyString());
+    }
+}
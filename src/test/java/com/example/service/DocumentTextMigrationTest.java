@@ -0,0 +1,85 @@
+package com.example.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import com.example.repository.IdAllocator;
+
+class DocumentTextMigrationTest {
+
+    private static final String TEXT = "VIN: AHTFR22G906012345\nOdometer: 123,456\nMinor HAIL damage on roof.";
+
+    private final IdAllocator idAllocator = mock(IdAllocator.class);
+    private final AtomicLong ids = new AtomicLong();
+    private JdbcTemplate jdbcTemplate;
+    private DocumentTextMigration migration;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE reports (report_id INT PRIMARY KEY, content_hash VARCHAR(64), "
+                + "extracted_text LONGTEXT, text_length INT, vin VARCHAR(17), mileage INT, "
+                + "accident_indicators BOOLEAN, roadworthy_pass BOOLEAN, keyword_hits INT)");
+        jdbcTemplate.execute("CREATE TABLE document_texts (content_hash VARCHAR(64) PRIMARY KEY, "
+                + "compressed_text LONGBLOB, text_length INT, vin VARCHAR(17), mileage INT, "
+                + "accident_indicators BOOLEAN, roadworthy_pass BOOLEAN, keyword_hits INT, created_at TIMESTAMP)");
+        jdbcTemplate.execute("CREATE TABLE document_findings (finding_id BIGINT PRIMARY KEY, "
+                + "content_hash VARCHAR(64), category VARCHAR(32), matched_text VARCHAR(100), start_offset INT, "
+                + "end_offset INT)");
+        migration = new DocumentTextMigration(jdbcTemplate, new ReportAnalyzer(), idAllocator,
+                new DataSourceTransactionManager(dataSource));
+    }
+
+    private static List<Object[]> numbered(List<Object[]> rows, AtomicLong ids) {
+        List<Object[]> numbered = new ArrayList<>();
+        for (Object[] row : rows) {
+            Object[] args = new Object[row.length + 1];
+            args[0] = ids.incrementAndGet();
+            System.arraycopy(row, 0, args, 1, row.length);
+            numbered.add(args);
+        }
+        return numbered;
+    }
+
+    private int count(String sql) {
+        return jdbcTemplate.queryForObject(sql, Integer.class);
+    }
+
+    @Test
+    void aBatchThatFailsLeavesNoTextWithoutItsFindings() {
+        for (int id = 1; id <= 3; id++) {
+            jdbcTemplate.update("INSERT INTO reports (report_id, content_hash, extracted_text) VALUES (?, ?, ?)",
+                    id, "hash-" + id, TEXT);
+        }
+        when(idAllocator.withIds(eq("document_findings"), anyList()))
+                .thenThrow(new IllegalStateException("no ids"))
+                .thenAnswer(invocation -> numbered(invocation.getArgument(1), ids));
+
+        assertThrows(IllegalStateException.class, () -> migration.run(null));
+        // The batch rolled back whole: no text stored, every report still to move
+        assertEquals(0, count("SELECT COUNT(*) FROM document_texts"));
+        assertEquals(3, count("SELECT COUNT(*) FROM reports WHERE extracted_text IS NOT NULL"));
+
+        migration.run(null);
+        assertEquals(3, count("SELECT COUNT(*) FROM document_texts"));
+        assertEquals(3, count("SELECT COUNT(DISTINCT content_hash) FROM document_findings"));
+        assertEquals(123456, count("SELECT mileage FROM reports WHERE report_id = 2"));
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import org.jsoup.Jsoup;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import com.example.entity.CrawlCheckpoint;
+import com.example.repository.CrawlCheckpointRepository;
+import com.example.service.BulkScrapingService.ScrapeOutcome;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+class ListingCrawlerServiceTest {
+
+    private HttpServer server;
+    private String baseUrl;
+    private PageFetcher pageFetcher;
+    private final BulkScrapingService bulkScrapingService = mock(BulkScrapingService.class);
+    private final CrawlCheckpointRepository repository = mock(CrawlCheckpointRepository.class);
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final List<List<String>> scraped = new CopyOnWriteArrayList<>();
+    private ListingCrawlerService crawler;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/search", this::handle);
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+        pageFetcher = new PageFetcher(10, 2, 5_000);
+
+        when(repository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class))).thenReturn(1L);
+        // Lot 2 was saved by an earlier run
+        List<Object[]> existing = List.<Object[]>of(new Object[] { 7, baseUrl + "/lot/2#photos" });
+        doReturn(existing).when(jdbcTemplate).query(anyString(), any(RowMapper.class), any(), any());
+        doAnswer(invocation -> {
+            List<String> urls = List.copyOf(invocation.getArgument(0));
+            Consumer<ScrapeOutcome> listener = invocation.getArgument(1);
+            scraped.add(urls);
+            for (String url : urls) {
+                listener.accept(url.endsWith("/lot/5")
+                        ? new ScrapeOutcome(url, "Unknown", null, null, 3, "HTTP 503")
+                        : new ScrapeOutcome(url, "Unknown", Map.of(), 1, 1, null));
+            }
+            return null;
+        }).when(bulkScrapingService).scrapeAll(anyList(), any());
+
+        crawler = new ListingCrawlerService(pageFetcher, new WebScrapingService(null, null, null, 0),
+                bulkScrapingService, repository, new KnownListings(jdbcTemplate, 1000, 0.001), 100, 0, 2, 10);
+    }
+
+    @AfterEach
+    void tearDown() {
+        crawler.destroy();
+        pageFetcher.destroy();
+        server.stop(0);
+    }
+
+    // Three index pages of lots; page 2 repeats a lot from page 1, as listings shift between pages
+    private void handle(HttpExchange exchange) throws IOException {
+        String query = exchange.getRequestURI().getQuery();
+        int page = query == null ? 1 : Integer.parseInt(query.substring("page=".length()));
+        StringBuilder html = new StringBuilder("<html><body><div class=\"results\">");
+        int[][] lots = { { 1, 2, 3 }, { 3, 4, 5 }, { 6 } };
+        for (int lot : lots[page - 1]) {
+            html.append("<a href=\"/lot/").append(lot).append("?utm_source=search\">Lot ").append(lot).append("</a>");
+        }
+        html.append("<a href=\"https://ads.example.net/lot/99\">Sponsored</a></div>");
+        if (page < lots.length) {
+            html.append("<ul class=\"pagination\"><li class=\"next\"><a href=\"/search?page=")
+                    .append(page + 1).append("\">Next</a></li></ul>");
+        }
+        byte[] body = html.append("</body></html>").toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/html; charset=utf-8");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private CrawlCheckpoint checkpoint() {
+        CrawlCheckpoint checkpoint = new CrawlCheckpoint();
+        checkpoint.setCrawlId(1);
+        checkpoint.setSource("Unknown");
+        checkpoint.setStartUrl(baseUrl + "/search");
+        checkpoint.setNextPageUrl(baseUrl + "/search");
+        checkpoint.setStatus(CrawlCheckpoint.RUNNING);
+        return checkpoint;
+    }
+
+    @Test
+    void followsPaginationAndScrapesOnlyNewListings() {
+        CrawlCheckpoint checkpoint = checkpoint();
+
+        crawler.crawl(checkpoint, 10, new AtomicBoolean());
+
+        assertEquals(List.of(
+                List.of(baseUrl + "/lot/1", baseUrl + "/lot/3"),
+                List.of(baseUrl + "/lot/4", baseUrl + "/lot/5"),
+                List.of(baseUrl + "/lot/6")), scraped);
+        assertEquals(CrawlCheckpoint.DONE, checkpoint.getStatus());
+        assertNull(checkpoint.getNextPageUrl());
+        assertEquals(3, checkpoint.getPagesCrawled());
+        assertEquals(7, checkpoint.getListingsFound());
+        assertEquals(2, checkpoint.getListingsSkipped());
+        assertEquals(4, checkpoint.getListingsSaved());
+        assertEquals(1, checkpoint.getListingsFailed());
+    }
+
+    @Test
+    void resumesFromTheCheckpointedPage() {
+        CrawlCheckpoint checkpoint = checkpoint();
+
+        crawler.crawl(checkpoint, 1, new AtomicBoolean());
+        assertEquals(CrawlCheckpoint.STOPPED, checkpoint.getStatus());
+        assertEquals(baseUrl + "/search?page=2", checkpoint.getNextPageUrl());
+
+        crawler.crawl(checkpoint, 10, new AtomicBoolean());
+        assertEquals(CrawlCheckpoint.DONE, checkpoint.getStatus());
+        // Lot 3, saved before the stop, is not scraped again
+        assertEquals(List.of(baseUrl + "/lot/4", baseUrl + "/lot/5"), scraped.get(1));
+        assertEquals(3, checkpoint.getPagesCrawled());
+    }
+
+    @Test
+    void stopsWhenAsked() {
+        CrawlCheckpoint checkpoint = checkpoint();
+
+        crawler.crawl(checkpoint, 10, new AtomicBoolean(true));
+
+        assertEquals(CrawlCheckpoint.STOPPED, checkpoint.getStatus());
+        assertEquals(baseUrl + "/search", checkpoint.getNextPageUrl());
+        assertTrue(scraped.isEmpty());
+    }
+
+    @Test
+    void selectorsOverrideTheSourceRules() {
+        String html = "<a class=\"ad\" href=\"/cars/9\">Car</a><a href=\"/lot/1\">Lot</a>"
+                + "<link rel=\"next\" href=\"/p/2\"><a class=\"more\" href=\"/p/3\">More</a>";
+        ListingCrawlerService.IndexPage page = ListingCrawlerService.parseIndex(
+                Jsoup.parse(html, "https://www.example.com/cars"),
+                new ListingCrawlerService.Rules("a.ad", "a.more"));
+
+        assertEquals(List.of("https://www.example.com/cars/9"), page.listingUrls());
+        assertEquals("https://www.example.com/p/3", page.nextPageUrl());
+        assertFalse(page.listingUrls().contains("https://www.example.com/lot/1"));
+    }
+}
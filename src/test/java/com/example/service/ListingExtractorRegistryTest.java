@@ -0,0 +1,110 @@
+package com.example.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.Map;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.junit.jupiter.api.Test;
+
+class ListingExtractorRegistryTest {
+
+    private final ListingExtractorRegistry registry = new ListingExtractorRegistry(100);
+
+    @Test
+    void readsJsonLdBeforeSelectors() {
+        String html = "<html><head><script type=\"application/ld+json\">"
+                + "{\"@context\":\"https://schema.org\",\"@graph\":[{\"@type\":\"BreadcrumbList\"},"
+                + "{\"@type\":[\"Car\",\"Product\"],\"brand\":{\"@type\":\"Brand\",\"name\":\"Toyota\"},"
+                + "\"model\":\"Corolla\",\"vehicleModelDate\":\"2019\","
+                + "\"mileageFromOdometer\":{\"@type\":\"QuantitativeValue\",\"value\":87412,\"unitCode\":\"KMT\"},"
+                + "\"offers\":{\"@type\":\"Offer\",\"price\":279900,\"priceCurrency\":\"ZAR\"}}]}"
+                + "</script></head><body><span class=\"make\">Wrong</span><p>One owner.</p></body></html>";
+
+        Map<String, String> fields = registry.extract("https://www.cars.co.za/for-sale/1", "Cars.co.za",
+                Jsoup.parse(html));
+
+        assertEquals("Toyota", fields.get("make"));
+        assertEquals("Corolla", fields.get("model"));
+        assertEquals("2019", fields.get("year"));
+        assertEquals("87412", fields.get("mileage"));
+        assertEquals("279900", fields.get("price"));
+        // Not in the JSON-LD, so from the generic selectors
+        assertEquals("One owner.", fields.get("description"));
+    }
+
+    @Test
+    void readsMicrodata() {
+        String html = "<html><body><div itemscope itemtype=\"https://schema.org/Car\">"
+                + "<h1><span itemprop=\"brand\" itemscope itemtype=\"https://schema.org/Brand\">"
+                + "<span itemprop=\"name\">Volkswagen</span></span> <span itemprop=\"model\">Polo</span></h1>"
+                + "<time itemprop=\"productionDate\" datetime=\"2016-03\">March 2016</time>"
+                + "<div itemprop=\"mileageFromOdometer\" itemscope itemtype=\"https://schema.org/QuantitativeValue\">"
+                + "<meta itemprop=\"value\" content=\"164230\">164 230 km</div>"
+                + "<div itemprop=\"offers\" itemscope itemtype=\"https://schema.org/Offer\">"
+                + "<span itemprop=\"price\" content=\"38500.00\">R 38 500</span></div>"
+                + "</div></body></html>";
+
+        Map<String, String> fields = registry.extract("https://www.gumtree.co.za/a-cars/1", "Gumtree",
+                Jsoup.parse(html));
+
+        assertEquals("Volkswagen", fields.get("make"));
+        assertEquals("Polo", fields.get("model"));
+        assertEquals("2016", fields.get("year"));
+        assertEquals("164230", fields.get("mileage"));
+        assertEquals("38500.00", fields.get("price"));
+        assertNull(fields.get("description"));
+    }
+
+    @Test
+    void siteSelectorsComeBeforeGenericOnes() {
+        String html = "<html><body><h1 class=\"title\">2015 TOYOTA COROLLA L</h1>"
+                + "<span class=\"year\">Sale 2024</span>"
+                + "<span data-uname=\"lotdetailOdometervalue\">98,120 mi (ACTUAL)</span></body></html>";
+
+        Map<String, String> copart = registry.extract("https://www.copart.com/lot/1", "Copart", Jsoup.parse(html));
+        Map<String, String> generic = registry.extract("https://example.com/lot/1", "Unknown", Jsoup.parse(html));
+
+        assertEquals("2015", copart.get("year"));
+        assertEquals("98120", copart.get("mileage"));
+        assertEquals("2024", generic.get("year"));
+        assertNull(generic.get("mileage"));
+    }
+
+    @Test
+    void remembersWhereEachFieldWasFoundPerHost() {
+        String first = "<html><body><div class=\"card\"><span class=\"vehicle-make\">Ford</span>"
+                + "<span class=\"vehicle-model\">Ranger</span></div></body></html>";
+        // Same template, and a .make elsewhere that the generic order would prefer
+        String second = "<html><body><div class=\"card\"><span class=\"vehicle-make\">Honda</span>"
+                + "<span class=\"vehicle-model\">Jazz</span></div><span class=\"make\">Sponsored</span></body></html>";
+        // Both moved, so are found again by their remembered selectors
+        String third = "<html><body><div class=\"card\"><b>New</b><span class=\"vehicle-make\">Kia</span>"
+                + "<span class=\"vehicle-model\">Rio</span></div></body></html>";
+
+        assertEquals("Ford", registry.extract("https://dealer.example/1", "Unknown", Jsoup.parse(first))
+                .get("make"));
+
+        Map<String, String> learned = registry.extract("https://dealer.example/2", "Unknown", Jsoup.parse(second));
+        assertEquals("Honda", learned.get("make"));
+        assertEquals("Jazz", learned.get("model"));
+        // Another host has learned nothing yet
+        assertEquals("Sponsored", registry.extract("https://other.example/2", "Unknown", Jsoup.parse(second))
+                .get("make"));
+
+        Map<String, String> moved = registry.extract("https://dealer.example/3", "Unknown", Jsoup.parse(third));
+        assertEquals("Kia", moved.get("make"));
+        assertEquals("Rio", moved.get("model"));
+    }
+
+    @Test
+    void pathsResolveBackToTheirElements() {
+        Document doc = Jsoup.parse("<html><body><p>a</p>text<div><p>b</p><p id=\"c\">c</p></div></body></html>");
+
+        assertEquals(doc.getElementById("c"), ListingExtractorRegistry.resolve(doc,
+                ListingExtractorRegistry.pathOf(doc.getElementById("c"))));
+        assertNull(ListingExtractorRegistry.resolve(doc, new int[] { 0, 1, 9 }));
+    }
+}
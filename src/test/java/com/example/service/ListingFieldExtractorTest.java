@@ -0,0 +1,127 @@
+package com.example.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.junit.jupiter.api.Test;
+
+class ListingFieldExtractorTest {
+
+    private static final String[] TAGS = { "div", "span", "p", "li", "dd", "td" };
+    private static final String[] CLASSES = { "make", "model", "year", "mileage", "price", "description",
+            "vehicle-make", "vehicle_model", "vehicle-year", "km", "auction-price", "details", "card", "" };
+    private static final String[] IDS = { "make-name", "model1", "yearBuilt", "mileage_km", "listing-price", "x" };
+    private static final String[] DATA = { "data-make", "data-model", "data-year", "data-mileage", "data-price",
+            "data-description", "data-id" };
+    private static final String[] TEXTS = { "", " ", "Toyota", "Corolla 1.8", "2019", "Model year 2016",
+            "87 412 km", "R 279 900", "no digits", "12", "Sold as is" };
+
+    private final WebScrapingService service = new WebScrapingService(null, null, null, 0);
+
+    @Test
+    void matchesSelectFirstPerSelectorOnListingPages() {
+        String dealer = "<html><body><h1>2019 Toyota Corolla</h1>"
+                + "<span class=\"vehicle-make\">Toyota</span><span class=\"vehicle-model\">Corolla</span>"
+                + "<span class=\"vehicle-year\">Year: 2019</span><span class=\"vehicle-mileage\">87 412 km</span>"
+                + "<span class=\"price\">R 279 900</span><p>One owner.</p></body></html>";
+        String auction = "<html><body><dl><dd data-make=\"VW\">VW</dd><dd data-model=\"Polo\">Polo</dd>"
+                + "<dd class=\"year\">unknown</dd><dd data-year=\"2016\">2016</dd>"
+                + "<dd class=\"mileage\"></dd><dd data-mileage=\"1\">164,230 km</dd></dl>"
+                + "<div class=\"auction-price\">R 38,500</div><div class=\"details\"><p>Sold as is</p></div>"
+                + "</body></html>";
+        String empty = "<html><body><nav><a href=\"/\">Home</a></nav></body></html>";
+
+        for (String html : new String[] { dealer, auction, empty }) {
+            Document doc = Jsoup.parse(html);
+            assertEquals(legacyExtract(doc), service.extractListingFields(doc), html);
+        }
+
+        Map<String, String> fields = service.extractListingFields(Jsoup.parse(auction));
+        assertEquals("2016", fields.get("year"));
+        // The first .mileage is empty, so [data-mileage] is used
+        assertEquals("164230", fields.get("mileage"));
+    }
+
+    @Test
+    void matchesSelectFirstPerSelectorOnRandomPages() {
+        Random random = new Random(12);
+        for (int i = 0; i < 3_000; i++) {
+            Document doc = Jsoup.parse("<html><body></body></html>");
+            addChildren(doc.body(), random, 3);
+            assertEquals(legacyExtract(doc), service.extractListingFields(doc), doc.body().html());
+        }
+    }
+
+    private static void addChildren(Element parent, Random random, int depth) {
+        int children = random.nextInt(depth == 0 ? 1 : 5);
+        for (int c = 0; c < children; c++) {
+            Element child = parent.appendElement(TAGS[random.nextInt(TAGS.length)]);
+            if (random.nextInt(3) == 0) {
+                child.addClass(CLASSES[random.nextInt(CLASSES.length)]);
+            }
+            if (random.nextInt(6) == 0) {
+                child.id(IDS[random.nextInt(IDS.length)]);
+            }
+            if (random.nextInt(5) == 0) {
+                child.attr(DATA[random.nextInt(DATA.length)], "1");
+            }
+            if (random.nextBoolean()) {
+                child.appendText(TEXTS[random.nextInt(TEXTS.length)]);
+            }
+            if (depth > 0) {
+                addChildren(child, random, depth - 1);
+            }
+        }
+    }
+
+    /**
+     * The extraction as it was: one {@code selectFirst} per selector, per field.
+     */
+    private static Map<String, String> legacyExtract(Document doc) {
+        Map<String, String> fields = new HashMap<>();
+        fields.put("make", firstText(doc, ".make", "[data-make]", ".vehicle-make", ".vehicle_make",
+                "span.make", "div.make", "[id*='make']"));
+        fields.put("model", firstText(doc, ".model", "[data-model]", ".vehicle-model", ".vehicle_model",
+                "span.model", "div.model", "[id*='model']"));
+        fields.put("year", legacyYear(doc));
+        String mileage = firstText(doc, ".mileage", "[data-mileage]", ".vehicle-mileage", ".km",
+                "span.mileage", "div.mileage", "[id*='mileage']");
+        fields.put("mileage", mileage == null ? null : mileage.replaceAll("[^0-9]", ""));
+        fields.put("price", firstText(doc, ".price", "[data-price]", ".vehicle-price", ".auction-price",
+                "span.price", "div.price", "[id*='price']"));
+        fields.put("description", firstText(doc, ".description", "[data-description]", ".vehicle-description",
+                "span.description", "div.description", ".details", "p"));
+        return fields;
+    }
+
+    private static String firstText(Document doc, String... selectors) {
+        for (String selector : selectors) {
+            Element element = doc.selectFirst(selector);
+            if (element != null && !element.text().isEmpty()) {
+                return element.text().trim();
+            }
+        }
+        return null;
+    }
+
+    private static String legacyYear(Document doc) {
+        for (String selector : new String[] { ".year", "[data-year]", ".vehicle-year", ".vehicle_year",
+                "span.year", "div.year", "[id*='year']" }) {
+            Element element = doc.selectFirst(selector);
+            if (element != null && !element.text().isEmpty()) {
+                java.util.regex.Matcher matcher = java.util.regex.Pattern.compile("\\d{4}")
+                        .matcher(element.text().trim());
+                if (matcher.find()) {
+                    return matcher.group();
+                }
+            }
+        }
+        return null;
+    }
+}
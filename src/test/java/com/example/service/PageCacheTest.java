@@ -0,0 +1,174 @@
+package com.example.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.example.service.PageCache.CachedPage;
+import com.example.service.PageFetcher.FetchedPage;
+
+class PageCacheTest {
+
+    @TempDir
+    Path dir;
+
+    private final MutableClock clock = new MutableClock();
+
+    /** A cache that stores nothing, for tests of the scraping path itself. */
+    static PageCache disabled() {
+        try {
+            return new PageCache(Path.of("unused"), PageCache.Mode.OFF, 0, Duration.ZERO, Map.of(),
+                    Clock.systemUTC());
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private PageCache cache(long maxBytes) throws IOException {
+        return new PageCache(dir, PageCache.Mode.LIVE, maxBytes, Duration.ofMinutes(5),
+                Map.of("Copart", Duration.ofMinutes(1)), clock);
+    }
+
+    private static FetchedPage page(String url, String body) {
+        return new FetchedPage(url, false, body.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8,
+                "\"v1\"", null);
+    }
+
+    private static String body(CachedPage page) throws IOException {
+        try (InputStream in = page.openBody()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    void normalizesUrls() {
+        assertEquals("https://cars.example/listing/1?a=2&b=1",
+                PageCache.normalize("HTTPS://Cars.Example:443/listing/1?b=1&utm_source=x&a=2#photos"));
+        assertEquals("http://cars.example:8080/", PageCache.normalize("http://cars.example:8080"));
+        assertEquals("not a url", PageCache.normalize(" not a url "));
+    }
+
+    @Test
+    void storesEachDistinctBodyOnce() throws IOException {
+        PageCache cache = cache(1 << 20);
+        cache.put("https://cars.example/1", page("https://cars.example/1", "<html>same</html>"));
+        cache.put("https://cars.example/2", page("https://cars.example/2", "<html>same</html>"));
+
+        CachedPage stored = cache.get("https://CARS.example/1?utm_campaign=spring");
+        assertNotNull(stored);
+        assertEquals("<html>same</html>", body(stored));
+        assertEquals("\"v1\"", stored.etag());
+        assertEquals(StandardCharsets.UTF_8, stored.charset());
+        assertEquals(2, cache.size());
+        assertEquals(17, cache.getTotalBytes());
+        assertEquals(1, blobCount());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedPagesToFitAndDropsUnreferencedBodies() throws IOException {
+        PageCache cache = cache(25);
+        cache.put("https://cars.example/1", page("https://cars.example/1", "0123456789"));
+        cache.put("https://cars.example/2", page("https://cars.example/2", "abcdefghij"));
+        // Used, so /2 is now the least recently used
+        assertNotNull(cache.get("https://cars.example/1"));
+        cache.put("https://cars.example/3", page("https://cars.example/3", "ABCDEFGHIJ"));
+
+        assertNotNull(cache.get("https://cars.example/1"));
+        assertNull(cache.get("https://cars.example/2"));
+        assertNotNull(cache.get("https://cars.example/3"));
+        assertEquals(20, cache.getTotalBytes());
+        assertEquals(2, blobCount());
+
+        // Replacing a page's body releases the old one
+        cache.put("https://cars.example/3", page("https://cars.example/3", "0123456789"));
+        assertEquals(10, cache.getTotalBytes());
+        assertEquals(1, blobCount());
+    }
+
+    @Test
+    void expiresPagesAfterTheirSourceTtl() throws IOException {
+        PageCache cache = cache(1 << 20);
+        cache.put("https://copart.example/lot/1", page("https://copart.example/lot/1", "lot"));
+        cache.put("https://cars.example/1", page("https://cars.example/1", "car"));
+
+        clock.advance(Duration.ofMinutes(2));
+        assertFalse(cache.isFresh(cache.get("https://copart.example/lot/1"), "Copart"));
+        assertTrue(cache.isFresh(cache.get("https://cars.example/1"), "Cars.co.za"));
+
+        // A 304 makes the page fresh again
+        cache.revalidated("https://copart.example/lot/1",
+                new FetchedPage("https://copart.example/lot/1", true, null, null, "\"v2\"", null));
+        CachedPage revalidated = cache.get("https://copart.example/lot/1");
+        assertTrue(cache.isFresh(revalidated, "Copart"));
+        assertEquals("\"v2\"", revalidated.etag());
+        assertEquals("lot", body(revalidated));
+    }
+
+    @Test
+    void reloadsFromDiskAndReplaysWithoutExpiry() throws IOException {
+        cache(1 << 20).put("https://cars.example/1", page("https://cars.example/1", "<html>car</html>"));
+        Path orphan = dir.resolve("blobs").resolve("ff").resolve("ff00");
+        Files.createDirectories(orphan.getParent());
+        Files.writeString(orphan, "left over");
+
+        PageCache reloaded = cache(1 << 20);
+        assertEquals("<html>car</html>", body(reloaded.get("https://cars.example/1")));
+        assertFalse(Files.exists(orphan));
+
+        clock.advance(Duration.ofDays(30));
+        PageCache replay = new PageCache(dir, PageCache.Mode.REPLAY, 0, Duration.ZERO, Map.of(), clock);
+        CachedPage replayed = replay.get("https://cars.example/1");
+        assertTrue(replay.isFresh(replayed, "Cars.co.za"));
+        // Replaying never records
+        replay.put("https://cars.example/2", page("https://cars.example/2", "new"));
+        assertNull(replay.get("https://cars.example/2"));
+    }
+
+    private long blobCount() throws IOException {
+        try (Stream<Path> files = Files.walk(dir.resolve("blobs"))) {
+            return files.filter(Files::isRegularFile).count();
+        }
+    }
+
+    /** A clock tests move forward by hand. */
+    static final class MutableClock extends Clock {
+        private Instant now = Instant.parse("2024-06-01T10:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
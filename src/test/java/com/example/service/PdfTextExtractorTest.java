@@ -0,0 +1,116 @@
+package com.example.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Path;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.example.service.PdfTextExtractor.Extraction;
+
+class PdfTextExtractorTest {
+
+    @TempDir
+    Path dir;
+
+    private Path pdf(int pages) throws IOException {
+        Path file = dir.resolve(pages + "-pages.pdf");
+        try (PDDocument document = new PDDocument()) {
+            for (int i = 1; i <= pages; i++) {
+                PDPage page = new PDPage();
+                document.addPage(page);
+                try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                    content.beginText();
+                    content.setFont(PDType1Font.HELVETICA, 12);
+                    content.newLineAtOffset(72, 700);
+                    content.showText("Page " + i + " odometer " + (i * 1000) + " km");
+                    content.endText();
+                }
+            }
+            document.save(file.toFile());
+        }
+        return file;
+    }
+
+    private static String sequential(Path pdf) throws IOException {
+        try (PDDocument document = PDDocument.load(pdf.toFile())) {
+            return new PDFTextStripper().getText(document);
+        }
+    }
+
+    private static PdfTextExtractor extractor(int pagesPerRange, int threads, int maxPages, long maxTextChars) {
+        return new PdfTextExtractor(pagesPerRange, threads, maxPages, 1 << 20, maxTextChars, 64 * 1024);
+    }
+
+    @Test
+    void parallelRangesReassembleInPageOrder() throws Exception {
+        Path pdf = pdf(37);
+        PdfTextExtractor extractor = extractor(4, 3, 1000, Long.MAX_VALUE);
+        try {
+            StringWriter out = new StringWriter();
+            Extraction extraction = extractor.extract(pdf, out);
+
+            assertEquals(sequential(pdf), out.toString());
+            assertEquals(37, extraction.pagesRead());
+            assertFalse(extraction.truncated());
+        } finally {
+            extractor.destroy();
+        }
+    }
+
+    @Test
+    void stopsAtThePageBudget() throws Exception {
+        Path pdf = pdf(20);
+        PdfTextExtractor extractor = extractor(4, 2, 10, Long.MAX_VALUE);
+        try {
+            StringWriter out = new StringWriter();
+            Extraction extraction = extractor.extract(pdf, out);
+
+            assertTrue(extraction.truncated());
+            assertEquals(10, extraction.pagesRead());
+            assertEquals(20, extraction.pageCount());
+            assertTrue(out.toString().contains("Page 10 "));
+            assertFalse(out.toString().contains("Page 11 "));
+        } finally {
+            extractor.destroy();
+        }
+    }
+
+    @Test
+    void stopsAtTheTextBudget() throws Exception {
+        Path pdf = pdf(20);
+        PdfTextExtractor extractor = extractor(2, 2, 1000, 100);
+        try {
+            StringWriter out = new StringWriter();
+            Extraction extraction = extractor.extract(pdf, out);
+
+            assertTrue(extraction.truncated());
+            assertEquals(100, out.toString().length());
+            assertTrue(sequential(pdf).startsWith(out.toString()));
+        } finally {
+            extractor.destroy();
+        }
+    }
+
+    @Test
+    void refusesFilesOverTheSizeLimit() throws Exception {
+        Path pdf = pdf(2);
+        PdfTextExtractor extractor = new PdfTextExtractor(16, 1, 1000, 10, Long.MAX_VALUE, 64 * 1024);
+        try {
+            assertThrows(IOException.class, () -> extractor.extract(pdf, new StringWriter()));
+        } finally {
+            extractor.destroy();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+
+@ExtendWith(OutputCaptureExtension.class)
+class PriceCatalogTest {
+
+    private static PriceCatalog parse(String... lines) throws IOException {
+        return PriceCatalog.parse(new StringReader(String.join("\n", lines)));
+    }
+
+    @Test
+    void loadsTheShippedCatalogWithoutWarnings(CapturedOutput output) throws IOException {
+        try (Reader source = new InputStreamReader(
+                PriceCatalogTest.class.getResourceAsStream("/pricing/base-prices.csv"), StandardCharsets.UTF_8)) {
+            PriceCatalog.parse(source);
+        }
+
+        assertFalse(output.getOut().contains("WARN"), output.getOut());
+    }
+
+    @Test
+    void resolvesAliasesDeclaredAheadOfTheirMake() throws IOException {
+        PriceCatalog catalog = parse("@version 1", "@default 100000", "@alias VW Volkswagen",
+                "Volkswagen,Polo,,,180000");
+
+        assertSame(catalog.lookup("Volkswagen", "Polo", null, null), catalog.lookup("vw", "polo", null, null));
+        assertEquals(new BigDecimal("180000"), catalog.lookup("VW", "Polo", 2020, null).getAmount());
+    }
+
+    @Test
+    void warnsAboutAnAliasToAMakeWithoutPrices(CapturedOutput output) throws IOException {
+        PriceCatalog catalog = parse("@version 1", "@default 100000", "@alias Chev Chevrolet",
+                "Toyota,Corolla,,,150000");
+
+        assertSame(catalog.getDefaultPrice(), catalog.lookup("Chev", "Spark", null, null));
+        assertTrue(output.getOut().contains("Price catalog 1 aliases Chev to Chevrolet, which has no prices"),
+                output.getOut());
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.FileSystemResource;
+
+class ReloadableResourceTest {
+
+    @TempDir
+    Path dir;
+
+    private static String parse(Reader source) throws IOException {
+        String line = new BufferedReader(source).readLine();
+        if (line == null || line.startsWith("!")) {
+            throw new IOException("Invalid: " + line);
+        }
+        return line;
+    }
+
+    private ReloadableResource<String> load(Path file) {
+        return new ReloadableResource<>("test value", new FileSystemResource(file),
+                ReloadableResourceTest::parse, value -> "version " + value);
+    }
+
+    private static void write(Path file, String text, long modifiedSeconds) throws IOException {
+        Files.writeString(file, text);
+        Files.setLastModifiedTime(file, FileTime.from(Instant.ofEpochSecond(modifiedSeconds)));
+    }
+
+    @Test
+    void reloadsOnlyWhenTheFileChangesAndKeepsAValidVersion() throws IOException {
+        Path file = dir.resolve("value.txt");
+        write(file, "1", 1_000);
+        ReloadableResource<String> resource = load(file);
+
+        // Same modification time: not re-read
+        write(file, "2", 1_000);
+        resource.reloadIfModified();
+        assertEquals("1", resource.get());
+
+        write(file, "3", 2_000);
+        resource.reloadIfModified();
+        assertEquals("3", resource.get());
+
+        write(file, "!broken", 3_000);
+        resource.reloadIfModified();
+        assertEquals("3", resource.get());
+    }
+
+    @Test
+    void failsWhenTheFirstLoadFails() throws IOException {
+        Path file = dir.resolve("value.txt");
+        write(file, "!broken", 1_000);
+
+        assertThrows(IllegalStateException.class, () -> load(file));
+    }
+}
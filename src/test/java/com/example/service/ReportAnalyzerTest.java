@@ -0,0 +1,81 @@
+package com.example.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.service.ReportAnalyzer.Finding;
+import com.example.service.ReportAnalyzer.ReportFindings;
+
+class ReportAnalyzerTest {
+
+    private final ReportAnalyzer analyzer = new ReportAnalyzer();
+
+    @Test
+    void findsTheVinReadingAndKeywordsWithOffsets() {
+        String text = "Inspection report\nVIN: AHTFR22G906012345\nOdometer: 123,456\n"
+                + "Minor HAIL damage on roof. Roadworthy certificate: Pass";
+
+        ReportFindings findings = analyzer.analyze(text);
+
+        assertEquals("AHTFR22G906012345", findings.vin());
+        assertEquals(123456, findings.mileage());
+        assertTrue(findings.accidentIndicators());
+        assertTrue(findings.roadworthyPass());
+
+        Finding vin = findings.findings(ReportAnalyzer.VIN).get(0);
+        assertEquals(text.indexOf("AHTFR"), vin.start());
+        Finding reading = findings.findings(ReportAnalyzer.ODOMETER).get(0);
+        assertEquals("123,456", text.substring(reading.start(), reading.end()));
+        Finding hail = findings.findings("body").stream()
+                .filter(finding -> finding.text().equalsIgnoreCase("hail damage")).findFirst().orElseThrow();
+        assertEquals("HAIL damage", hail.text());
+        assertEquals(text.indexOf("HAIL"), hail.start());
+    }
+
+    @Test
+    void agreesWithTheScansItReplaces() {
+        List<String> reports = List.of(
+                "Mileage: 45000 km. No accidents recorded. Road worthy: PASS",
+                "Odometer: 12.345; vehicle crashed, written off",
+                "km 9999999999 odometer 88000",
+                "Clean report, roadworthy pending",
+                "");
+        for (String text : reports) {
+            ReportFindings findings = analyzer.analyze(text);
+            String lower = text.toLowerCase();
+            boolean accident = List.of("accident", "damage", "collision", "impact", "crash", "salvage",
+                    "rebuild", "written off", "total loss").stream().anyMatch(lower::contains);
+            boolean pass = (lower.contains("roadworthy") || lower.contains("road worthy")) && lower.contains("pass");
+            assertEquals(accident, findings.accidentIndicators(), text);
+            assertEquals(pass, findings.roadworthyPass(), text);
+        }
+        assertEquals(45000, analyzer.analyze(reports.get(0)).mileage());
+        assertEquals(12345, analyzer.analyze(reports.get(1)).mileage());
+        // Too long for a mileage: the next label's reading is used
+        assertEquals(88000, analyzer.analyze(reports.get(2)).mileage());
+        assertNull(analyzer.analyze(reports.get(3)).mileage());
+    }
+
+    @Test
+    void automatonReportsOverlappingTerms() {
+        KeywordAutomaton automaton = new KeywordAutomaton(List.of("he", "she", "his", "hers"));
+        List<String> hits = new ArrayList<>();
+
+        automaton.scan("uSHErs", (term, start, end) -> hits.add(term + "@" + start + "-" + end));
+
+        assertEquals(List.of("1@1-4", "0@2-4", "3@2-6"), hits);
+    }
+
+    @Test
+    void bundledKeywordsAreLoaded() {
+        assertTrue(analyzer.keywordCount() > 150);
+        assertFalse(analyzer.analyze("Clean report").accidentIndicators());
+    }
+}
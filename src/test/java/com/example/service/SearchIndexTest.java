@@ -0,0 +1,117 @@
+package com.example.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.example.service.SearchIndex.Hit;
+import com.example.service.SearchIndex.SearchPage;
+
+class SearchIndexTest {
+
+    @TempDir
+    Path dir;
+
+    private static List<Integer> ids(SearchPage page) {
+        return page.hits().stream().map(Hit::id).toList();
+    }
+
+    private void indexReports(SearchIndex index) {
+        index.index("report", 1, "Inspection: chassis damage on the left rail. VIN AHTFR22G906012345");
+        index.index("report", 2, "Damage to the chassis cover; no structural issues");
+        index.index("report", 3, "Clean report, roadworthy pass");
+        index.index("auction", 4, "Cars.co.za Toyota Corolla 2019 one owner");
+        index.index("auction", 5, "Copart Toyota Corolla Cross 2021 hail damage");
+    }
+
+    @Test
+    void matchesTermsPhrasesAndPrefixes() throws Exception {
+        SearchIndex index = new SearchIndex(dir, 1000, 8, 1 << 20);
+        indexReports(index);
+
+        assertEquals(List.of(1), ids(index.search("\"chassis damage\"", null, 0, 10)));
+        assertEquals(List.of(1, 2), ids(index.search("chassis damage", null, 0, 10)).stream().sorted().toList());
+        assertEquals(List.of(1), ids(index.search("ahtfr22g9*", null, 0, 10)));
+        assertEquals(List.of(1), ids(index.search("AHTFR22G906012345", null, 0, 10)));
+        assertEquals(List.of(5, 4), ids(index.search("toy* corolla", "auction", 0, 10)).stream()
+                .sorted((a, b) -> b - a).toList());
+        assertEquals(List.of(5), ids(index.search("corolla cross", null, 0, 10)));
+        assertEquals(0, index.search("\"damage chassis\" rail", null, 0, 10).total());
+        index.destroy();
+    }
+
+    @Test
+    void pagesThroughHits() throws Exception {
+        SearchIndex index = new SearchIndex(dir, 1000, 8, 1 << 20);
+        for (int id = 1; id <= 25; id++) {
+            index.index("auction", id, "Toyota Hilux " + id);
+        }
+
+        SearchPage first = index.search("hilux", null, 0, 10);
+        SearchPage last = index.search("hilux", null, 2, 10);
+
+        assertEquals(25, first.total());
+        assertEquals(10, first.hits().size());
+        assertEquals(5, last.hits().size());
+        index.destroy();
+    }
+
+    @Test
+    void replacesAndDeletesDocuments() throws Exception {
+        SearchIndex index = new SearchIndex(dir, 2, 8, 1 << 20);
+        indexReports(index);
+
+        index.index("report", 3, "Re-inspected: frame damage");
+        index.delete("auction", 4);
+
+        assertEquals(0, index.search("roadworthy", null, 0, 10).total());
+        assertEquals(List.of(3), ids(index.search("frame", null, 0, 10)));
+        assertEquals(List.of(5), ids(index.search("corolla", null, 0, 10)));
+        assertEquals(4, index.docCount());
+        index.destroy();
+    }
+
+    @Test
+    void keepsFlushedSegmentsAcrossRestarts() throws Exception {
+        SearchIndex index = new SearchIndex(dir, 2, 8, 1 << 20);
+        indexReports(index);
+        index.index("report", 3, "Re-inspected: frame damage");
+        index.destroy();
+
+        SearchIndex reopened = new SearchIndex(dir, 2, 8, 1 << 20);
+
+        assertEquals(5, reopened.docCount());
+        assertEquals(List.of(1), ids(reopened.search("\"chassis damage\"", null, 0, 10)));
+        assertEquals(0, reopened.search("roadworthy", null, 0, 10).total());
+        assertEquals(List.of(3), ids(reopened.search("frame", null, 0, 10)));
+        reopened.destroy();
+    }
+
+    @Test
+    void mergesSegmentsAndDropsDeletedDocuments() throws Exception {
+        SearchIndex index = new SearchIndex(dir, 1, 3, 1 << 20);
+        for (int id = 1; id <= 12; id++) {
+            index.index("auction", id, "Ford Ranger " + id + (id % 2 == 0 ? " hail damage" : ""));
+        }
+        index.delete("auction", 2);
+        index.flush();
+        while (index.merge()) {
+            // Merge down to the merge factor, as the background merger does
+        }
+
+        assertTrue(index.stats().get("segments") <= 3);
+        assertEquals(5, index.search("\"hail damage\"", null, 0, 20).total());
+        assertEquals(11, index.search("ranger", null, 0, 20).total());
+        index.destroy();
+
+        SearchIndex reopened = new SearchIndex(dir, 1, 3, 1 << 20);
+        assertEquals(11, reopened.docCount());
+        assertEquals(List.of(7), ids(reopened.search("ranger 7", null, 0, 20)));
+        reopened.destroy();
+    }
+}
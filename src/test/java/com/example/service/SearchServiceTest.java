@@ -0,0 +1,77 @@
+package com.example.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.entity.Auction;
+
+class SearchServiceTest {
+
+    @TempDir
+    Path dir;
+
+    private SearchIndex searchIndex;
+    private SearchService searchService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        searchIndex = new SearchIndex(dir, 1000, 8, 1 << 20);
+        searchService = new SearchService(searchIndex, mock(JdbcTemplate.class), false);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        searchIndex.destroy();
+    }
+
+    private static Auction auction(int id, String model) {
+        Auction auction = new Auction();
+        auction.setAuctionId(id);
+        auction.setSource("Copart");
+        auction.setMake("Toyota");
+        auction.setModel(model);
+        auction.setYear(2019);
+        return auction;
+    }
+
+    @Test
+    void indexesOutsideATransactionAtOnce() {
+        searchService.indexAuction(auction(1, "Corolla"));
+
+        assertEquals(1, searchService.search("corolla", null, 0, 10).total());
+    }
+
+    @Test
+    void indexesASaveOnlyOnceItCommits() {
+        TransactionSynchronizationManager.initSynchronization();
+        searchService.indexAuction(auction(1, "Corolla"));
+        assertEquals(0, searchService.search("corolla", null, 0, 10).total());
+        // Rolled back: nothing to index
+        TransactionSynchronizationManager.clearSynchronization();
+
+        TransactionSynchronizationManager.initSynchronization();
+        Auction saved = auction(2, "Hilux");
+        searchService.indexAuction(saved);
+        saved.setModel("Fortuner");
+        assertEquals(0, searchService.search("hilux", null, 0, 10).total());
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+        assertEquals(0, searchService.search("corolla", null, 0, 10).total());
+        // Indexed as it was saved, not as the entity was changed after
+        assertEquals(1, searchService.search("hilux", null, 0, 10).total());
+        assertEquals(0, searchService.search("fortuner", null, 0, 10).total());
+    }
+}
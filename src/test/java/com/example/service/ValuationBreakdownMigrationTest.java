@@ -0,0 +1,60 @@
+package com.example.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+class ValuationBreakdownMigrationTest {
+
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1"));
+        jdbcTemplate.execute("CREATE TABLE valuations (valuation_id INT PRIMARY KEY, valuation_breakdown LONGTEXT)");
+    }
+
+    private String breakdown(int valuationId) {
+        return jdbcTemplate.queryForObject("SELECT valuation_breakdown FROM valuations WHERE valuation_id = ?",
+                String.class, valuationId);
+    }
+
+    @Test
+    void convertsLegacyRowsInBatchesAndLeavesTheRest() {
+        String compact = ValuationBreakdownTest.legacyBreakdown().encode();
+        List<Object[]> rows = new ArrayList<>();
+        // More than one batch of legacy rows
+        for (int id = 1; id <= 1_200; id++) {
+            rows.add(new Object[] { id, ValuationBreakdownTest.LEGACY });
+        }
+        rows.add(new Object[] { 1_201, compact });
+        rows.add(new Object[] { 1_202, "{ \"basePrice\": " });
+        rows.add(new Object[] { 1_203, null });
+        jdbcTemplate.batchUpdate("INSERT INTO valuations (valuation_id, valuation_breakdown) VALUES (?, ?)", rows);
+
+        ValuationBreakdownMigration migration = new ValuationBreakdownMigration(jdbcTemplate);
+        migration.run(null);
+
+        assertEquals(1_201, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM valuations WHERE valuation_breakdown = ?", Integer.class, compact));
+        // Unparseable rows stay as they were, still rendered as stored
+        assertEquals("{ \"basePrice\": ", breakdown(1_202));
+        assertNull(breakdown(1_203));
+
+        // Re-running finds only the row it could not convert
+        migration.run(null);
+        assertEquals(ValuationBreakdownTest.legacyBreakdown().toPrettyJson(),
+                ValuationBreakdown.render(breakdown(600)));
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM valuations WHERE valuation_breakdown LIKE '{%'", Integer.class));
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class ValuationBreakdownTest {
+
+    // As the engine wrote it before the compact format: Gson's pretty printing of a HashMap
+    static final String LEGACY = """
+            {
+              "finalEstimates": {
+                "highEstimate": 106590.00,
+                "suggestedBuyPrice": 92055.00,
+                "lowEstimate": 87210.00,
+                "midEstimate": 96900.00
+              },
+              "accidentAdjustment": 0.85,
+              "ageDepreciation": 0.80,
+              "basePrice": 150000,
+              "mileageAdjustment": 0.95,
+              "ownerAdjustment": 1.0
+            }""";
+
+    /** The breakdown {@link #LEGACY} records. */
+    static ValuationBreakdown legacyBreakdown() {
+        ValuationBreakdown breakdown = new ValuationBreakdown();
+        breakdown.setPriceSource("catalog");
+        breakdown.setBasePriceCents(15_000_000);
+        breakdown.setAgeDepreciation(80);
+        breakdown.setMileageAdjustment(95);
+        breakdown.setAccidentAdjustment(85);
+        breakdown.setOwnerAdjustment(100);
+        breakdown.setEstimates(8_721_000, 9_690_000, 10_659_000, 9_205_500);
+        return breakdown;
+    }
+
+    private static ValuationBreakdown fromComparables() {
+        ValuationBreakdown breakdown = new ValuationBreakdown();
+        breakdown.setPriceSource("comparables");
+        breakdown.setBasePriceCents(12_345_678);
+        breakdown.setComparableSales(17);
+        breakdown.setAgeDepreciation(100);
+        breakdown.setMileageAdjustment(88);
+        breakdown.setAccidentAdjustment(85);
+        breakdown.setOwnerAdjustment(90);
+        breakdown.setRoadworthyAdjustment(90);
+        breakdown.setTireAdjustment(95);
+        breakdown.setSuspensionAdjustment(92);
+        breakdown.setEstimates(1, 2, 3, Long.MAX_VALUE);
+        return breakdown;
+    }
+
+    @Test
+    void compactFormRoundTrips() {
+        for (ValuationBreakdown breakdown : new ValuationBreakdown[] { legacyBreakdown(), fromComparables() }) {
+            String encoded = breakdown.encode();
+            assertTrue(encoded.startsWith("[" + ValuationBreakdown.SCHEMA_VERSION + ","), encoded);
+            assertFalse(ValuationBreakdown.isLegacy(encoded));
+
+            ValuationBreakdown decoded = ValuationBreakdown.decode(encoded);
+            assertEquals(encoded, decoded.encode());
+            assertEquals(breakdown.toPrettyJson(), decoded.toPrettyJson());
+            assertEquals(breakdown.toPrettyJson(), ValuationBreakdown.render(encoded));
+        }
+        ValuationBreakdown decoded = ValuationBreakdown.decode(fromComparables().encode());
+        assertEquals("comparables", decoded.getPriceSource());
+        assertEquals(17, decoded.getComparableSales());
+        assertEquals(92, decoded.getSuspensionAdjustment());
+        assertEquals(Long.MAX_VALUE, decoded.getSuggestedBuyPriceCents());
+    }
+
+    @Test
+    void legacyJsonConvertsToTheSameRendering() {
+        assertTrue(ValuationBreakdown.isLegacy(LEGACY));
+        // Shown as stored until converted
+        assertSame(LEGACY, ValuationBreakdown.render(LEGACY));
+
+        ValuationBreakdown converted = ValuationBreakdown.fromLegacyJson(LEGACY);
+
+        assertEquals(legacyBreakdown().encode(), converted.encode());
+        assertEquals(legacyBreakdown().toPrettyJson(), ValuationBreakdown.render(converted.encode()));
+    }
+
+    @Test
+    void rendersOnlyTheFactorsThatApplied() {
+        String rendered = legacyBreakdown().toPrettyJson();
+
+        assertTrue(rendered.contains("\"basePrice\": 150000.00"), rendered);
+        assertTrue(rendered.contains("\"ageDepreciation\": 0.80"), rendered);
+        assertTrue(rendered.contains("\"ownerAdjustment\": 1.00"), rendered);
+        assertFalse(rendered.contains("roadworthyAdjustment"), rendered);
+        assertFalse(rendered.contains("comparableSales"), rendered);
+    }
+
+    @Test
+    void rejectsOtherSchemaVersionsAndGarbage() {
+        String encoded = legacyBreakdown().encode();
+        String nextVersion = "[" + (ValuationBreakdown.SCHEMA_VERSION + 1) + encoded.substring(encoded.indexOf(','));
+
+        assertThrows(IllegalArgumentException.class, () -> ValuationBreakdown.decode(nextVersion));
+        assertThrows(IllegalArgumentException.class, () -> ValuationBreakdown.decode("[1,\"catalog\",12]"));
+        assertThrows(IllegalArgumentException.class, () -> ValuationBreakdown.decode("not a breakdown"));
+    }
+}
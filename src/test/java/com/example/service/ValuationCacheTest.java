@@ -0,0 +1,207 @@
+package com.example.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import com.example.service.ValuationCache.CacheStats;
+import com.example.service.ValuationEngineService.ValuationResult;
+import com.example.service.ValuationEngineService.VehicleData;
+
+class ValuationCacheTest {
+
+    private static final Duration TTL = Duration.ofMinutes(10);
+
+    @TempDir
+    Path dir;
+
+    private final MutableClock clock = new MutableClock();
+    private final AtomicInteger loads = new AtomicInteger();
+    private Path catalogFile;
+    private Path rulesFile;
+    private String catalog;
+    private String rules;
+    private PriceCatalogService catalogService;
+    private AdjustmentRulesService rulesService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        catalog = resource("/pricing/base-prices.csv");
+        rules = resource("/pricing/adjustment-rules.txt");
+        catalogFile = Files.writeString(dir.resolve("prices.csv"), catalog);
+        rulesFile = Files.writeString(dir.resolve("rules.txt"), rules);
+        catalogService = new PriceCatalogService(new DefaultResourceLoader(), catalogFile.toUri().toString());
+        rulesService = new AdjustmentRulesService(new DefaultResourceLoader(), rulesFile.toUri().toString());
+    }
+
+    private static String resource(String name) throws IOException {
+        try (InputStream in = ValuationCacheTest.class.getResourceAsStream(name)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private ValuationCache cache(SharedValuationStore sharedStore, int maxEntries) {
+        return new ValuationCache(catalogService, rulesService, sharedStore, maxEntries, TTL, clock);
+    }
+
+    private ValuationResult load(VehicleData data) {
+        ValuationResult result = new ValuationResult();
+        result.setMidEstimate(BigDecimal.valueOf(loads.incrementAndGet()));
+        return result;
+    }
+
+    private static VehicleData vehicle(String model, int mileage) {
+        VehicleData data = new VehicleData();
+        data.setMake("Toyota");
+        data.setModel(model);
+        data.setYear(2019);
+        data.setMileage(mileage);
+        data.setNumberOfOwners(1);
+        data.setRoadworthyPass(true);
+        return data;
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedEntry() {
+        ValuationCache cache = cache(null, 2);
+        VehicleData corolla = vehicle("Corolla", 80_000);
+        VehicleData camry = vehicle("Camry", 80_000);
+        VehicleData hilux = vehicle("Hilux", 80_000);
+
+        ValuationResult first = cache.get(corolla, this::load);
+        cache.get(camry, this::load);
+        assertSame(first, cache.get(corolla, this::load));
+        // Over the bound: the Camry was used least recently
+        cache.get(hilux, this::load);
+
+        assertSame(first, cache.get(corolla, this::load));
+        cache.get(camry, this::load);
+        assertEquals(4, loads.get());
+        assertEquals(new CacheStats(2, 0, 4, 2, 2), cache.getStats());
+    }
+
+    @Test
+    void expiresEntriesAfterTheirTtl() {
+        ValuationCache cache = cache(null, 100);
+        VehicleData corolla = vehicle("Corolla", 80_000);
+
+        ValuationResult first = cache.get(corolla, this::load);
+        clock.advance(TTL.minusSeconds(1));
+        assertSame(first, cache.get(corolla, this::load));
+        clock.advance(Duration.ofSeconds(1));
+
+        ValuationResult reloaded = cache.get(corolla, this::load);
+        assertEquals(2, loads.get());
+        assertSame(reloaded, cache.get(corolla, this::load));
+        assertEquals(new CacheStats(2, 0, 2, 0, 1), cache.getStats());
+    }
+
+    @Test
+    void keysOnlyByWhatTheEngineReads() {
+        ValuationCache cache = cache(null, 100);
+        VehicleData corolla = vehicle("Corolla", 80_000);
+        ValuationResult first = cache.get(corolla, this::load);
+
+        // Spelling of the make and model, and which VIN, do not change a valuation
+        VehicleData respelled = vehicle(" corolla ", 80_000);
+        respelled.setMake("TOYOTA");
+        assertSame(first, cache.get(respelled, this::load));
+        VehicleData withVin = vehicle("Corolla", 80_000);
+        withVin.setVin("AHTFR22G906012345");
+        ValuationResult vinResult = cache.get(withVin, this::load);
+        VehicleData otherVin = vehicle("Corolla", 80_000);
+        otherVin.setVin("JTDBR32E930012345");
+        assertSame(vinResult, cache.get(otherVin, this::load));
+
+        // Every other input is a key of its own
+        VehicleData accident = vehicle("Corolla", 80_000);
+        accident.setHasAccidents(true);
+        cache.get(accident, this::load);
+        cache.get(vehicle("Corolla", 80_001), this::load);
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    void dropsEntriesWhenTheCatalogOrRulesChange() throws IOException {
+        ValuationCache cache = cache(null, 100);
+        VehicleData corolla = vehicle("Corolla", 80_000);
+        cache.get(corolla, this::load);
+
+        Files.writeString(catalogFile, catalog.replace("@version 2024.1", "@version 2024.2"));
+        catalogService.reload();
+        ValuationResult afterCatalog = cache.get(corolla, this::load);
+        assertEquals(2, loads.get());
+        assertSame(afterCatalog, cache.get(corolla, this::load));
+
+        Files.writeString(rulesFile, rules.replace("@version 2024.1", "@version 2024.2"));
+        rulesService.reload();
+        cache.get(corolla, this::load);
+        assertEquals(3, loads.get());
+        assertEquals(1, cache.getStats().size());
+    }
+
+    @Test
+    void sharesResultsBetweenInstancesUntilTheyExpire() throws IOException {
+        InMemorySharedValuationStore store = new InMemorySharedValuationStore(clock);
+        VehicleData corolla = vehicle("Corolla", 80_000);
+        ValuationResult first = cache(store, 100).get(corolla, this::load);
+
+        ValuationCache other = cache(store, 100);
+        assertSame(first, other.get(corolla, this::load));
+        assertEquals(new CacheStats(0, 1, 0, 0, 1), other.getStats());
+
+        // Another generation never reads the older key
+        Files.writeString(catalogFile, catalog.replace("@version 2024.1", "@version 2024.2"));
+        catalogService.reload();
+        ValuationResult newer = cache(store, 100).get(corolla, this::load);
+        assertEquals(2, loads.get());
+
+        clock.advance(TTL.minusSeconds(1));
+        assertSame(newer, cache(store, 100).get(corolla, this::load));
+        clock.advance(Duration.ofSeconds(1));
+        cache(store, 100).get(corolla, this::load);
+        assertEquals(3, loads.get());
+    }
+
+    /** A clock the test moves forward by hand. */
+    private static final class MutableClock extends Clock {
+
+        private Instant now = Instant.parse("2024-06-01T10:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,342 @@
+package com.example.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Year;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import com.example.entity.Auction;
+import com.example.repository.AuctionRepository;
+import com.example.service.ValuationEngineService.ValuationResult;
+import com.example.service.ValuationEngineService.VehicleData;
+import com.example.service.ValuationSweepService.Condition;
+import com.example.service.ValuationSweepService.SweepCell;
+import com.example.service.ValuationSweepService.SweepRequest;
+import com.example.service.ValuationSweepService.SweepResult;
+
+class ValuationEngineServiceTest {
+
+    private static final String[][] VEHICLES = {
+            { "Toyota", "Corolla" }, { "Honda", "Civic" }, { "Ford", "Ranger" }, { "Lada", "Niva" } };
+    private static final int[] AGES = { 0, 2, 4, 8, 15 };
+    private static final Integer[] MILEAGES = { null, 0, 30000, 75000, 120000, 180000, 250000 };
+    private static final Integer[] OWNERS = { null, 0, 1, 2, 3, 4, 7 };
+
+    @Test
+    void fixedPointValuationMatchesBigDecimalValuationToTheCent() {
+        for (String catalog : new String[] { "classpath:pricing/base-prices.csv", "classpath:pricing/odd-prices.csv" }) {
+            PriceCatalogService catalogService = new PriceCatalogService(new DefaultResourceLoader(), catalog);
+            ValuationEngineService engine = new ValuationEngineService(catalogService, defaultRules(), emptyComparables(), 5);
+
+            for (String[] vehicle : VEHICLES) {
+                for (int age : AGES) {
+                    for (Integer mileage : MILEAGES) {
+                        for (Integer owners : OWNERS) {
+                            for (int flags = 0; flags < 32; flags++) {
+                                VehicleData data = vehicleData(vehicle, age, mileage, owners, flags);
+                                BigDecimal basePrice = catalogService
+                                        .lookup(data.getMake(), data.getModel(), data.getYear(), null).getAmount();
+
+                                ValuationResult expected = LegacyValuation.calculate(data, basePrice);
+                                ValuationResult actual = engine.calculateValuation(data);
+
+                                String context = catalog + " " + vehicle[0] + " age=" + age + " km=" + mileage
+                                        + " owners=" + owners + " flags=" + flags;
+                                assertEquals(expected.getLowEstimate(), actual.getLowEstimate(), context);
+                                assertEquals(expected.getMidEstimate(), actual.getMidEstimate(), context);
+                                assertEquals(expected.getHighEstimate(), actual.getHighEstimate(), context);
+                                assertEquals(expected.getSuggestedBuyPrice(), actual.getSuggestedBuyPrice(), context);
+                                assertEquals(expected.getConfidenceScore(), actual.getConfidenceScore(), context);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void pricesFromComparableSalesWhenThereAreEnough() {
+        PriceCatalogService catalogService = new PriceCatalogService(new DefaultResourceLoader(),
+                "classpath:pricing/base-prices.csv");
+        ComparablesIndex comparables = emptyComparables();
+        int year = Year.now().getValue() - 4;
+        for (int price = 100_000; price <= 140_000; price += 10_000) {
+            Auction auction = new Auction();
+            auction.setMake("Toyota");
+            auction.setModel("Corolla");
+            auction.setYear(year);
+            auction.setMileage(80_000);
+            auction.setAuctionPrice(BigDecimal.valueOf(price));
+            comparables.record(auction);
+        }
+        ValuationEngineService engine = new ValuationEngineService(catalogService, defaultRules(), comparables, 5);
+
+        VehicleData data = vehicleData(VEHICLES[0], 4, 80_000, 2, 2);
+        ValuationResult result = engine.calculateValuation(data);
+
+        // Median of the five sales, within the sketch's 1% accuracy, and no age depreciation
+        assertEquals(120_000, result.getMidEstimate().doubleValue(), 1_200);
+        assertTrue(result.getLowEstimate().compareTo(result.getMidEstimate()) < 0);
+        assertTrue(result.getHighEstimate().compareTo(result.getMidEstimate()) > 0);
+
+        // Too few sales for a model falls back to the catalog
+        VehicleData civic = vehicleData(VEHICLES[1], 4, 80_000, 2, 2);
+        assertEquals(new BigDecimal("106400.00"), engine.calculateValuation(civic).getMidEstimate());
+    }
+
+    @Test
+    void sweepCellsMatchSingleValuations() {
+        PriceCatalogService catalogService = new PriceCatalogService(new DefaultResourceLoader(),
+                "classpath:pricing/odd-prices.csv");
+        ValuationEngineService engine = new ValuationEngineService(catalogService, defaultRules(), emptyComparables(), 5);
+        ValuationSweepService sweepService = new ValuationSweepService(engine, 10_000);
+
+        VehicleData vehicle = vehicleData(VEHICLES[0], 4, 90_000, 2, 16);
+        SweepRequest request = new SweepRequest(Arrays.asList(MILEAGES), Arrays.asList(OWNERS),
+                List.of(false, true), List.of(true, false), List.of(false, true), List.of(false, true));
+        SweepResult sweep = sweepService.sweep(vehicle, request);
+
+        for (int c = 0; c < sweep.conditions().size(); c++) {
+            Condition condition = sweep.conditions().get(c);
+            for (int o = 0; o < sweep.owners().size(); o++) {
+                for (int m = 0; m < sweep.mileages().size(); m++) {
+                    VehicleData cellData = vehicleData(VEHICLES[0], 4, sweep.mileages().get(m),
+                            sweep.owners().get(o), 16);
+                    cellData.setHasAccidents(condition.accidents());
+                    cellData.setRoadworthyPass(condition.roadworthy());
+                    cellData.setTireWorn(condition.tiresWorn());
+                    cellData.setSuspensionIssues(condition.suspension());
+
+                    ValuationResult expected = engine.calculateValuation(cellData);
+                    SweepCell cell = sweep.cells().get(c).get(o).get(m);
+                    assertEquals(expected.getLowEstimate(), cell.lowEstimate());
+                    assertEquals(expected.getMidEstimate(), cell.midEstimate());
+                    assertEquals(expected.getHighEstimate(), cell.highEstimate());
+                    assertEquals(expected.getSuggestedBuyPrice(), cell.suggestedBuyPrice());
+                    assertEquals(expected.getConfidenceScore(), cell.confidenceScore());
+                }
+            }
+        }
+    }
+
+    @Test
+    void sweepRejectsNullFlagsAndNegativeCounts() {
+        PriceCatalogService catalogService = new PriceCatalogService(new DefaultResourceLoader(),
+                "classpath:pricing/base-prices.csv");
+        ValuationEngineService engine = new ValuationEngineService(catalogService, defaultRules(), emptyComparables(), 5);
+        ValuationSweepService sweepService = new ValuationSweepService(engine, 10_000);
+        VehicleData vehicle = vehicleData(VEHICLES[0], 4, 90_000, 2, 16);
+        List<Boolean> withNull = Arrays.asList(true, null);
+
+        for (SweepRequest request : List.of(
+                new SweepRequest(null, null, withNull, null, null, null),
+                new SweepRequest(null, null, null, withNull, null, null),
+                new SweepRequest(null, null, null, null, withNull, null),
+                new SweepRequest(null, null, null, null, null, withNull),
+                new SweepRequest(List.of(10_000, -1), null, null, null, null, null),
+                new SweepRequest(null, List.of(-2), null, null, null, null))) {
+            assertThrows(IllegalArgumentException.class, () -> sweepService.sweep(vehicle, request));
+        }
+        // An unknown mileage or owner count is priced, as for a single valuation
+        assertEquals(2, sweepService.sweep(vehicle,
+                new SweepRequest(Arrays.asList(null, 0), Arrays.asList((Integer) null), null, null, null, null))
+                .cells().get(0).get(0).size());
+    }
+
+    @Test
+    void swappedAdjustmentRulesApplyAndAreRecorded(@TempDir Path dir) throws IOException {
+        Path rulesFile = dir.resolve("rules.txt");
+        String defaults;
+        try (InputStream in = getClass().getResourceAsStream("/pricing/adjustment-rules.txt")) {
+            defaults = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        Files.writeString(rulesFile, defaults);
+        AdjustmentRulesService rulesService = new AdjustmentRulesService(new DefaultResourceLoader(),
+                rulesFile.toUri().toString());
+        ValuationEngineService engine = new ValuationEngineService(
+                new PriceCatalogService(new DefaultResourceLoader(), "classpath:pricing/base-prices.csv"),
+                rulesService, emptyComparables(), 5);
+
+        VehicleData data = vehicleData(VEHICLES[0], 4, 80_000, 2, 1);
+        ValuationResult before = engine.calculateValuation(data);
+        assertEquals("2024.1", before.getRulesVersion());
+
+        // Harsher accident penalty in a new version
+        Files.writeString(rulesFile, defaults.replace("@version 2024.1", "@version test-2")
+                .replace("accident 85", "accident 70"));
+        rulesService.reload();
+        ValuationResult after = engine.calculateValuation(data);
+        assertEquals("test-2", after.getRulesVersion());
+        assertEquals(before.getMidEstimate().doubleValue() * 70 / 85, after.getMidEstimate().doubleValue(), 0.01);
+
+        // A broken file is rejected and the active version kept
+        Files.writeString(rulesFile, "@version broken\nage * 50\n");
+        rulesService.reload();
+        assertEquals("test-2", engine.calculateValuation(data).getRulesVersion());
+    }
+
+    @Test
+    void kernelRoundsHalfUpLikeBigDecimal() {
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            long cents = random.nextLong(1, 100_000_000_00L);
+            int factorCount = random.nextInt(0, 10);
+            long product = 1;
+            BigDecimal expected = BigDecimal.valueOf(cents, 2);
+            for (int f = 0; f < factorCount; f++) {
+                int percent = random.nextInt(50, 111);
+                product = ValuationKernel.multiply(product, percent);
+                expected = expected.multiply(BigDecimal.valueOf(percent, 2));
+            }
+            expected = expected.setScale(2, RoundingMode.HALF_UP);
+
+            long actual = ValuationKernel.applyFactors(cents, product, factorCount);
+            assertEquals(expected, BigDecimal.valueOf(actual, 2), "cents=" + cents + " product=" + product);
+        }
+    }
+
+    private static AdjustmentRulesService defaultRules() {
+        return new AdjustmentRulesService(new DefaultResourceLoader(), "classpath:pricing/adjustment-rules.txt");
+    }
+
+    private static ComparablesIndex emptyComparables() {
+        return new ComparablesIndex(mock(AuctionRepository.class), 3);
+    }
+
+    private static VehicleData vehicleData(String[] vehicle, int age, Integer mileage, Integer owners, int flags) {
+        VehicleData data = new VehicleData();
+        data.setMake(vehicle[0]);
+        data.setModel(vehicle[1]);
+        data.setYear(Year.now().getValue() - age);
+        data.setMileage(mileage);
+        data.setNumberOfOwners(owners);
+        data.setHasAccidents((flags & 1) != 0);
+        data.setRoadworthyPass((flags & 2) != 0);
+        data.setTireWorn((flags & 4) != 0);
+        data.setSuspensionIssues((flags & 8) != 0);
+        if ((flags & 16) != 0) {
+            data.setVin("1HGCM82633A004352");
+            data.setFuelType("Petrol");
+            data.setTransmission("Manual");
+        }
+        return data;
+    }
+
+    /**
+     * The original BigDecimal implementation, kept as the reference the
+     * fixed-point kernel must reproduce exactly.
+     */
+    private static final class LegacyValuation {
+
+        static ValuationResult calculate(VehicleData vehicleData, BigDecimal basePrice) {
+            BigDecimal adjustedPrice = basePrice;
+            adjustedPrice = adjustedPrice.multiply(ageDepreciation(vehicleData.getYear()));
+            adjustedPrice = adjustedPrice.multiply(mileageAdjustment(vehicleData.getMileage()));
+            if (vehicleData.isHasAccidents()) {
+                adjustedPrice = adjustedPrice.multiply(new BigDecimal("0.85"));
+            }
+            adjustedPrice = adjustedPrice.multiply(ownerAdjustment(vehicleData.getNumberOfOwners()));
+            if (!vehicleData.isRoadworthyPass()) {
+                adjustedPrice = adjustedPrice.multiply(new BigDecimal("0.90"));
+            }
+            if (vehicleData.isTireWorn()) {
+                adjustedPrice = adjustedPrice.multiply(new BigDecimal("0.95"));
+            }
+            if (vehicleData.isSuspensionIssues()) {
+                adjustedPrice = adjustedPrice.multiply(new BigDecimal("0.92"));
+            }
+
+            ValuationResult result = new ValuationResult();
+            result.setLowEstimate(adjustedPrice.multiply(new BigDecimal("0.90")).setScale(2, RoundingMode.HALF_UP));
+            result.setMidEstimate(adjustedPrice.setScale(2, RoundingMode.HALF_UP));
+            result.setHighEstimate(adjustedPrice.multiply(new BigDecimal("1.10")).setScale(2, RoundingMode.HALF_UP));
+            result.setSuggestedBuyPrice(
+                    adjustedPrice.multiply(new BigDecimal("0.95")).setScale(2, RoundingMode.HALF_UP));
+            result.setConfidenceScore(confidenceScore(vehicleData));
+            return result;
+        }
+
+        private static BigDecimal ageDepreciation(Integer year) {
+            int age = Year.now().getValue() - year;
+            if (age <= 0) {
+                return new BigDecimal("1.0");
+            } else if (age <= 3) {
+                return new BigDecimal("0.90");
+            } else if (age <= 5) {
+                return new BigDecimal("0.80");
+            } else if (age <= 10) {
+                return new BigDecimal("0.65");
+            }
+            return new BigDecimal("0.50");
+        }
+
+        private static BigDecimal mileageAdjustment(Integer mileage) {
+            if (mileage == null || mileage <= 50000) {
+                return new BigDecimal("1.0");
+            } else if (mileage <= 100000) {
+                return new BigDecimal("0.95");
+            } else if (mileage <= 150000) {
+                return new BigDecimal("0.88");
+            } else if (mileage <= 200000) {
+                return new BigDecimal("0.80");
+            }
+            return new BigDecimal("0.70");
+        }
+
+        private static BigDecimal ownerAdjustment(Integer owners) {
+            if (owners == null || owners <= 0) {
+                return new BigDecimal("0.95");
+            } else if (owners == 1) {
+                return new BigDecimal("1.05");
+            } else if (owners == 2) {
+                return new BigDecimal("1.0");
+            } else if (owners == 3) {
+                return new BigDecimal("0.97");
+            } else if (owners <= 5) {
+                return new BigDecimal("0.93");
+            }
+            return new BigDecimal("0.85");
+        }
+
+        private static BigDecimal confidenceScore(VehicleData data) {
+            int score = 0;
+            if (data.getMake() != null && !data.getMake().isEmpty())
+                score++;
+            if (data.getModel() != null && !data.getModel().isEmpty())
+                score++;
+            if (data.getYear() != null && data.getYear() > 0)
+                score++;
+            if (data.getMileage() != null && data.getMileage() > 0)
+                score++;
+            if (data.getVin() != null && !data.getVin().isEmpty())
+                score++;
+            if (data.getFuelType() != null && !data.getFuelType().isEmpty())
+                score++;
+            if (data.getTransmission() != null && !data.getTransmission().isEmpty())
+                score++;
+            if (data.isRoadworthyPass())
+                score++;
+            if (!data.isHasAccidents())
+                score++;
+            return new BigDecimal(score).divide(new BigDecimal(9), 2, RoundingMode.HALF_UP)
+                    .multiply(new BigDecimal("100"));
+        }
+    }
+}
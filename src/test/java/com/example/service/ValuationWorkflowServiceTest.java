@@ -0,0 +1,178 @@
+package com.example.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import com.example.entity.Auction;
+import com.example.entity.AuctionPriceChange;
+import com.example.entity.CrawlCheckpoint;
+import com.example.entity.DocumentBlob;
+import com.example.entity.DocumentFinding;
+import com.example.entity.DocumentText;
+import com.example.entity.Report;
+import com.example.entity.Role;
+import com.example.entity.SearchHistory;
+import com.example.entity.User;
+import com.example.entity.Valuation;
+import com.example.entity.Vehicle;
+import com.example.entity.WatchedListing;
+import com.example.repository.AuctionRepository;
+import com.example.repository.IdAllocator;
+import com.example.repository.ValuationBatchWriter;
+import com.example.service.ValuationEngineService.VehicleData;
+import com.example.service.ValuationWorkflowService.ValuationOutcome;
+import com.example.service.ValuationWorkflowService.ValuationRequest;
+
+/**
+ * Batch valuations written by {@link ValuationBatchWriter} to an in-memory
+ * database, two to a chunk.
+ */
+class ValuationWorkflowServiceTest {
+
+    private static final Class<?>[] ENTITIES = { Auction.class, AuctionPriceChange.class, CrawlCheckpoint.class,
+            DocumentBlob.class, DocumentFinding.class, DocumentText.class, Report.class, Role.class,
+            SearchHistory.class, User.class, Valuation.class, Vehicle.class, WatchedListing.class };
+
+    private SessionFactory sessionFactory;
+    private JdbcTemplate jdbcTemplate;
+    private ValuationWorkflowService workflow;
+    private Vehicle vehicle;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;NON_KEYWORDS=YEAR,VALUE;DB_CLOSE_DELAY=-1");
+        Configuration configuration = new Configuration()
+                .setProperty(AvailableSettings.HBM2DDL_AUTO, "create")
+                .setProperty("hibernate.id.generator.stored_last_used", "true");
+        configuration.getProperties().put(AvailableSettings.JAKARTA_NON_JTA_DATASOURCE, dataSource);
+        for (Class<?> entity : ENTITIES) {
+            configuration.addAnnotatedClass(entity);
+        }
+        sessionFactory = configuration.buildSessionFactory();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        IdAllocator idAllocator = new IdAllocator(jdbcTemplate, transactionManager);
+        idAllocator.afterPropertiesSet();
+
+        vehicle = sessionFactory.fromTransaction(session -> {
+            Role role = new Role(null, "DEALER");
+            session.persist(role);
+            User user = new User();
+            user.setRole(role);
+            user.setFullName("Dealer");
+            user.setEmail("dealer@example.com");
+            user.setPasswordHash("-");
+            session.persist(user);
+            Vehicle owned = new Vehicle();
+            owned.setUser(user);
+            owned.setMake("Toyota");
+            owned.setModel("Corolla");
+            owned.setYear(2019);
+            session.persist(owned);
+            return owned;
+        });
+
+        PriceCatalogService catalogService = new PriceCatalogService(new DefaultResourceLoader(),
+                "classpath:pricing/base-prices.csv");
+        AdjustmentRulesService rulesService = new AdjustmentRulesService(new DefaultResourceLoader(),
+                "classpath:pricing/adjustment-rules.txt");
+        ValuationEngineService engine = new ValuationEngineService(catalogService, rulesService,
+                new ComparablesIndex(mock(AuctionRepository.class), 3), 5);
+        workflow = new ValuationWorkflowService(engine, null,
+                new ValuationBatchWriter(jdbcTemplate, transactionManager, idAllocator), null, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        sessionFactory.close();
+    }
+
+    private static VehicleData data(int mileage) {
+        VehicleData data = new VehicleData();
+        data.setMake("Toyota");
+        data.setModel("Corolla");
+        data.setYear(2019);
+        data.setMileage(mileage);
+        data.setNumberOfOwners(1);
+        data.setRoadworthyPass(true);
+        return data;
+    }
+
+    private int count(String table) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Integer.class);
+    }
+
+    @Test
+    void writesEachValuationWithItsSearchHistoryRow() {
+        List<ValuationOutcome> outcomes = workflow.runValuations(List.of(
+                new ValuationRequest(vehicle, data(60_000)),
+                new ValuationRequest(vehicle, data(90_000)),
+                new ValuationRequest(vehicle, data(120_000))));
+
+        assertTrue(outcomes.stream().allMatch(ValuationOutcome::isSuccess));
+        assertEquals(3, count("valuations"));
+        assertEquals(3, count("search_history"));
+        for (ValuationOutcome outcome : outcomes) {
+            Valuation valuation = outcome.valuation();
+            assertNotNull(valuation.getGeneratedAt());
+            assertEquals(0, valuation.getEstimatedValue().compareTo(jdbcTemplate.queryForObject(
+                    "SELECT estimated_value FROM valuations WHERE valuation_id = ? AND vehicle_id = ?",
+                    BigDecimal.class, valuation.getValuationId(), vehicle.getVehicleId())));
+        }
+        assertEquals(3, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM search_history WHERE user_id = ? "
+                + "AND vehicle_id = ?", Integer.class, vehicle.getUser().getUserId(), vehicle.getVehicleId()));
+    }
+
+    @Test
+    void failsItemsAndChunksOnTheirOwn() {
+        // Its user is gone: the valuation row would insert, its search-history row cannot
+        User ghost = new User();
+        ghost.setUserId(999);
+        Vehicle orphan = new Vehicle();
+        orphan.setVehicleId(vehicle.getVehicleId());
+        orphan.setUser(ghost);
+
+        List<ValuationOutcome> outcomes = workflow.runValuations(List.of(
+                new ValuationRequest(vehicle, data(60_000)),
+                new ValuationRequest(vehicle, null),
+                new ValuationRequest(vehicle, data(90_000)),
+                new ValuationRequest(orphan, data(120_000)),
+                new ValuationRequest(vehicle, data(150_000)),
+                new ValuationRequest(new Vehicle(), data(180_000))));
+
+        assertEquals(List.of(true, false, true, false, false, false),
+                outcomes.stream().map(ValuationOutcome::isSuccess).toList());
+        for (int i = 0; i < outcomes.size(); i++) {
+            assertEquals(i, outcomes.get(i).index());
+        }
+        assertTrue(outcomes.get(1).error().startsWith("Valuation failed"));
+        assertEquals("Vehicle is not persisted", outcomes.get(5).error());
+        // The second chunk, items 3 and 4, rolled back as a whole, valuations included
+        for (int i : new int[] { 3, 4 }) {
+            assertTrue(outcomes.get(i).error().startsWith("Persisting valuation failed"));
+            assertNotNull(outcomes.get(i).result());
+            assertNull(outcomes.get(i).valuation());
+        }
+        assertEquals(2, count("valuations"));
+        assertEquals(2, count("search_history"));
+    }
+}
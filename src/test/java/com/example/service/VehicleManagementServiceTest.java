@@ -0,0 +1,193 @@
+package com.example.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.entity.Auction;
+import com.example.entity.AuctionPriceChange;
+import com.example.repository.AuctionPriceChangeRepository;
+import com.example.repository.AuctionRepository;
+import com.example.repository.IdAllocator;
+import com.example.repository.ReportRepository;
+import com.example.repository.SearchHistoryRepository;
+import com.example.repository.UserRepository;
+import com.example.repository.ValuationRepository;
+import com.example.repository.VehicleRepository;
+import com.example.entity.Vehicle;
+import com.example.service.ComparablesIndex.ComparableSummary;
+import com.example.service.DocumentStore.StoredDocument;
+
+class VehicleManagementServiceTest {
+
+    private static final String URL = "https://www.cars.co.za/for-sale/used/2019-toyota-corolla/123";
+
+    private final AuctionRepository auctionRepository = mock(AuctionRepository.class);
+    private final AuctionPriceChangeRepository priceChangeRepository = mock(AuctionPriceChangeRepository.class);
+    private final ComparablesIndex comparablesIndex = new ComparablesIndex(auctionRepository, 3);
+    private final Map<String, Auction> auctionsByUrl = new HashMap<>();
+    private final List<AuctionPriceChange> priceChanges = new ArrayList<>();
+    private final IdAllocator idAllocator = mock(IdAllocator.class);
+    private final KnownListings knownListings = mock(KnownListings.class);
+    private final ReportRepository reportRepository = mock(ReportRepository.class);
+    private final DocumentStore documentStore = mock(DocumentStore.class);
+    private final AtomicLong ids = new AtomicLong();
+    private VehicleManagementService service;
+
+    @BeforeEach
+    void setUp() {
+        when(auctionRepository.findFirstByVehicleUrlOrderByAuctionId(anyString()))
+                .thenAnswer(invocation -> Optional.ofNullable(auctionsByUrl.get(invocation.getArgument(0))));
+        when(auctionRepository.existsByVehicleUrl(anyString()))
+                .thenAnswer(invocation -> auctionsByUrl.containsKey(invocation.<String>getArgument(0)));
+        when(idAllocator.nextId("auctions")).thenAnswer(invocation -> ids.incrementAndGet());
+        when(auctionRepository.insertIfAbsent(anyInt(), anyString(), any())).thenAnswer(invocation -> {
+            if (auctionsByUrl.containsKey(invocation.<String>getArgument(1))) {
+                return 1; // MySQL counts a duplicate the update left unchanged as found
+            }
+            Auction auction = new Auction();
+            auction.setAuctionId(invocation.getArgument(0));
+            auction.setVehicleUrl(invocation.getArgument(1));
+            auctionsByUrl.put(auction.getVehicleUrl(), auction);
+            return 1;
+        });
+        when(auctionRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(priceChangeRepository.save(any())).thenAnswer(invocation -> {
+            priceChanges.add(invocation.getArgument(0));
+            return invocation.getArgument(0);
+        });
+        service = new VehicleManagementService(mock(UserRepository.class), mock(VehicleRepository.class),
+                reportRepository, auctionRepository, priceChangeRepository,
+                mock(ValuationRepository.class), mock(SearchHistoryRepository.class), documentStore, null, null,
+                comparablesIndex, knownListings, mock(SearchService.class), idAllocator);
+    }
+
+    private static Map<String, String> scraped(String price, String mileage) {
+        Map<String, String> fields = new HashMap<>();
+        fields.put("source", "Cars.co.za");
+        fields.put("make", "Toyota");
+        fields.put("model", "Corolla");
+        fields.put("year", "2019");
+        fields.put("mileage", mileage);
+        fields.put("price", price);
+        return fields;
+    }
+
+    @Test
+    void keepsOneRowPerListingAndRecordsOnlyPriceChanges() {
+        Auction first = service.saveAuctionSnapshot(scraped("R 200 000", "80 000"), URL + "?utm_source=feed");
+        service.saveAuctionSnapshot(scraped("R 200 000", "80 000"), URL);
+        service.saveAuctionSnapshot(scraped("R 185 000", null), URL + "#gallery");
+
+        assertEquals(1, auctionsByUrl.size());
+        Auction auction = auctionsByUrl.get(URL);
+        assertEquals(first.getAuctionId(), auction.getAuctionId());
+        assertEquals(0, new BigDecimal("185000").compareTo(auction.getAuctionPrice()));
+        // Not found on the last scrape, so the earlier mileage stays
+        assertEquals(80_000, auction.getMileage());
+        assertEquals(List.of("200000", "185000"), priceChanges.stream()
+                .map(change -> change.getPrice().toPlainString()).toList());
+    }
+
+    @Test
+    void comparablesCountEachListingOnceAtItsLatestPrice() {
+        service.saveAuctionSnapshot(scraped("R 200 000", "80 000"), URL);
+        service.saveAuctionSnapshot(scraped("R 150 000", "80 000"), URL);
+
+        ComparableSummary summary = comparablesIndex.lookup("Toyota", "Corolla", 2019);
+        assertEquals(1, summary.count());
+        assertEquals(150_000, summary.medianCents() / 100.0, 150_000 * 0.01);
+    }
+
+    @Test
+    void aListingMovedToAnotherGroupLeavesItsOldOne() {
+        service.saveAuctionSnapshot(scraped("R 200 000", "80 000"), URL);
+        Map<String, String> corrected = scraped("R 200 000", "80 000");
+        corrected.put("model", "Corolla Cross");
+        service.saveAuctionSnapshot(corrected, URL);
+
+        assertNull(comparablesIndex.lookup("Toyota", "Corolla", 2019));
+        assertEquals(1, comparablesIndex.lookup("Toyota", "Corolla Cross", 2019).count());
+    }
+
+    @Test
+    void aSaveThatLosesTheInsertUpdatesTheOtherSavesRow() {
+        // Saved by another writer after this save looked the listing up
+        Auction winner = new Auction();
+        winner.setAuctionId(100);
+        winner.setVehicleUrl(URL);
+        winner.setSource("Cars.co.za");
+        winner.setMake("Toyota");
+        winner.setModel("Corolla");
+        winner.setAuctionPrice(new BigDecimal("200000"));
+        when(auctionRepository.existsByVehicleUrl(URL)).thenReturn(false);
+        auctionsByUrl.put(URL, winner);
+
+        Auction saved = service.saveAuctionSnapshot(scraped("R 185 000", "80 000"), URL);
+
+        assertEquals(100, saved.getAuctionId());
+        assertEquals(1, auctionsByUrl.size());
+        assertEquals(80_000, saved.getMileage());
+        assertEquals(List.of("185000"), priceChanges.stream()
+                .map(change -> change.getPrice().toPlainString()).toList());
+    }
+
+    @Test
+    void comparablesAndKnownListingsChangeOnlyWhenTheSaveCommits() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            service.saveAuctionSnapshot(scraped("R 200 000", "80 000"), URL);
+            assertNull(comparablesIndex.lookup("Toyota", "Corolla", 2019));
+            verify(knownListings, never()).add(anyString());
+            // Rolled back: the row is gone and the index never hears of it
+            auctionsByUrl.clear();
+            TransactionSynchronizationManager.clearSynchronization();
+
+            TransactionSynchronizationManager.initSynchronization();
+            service.saveAuctionSnapshot(scraped("R 150 000", "80 000"), URL);
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        ComparableSummary summary = comparablesIndex.lookup("Toyota", "Corolla", 2019);
+        assertEquals(1, summary.count());
+        assertEquals(150_000, summary.medianCents() / 100.0, 150_000 * 0.01);
+        verify(knownListings).add(URL);
+    }
+
+    @Test
+    void releasesTheStoredFileWhenTheReportIsNotSaved() throws IOException {
+        MockMultipartFile file = new MockMultipartFile("files", "photo.jpg", "image/jpeg", new byte[] { 1, 2, 3 });
+        when(documentStore.store(file)).thenReturn(new StoredDocument("ab12", Path.of("blobs/ab/ab12"), 3, false));
+        when(reportRepository.save(any())).thenThrow(new DataIntegrityViolationException("vehicle_id"));
+
+        assertThrows(DataIntegrityViolationException.class, () -> service.saveReport(new Vehicle(), file));
+
+        verify(documentStore).release("ab12");
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.jsoup.HttpStatusException;
+import org.jsoup.UnsupportedMimeTypeException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+class WebScrapingServiceTest {
+
+    private static final String ETAG = "\"listing-v1\"";
+    private static final String LISTING = "<html><head><meta charset=\"utf-8\"></head><body>"
+            + "<span class=\"make\">Škoda</span><span class=\"model\">Octavia</span>"
+            + "<span class=\"year\">2018</span><span class=\"price\">R 189 000</span></body></html>";
+
+    private HttpServer server;
+    private String baseUrl;
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+    private PageFetcher pageFetcher;
+    private WebScrapingService service;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+        pageFetcher = new PageFetcher(10, 2, 5_000);
+        service = new WebScrapingService(pageFetcher, PageCacheTest.disabled(), new ListingExtractorRegistry(100),
+                100);
+    }
+
+    @AfterEach
+    void stopServer() {
+        pageFetcher.destroy();
+        server.stop(0);
+    }
+
+    /**
+     * Records each request as "path accept-encoding if-none-match". Serves a
+     * gzip-compressed listing with an ETag and honours If-None-Match.
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+        requests.add(path + " " + exchange.getRequestHeaders().getFirst("Accept-Encoding") + " " + ifNoneMatch);
+
+        switch (path) {
+            case "/listing" -> {
+                exchange.getResponseHeaders().set("ETag", ETAG);
+                if (ETAG.equals(ifNoneMatch)) {
+                    exchange.sendResponseHeaders(304, -1);
+                    exchange.close();
+                    return;
+                }
+                ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+                try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                    gzip.write(LISTING.getBytes(StandardCharsets.UTF_8));
+                }
+                exchange.getResponseHeaders().set("Content-Type", "text/html");
+                exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+                send(exchange, 200, compressed.toByteArray());
+            }
+            case "/image" -> {
+                exchange.getResponseHeaders().set("Content-Type", "image/jpeg");
+                send(exchange, 200, new byte[] { 1, 2, 3 });
+            }
+            default -> send(exchange, 503, "busy".getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    @Test
+    void decodesCompressedPagesAndRevalidatesWithEtag() throws IOException {
+        Map<String, String> first = service.fetchListing(baseUrl + "/listing");
+        assertEquals("Škoda", first.get("make"));
+        assertEquals("Octavia", first.get("model"));
+        assertEquals("2018", first.get("year"));
+        assertNull(first.get("mileage"));
+
+        // Callers may add to the result without touching the cached copy
+        first.put("source", "Unknown");
+
+        Map<String, String> second = service.fetchListing(baseUrl + "/listing");
+        assertEquals("Škoda", second.get("make"));
+        assertNull(second.get("source"));
+
+        // The same listing spelled differently is revalidated from the same entry
+        assertEquals("Octavia", service.fetchListing(baseUrl.replace("http:", "HTTP:")
+                + "/listing?utm_source=mail").get("model"));
+
+        assertEquals(List.of(
+                "/listing gzip, deflate, br null",
+                "/listing gzip, deflate, br " + ETAG,
+                "/listing gzip, deflate, br " + ETAG), requests);
+    }
+
+    @Test
+    void servesRepeatsFromThePageCacheAndReplaysWithoutNetwork(@TempDir Path dir) throws IOException {
+        PageCacheTest.MutableClock clock = new PageCacheTest.MutableClock();
+        PageCache live = new PageCache(dir, PageCache.Mode.LIVE, 1 << 20, Duration.ofMinutes(5), Map.of(), clock);
+        String url = baseUrl + "/listing";
+
+        assertEquals("Škoda", scraper(live).fetchListing(url).get("make"));
+        // Pasted again within the TTL, with tracking parameters
+        assertEquals("Octavia", scraper(live).fetchListing(url + "?utm_source=mail").get("model"));
+        assertEquals(1, requests.size());
+
+        // Past the TTL a new scraper, without the fields in memory, revalidates the stored page
+        clock.advance(Duration.ofMinutes(6));
+        assertEquals("2018", scraper(live).fetchListing(url).get("year"));
+        assertEquals("/listing gzip, deflate, br " + ETAG, requests.get(1));
+
+        PageCache replay = new PageCache(dir, PageCache.Mode.REPLAY, 1 << 20, Duration.ZERO, Map.of(), clock);
+        assertEquals("Škoda", scraper(replay).fetchListing(url).get("make"));
+        assertThrows(FileNotFoundException.class, () -> scraper(replay).fetchListing(baseUrl + "/other"));
+        // Nothing replayed reached the server
+        assertEquals(2, requests.size());
+    }
+
+    private WebScrapingService scraper(PageCache pageCache) {
+        return new WebScrapingService(pageFetcher, pageCache, new ListingExtractorRegistry(100), 100);
+    }
+
+    @Test
+    void reportsHttpErrorsAndNonHtmlLikeJsoup() {
+        HttpStatusException status = assertThrows(HttpStatusException.class,
+                () -> service.fetchListing(baseUrl + "/down"));
+        assertEquals(503, status.getStatusCode());
+
+        assertThrows(UnsupportedMimeTypeException.class, () -> service.fetchListing(baseUrl + "/image"));
+    }
+
+    @Test
+    void decodesEveryAdvertisedContentCoding() throws IOException {
+        byte[] plain = LISTING.getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream deflated = new ByteArrayOutputStream();
+        try (DeflaterOutputStream out = new DeflaterOutputStream(deflated)) {
+            out.write(plain);
+        }
+        assertEquals(LISTING, new String(PageFetcher.decode(deflated.toByteArray(), "deflate"),
+                StandardCharsets.UTF_8));
+        // Brotli stream holding "ab" in a single uncompressed meta-block
+        byte[] brotli = { 0x10, 0x00, 0x10, 0x61, 0x62, 0x03 };
+        assertEquals("ab", new String(PageFetcher.decode(brotli, "br"), StandardCharsets.UTF_8));
+        assertEquals(LISTING, new String(PageFetcher.decode(plain, null), StandardCharsets.UTF_8));
+    }
+}